@@ -0,0 +1,111 @@
+package org.yamcs.simulation;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ContainerProcessingOptions;
+import org.yamcs.xtceproc.XtceDbFactory;
+import org.yamcs.xtceproc.XtceTmExtractor;
+
+/**
+ * Compares the throughput and the allocated memory of the packet extraction with the interpreted and compiled container
+ * decoders, using the performance testing MDB and packets.
+ * <p>
+ * Each decoder is measured reading the values from the {@link org.yamcs.parameter.ParameterValueBlock} (as delivered
+ * to the consumers which do not keep the values) and creating the ParameterValue objects for all the values.
+ */
+@Ignore
+public class ContainerDecoderPerfTest {
+    int numPackets = 18;
+    int packetSize = 1476;
+    int n = 100_000;
+
+    @Test
+    public void test() throws Exception {
+        TimeEncoding.setUp();
+        YConfiguration.setupTest(null);
+        XtceDb xtcedb = XtceDbFactory.createInstance(getMdbConfig(), false, false);
+        List<byte[]> packets = generatePackets();
+
+        for (int k = 0; k < 3; k++) {
+            System.out.println("---------- run " + k);
+            run(xtcedb, packets, false, false);
+            run(xtcedb, packets, false, true);
+            run(xtcedb, packets, true, false);
+            run(xtcedb, packets, true, true);
+        }
+    }
+
+    void run(XtceDb xtcedb, List<byte[]> packets, boolean compile, boolean materialize) {
+        XtceTmExtractor tmExtractor = new XtceTmExtractor(xtcedb);
+        ContainerProcessingOptions opts = new ContainerProcessingOptions();
+        opts.setCompileContainers(compile);
+        tmExtractor.setOptions(opts);
+        tmExtractor.provideAll();
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long numParams = 0;
+        long a0 = threadBean.getThreadAllocatedBytes(threadId);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            byte[] p = packets.get(i % packets.size());
+            tmExtractor.processPacket(p, i, i);
+            if (materialize) {
+                numParams += tmExtractor.getParameterResult().size();
+            } else {
+                numParams += tmExtractor.getParameterBlock().size();
+            }
+        }
+        long d = System.nanoTime() - t0;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - a0;
+        System.out.println((compile ? "compiled" : "interpreted") + (materialize ? ", ParameterValue: " : ", block: ")
+                + n + " packets (" + numParams
+                + " parameters) in " + d / 1000_000 + " ms: " + (long) (n * 1e9 / d) + " packets/sec, "
+                + allocated / n + " bytes/packet, " + allocated / numParams + " bytes/parameter allocated");
+    }
+
+    List<Object> getMdbConfig() {
+        List<Object> treeConfig = new ArrayList<>();
+        Map<String, Object> ccsds = new HashMap<>();
+        ccsds.put("type", "sheet");
+        ccsds.put("spec", "mdb/simulator-ccsds.xls");
+        treeConfig.add(ccsds);
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("numPackets", numPackets);
+        args.put("packetSize", packetSize);
+        Map<String, Object> perf = new HashMap<>();
+        perf.put("type", PerfMdbLoader.class.getName());
+        perf.put("args", args);
+        treeConfig.add(perf);
+        return treeConfig;
+    }
+
+    // same packets as generated by the PerfPacketGenerator
+    List<byte[]> generatePackets() {
+        Random r = new Random();
+        List<byte[]> packets = new ArrayList<>();
+        for (int i = 0; i < numPackets; i++) {
+            CCSDSPacket packet = new CCSDSPacket(packetSize, PerfPacketGenerator.PERF_TEST_PACKET_ID + i);
+            ByteBuffer bb = packet.getUserDataBuffer();
+            while (bb.remaining() > 4) {
+                bb.putInt(r.nextInt());
+            }
+            packets.add(packet.toByteArray());
+        }
+        return packets;
+    }
+}
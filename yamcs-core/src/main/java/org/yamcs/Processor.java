@@ -112,6 +112,8 @@ public class Processor extends AbstractService {
 
     // if the PRM should subscribe to all parameters at startup
     boolean subscribeAll = false;
+    // if the services may terminate before the processor has started (short replays)
+    private boolean allowEarlyTermination = false;
     XtceTmProcessor tmProcessor;
 
     // unless very good performance reasons, we should try to serialize all the processing in this thread
@@ -316,8 +318,16 @@ public class Processor extends AbstractService {
         }
         long duration = 1000L * cacheConfig.getInt("duration", 300);
         int maxNumEntries = cacheConfig.getInt("maxNumEntries", 512);
+        String implementation = cacheConfig.getString("implementation", "array");
+        ParameterCacheConfig.Implementation impl;
+        try {
+            impl = ParameterCacheConfig.Implementation.valueOf(implementation.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Invalid parameter cache implementation '" + implementation
+                    + "'; supported values are 'array' and 'ring'");
+        }
 
-        parameterCacheConfig = new ParameterCacheConfig(enabled, cacheAll, duration, maxNumEntries);
+        parameterCacheConfig = new ParameterCacheConfig(enabled, cacheAll, duration, maxNumEntries, impl);
     }
 
     private static String key(String instance, String name) {
@@ -365,7 +375,7 @@ public class Processor extends AbstractService {
                 startIfNecessary(swc.service);
             }
 
-            tmProcessor.awaitRunning();
+            awaitIfNecessary(tmProcessor);
 
             awaitIfNecessary(commandHistoryRequestManager);
             awaitIfNecessary(commandHistoryProvider);
@@ -375,7 +385,7 @@ public class Processor extends AbstractService {
             awaitIfNecessary(eventAlarmServer);
 
             for (ServiceWithConfig swc : serviceList) {
-                swc.service.awaitRunning();
+                awaitIfNecessary(swc.service);
             }
 
             notifyStarted();
@@ -399,7 +409,14 @@ public class Processor extends AbstractService {
 
     private void awaitIfNecessary(Service service) {
         if (service != null) {
-            service.awaitRunning();
+            try {
+                service.awaitRunning();
+            } catch (IllegalStateException e) {
+                State state = service.state();
+                if (!allowEarlyTermination || (state != State.STOPPING && state != State.TERMINATED)) {
+                    throw e;
+                }
+            }
         }
     }
 
@@ -633,6 +650,16 @@ public class Processor extends AbstractService {
         this.synchronous = synchronous;
     }
 
+    /**
+     * Allows the services of the processor to stop before the processor has finished starting them. This is the case
+     * for a replay of an empty or very short time interval which can finish before the processor is running.
+     * <p>
+     * By default the processor fails to start if one of its services is not running.
+     */
+    public void setAllowEarlyTermination(boolean allowEarlyTermination) {
+        this.allowEarlyTermination = allowEarlyTermination;
+    }
+
     public boolean isReplay() {
         if (tmPacketProvider == null) {
             return false;
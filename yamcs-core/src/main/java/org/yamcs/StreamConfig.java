@@ -9,6 +9,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yamcs.yarch.AsyncStreamDispatcher.OverflowPolicy;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.XtceDb;
 import org.yamcs.xtceproc.XtceDbFactory;
@@ -27,6 +28,8 @@ public class StreamConfig {
         cmdHist, tm, param, tc, event, parameterAlarm, eventAlarm, sqlFile;
     }
 
+    static final int DEFAULT_DISPATCH_BUFFER_SIZE = 1024;
+
     List<StreamConfigEntry> entries = new ArrayList<>();
     static Map<String, StreamConfig> instances = new HashMap<>();
     Logger log = LoggerFactory.getLogger(this.getClass().getName());
@@ -70,6 +73,9 @@ public class StreamConfig {
                     boolean async = false;
                     SequenceContainer rootContainer = null;
                     String processor = null;
+                    boolean asyncDispatch = false;
+                    int dispatchBufferSize = DEFAULT_DISPATCH_BUFFER_SIZE;
+                    OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
                     if (o1 instanceof String) {
                         streamName = (String) o1;
                     } else if (o1 instanceof Map) {
@@ -91,8 +97,23 @@ public class StreamConfig {
                         if (streamConf.containsKey("rootContainer")) {
                             processor = (String) streamConf.get("processor");
                         }
+                        asyncDispatch = YConfiguration.getBoolean(streamConf, "asyncDispatch", false);
+                        dispatchBufferSize = YConfiguration.getInt(streamConf, "dispatchBufferSize",
+                                DEFAULT_DISPATCH_BUFFER_SIZE);
+                        if (dispatchBufferSize < 2) {
+                            throw new ConfigurationException(
+                                    "Invalid dispatchBufferSize " + dispatchBufferSize + " for stream " + streamName);
+                        }
+                        if (streamConf.containsKey("overflowPolicy")) {
+                            overflowPolicy = YConfiguration.getEnum(streamConf, "overflowPolicy",
+                                    OverflowPolicy.class);
+                        }
                     }
-                    entries.add(new StreamConfigEntry(type, streamName, processor, rootContainer, async));
+                    StreamConfigEntry sce = new StreamConfigEntry(type, streamName, processor, rootContainer, async);
+                    sce.asyncDispatch = asyncDispatch;
+                    sce.dispatchBufferSize = dispatchBufferSize;
+                    sce.overflowPolicy = overflowPolicy;
+                    entries.add(sce);
                 }
             }
 
@@ -159,6 +180,11 @@ public class StreamConfig {
          */
         String processor;
 
+        // if true, the tuples are delivered to the subscribers from a dedicated executor
+        boolean asyncDispatch = false;
+        int dispatchBufferSize = DEFAULT_DISPATCH_BUFFER_SIZE;
+        OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
         public StreamConfigEntry(StandardStreamType type, String name, String processor,
                 SequenceContainer rootContainer, boolean async) {
             super();
@@ -189,6 +215,22 @@ public class StreamConfig {
             return async;
         }
 
+        /**
+         * 
+         * @return true if the stream should deliver the tuples to its subscribers from a dedicated executor
+         */
+        public boolean isAsyncDispatch() {
+            return asyncDispatch;
+        }
+
+        public int getDispatchBufferSize() {
+            return dispatchBufferSize;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
         /**
          * Return the name of the processor where this stream should be connected to or null if no such processor exists
          * 
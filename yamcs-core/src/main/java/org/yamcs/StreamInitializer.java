@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.StreamConfig.StreamConfigEntry;
 import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
@@ -51,27 +52,36 @@ public class StreamInitializer {
     public void createStreams() throws StreamSqlException, ParseException, IOException {
         StreamConfig sc = StreamConfig.getInstance(yamcsInstance);
         for (StreamConfigEntry sce : sc.getEntries()) {
-            if (sce.type == StreamConfig.StandardStreamType.cmdHist) {
-                createStream(sce.name, StandardTupleDefinitions.TC);
-            } else if (sce.type == StreamConfig.StandardStreamType.tm) {
-                createStream(sce.name, StandardTupleDefinitions.TM);
-            } else if (sce.type == StreamConfig.StandardStreamType.param) {
-                createStream(sce.name, StandardTupleDefinitions.PARAMETER);
-            } else if (sce.type == StreamConfig.StandardStreamType.tc) {
-                createStream(sce.name, StandardTupleDefinitions.TC);
-            } else if (sce.type == StreamConfig.StandardStreamType.event) {
-                createStream(sce.name, StandardTupleDefinitions.EVENT);
-            } else if (sce.type == StreamConfig.StandardStreamType.parameterAlarm) {
-                createStream(sce.name, StandardTupleDefinitions.PARAMETER_ALARM);
-            } else if (sce.type == StreamConfig.StandardStreamType.eventAlarm) {
-                createStream(sce.name, StandardTupleDefinitions.EVENT_ALARM);
-            } else if (sce.type == StreamConfig.StandardStreamType.sqlFile) {
-                loadSqlFile(sce.name); // filename in fact
-            } else {
-                throw new IllegalArgumentException("Unknown stream type " + sce.type);
-            }
+            createStream(sce);
         }
+    }
 
+    private void createStream(StreamConfigEntry sce) throws StreamSqlException, ParseException, IOException {
+        if (sce.type == StreamConfig.StandardStreamType.cmdHist) {
+            createStream(sce.name, StandardTupleDefinitions.TC);
+        } else if (sce.type == StreamConfig.StandardStreamType.tm) {
+            createStream(sce.name, StandardTupleDefinitions.TM);
+        } else if (sce.type == StreamConfig.StandardStreamType.param) {
+            createStream(sce.name, StandardTupleDefinitions.PARAMETER);
+        } else if (sce.type == StreamConfig.StandardStreamType.tc) {
+            createStream(sce.name, StandardTupleDefinitions.TC);
+        } else if (sce.type == StreamConfig.StandardStreamType.event) {
+            createStream(sce.name, StandardTupleDefinitions.EVENT);
+        } else if (sce.type == StreamConfig.StandardStreamType.parameterAlarm) {
+            createStream(sce.name, StandardTupleDefinitions.PARAMETER_ALARM);
+        } else if (sce.type == StreamConfig.StandardStreamType.eventAlarm) {
+            createStream(sce.name, StandardTupleDefinitions.EVENT_ALARM);
+        } else if (sce.type == StreamConfig.StandardStreamType.sqlFile) {
+            loadSqlFile(sce.name); // filename in fact
+        } else {
+            throw new IllegalArgumentException("Unknown stream type " + sce.type);
+        }
+        if (sce.isAsyncDispatch() && sce.type != StreamConfig.StandardStreamType.sqlFile) {
+            Stream s = ydb.getStream(sce.getName());
+            log.debug("Enabling async dispatch for stream {} bufferSize: {} overflowPolicy: {}", sce.getName(),
+                    sce.getDispatchBufferSize(), sce.getOverflowPolicy());
+            s.enableAsyncDispatch(sce.getDispatchBufferSize(), sce.getOverflowPolicy());
+        }
     }
 
     private void createStream(String streamName, TupleDefinition tdef) throws StreamSqlException, ParseException {
@@ -0,0 +1,91 @@
+package org.yamcs.algorithms;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.yamcs.utils.IntArray;
+import org.yamcs.xtce.OnParameterUpdateTrigger;
+import org.yamcs.xtce.OutputParameter;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.TriggerSetType;
+
+/**
+ * Snapshot of the algorithm execution order together with an index from parameters to the algorithms which have to be
+ * updated when the parameter is received (the parameter is an input or an update trigger of the algorithm).
+ * <p>
+ * The algorithms are identified by their position in the execution order; the dependent algorithms always come after
+ * the algorithms they depend on.
+ * <p>
+ * Each algorithm is also assigned a level in the dependency graph: an algorithm having as input or trigger the output of
+ * another algorithm has a level strictly greater than that algorithm. The algorithms on the same level are therefore
+ * independent and can run concurrently.
+ */
+class AlgorithmDependencyIndex {
+    final int version;
+    final AlgorithmExecutor[] executors;
+    final int[] levels;
+    final int maxLevel;
+    // parameter -> positions in the executors array, sorted ascending
+    private final Map<Parameter, int[]> dependents = new HashMap<>();
+
+    AlgorithmDependencyIndex(int version, List<AlgorithmExecutor> executionOrder) {
+        this.version = version;
+        this.executors = executionOrder.toArray(new AlgorithmExecutor[0]);
+
+        this.levels = new int[executors.length];
+
+        Map<Parameter, IntArray> m = new HashMap<>();
+        // parameter -> max level of the algorithms (seen so far) outputting it
+        Map<Parameter, Integer> producerLevel = new HashMap<>();
+        int max = -1;
+        for (int i = 0; i < executors.length; i++) {
+            AlgorithmExecutor executor = executors[i];
+            Set<Parameter> params = new HashSet<>(executor.getRequiredParameters());
+            TriggerSetType tst = executor.getAlgorithm().getTriggerSet();
+            if (tst != null) {
+                for (OnParameterUpdateTrigger trigger : tst.getOnParameterUpdateTriggers()) {
+                    params.add(trigger.getParameter());
+                }
+            }
+            int level = 0;
+            for (Parameter p : params) {
+                m.computeIfAbsent(p, k -> new IntArray()).add(i);
+                Integer pl = producerLevel.get(p);
+                if (pl != null && pl >= level) {
+                    level = pl + 1;
+                }
+            }
+            levels[i] = level;
+            max = Math.max(max, level);
+            for (OutputParameter op : executor.getAlgorithm().getOutputList()) {
+                producerLevel.merge(op.getParameter(), level, Math::max);
+            }
+        }
+        this.maxLevel = max;
+        for (Map.Entry<Parameter, IntArray> me : m.entrySet()) {
+            dependents.put(me.getKey(), me.getValue().toArray());
+        }
+    }
+
+    /**
+     * Sets in the bit set the positions of the algorithms depending on the parameter, which come in the execution
+     * order after the position given.
+     */
+    void markDependents(Parameter p, BitSet bitSet, int after) {
+        int[] pos = dependents.get(p);
+        if (pos == null) {
+            return;
+        }
+        for (int i = pos.length - 1; i >= 0 && pos[i] > after; i--) {
+            bitSet.set(pos[i]);
+        }
+    }
+
+    int size() {
+        return executors.length;
+    }
+}
@@ -1,6 +1,7 @@
 package org.yamcs.algorithms;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -8,8 +9,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
@@ -29,6 +33,7 @@ import org.yamcs.parameter.ParameterProvider;
 import org.yamcs.parameter.ParameterRequestManager;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.utils.IntArray;
 import org.yamcs.xtce.Algorithm;
 import org.yamcs.xtce.CustomAlgorithm;
 import org.yamcs.xtce.DataSource;
@@ -40,6 +45,8 @@ import org.yamcs.xtce.OutputParameter;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.TriggerSetType;
 import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ProcessingStatistics;
+import org.yamcs.xtceproc.XtceTmProcessor;
 
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.AbstractService;
@@ -76,12 +83,17 @@ public class AlgorithmManager extends AbstractService
     NamedDescriptionIndex<Parameter> outParamIndex = new NamedDescriptionIndex<>();
 
     CopyOnWriteArrayList<AlgorithmExecutor> executionOrder = new CopyOnWriteArrayList<>();
+    // incremented each time the executionOrder changes
+    final AtomicInteger executionOrderVersion = new AtomicInteger();
+    private volatile AlgorithmDependencyIndex dependencyIndex;
     HashSet<Parameter> requiredInParams = new HashSet<>(); // required by this class
     ArrayList<Parameter> requestedOutParams = new ArrayList<>(); // requested by clients
     ParameterRequestManager parameterRequestManager;
 
     // For scheduling OnPeriodicRate algorithms
     ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+    // For running concurrently the independent algorithms; null if the algorithms run sequentially
+    ForkJoinPool executorPool;
     Processor processor;
     AlgorithmExecutionContext globalCtx;
 
@@ -135,6 +147,11 @@ public class AlgorithmManager extends AbstractService
         this.parameterRequestManager.addParameterProvider(this);
         xtcedb = processor.getXtceDb();
 
+        int parallelism = config.getInt("parallelism", 1);
+        if (parallelism > 1) {
+            executorPool = new ForkJoinPool(parallelism);
+        }
+
         globalCtx = new AlgorithmExecutionContext("global", null, processor.getProcessorData());
         subscriptionId = parameterRequestManager.addRequest(new ArrayList<Parameter>(0), this);
 
@@ -166,7 +183,7 @@ public class AlgorithmManager extends AbstractService
                 for (OnPeriodicRateTrigger trigger : timedTriggers) {
                     timer.scheduleAtFixedRate(() -> {
                         long t = processor.getCurrentTime();
-                        List<ParameterValue> params = engine.runAlgorithm(t, t);
+                        List<ParameterValue> params = runAlgorithm(engine, t, t, getStatistics());
                         parameterRequestManager.update(params);
                     }, 1000, trigger.getFireRate(), TimeUnit.MILLISECONDS);
                 }
@@ -302,6 +319,7 @@ public class AlgorithmManager extends AbstractService
                 parameterRequestManager.addItemsToRequest(subscriptionId, newItems);
             }
             executionOrder.add(executor); // Add at the back (dependent algorithms will come in front)
+            executionOrderVersion.incrementAndGet();
         } catch (InvalidRequestIdentification e) {
             log.error("InvalidRequestIdentification caught when subscribing to the items required for the algorithm {}",
                     executor.getAlgorithm().getName(), e);
@@ -312,6 +330,7 @@ public class AlgorithmManager extends AbstractService
         AlgorithmExecutor engine = execCtx.remove(algorithm);
         if (engine != null) {
             executionOrder.remove(engine);
+            executionOrderVersion.incrementAndGet();
         }
     }
 
@@ -365,6 +384,7 @@ public class AlgorithmManager extends AbstractService
 
                 if (doRemove) {
                     it.remove();
+                    executionOrderVersion.incrementAndGet();
                     globalCtx.remove(algo);
                 } else {
                     for (InputParameter p : algo.getInputSet()) {
@@ -413,6 +433,13 @@ public class AlgorithmManager extends AbstractService
 
     /**
      * Update parameters in context and run the affected algorithms
+     * <p>
+     * Only the algorithms having as input or trigger one of the parameters (either received or computed by a previous
+     * algorithm) are updated, in the execution order.
+     * <p>
+     * If the parallelism is greater than 1, the algorithms triggered on the same level of the dependency graph are run
+     * concurrently. Their outputs are merged in the execution order, such that the result does not depend on the thread
+     * scheduling.
      * 
      * @param items
      * @param ctx
@@ -425,16 +452,34 @@ public class AlgorithmManager extends AbstractService
         long acqTime = processor.getCurrentTime();
         long genTime = items.get(0).getGenerationTime();
 
+        AlgorithmDependencyIndex index = getDependencyIndex();
+        BitSet affected = new BitSet(index.size());
+        for (ParameterValue pv : items) {
+            index.markDependents(pv.getParameter(), affected, -1);
+        }
+        if (affected.isEmpty()) {
+            return newItems;
+        }
+        ProcessingStatistics stats = getStatistics();
+
         ArrayList<ParameterValue> allItems = new ArrayList<>(items);
-        for (AlgorithmExecutor executor : executionOrder) {
+        if (executorPool != null) {
+            runByLevel(index, affected, allItems, newItems, ctx, acqTime, genTime, stats);
+            return newItems;
+        }
+        for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+            AlgorithmExecutor executor = index.executors[i];
             if (ctx == globalCtx || executor.getExecutionContext() == ctx) {
                 boolean shouldRun = executor.updateParameters(allItems);
                 if (shouldRun) {
-                    List<ParameterValue> r = executor.runAlgorithm(acqTime, genTime);
+                    List<ParameterValue> r = runAlgorithm(executor, acqTime, genTime, stats);
                     if (r != null) {
                         allItems.addAll(r);
                         newItems.addAll(r);
                         ctx.updateHistoryWindows(r);
+                        for (ParameterValue pv : r) {
+                            index.markDependents(pv.getParameter(), affected, i);
+                        }
                     }
                 }
             }
@@ -442,6 +487,130 @@ public class AlgorithmManager extends AbstractService
         return newItems;
     }
 
+    private void runByLevel(AlgorithmDependencyIndex index, BitSet affected, List<ParameterValue> allItems,
+            List<ParameterValue> newItems, AlgorithmExecutionContext ctx, long acqTime, long genTime,
+            ProcessingStatistics stats) {
+        for (int level = 0; level <= index.maxLevel && !affected.isEmpty(); level++) {
+            IntArray toRun = new IntArray();
+            for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+                if (index.levels[i] != level) {
+                    continue;
+                }
+                affected.clear(i);
+                AlgorithmExecutor executor = index.executors[i];
+                if ((ctx == globalCtx || executor.getExecutionContext() == ctx)
+                        && executor.updateParameters(allItems)) {
+                    toRun.add(i);
+                }
+            }
+            if (toRun.isEmpty()) {
+                continue;
+            }
+            List<ParameterValue>[] results = runLevel(index, toRun, acqTime, genTime, stats);
+            for (int k = 0; k < toRun.size(); k++) {
+                List<ParameterValue> r = results[k];
+                if (r != null) {
+                    allItems.addAll(r);
+                    newItems.addAll(r);
+                    ctx.updateHistoryWindows(r);
+                    for (ParameterValue pv : r) {
+                        index.markDependents(pv.getParameter(), affected, toRun.get(k));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the algorithms of one level and returns their outputs in the order of toRun.
+     * <p>
+     * The script algorithms whose engine is not thread safe are serialized on the engine anyway, so all the algorithms
+     * of one such engine are run one after the other by the same task. If a level contains only one task (for example
+     * only JavaScript algorithms), it is run on the current thread without handing it over to the pool.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ParameterValue>[] runLevel(AlgorithmDependencyIndex index, IntArray toRun, long acqTime,
+            long genTime, ProcessingStatistics stats) {
+        int n = toRun.size();
+        List<ParameterValue>[] results = new List[n];
+
+        // each group is a list of positions in toRun run sequentially by one task
+        List<IntArray> groups = new ArrayList<>();
+        Map<Object, IntArray> serializedGroups = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            Object lock = getSerializationLock(index.executors[toRun.get(k)]);
+            IntArray group = lock == null ? null : serializedGroups.get(lock);
+            if (group == null) {
+                group = new IntArray();
+                groups.add(group);
+                if (lock != null) {
+                    serializedGroups.put(lock, group);
+                }
+            }
+            group.add(k);
+        }
+
+        // the last group is run on the current thread while the others run in the pool
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(groups.size() - 1);
+        for (int g = 0; g < groups.size() - 1; g++) {
+            IntArray group = groups.get(g);
+            tasks.add(executorPool.submit(() -> runGroup(index, toRun, group, results, acqTime, genTime, stats)));
+        }
+        runGroup(index, toRun, groups.get(groups.size() - 1), results, acqTime, genTime, stats);
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return results;
+    }
+
+    private void runGroup(AlgorithmDependencyIndex index, IntArray toRun, IntArray group,
+            List<ParameterValue>[] results, long acqTime, long genTime, ProcessingStatistics stats) {
+        for (int j = 0; j < group.size(); j++) {
+            int k = group.get(j);
+            results[k] = runAlgorithm(index.executors[toRun.get(k)], acqTime, genTime, stats);
+        }
+    }
+
+    /**
+     * @return the object on which the runs of the executor are serialized with other executors or null if the executor
+     *         can run concurrently with any other one
+     */
+    private static Object getSerializationLock(AlgorithmExecutor executor) {
+        if (executor instanceof ScriptAlgorithmExecutor) {
+            return ((ScriptAlgorithmExecutor) executor).getSerializationLock();
+        }
+        return null;
+    }
+
+    private List<ParameterValue> runAlgorithm(AlgorithmExecutor executor, long acqTime, long genTime,
+            ProcessingStatistics stats) {
+        if (stats == null) {
+            return executor.runAlgorithm(acqTime, genTime);
+        }
+        long t0 = System.nanoTime();
+        List<ParameterValue> r = executor.runAlgorithm(acqTime, genTime);
+        stats.newAlgorithmRun(executor.getAlgorithm(), System.nanoTime() - t0, acqTime);
+        return r;
+    }
+
+    /**
+     * @return the index corresponding to the current execution order, rebuilt if the execution order has changed
+     */
+    AlgorithmDependencyIndex getDependencyIndex() {
+        AlgorithmDependencyIndex index = dependencyIndex;
+        int version = executionOrderVersion.get();
+        if (index == null || index.version != version) {
+            index = new AlgorithmDependencyIndex(version, executionOrder);
+            dependencyIndex = index;
+        }
+        return index;
+    }
+
+    private ProcessingStatistics getStatistics() {
+        XtceTmProcessor tmProcessor = processor.getTmProcessor();
+        return tmProcessor == null ? null : tmProcessor.getStatistics();
+    }
+
     @Override
     public void setParameterListener(ParameterListener parameterRequestManager) {
         // do nothing, we're more interested in a ParameterRequestManager, which we're
@@ -458,6 +627,9 @@ public class AlgorithmManager extends AbstractService
         if (timer != null) {
             timer.shutdownNow();
         }
+        if (executorPool != null) {
+            executorPool.shutdown();
+        }
         notifyStopped();
     }
 
@@ -499,5 +671,6 @@ public class AlgorithmManager extends AbstractService
         globalCtx.addAlgorithm(algOverr, executor);
         algoOverrides.put(calg, algOverr);
         executionOrder.add(executor);
+        executionOrderVersion.incrementAndGet();
     }
 }
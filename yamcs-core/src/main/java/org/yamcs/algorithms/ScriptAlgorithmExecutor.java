@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import javax.script.Invocable;
+import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import org.codehaus.janino.SimpleCompiler;
@@ -40,6 +41,9 @@ public class ScriptAlgorithmExecutor extends AbstractAlgorithmExecutor {
     static final Logger log = LoggerFactory.getLogger(ScriptAlgorithmExecutor.class);
 
     final Invocable invocable;
+    // script engines not declaring themselves thread safe are shared by all the algorithms of a language,
+    // so the functions cannot be invoked concurrently
+    final Object invocationLock;
     // stores both the function inputs and outputs
     // the position of the inputs corresponds to the position of AlgorithmDef input respectively output List
     final Object[] functionArgs;
@@ -60,6 +64,7 @@ public class ScriptAlgorithmExecutor extends AbstractAlgorithmExecutor {
         this.parameterTypeProcessor = new ParameterTypeProcessor(execCtx.getProcessorData());
         this.functionName = functionName;
         this.invocable = invocable;
+        this.invocationLock = isThreadSafe(invocable) ? this : invocable;
         this.eventProducer = execCtx.getProcessorData().getEventProducer();
 
         numInputs = algorithmDef.getInputList().size();
@@ -101,7 +106,10 @@ public class ScriptAlgorithmExecutor extends AbstractAlgorithmExecutor {
             log.trace(getRunningTraceString());
         }
         try {
-            Object returnValue = invocable.invokeFunction(functionName, functionArgs);
+            Object returnValue;
+            synchronized (invocationLock) {
+                returnValue = invocable.invokeFunction(functionName, functionArgs);
+            }
             List<ParameterValue> outputValues = new ArrayList<>();
             List<OutputParameter> outputList = algorithmDef.getOutputList();
             for (int k = 0; k < numOutputs; k++) {
@@ -124,6 +132,18 @@ public class ScriptAlgorithmExecutor extends AbstractAlgorithmExecutor {
         }
     }
 
+    /**
+     * @return the script engine on which the invocations are serialized or null if the engine is thread safe
+     */
+    Object getSerializationLock() {
+        return invocationLock == this ? null : invocationLock;
+    }
+
+    private static boolean isThreadSafe(Invocable invocable) {
+        return (invocable instanceof ScriptEngine)
+                && ((ScriptEngine) invocable).getFactory().getParameter("THREADING") != null;
+    }
+
     private String getRunningTraceString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Running algorithm ").append(algorithmDef.getName())
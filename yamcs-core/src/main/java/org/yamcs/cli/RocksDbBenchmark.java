@@ -1,6 +1,16 @@
 package org.yamcs.cli;
 
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -19,6 +29,7 @@ import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.rocksdb.RdbConfig;
 import org.yamcs.yarch.rocksdb.RdbStorageEngine;
 
 import com.beust.jcommander.Parameter;
@@ -46,6 +57,14 @@ class RocksDbBenchmark extends Command {
     @Parameter(names = "--baseTime", description = "Start inserting data with this time. By default it's 2017-01-01T00:00:00", required = false)
     String baseTime = "2017-01-01T00:00:00";
 
+    @Parameter(names = "--profile", description = "The RocksDB tuning profile used for the rocksbench tablespace: default or time_series.\n"
+            + "By default the options from the rdbConfig section of yamcs.yaml are used", required = false)
+    String profile;
+
+    @Parameter(names = "--compactionStyle", description = "The RocksDB compaction style used with the profile: level or universal.\n"
+            + "By default it's level", required = false)
+    String compactionStyle;
+
     // frequencies in 100ms
     private long freq[] = { 1, 10, 100, 600, 36000 };
 
@@ -66,6 +85,13 @@ class RocksDbBenchmark extends Command {
             throw new ParameterException(
                     "Invalid count specified; please provide " + freq.length + " numbers (e.g. \"1 2 3 4 5\"");
         }
+        if (compactionStyle != null && profile == null) {
+            throw new ParameterException("The compaction style can only be specified together with a profile");
+        }
+        if (compactionStyle != null && !"level".equalsIgnoreCase(compactionStyle)
+                && !"universal".equalsIgnoreCase(compactionStyle)) {
+            throw new ParameterException("Invalid compaction style '" + compactionStyle + "'; use level or universal");
+        }
         count = new int[a.length];
         for (int i = 0; i < a.length; i++) {
             try {
@@ -78,6 +104,17 @@ class RocksDbBenchmark extends Command {
 
     @Override
     public void execute() throws Exception {
+        if (profile != null) {
+            Map<String, Object> tsConfig = new HashMap<>();
+            tsConfig.put(RdbConfig.KEY_TABLESPACE_NAME_PATTERN, "rocksbench\\.rdb");
+            tsConfig.put(RdbConfig.KEY_PROFILE, profile);
+            if (compactionStyle != null) {
+                tsConfig.put(RdbConfig.KEY_OPTIONS, Collections.singletonMap("compactionStyle", compactionStyle));
+            }
+            RdbConfig.getInstance().addTablespaceConfig(tsConfig);
+            console.println("Using the " + profile + " profile"
+                    + (compactionStyle == null ? "" : " with " + compactionStyle + " compaction"));
+        }
         YarchDatabase.setHome(dbDir);
         this.ydb = YarchDatabase.getInstance("rocksbench");
         TableDefinition tblDef = ydb.getTable(tableName);
@@ -99,6 +136,7 @@ class RocksDbBenchmark extends Command {
             console.println("Table " + tableName + " already exists!. Old data will not be overwritten.");
         }
         populate(tblDef, durationHours * 36000);
+        printDiskUsage();
 
         console.println("*********************** reading data ********************");
 
@@ -157,6 +195,23 @@ class RocksDbBenchmark extends Command {
                 "time to populate " + (d / 1000.0) + " seconds; speed: " + (numPackets * 1000l / d) + " packets/sec");
     }
 
+    void printDiskUsage() throws IOException {
+        RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(ydb.getTable(tableName));
+        Path dir = Paths.get(rse.getTablespace(ydb).getDataDir());
+        long[] size = new long[2];
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.getFileName().toString().endsWith(".sst")) {
+                    size[0] += attrs.size();
+                    size[1]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        console.println(String.format("disk usage: %.2f MB in %d SST files", size[0] / 1048576.0, size[1]));
+    }
+
     void read(String tblName, String packetName, long rate100ms) throws Exception {
         long t0 = System.currentTimeMillis();
         String q = "create stream s as select * from " + tblName;
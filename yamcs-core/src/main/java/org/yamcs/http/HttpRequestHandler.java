@@ -250,6 +250,7 @@ public class HttpRequestHandler extends ChannelInboundHandlerAdapter {
 
         int maxFrameLength = wsConfig.getInt("maxFrameLength");
         int maxDropped = wsConfig.getInt("connectionCloseNumDroppedMsg");
+        boolean conflation = wsConfig.getBoolean("conflation");
         int lo = wsConfig.getConfig("writeBufferWaterMark").getInt("low");
         int hi = wsConfig.getConfig("writeBufferWaterMark").getInt("high");
         WriteBufferWaterMark waterMark = new WriteBufferWaterMark(lo, hi);
@@ -263,7 +264,7 @@ public class HttpRequestHandler extends ChannelInboundHandlerAdapter {
         originalRequestInfo.setYamcsInstance(yamcsInstance);
         originalRequestInfo.setProcessor(processor);
         originalRequestInfo.setUser(ctx.channel().attr(CTX_USER).get());
-        ctx.pipeline().addLast(new WebSocketFrameHandler(originalRequestInfo, maxDropped, waterMark));
+        ctx.pipeline().addLast(new WebSocketFrameHandler(originalRequestInfo, maxDropped, waterMark, conflation));
 
         // Effectively trigger websocket-handler (will attempt handshake)
         ctx.fireChannelRead(req);
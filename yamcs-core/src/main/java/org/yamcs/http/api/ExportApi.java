@@ -79,6 +79,10 @@ public class ExportApi extends AbstractExportApi<Context> {
         if (request.getNameCount() > 0) {
             sqlb.whereColIn("pname", nameSet);
         }
+        boolean unordered = RestStreams.isUnordered(request.getOrder());
+        if (!unordered && request.getOrder().equals("desc")) {
+            sqlb.descend(true);
+        }
         String sql = sqlb.toString();
 
         HttpBody metadata = HttpBody.newBuilder()
@@ -87,7 +91,7 @@ public class ExportApi extends AbstractExportApi<Context> {
                 .build();
         observer.next(metadata);
 
-        RestStreams.stream(instance, sql, sqlb.getQueryArguments(), new StreamSubscriber() {
+        RestStreams.stream(instance, sql, sqlb.getQueryArguments(), unordered, new StreamSubscriber() {
 
             @Override
             public void onTuple(Stream stream, Tuple tuple) {
@@ -164,10 +168,14 @@ public class ExportApi extends AbstractExportApi<Context> {
         if (request.hasQ()) {
             sqlb.where("body.message like ?", "%" + request.getQ() + "%");
         }
+        boolean unordered = RestStreams.isUnordered(request.getOrder());
+        if (!unordered && request.getOrder().equals("desc")) {
+            sqlb.descend(true);
+        }
 
         String sql = sqlb.toString();
 
-        RestStreams.stream(instance, sql, sqlb.getQueryArguments(), new CsvEventStreamer(observer));
+        RestStreams.stream(instance, sql, sqlb.getQueryArguments(), unordered, new CsvEventStreamer(observer));
     }
 
     @Override
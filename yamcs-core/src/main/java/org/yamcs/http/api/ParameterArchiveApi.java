@@ -36,6 +36,7 @@ import org.yamcs.parameterarchive.ParameterId;
 import org.yamcs.parameterarchive.ParameterIdDb;
 import org.yamcs.parameterarchive.ParameterIdValueList;
 import org.yamcs.parameterarchive.ParameterRequest;
+import org.yamcs.parameterarchive.RollupSegment;
 import org.yamcs.protobuf.AbstractParameterArchiveApi;
 import org.yamcs.protobuf.Archive.GetParameterSamplesRequest;
 import org.yamcs.protobuf.Archive.ListParameterHistoryRequest;
@@ -180,8 +181,10 @@ public class ParameterArchiveApi extends AbstractParameterArchiveApi<Context> {
             stop = TimeEncoding.fromProtobufTimestamp(request.getStop());
         }
         int sampleCount = request.hasCount() ? request.getCount() : 500;
+        RestDownsampler.Mode mode = request.hasMode() ? ArchiveHelper.toDownsamplerMode(request.getMode())
+                : RestDownsampler.Mode.AVG;
 
-        RestDownsampler sampler = new RestDownsampler(start, stop, sampleCount);
+        RestDownsampler sampler = new RestDownsampler(start, stop, sampleCount, mode);
         ParameterArchive parchive = getParameterArchive(instance);
 
         ParameterCache pcache = null;
@@ -193,8 +196,16 @@ public class ParameterArchiveApi extends AbstractParameterArchiveApi<Context> {
 
         ParameterRequest pr = new ParameterRequest(start, stop, true, true, false, false);
         SingleParameterRetriever spdr = new SingleParameterRetriever(parchive, pcache, pid, pr);
+        // use the coarsest rollup level which still gives enough buckets for the requested samples
+        // (only in the avg mode, the rollups do not have the data points needed by the other modes)
+        int rollupLevel = parchive.hasRollups() && sampler.supportsRollups()
+                ? RollupSegment.getLevel(stop - start, sampleCount) : -1;
         try {
-            spdr.retrieve(sampler);
+            if (rollupLevel >= 0) {
+                spdr.retrieveRollups(rollupLevel, sampler::processRollup, sampler);
+            } else {
+                spdr.retrieve(sampler);
+            }
         } catch (IOException e) {
             log.warn("Received exception during parameter retrieval", e);
             throw new InternalServerErrorException(e.getMessage());
@@ -400,6 +400,14 @@ public class RestRequest {
         txSize += numBytes;
     }
 
+    /**
+     * Returns true if the request specifies that the order does not matter by use of the query string parameter
+     * 'order=none'
+     */
+    public boolean asksUnordered() {
+        return hasQueryParameter("order") && "none".equalsIgnoreCase(getQueryParameter("order"));
+    }
+
     /**
      * Returns true if the request specifies descending by use of the query string paramter 'order=desc'
      */
@@ -6,13 +6,17 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yamcs.http.BadRequestException;
 import org.yamcs.http.HttpException;
 import org.yamcs.http.InternalServerErrorException;
 import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.AbstractTableReaderStream;
+import org.yamcs.yarch.SelectStream;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.streamsql.LimitedStream;
 import org.yamcs.yarch.streamsql.StreamSqlException;
 
 public class RestStreams {
@@ -25,6 +29,18 @@ public class RestStreams {
 
     public static void stream(String instance, String selectSql, List<Object> args, StreamSubscriber s)
             throws HttpException {
+        stream(instance, selectSql, args, false, s);
+    }
+
+    /**
+     * 
+     * @param unordered
+     *            - if true, the table partitions are read in parallel (see
+     *            {@link YarchDatabase#getTableScanParallelism()}) and the tuples are delivered in no particular order.
+     *            The subscriber is then called from different threads, but never concurrently.
+     */
+    public static void stream(String instance, String selectSql, List<Object> args, boolean unordered,
+            StreamSubscriber s) throws HttpException {
         YarchDatabaseInstance ydb = YarchDatabase.getInstance(instance);
 
         String streamName = "rest_archive" + streamCounter.incrementAndGet();
@@ -43,8 +59,46 @@ public class RestStreams {
         }
 
         Stream stream = ydb.getStream(streamName);
+        if (unordered) {
+            AbstractTableReaderStream tableStream = getTableReader(stream);
+            if (tableStream != null) {
+                tableStream.setParallelism(YarchDatabase.getTableScanParallelism());
+            }
+        }
         stream.addSubscriber(s);
         stream.start();
         return;
     }
+
+    /**
+     * Checks the order requested for a table dump or an export.
+     * 
+     * @return true if the records can be exported in any order
+     */
+    public static boolean isUnordered(String order) throws HttpException {
+        switch (order) {
+        case "":
+        case "asc":
+        case "desc":
+            return false;
+        case "none":
+            return true;
+        default:
+            throw new BadRequestException("Unsupported value for order. Expected 'asc', 'desc' or 'none'");
+        }
+    }
+
+    private static AbstractTableReaderStream getTableReader(Stream stream) {
+        while (true) {
+            if (stream instanceof AbstractTableReaderStream) {
+                return (AbstractTableReaderStream) stream;
+            } else if (stream instanceof SelectStream) {
+                stream = ((SelectStream) stream).getInput();
+            } else if (stream instanceof LimitedStream) {
+                stream = ((LimitedStream) stream).getInput();
+            } else {
+                return null;
+            }
+        }
+    }
 }
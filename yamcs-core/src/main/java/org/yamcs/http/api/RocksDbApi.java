@@ -162,8 +162,12 @@ public class RocksDbApi extends AbstractRocksDbApi<Context> {
         for (Tablespace tblsp : rse.getTablespaces().values()) {
             sb.append("Tablespace: ").append(tblsp.getName()).append("\n");
             sb.append("  dataDir: ").append(tblsp.getDataDir()).append("\n");
-            sb.append("  open databases: ").append("\n");
             RDBFactory rdbf = tblsp.getRdbFactory();
+            sb.append("  database registry: hits: ").append(rdbf.getHitCount())
+                    .append(", misses: ").append(rdbf.getMissCount())
+                    .append(", contention: ").append(rdbf.getContentionCount())
+                    .append(", closed: ").append(rdbf.getCloseCount()).append("\n");
+            sb.append("  open databases: ").append("\n");
             for (String s : rdbf.getOpenDbPaths()) {
                 if (s.isEmpty()) {
                     s = "<root>";
@@ -509,8 +509,10 @@ public class StreamArchiveApi extends AbstractStreamArchiveApi<Context> {
         rr.setStop(stop);
 
         int sampleCount = request.hasCount() ? request.getCount() : 500;
+        RestDownsampler.Mode mode = request.hasMode() ? ArchiveHelper.toDownsamplerMode(request.getMode())
+                : RestDownsampler.Mode.AVG;
 
-        RestDownsampler sampler = new RestDownsampler(start, stop, sampleCount);
+        RestDownsampler sampler = new RestDownsampler(start, stop, sampleCount, mode);
 
         RestReplayListener replayListener = new RestReplayListener() {
             @Override
@@ -1,6 +1,7 @@
 package org.yamcs.http.api;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.yamcs.api.Observer;
@@ -159,9 +160,13 @@ public class TableApi extends AbstractTableApi<Context> {
 
         SqlBuilder sqlb = new SqlBuilder(table.getName());
         request.getColsList().forEach(col -> sqlb.select(col));
+        boolean unordered = RestStreams.isUnordered(request.getOrder());
+        if (!unordered && request.getOrder().equals("desc")) {
+            sqlb.descend(true);
+        }
         String sql = sqlb.toString();
 
-        RestStreams.stream(instance, sql, new RowStreamer(observer));
+        RestStreams.stream(instance, sql, Collections.emptyList(), unordered, new RowStreamer(observer));
     }
 
     @Override
@@ -5,6 +5,7 @@ import org.yamcs.Processor;
 import org.yamcs.YamcsServer;
 import org.yamcs.YamcsServerInstance;
 import org.yamcs.http.api.processor.ProcessorRestHandler;
+import org.yamcs.http.websocket.ConnectedWebSocketClient;
 import org.yamcs.protobuf.ClientInfo;
 import org.yamcs.protobuf.ClientInfo.ClientState;
 import org.yamcs.protobuf.Mdb.MissionDatabase;
@@ -68,6 +69,11 @@ public class YamcsToGpbAssembler {
             clientb.setInstance(processor.getInstance());
             clientb.setProcessorName(processor.getName());
         }
+        if (client instanceof ConnectedWebSocketClient) {
+            ConnectedWebSocketClient wsClient = (ConnectedWebSocketClient) client;
+            clientb.setConflatedUpdates(wsClient.getConflatedUpdates());
+            clientb.setDroppedUpdates(wsClient.getDroppedUpdates());
+        }
         return clientb.build();
     }
 }
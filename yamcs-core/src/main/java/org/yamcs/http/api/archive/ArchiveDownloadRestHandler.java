@@ -68,12 +68,15 @@ public class ArchiveDownloadRestHandler extends RestHandler {
         if (!nameSet.isEmpty()) {
             sqlb.whereColIn("pname", nameSet);
         }
-        sqlb.descend(req.asksDescending(false));
+        boolean unordered = req.asksUnordered();
+        if (!unordered) {
+            sqlb.descend(req.asksDescending(false));
+        }
         String sql = sqlb.toString();
 
         String filename = "packets";
 
-        RestStreams.stream(instance, sql, sqlb.getQueryArguments(),
+        RestStreams.stream(instance, sql, sqlb.getQueryArguments(), unordered,
                 new StreamToChunkedProtobufEncoder<TmPacketData>(req, filename) {
                     @Override
                     public TmPacketData mapTuple(Tuple tuple) {
@@ -103,10 +106,13 @@ public class ArchiveDownloadRestHandler extends RestHandler {
         if (!nameSet.isEmpty()) {
             sqlb.whereColIn("cmdName", nameSet);
         }
-        sqlb.descend(req.asksDescending(false));
+        boolean unordered = req.asksUnordered();
+        if (!unordered) {
+            sqlb.descend(req.asksDescending(false));
+        }
         String sql = sqlb.toString();
 
-        RestStreams.stream(instance, sql, sqlb.getQueryArguments(),
+        RestStreams.stream(instance, sql, sqlb.getQueryArguments(), unordered,
                 new StreamToChunkedProtobufEncoder<CommandHistoryEntry>(req, "commands") {
                     @Override
                     public CommandHistoryEntry mapTuple(Tuple tuple) {
@@ -163,15 +169,18 @@ public class ArchiveDownloadRestHandler extends RestHandler {
             sqlb.where("body.message like ?", "%" + req.getQueryParameter("q") + "%");
         }
 
-        sqlb.descend(req.asksDescending(false));
+        boolean unordered = req.asksUnordered();
+        if (!unordered) {
+            sqlb.descend(req.asksDescending(false));
+        }
         String sql = sqlb.toString();
 
-        transferChunkedProtobufEvents(req, instance, sql, sqlb.getQueryArguments());
+        transferChunkedProtobufEvents(req, instance, sql, sqlb.getQueryArguments(), unordered);
     }
 
-    private void transferChunkedProtobufEvents(RestRequest req, String instance, String sql, List<Object> sqlArgs)
-            throws HttpException {
-        RestStreams.stream(instance, sql, sqlArgs, new StreamToChunkedProtobufEncoder<Event>(req, "events") {
+    private void transferChunkedProtobufEvents(RestRequest req, String instance, String sql, List<Object> sqlArgs,
+            boolean unordered) throws HttpException {
+        RestStreams.stream(instance, sql, sqlArgs, unordered, new StreamToChunkedProtobufEncoder<Event>(req, "events") {
 
             @Override
             public Event mapTuple(Tuple tuple) {
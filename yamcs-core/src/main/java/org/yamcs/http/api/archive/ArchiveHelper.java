@@ -8,6 +8,7 @@ import java.util.Map.Entry;
 
 import org.yamcs.alarms.EventAlarmStreamer;
 import org.yamcs.alarms.ParameterAlarmStreamer;
+import org.yamcs.http.BadRequestException;
 import org.yamcs.http.HttpException;
 import org.yamcs.http.ProtobufRegistry;
 import org.yamcs.http.api.archive.ParameterRanger.Range;
@@ -42,6 +43,7 @@ import org.yamcs.protobuf.Yamcs.Value;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.ValueUtility;
+import org.yamcs.yarch.AbstractTableReaderStream;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.DataType;
 import org.yamcs.yarch.PartitioningSpec;
@@ -153,6 +155,11 @@ public final class ArchiveHelper {
         StreamInfo.Builder infob = StreamInfo.newBuilder();
         infob.setName(stream.getName());
         infob.setDataCount(stream.getDataCount());
+        AbstractTableReaderStream reader = AbstractTableReaderStream.getTableReader(stream);
+        if (reader != null) {
+            infob.setRowsScanned(reader.getNumRowsScanned());
+            infob.setRowsReturned(reader.getNumRowsReturned());
+        }
         infob.setScript("create stream " + stream.getName() + stream.getDefinition().getStringDefinition());
         for (ColumnDefinition cdef : stream.getDefinition().getColumnDefinitions()) {
             infob.addColumn(toColumnInfo(cdef, null));
@@ -290,6 +297,14 @@ public final class ArchiveHelper {
         return rrb.build();
     }
 
+    public final static RestDownsampler.Mode toDownsamplerMode(String mode) {
+        try {
+            return RestDownsampler.Mode.fromString(mode);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown downsampling mode '" + mode + "'");
+        }
+    }
+
     public final static TimeSeries.Sample toGPBSample(Sample sample) {
         TimeSeries.Sample.Builder b = TimeSeries.Sample.newBuilder();
         b.setTime(TimeEncoding.toString(sample.t));
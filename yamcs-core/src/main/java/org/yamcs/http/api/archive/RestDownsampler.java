@@ -1,16 +1,14 @@
 package org.yamcs.http.api.archive;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.TreeMap;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.parameter.ValueArray;
 import org.yamcs.parameterarchive.ParameterValueArray;
+import org.yamcs.parameterarchive.RollupSegment;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.UnsignedLong;
 
@@ -20,6 +18,12 @@ import org.yamcs.utils.UnsignedLong;
  * <p>
  * The output is not a bunch of parameter values, but instead a range of values limited to n, which should be fit for
  * inclusion in plots.
+ * <p>
+ * The requested range is split into fixed intervals (buckets); the index of the bucket is computed from the value
+ * timestamp and the statistics of each bucket are kept in primitive arrays.
+ * <p>
+ * Depending on the {@link Mode}, each bucket is returned as one sample holding the average, min and max of the values
+ * or as a few actual data points selected such that the spikes are not averaged out.
  */
 public class RestDownsampler implements Consumer<ParameterValueArray> {
 
@@ -27,23 +31,75 @@ public class RestDownsampler implements Consumer<ParameterValueArray> {
     private static final int DEFAULT_SAMPLE_COUNT = 500;
     private static long GAP_TIME = 120000;
 
-    private TreeMap<Long, Sample> samplesByTime = new TreeMap<>();
-    private long start;
-    private long stop;
+    public enum Mode {
+        /**
+         * one sample per bucket with the average, min and max of the values
+         */
+        AVG,
+        /**
+         * up to four data points per bucket: the first, the minimum, the maximum and the last value
+         */
+        M4,
+        /**
+         * one data point per bucket selected with the Largest-Triangle-Three-Buckets algorithm among the M4 points
+         */
+        LTTB;
+
+        /**
+         * Returns the mode corresponding to the (case insensitive) name
+         *
+         * @throws IllegalArgumentException
+         *             if there is no such mode
+         */
+        public static Mode fromString(String s) {
+            return valueOf(s.toUpperCase());
+        }
+    }
+
+    private final long start;
+    private final long stop;
+    private final long step;
+    private final int numBuckets;
+    private final Mode mode;
     private long lastSampleTime;
 
+    private final int[] count;
+    private final double[] min;
+    private final double[] max;
+    private final double[] sum;
+
+    // only used by the M4 and LTTB modes
+    private long[] firstTime, minTime, maxTime, lastTime;
+    private double[] firstValue, lastValue;
+
     public RestDownsampler(long start, long stop) {
         this(start, stop, DEFAULT_SAMPLE_COUNT);
     }
 
     public RestDownsampler(long start, long stop, int sampleCount) {
+        this(start, stop, sampleCount, Mode.AVG);
+    }
+
+    public RestDownsampler(long start, long stop, int sampleCount, Mode mode) {
         this.start = start;
         this.stop = stop;
+        this.mode = mode;
+
+        long range = Math.max(0, stop - start);
+        step = Math.max(1, range / Math.max(1, sampleCount));
+        numBuckets = (int) ((range + step - 1) / step);
 
-        // Initialize intervals
-        long step = (stop - start) / sampleCount;
-        for (long i = start; i < stop; i += step) {
-            samplesByTime.put(i, null);
+        count = new int[numBuckets];
+        min = new double[numBuckets];
+        max = new double[numBuckets];
+        sum = new double[numBuckets];
+        if (mode != Mode.AVG) {
+            firstTime = new long[numBuckets];
+            minTime = new long[numBuckets];
+            maxTime = new long[numBuckets];
+            lastTime = new long[numBuckets];
+            firstValue = new double[numBuckets];
+            lastValue = new double[numBuckets];
         }
     }
 
@@ -51,42 +107,250 @@ public class RestDownsampler implements Consumer<ParameterValueArray> {
         if (time > stop || time < start) {
             return;
         }
-
-        Entry<Long, Sample> entry = samplesByTime.floorEntry(time);
-        if (entry == null) {
+        if (numBuckets == 0) {
             log.warn("No interval for value {}", value);
             return;
         }
+        add(bucketIndex(time), time, value);
+    }
+
+    private void addInRange(long time, double value) {
+        if (time <= stop && time >= start) {
+            add(bucketIndex(time), time, value);
+        }
+    }
 
-        lastSampleTime = entry.getKey();
-        Sample sample = entry.getValue();
-        if (sample == null) {
-            samplesByTime.put(entry.getKey(), new Sample(entry.getKey(), value));
+    private int bucketIndex(long time) {
+        return (int) Math.min((time - start) / step, numBuckets - 1);
+    }
+
+    private void add(int idx, long time, double value) {
+        lastSampleTime = start + idx * step;
+        int n = count[idx];
+        if (n == 0) {
+            min[idx] = max[idx] = sum[idx] = value;
+            if (mode != Mode.AVG) {
+                firstTime[idx] = minTime[idx] = maxTime[idx] = lastTime[idx] = time;
+                firstValue[idx] = lastValue[idx] = value;
+            }
         } else {
-            sample.process(value);
+            if (value < min[idx]) {
+                min[idx] = value;
+                if (mode != Mode.AVG) {
+                    minTime[idx] = time;
+                }
+            }
+            if (value > max[idx]) {
+                max[idx] = value;
+                if (mode != Mode.AVG) {
+                    maxTime[idx] = time;
+                }
+            }
+            sum[idx] += value;
+            if (mode != Mode.AVG) {
+                if (time < firstTime[idx]) {
+                    firstTime[idx] = time;
+                    firstValue[idx] = value;
+                }
+                if (time >= lastTime[idx]) {
+                    lastTime[idx] = time;
+                    lastValue[idx] = value;
+                }
+            }
+        }
+        count[idx] = n + 1;
+    }
+
+    /**
+     * The rollups keep only the count, min, max and sum of each bucket; they are enough for the {@link Mode#AVG} mode
+     * but not for the M4 and LTTB modes which need the actual first, min, max and last data points.
+     *
+     * @return true if the pre-aggregated rollup buckets can be given to {@link #processRollup(RollupSegment)}
+     */
+    public boolean supportsRollups() {
+        return mode == Mode.AVG;
+    }
+
+    /**
+     * Adds the pre-aggregated buckets of the rollup segment to the samples.
+     * <p>
+     * The buckets are expected to be smaller than the sample intervals; a bucket partially overlapping with the
+     * requested range is counted as if it were completely inside.
+     *
+     * @throws IllegalStateException
+     *             if the rollups are not supported in the mode of this downsampler (see {@link #supportsRollups()})
+     */
+    public void processRollup(RollupSegment rs) {
+        if (!supportsRollups()) {
+            throw new IllegalStateException("Rollups cannot be used in the " + mode + " mode");
+        }
+        if (numBuckets == 0) {
+            return;
+        }
+        long duration = rs.getBucketDuration();
+        for (int i = 0; i < rs.size(); i++) {
+            long t = rs.getBucketStart(i);
+            if (t > stop || t + duration <= start) {
+                continue;
+            }
+            t = Math.max(t, start);
+            addAggregate(bucketIndex(t), rs.getMin(i), rs.getMax(i), rs.getSum(i), rs.getCount(i));
         }
     }
 
+    // adds n values with the given min, max and sum
+    private void addAggregate(int idx, double amin, double amax, double asum, int n) {
+        lastSampleTime = start + idx * step;
+        if (count[idx] == 0) {
+            min[idx] = amin;
+            max[idx] = amax;
+            sum[idx] = asum;
+        } else {
+            min[idx] = Math.min(min[idx], amin);
+            max[idx] = Math.max(max[idx], amax);
+            sum[idx] += asum;
+        }
+        count[idx] += n;
+    }
+
     public List<Sample> collect() {
-        if (samplesByTime == null) {
-            return Collections.emptyList();
-        }
-        List<Sample> r = new ArrayList<>(DEFAULT_SAMPLE_COUNT);
-        Sample prev = null;
-        for (Entry<Long, Sample> e : samplesByTime.entrySet()) {
-            Sample s = e.getValue();
-            if (s == null) {
-                long t = e.getKey();
-                if ((prev != null) && (t - prev.t > GAP_TIME)) { // generate a gap
+        List<Sample> r = new ArrayList<>(mode == Mode.M4 ? 4 * numBuckets : numBuckets);
+        int[] lttbSelection = mode == Mode.LTTB ? selectLttb() : null;
+
+        long prevTime = Long.MIN_VALUE;
+        for (int i = 0; i < numBuckets; i++) {
+            long t = start + i * step;
+            if (count[i] == 0) {
+                if ((prevTime != Long.MIN_VALUE) && (t - prevTime > GAP_TIME)) { // generate a gap
                     r.add(new Sample(t));
                 }
+                continue;
+            }
+            prevTime = t;
+            switch (mode) {
+            case AVG:
+                r.add(new Sample(t, min[i], max[i], sum[i] / count[i], count[i]));
+                break;
+            case M4:
+                addM4Points(r, i);
+                break;
+            case LTTB:
+                r.add(new Sample(getPointTime(i, lttbSelection[i]), getPointValue(i, lttbSelection[i])));
+                break;
+            }
+        }
+        return r;
+    }
+
+    // add the distinct first, min, max, last points of the bucket in chronological order
+    private void addM4Points(List<Sample> r, int idx) {
+        long[] times = new long[4];
+        int[] points = new int[4];
+        int k = 0;
+        for (int p = 0; p < 4; p++) {
+            long t = getPointTime(idx, p);
+            boolean duplicate = false;
+            for (int j = 0; j < k; j++) {
+                if (times[j] == t && getPointValue(idx, points[j]) == getPointValue(idx, p)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                times[k] = t;
+                points[k] = p;
+                k++;
+            }
+        }
+        // insertion sort of the at most 4 points
+        for (int a = 1; a < k; a++) {
+            for (int b = a; b > 0 && times[b - 1] > times[b]; b--) {
+                long tt = times[b];
+                times[b] = times[b - 1];
+                times[b - 1] = tt;
+                int tp = points[b];
+                points[b] = points[b - 1];
+                points[b - 1] = tp;
+            }
+        }
+        for (int a = 0; a < k; a++) {
+            r.add(new Sample(times[a], getPointValue(idx, points[a])));
+        }
+    }
+
+    /**
+     * Selects for each non-empty bucket one of its M4 points: the one forming the largest triangle with the point
+     * selected in the previous bucket and the average of the next bucket.
+     * <p>
+     * The first bucket contributes its first point and the last bucket its last point.
+     *
+     * @return for each bucket, the index (0-3) of the selected point
+     */
+    private int[] selectLttb() {
+        int[] selection = new int[numBuckets];
+        int prev = -1;
+        double ax = 0, ay = 0;
+        for (int i = 0; i < numBuckets; i++) {
+            if (count[i] == 0) {
+                continue;
+            }
+            int next = i + 1;
+            while (next < numBuckets && count[next] == 0) {
+                next++;
+            }
+            int selected;
+            if (prev == -1) {
+                selected = 0;
+            } else if (next == numBuckets) {
+                selected = 3;
             } else {
-                r.add(s);
-                prev = s;
+                double cx = next * step + step / 2.0;
+                double cy = sum[next] / count[next];
+                double maxArea = -1;
+                selected = 0;
+                for (int p = 0; p < 4; p++) {
+                    double px = getPointTime(i, p) - start;
+                    double py = getPointValue(i, p);
+                    double area = Math.abs((ax - cx) * (py - ay) - (ax - px) * (cy - ay));
+                    if (area > maxArea) {
+                        maxArea = area;
+                        selected = p;
+                    }
+                }
             }
+            selection[i] = selected;
+            ax = getPointTime(i, selected) - start;
+            ay = getPointValue(i, selected);
+            prev = i;
         }
+        return selection;
+    }
 
-        return r;
+    // p: 0 = first, 1 = min, 2 = max, 3 = last
+    private long getPointTime(int idx, int p) {
+        switch (p) {
+        case 0:
+            return firstTime[idx];
+        case 1:
+            return minTime[idx];
+        case 2:
+            return maxTime[idx];
+        default:
+            return lastTime[idx];
+        }
+    }
+
+    private double getPointValue(int idx, int p) {
+        switch (p) {
+        case 0:
+            return firstValue[idx];
+        case 1:
+            return min[idx];
+        case 2:
+            return max[idx];
+        default:
+            return lastValue[idx];
+        }
     }
 
     public void process(org.yamcs.parameter.ParameterValue pval) {
@@ -125,47 +389,50 @@ public class RestDownsampler implements Consumer<ParameterValueArray> {
 
     @Override
     public void accept(ParameterValueArray t) {
-
         ValueArray va = t.getEngValues();
         long[] timestamps = t.getTimestamps();
-        int n = timestamps.length;
         Type engType = t.getEngType();
 
+        int n = timestamps.length;
+        if (numBuckets == 0) {
+            return;
+        }
+
         switch (engType) {
         case FLOAT:
             float[] fv = va.getFloatArray();
             for (int i = 0; i < n; i++) {
-                process(timestamps[i], fv[i]);
+                addInRange(timestamps[i], fv[i]);
             }
             break;
         case DOUBLE:
             double[] dv = va.getDoubleArray();
             for (int i = 0; i < n; i++) {
-                process(timestamps[i], dv[i]);
+                addInRange(timestamps[i], dv[i]);
             }
             break;
         case UINT32:
             int[] iv = va.getIntArray();
             for (int i = 0; i < n; i++) {
-                process(timestamps[i], iv[i] & 0xFFFFFFFFL);
+                addInRange(timestamps[i], iv[i] & 0xFFFFFFFFL);
             }
             break;
         case SINT32:
             iv = va.getIntArray();
             for (int i = 0; i < n; i++) {
-                process(timestamps[i], iv[i]);
+                addInRange(timestamps[i], iv[i]);
             }
             break;
         case UINT64:
             long[] lv = va.getLongArray();
             for (int i = 0; i < n; i++) {
-                process(timestamps[i], UnsignedLong.toDouble(lv[i]));
+                addInRange(timestamps[i], UnsignedLong.toDouble(lv[i]));
             }
             break;
         case SINT64:
             lv = va.getLongArray();
             for (int i = 0; i < n; i++) {
-                process(timestamps[i], lv[i]);
+                addInRange(timestamps[i], lv[i]);
             }
             break;
         default:
@@ -197,6 +464,15 @@ public class RestDownsampler implements Consumer<ParameterValueArray> {
             n = 1;
         }
 
+        // sample with n aggregated values
+        Sample(long t, double min, double max, double avg, int n) {
+            this.t = t;
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+            this.n = n;
+        }
+
         public void process(double value) {
             if (value < min) {
                 min = value;
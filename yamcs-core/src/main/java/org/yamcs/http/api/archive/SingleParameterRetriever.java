@@ -14,10 +14,13 @@ import org.yamcs.parameter.ValueArray;
 import org.yamcs.parameterarchive.ParameterArchive;
 import org.yamcs.parameterarchive.ParameterRequest;
 import org.yamcs.parameterarchive.ParameterValueArray;
+import org.yamcs.parameterarchive.RollupSegment;
 import org.yamcs.parameterarchive.SingleParameterArchiveRetrieval;
+import org.yamcs.parameterarchive.SingleParameterRollupRetrieval;
 import org.yamcs.protobuf.Pvalue.ParameterStatus;
 import org.yamcs.utils.AggregateUtil;
 import org.yamcs.utils.MutableLong;
+import org.yamcs.utils.TimeEncoding;
 import org.yamcs.xtce.PathElement;
 
 import com.google.common.collect.Lists;
@@ -93,6 +96,45 @@ public class SingleParameterRetriever {
         }
     }
 
+    /**
+     * Retrieves the rollups of the given level from the parameter archive followed by the values from the cache which
+     * are newer than the archived data.
+     * <p>
+     * The parameter archive segments not having rollups are sent as values to the value consumer.
+     * 
+     * @param level
+     *            - rollup level
+     * @param rollupConsumer
+     * @param valueConsumer
+     * @throws IOException
+     */
+    public void retrieveRollups(int level, Consumer<RollupSegment> rollupConsumer,
+            Consumer<ParameterValueArray> valueConsumer) throws IOException {
+        SingleParameterRollupRetrieval sprr = new SingleParameterRollupRetrieval(parchive, pid.getQualifiedName(),
+                spvr.getStart(), spvr.getStop(), level);
+        long lastTime;
+        try {
+            lastTime = sprr.retrieve(rollupConsumer, valueConsumer);
+        } catch (RocksDBException e) {
+            throw new IOException(e);
+        }
+        if (cache != null) {
+            long start = spvr.getStart();
+            if (lastTime != TimeEncoding.INVALID_INSTANT && lastTime + 1 > start) {
+                start = lastTime + 1;
+            }
+            List<ParameterValue> pvlist = cache.getAllValues(pid.getParameter(), start, spvr.getStop());
+            if (pvlist != null) {
+                if (pid.getPath() != null) {
+                    pvlist = extractMembers(pvlist, pid.getPath());
+                }
+                if (!pvlist.isEmpty()) {
+                    splitAndSend(Lists.reverse(pvlist), valueConsumer);
+                }
+            }
+        }
+    }
+
     private List<ParameterValue> extractMembers(List<ParameterValue> pvlist, PathElement[] path) {
         List<ParameterValue> l = new ArrayList<ParameterValue>(pvlist.size());
         for(ParameterValue pv: pvlist) {
@@ -0,0 +1,123 @@
+package org.yamcs.http.websocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.Alarms.AlarmData;
+import org.yamcs.protobuf.LinkEvent;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.protobuf.Yamcs.ProtoDataType;
+
+import com.google.protobuf.Message;
+
+/**
+ * Keeps the newest state of the parameters, alarms and links while a WebSocket channel is not writable.
+ * <p>
+ * Each new update replaces the buffered update for the same object (parameter id within a subscription, alarm or
+ * link) such that when the channel becomes writable again the client receives a snapshot of the current state.
+ * <p>
+ * Not thread safe, the callers have to synchronize.
+ */
+class ConflationBuffer {
+    // subscriptionId -> newest values of the subscription
+    private final Map<Integer, PendingParameters> parameters = new LinkedHashMap<>();
+
+    // conflation key -> newest message
+    private final Map<Object, PendingData> messages = new LinkedHashMap<>();
+
+    static boolean isConflatable(ProtoDataType dataType) {
+        return dataType == ProtoDataType.ALARM_DATA || dataType == ProtoDataType.LINK_EVENT;
+    }
+
+    /**
+     * Adds the parameter values to the buffer.
+     *
+     * @return the number of buffered values which have been replaced by the new ones
+     */
+    int addParameters(int subscriptionId, List<ParameterValueWithId> paramList,
+            Map<NamedObjectId, Integer> numericIds) {
+        PendingParameters pp = parameters.computeIfAbsent(subscriptionId, k -> new PendingParameters(k));
+        pp.numericIds = numericIds;
+        int replaced = 0;
+        for (ParameterValueWithId pvwi : paramList) {
+            if (pp.values.put(pvwi.getId(), pvwi) != null) {
+                replaced++;
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * Adds a message of a conflatable type to the buffer.
+     *
+     * @return true if the message replaced a buffered one
+     */
+    boolean add(ProtoDataType dataType, Message message) {
+        Object key;
+        if (dataType == ProtoDataType.ALARM_DATA) {
+            AlarmData alarm = (AlarmData) message;
+            key = Arrays.asList(dataType, alarm.getType(), alarm.getId(), alarm.getSeqNum());
+        } else if (dataType == ProtoDataType.LINK_EVENT) {
+            LinkEvent linkEvent = (LinkEvent) message;
+            key = Arrays.asList(dataType, linkEvent.getLinkInfo().getInstance(), linkEvent.getLinkInfo().getName());
+            PendingData pending = messages.get(key);
+            if (pending != null && linkEvent.getType() == LinkEvent.Type.UPDATED
+                    && ((LinkEvent) pending.message).getType() == LinkEvent.Type.REGISTERED) {
+                // the client has not yet seen the registration
+                message = linkEvent.toBuilder().setType(LinkEvent.Type.REGISTERED).build();
+            }
+        } else {
+            throw new IllegalArgumentException("Data type " + dataType + " cannot be conflated");
+        }
+        return messages.put(key, new PendingData(dataType, message)) != null;
+    }
+
+    boolean isEmpty() {
+        return parameters.isEmpty() && messages.isEmpty();
+    }
+
+    /**
+     * @return the buffered parameters, one entry for each subscription
+     */
+    List<PendingParameters> getParameters() {
+        return new ArrayList<>(parameters.values());
+    }
+
+    List<PendingData> getMessages() {
+        return new ArrayList<>(messages.values());
+    }
+
+    void clear() {
+        parameters.clear();
+        messages.clear();
+    }
+
+    static class PendingParameters {
+        final int subscriptionId;
+        final LinkedHashMap<NamedObjectId, ParameterValueWithId> values = new LinkedHashMap<>();
+        // the numeric ids given with the last delivery of the subscription
+        Map<NamedObjectId, Integer> numericIds;
+
+        PendingParameters(int subscriptionId) {
+            this.subscriptionId = subscriptionId;
+        }
+
+        List<ParameterValueWithId> getValues() {
+            return new ArrayList<>(values.values());
+        }
+    }
+
+    static class PendingData {
+        final ProtoDataType dataType;
+        final Message message;
+
+        PendingData(ProtoDataType dataType, Message message) {
+            this.dataType = dataType;
+            this.message = message;
+        }
+    }
+}
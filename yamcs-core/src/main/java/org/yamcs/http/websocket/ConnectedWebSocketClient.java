@@ -1,6 +1,7 @@
 package org.yamcs.http.websocket;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
@@ -15,7 +16,9 @@ import org.yamcs.http.HttpServer;
 import org.yamcs.management.ManagementGpbHelper;
 import org.yamcs.management.ManagementListener;
 import org.yamcs.management.ManagementService;
+import org.yamcs.parameter.ParameterValueWithId;
 import org.yamcs.protobuf.ConnectionInfo;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.protobuf.Yamcs.ProtoDataType;
 import org.yamcs.protobuf.YamcsInstance;
 import org.yamcs.protobuf.YamcsInstance.InstanceState;
@@ -92,6 +95,25 @@ public class ConnectedWebSocketClient extends ConnectedClient implements Managem
         wsHandler.sendData(dataType, data);
     }
 
+    public void sendParameterData(int subscriptionId, List<ParameterValueWithId> paramList,
+            Map<NamedObjectId, Integer> numericIds) {
+        wsHandler.sendParameterData(subscriptionId, paramList, numericIds);
+    }
+
+    /**
+     * @return the number of updates replaced by newer ones while the connection was not writable
+     */
+    public long getConflatedUpdates() {
+        return wsHandler.getConflatedUpdates();
+    }
+
+    /**
+     * @return the number of updates dropped because the connection was not writable
+     */
+    public long getDroppedUpdates() {
+        return wsHandler.getDroppedUpdates();
+    }
+
     @Override
     public void processorQuit() {
     }
@@ -2,7 +2,12 @@ package org.yamcs.http.websocket;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
 
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.Pvalue.ParameterData;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.protobuf.Yamcs.ProtoDataType;
 
 import com.google.gson.stream.JsonWriter;
@@ -87,4 +92,21 @@ public class JsonEncoder implements WebSocketEncoder {
         }
         return new TextWebSocketFrame(sw.toString());
     }
+
+    @Override
+    public WebSocketFrame encodeParameterData(int sequenceNumber, int subscriptionId,
+            List<ParameterValueWithId> paramList, Map<NamedObjectId, Integer> numericIds) throws IOException {
+        ParameterData.Builder pd = ParameterData.newBuilder().setSubscriptionId(subscriptionId);
+        for (ParameterValueWithId pvwi : paramList) {
+            ParameterValueEncodingCache.Entry entry = ParameterValueEncodingCache.INSTANCE
+                    .get(pvwi.getParameterValue());
+            Integer nid = numericIds.get(pvwi.getId());
+            if (nid != null) {
+                pd.addParameter(entry.gpb.toBuilder().setNumericId(nid));
+            } else {
+                pd.addParameter(entry.gpb.toBuilder().setId(pvwi.getId()));
+            }
+        }
+        return encodeData(sequenceNumber, ProtoDataType.PARAMETER, pd.build());
+    }
 }
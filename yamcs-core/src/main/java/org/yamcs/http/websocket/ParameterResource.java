@@ -17,7 +17,6 @@ import org.yamcs.NoPermissionException;
 import org.yamcs.Processor;
 import org.yamcs.ProcessorException;
 import org.yamcs.parameter.ParameterRequestManager;
-import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameter.ParameterValueWithId;
 import org.yamcs.parameter.ParameterWithIdConsumer;
 import org.yamcs.parameter.ParameterWithIdRequestHelper;
@@ -240,18 +239,7 @@ public class ParameterResource implements WebSocketResource, ParameterWithIdCons
         if (paramList == null || paramList.isEmpty()) {
             return;
         }
-        ParameterData.Builder pd = ParameterData.newBuilder()
-                .setSubscriptionId(subscriptionId);
-        for (ParameterValueWithId pvwi : paramList) {
-            ParameterValue pv = pvwi.getParameterValue();
-            Integer nid = numericIdMap.get(pvwi.getId());
-            if (nid != null) {
-                pd.addParameter(pv.toGpb(nid));
-            } else {
-                pd.addParameter(pv.toGpb(pvwi.getId()));
-            }
-        }
-        client.sendData(ProtoDataType.PARAMETER, pd.build());
+        client.sendParameterData(subscriptionId, paramList, numericIdMap);
     }
 
     @Override
@@ -0,0 +1,60 @@
+package org.yamcs.http.websocket;
+
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the protobuf conversion of the parameter values sent to the WebSocket clients.
+ * <p>
+ * The same {@link ParameterValue} object is delivered to all the clients subscribed to the parameter. The cache is
+ * keyed by the identity of that object such that the conversion (and the serialization) is done once per delivery
+ * instead of once per client.
+ * <p>
+ * The parameter id is not part of the cached data because it depends on how each client has subscribed to the
+ * parameter; it is added by the encoders when the frame is assembled.
+ */
+class ParameterValueEncodingCache {
+    static final int MAX_SIZE = 100_000;
+    static final ParameterValueEncodingCache INSTANCE = new ParameterValueEncodingCache();
+
+    // weak keys are compared by identity
+    private final Cache<ParameterValue, Entry> cache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_SIZE)
+            .build();
+
+    Entry get(ParameterValue pv) {
+        Entry entry = cache.getIfPresent(pv);
+        // the acquisition status is the only property changed after the delivery (when the value expires)
+        if (entry == null || entry.acquisitionStatus != pv.getAcquisitionStatus()) {
+            entry = new Entry(pv);
+            cache.put(pv, entry);
+        }
+        return entry;
+    }
+
+    static class Entry {
+        final AcquisitionStatus acquisitionStatus;
+        // the value without id
+        final org.yamcs.protobuf.Pvalue.ParameterValue gpb;
+        private volatile byte[] serialized;
+
+        Entry(ParameterValue pv) {
+            acquisitionStatus = pv.getAcquisitionStatus();
+            gpb = pv.toGpb((NamedObjectId) null);
+        }
+
+        byte[] getSerialized() {
+            byte[] b = serialized;
+            if (b == null) {
+                b = gpb.toByteArray();
+                serialized = b;
+            }
+            return b;
+        }
+    }
+}
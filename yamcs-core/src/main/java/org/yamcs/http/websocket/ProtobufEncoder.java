@@ -1,7 +1,10 @@
 package org.yamcs.http.websocket;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
+import org.yamcs.parameter.ParameterValueWithId;
 import org.yamcs.protobuf.Alarms.AlarmData;
 import org.yamcs.protobuf.ClientInfo;
 import org.yamcs.protobuf.Commanding.CommandHistoryEntry;
@@ -11,6 +14,7 @@ import org.yamcs.protobuf.ConnectionInfo;
 import org.yamcs.protobuf.LinkEvent;
 import org.yamcs.protobuf.ProcessorInfo;
 import org.yamcs.protobuf.Pvalue.ParameterData;
+import org.yamcs.protobuf.Pvalue.ParameterValue;
 import org.yamcs.protobuf.Statistics;
 import org.yamcs.protobuf.Table.StreamData;
 import org.yamcs.protobuf.WebSocketExtensionData;
@@ -18,14 +22,16 @@ import org.yamcs.protobuf.WebSocketServerMessage;
 import org.yamcs.protobuf.WebSocketServerMessage.MessageType;
 import org.yamcs.protobuf.WebSocketServerMessage.WebSocketSubscriptionData;
 import org.yamcs.protobuf.Yamcs.Event;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.protobuf.Yamcs.ProtoDataType;
 import org.yamcs.protobuf.Yamcs.TimeInfo;
 import org.yamcs.protobuf.Yamcs.TmPacketData;
 
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
@@ -103,11 +109,87 @@ public class ProtobufEncoder implements WebSocketEncoder {
         return toFrame(serverMessage);
     }
 
+    /**
+     * Assembles the frame directly from the serialized parameter values shared with the other clients: for each value,
+     * the (numeric) id field is written followed by the cached bytes.
+     */
+    @Override
+    public WebSocketFrame encodeParameterData(int sequenceNumber, int subscriptionId,
+            List<ParameterValueWithId> paramList, Map<NamedObjectId, Integer> numericIds) throws IOException {
+        int n = paramList.size();
+        byte[][] values = new byte[n][];
+        int[] pvSizes = new int[n];
+        Integer[] nids = new Integer[n];
+
+        int pdSize = 0;
+        for (int i = 0; i < n; i++) {
+            ParameterValueWithId pvwi = paramList.get(i);
+            values[i] = ParameterValueEncodingCache.INSTANCE.get(pvwi.getParameterValue()).getSerialized();
+            nids[i] = numericIds.get(pvwi.getId());
+            int idSize = nids[i] != null
+                    ? CodedOutputStream.computeUInt32Size(ParameterValue.NUMERICID_FIELD_NUMBER, nids[i])
+                    : CodedOutputStream.computeMessageSize(ParameterValue.ID_FIELD_NUMBER, pvwi.getId());
+            pvSizes[i] = idSize + values[i].length;
+            pdSize += CodedOutputStream.computeTagSize(ParameterData.PARAMETER_FIELD_NUMBER)
+                    + CodedOutputStream.computeUInt32SizeNoTag(pvSizes[i]) + pvSizes[i];
+        }
+        pdSize += CodedOutputStream.computeInt32Size(ParameterData.SUBSCRIPTIONID_FIELD_NUMBER, subscriptionId);
+
+        int dataSize = CodedOutputStream.computeUInt32Size(WebSocketSubscriptionData.SEQUENCENUMBER_FIELD_NUMBER,
+                sequenceNumber)
+                + CodedOutputStream.computeEnumSize(WebSocketSubscriptionData.TYPE_FIELD_NUMBER,
+                        ProtoDataType.PARAMETER_VALUE)
+                + CodedOutputStream.computeTagSize(WebSocketSubscriptionData.PARAMETERDATA_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(pdSize) + pdSize;
+
+        int size = CodedOutputStream.computeEnumSize(WebSocketServerMessage.TYPE_FIELD_NUMBER, MessageType.DATA_VALUE)
+                + CodedOutputStream.computeTagSize(WebSocketServerMessage.DATA_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(dataSize) + dataSize;
+
+        ByteBuf buf = ctx.alloc().buffer(size, size);
+        try {
+            CodedOutputStream cos = CodedOutputStream.newInstance(buf.nioBuffer(buf.writerIndex(), size));
+            cos.writeEnum(WebSocketServerMessage.TYPE_FIELD_NUMBER, MessageType.DATA_VALUE);
+            cos.writeTag(WebSocketServerMessage.DATA_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            cos.writeUInt32NoTag(dataSize);
+
+            cos.writeUInt32(WebSocketSubscriptionData.SEQUENCENUMBER_FIELD_NUMBER, sequenceNumber);
+            cos.writeEnum(WebSocketSubscriptionData.TYPE_FIELD_NUMBER, ProtoDataType.PARAMETER_VALUE);
+            cos.writeTag(WebSocketSubscriptionData.PARAMETERDATA_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            cos.writeUInt32NoTag(pdSize);
+
+            for (int i = 0; i < n; i++) {
+                cos.writeTag(ParameterData.PARAMETER_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                cos.writeUInt32NoTag(pvSizes[i]);
+                if (nids[i] != null) {
+                    cos.writeUInt32(ParameterValue.NUMERICID_FIELD_NUMBER, nids[i]);
+                } else {
+                    cos.writeMessage(ParameterValue.ID_FIELD_NUMBER, paramList.get(i).getId());
+                }
+                cos.writeRawBytes(values[i]);
+            }
+            cos.writeInt32(ParameterData.SUBSCRIPTIONID_FIELD_NUMBER, subscriptionId);
+            cos.flush();
+            cos.checkNoSpaceLeft();
+            buf.writerIndex(buf.writerIndex() + size);
+        } catch (IOException | RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return new BinaryWebSocketFrame(buf);
+    }
+
     private BinaryWebSocketFrame toFrame(WebSocketServerMessage message) throws IOException {
-        // TODO This assumes that the frame is quite small (which it should be, but)
-        ByteBuf buf = ctx.alloc().buffer();
-        try (ByteBufOutputStream cout = new ByteBufOutputStream(buf)) {
-            message.writeTo(cout);
+        int size = message.getSerializedSize();
+        ByteBuf buf = ctx.alloc().buffer(size, size);
+        try {
+            CodedOutputStream cos = CodedOutputStream.newInstance(buf.nioBuffer(buf.writerIndex(), size));
+            message.writeTo(cos);
+            cos.flush();
+            buf.writerIndex(buf.writerIndex() + size);
+        } catch (IOException | RuntimeException e) {
+            buf.release();
+            throw e;
         }
         return new BinaryWebSocketFrame(buf);
     }
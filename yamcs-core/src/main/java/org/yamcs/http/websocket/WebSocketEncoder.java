@@ -1,7 +1,11 @@
 package org.yamcs.http.websocket;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.protobuf.Yamcs.ProtoDataType;
 
 import com.google.protobuf.Message;
@@ -16,4 +20,16 @@ public interface WebSocketEncoder {
 
     <T extends Message> WebSocketFrame encodeData(int sequenceNumber, ProtoDataType dataType, T message)
             throws IOException;
+
+    /**
+     * Encodes a parameter delivery as {@link ProtoDataType#PARAMETER} data.
+     * <p>
+     * The protobuf conversion of the values is shared with the other clients receiving the same delivery (see
+     * {@link ParameterValueEncodingCache}); the ids are added to each value when assembling the frame.
+     *
+     * @param numericIds
+     *            - the ids for which the client has requested a numeric id instead of the {@link NamedObjectId}
+     */
+    WebSocketFrame encodeParameterData(int sequenceNumber, int subscriptionId, List<ParameterValueWithId> paramList,
+            Map<NamedObjectId, Integer> numericIds) throws IOException;
 }
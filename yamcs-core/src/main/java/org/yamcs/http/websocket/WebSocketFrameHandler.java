@@ -3,6 +3,7 @@ package org.yamcs.http.websocket;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -11,7 +12,11 @@ import org.yamcs.ConfigurationException;
 import org.yamcs.Processor;
 import org.yamcs.http.HttpRequestHandler;
 import org.yamcs.http.HttpRequestInfo;
+import org.yamcs.http.websocket.ConflationBuffer.PendingData;
+import org.yamcs.http.websocket.ConflationBuffer.PendingParameters;
 import org.yamcs.management.ManagementService;
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.protobuf.Yamcs.ProtoDataType;
 import org.yamcs.security.User;
 
@@ -60,11 +65,24 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
 
     private WriteBufferWaterMark writeBufferWaterMark;
 
+    // keeps the newest updates while the channel is not writable; null if the conflation is disabled
+    private ConflationBuffer conflationBuffer;
+    private long conflatedUpdates;
+    private long droppedUpdates;
+
     public WebSocketFrameHandler(HttpRequestInfo originalRequestInfo, int connectionCloseNumDroppedMsg,
             WriteBufferWaterMark writeBufferWaterMark) {
+        this(originalRequestInfo, connectionCloseNumDroppedMsg, writeBufferWaterMark, false);
+    }
+
+    public WebSocketFrameHandler(HttpRequestInfo originalRequestInfo, int connectionCloseNumDroppedMsg,
+            WriteBufferWaterMark writeBufferWaterMark, boolean conflation) {
         this.originalRequestInfo = originalRequestInfo;
         this.connectionCloseNumDroppedMsg = connectionCloseNumDroppedMsg;
         this.writeBufferWaterMark = writeBufferWaterMark;
+        if (conflation) {
+            conflationBuffer = new ConflationBuffer();
+        }
     }
 
     @Override
@@ -236,21 +254,91 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     /**
      * Sends actual data over the web socket. If the channel is not or no longer writable, the message is dropped. We do
      * not want to block the calling thread (because that will be a processor thread).
+     * <p>
+     * If the conflation is enabled, the alarms and link events are not dropped but kept in a buffer which retains only
+     * the newest update for each object; the buffer is sent when the channel becomes writable again.
      * 
      * The websocket clients will know when the messages have been dropped from the sequence count.
      */
-    public <T extends Message> void sendData(ProtoDataType dataType, T data) {
-        dataSeqCount++;
+    public synchronized <T extends Message> void sendData(ProtoDataType dataType, T data) {
+        if (conflationBuffer != null && ConflationBuffer.isConflatable(dataType) && mustConflate()) {
+            dataSeqCount++;
+            if (conflationBuffer.add(dataType, data)) {
+                conflatedUpdates++;
+            }
+            return;
+        }
+        flushConflated();
+        sendFrame(dataType, seq -> getEncoder().encodeData(seq, dataType, data));
+    }
+
+    /**
+     * Sends a parameter delivery; the encoding of the values is shared with the other clients receiving the same
+     * delivery.
+     * <p>
+     * If the channel is not writable and the conflation is enabled, the values are buffered as explained in
+     * {@link #sendData(ProtoDataType, Message)}.
+     */
+    public synchronized void sendParameterData(int subscriptionId, List<ParameterValueWithId> paramList,
+            Map<NamedObjectId, Integer> numericIds) {
+        if (conflationBuffer != null && mustConflate()) {
+            dataSeqCount++;
+            conflatedUpdates += conflationBuffer.addParameters(subscriptionId, paramList, numericIds);
+            return;
+        }
+        flushConflated();
+        sendFrame(ProtoDataType.PARAMETER,
+                seq -> getEncoder().encodeParameterData(seq, subscriptionId, paramList, numericIds));
+    }
+
+    private boolean mustConflate() {
+        if (!channel.isOpen() || channel.isWritable()) {
+            return false;
+        }
+        if (conflationBuffer.isEmpty()) {
+            log.info("Channel not writable, conflating updates for client [id={}, username={}]", wsClient.getId(),
+                    wsClient.getUser());
+        }
+        return true;
+    }
+
+    /**
+     * Sends the content of the conflation buffer if the channel is writable
+     */
+    private synchronized void flushConflated() {
+        if (conflationBuffer == null || conflationBuffer.isEmpty() || !channel.isWritable()) {
+            return;
+        }
+        // take a snapshot and clear the buffer before writing, the writes can change the writability
+        List<PendingParameters> params = conflationBuffer.getParameters();
+        List<PendingData> messages = conflationBuffer.getMessages();
+        conflationBuffer.clear();
+
+        log.debug("Sending conflated updates for client [id={}, username={}]: {} parameter subscriptions, {} messages",
+                wsClient.getId(), wsClient.getUser(), params.size(), messages.size());
+        for (PendingParameters pp : params) {
+            writeFrame(ProtoDataType.PARAMETER,
+                    seq -> getEncoder().encodeParameterData(seq, pp.subscriptionId, pp.getValues(), pp.numericIds));
+        }
+        for (PendingData pd : messages) {
+            writeFrame(pd.dataType, seq -> getEncoder().encodeData(seq, pd.dataType, pd.message));
+        }
+    }
+
+    private void sendFrame(ProtoDataType dataType, DataFrameEncoder frameEncoder) {
         if (!channel.isOpen()) {
+            dataSeqCount++;
             log.info("Skipping update of type {}. Channel is already closed", dataType);
             ctx.close();
             return;
         }
 
         if (!channel.isWritable()) {
+            dataSeqCount++;
             log.warn("Dropping {} message for client [id={}, username={}] because channel is not or no longer writable",
                     dataType, wsClient.getId(), wsClient.getUser());
             droppedWrites++;
+            droppedUpdates++;
 
             if (droppedWrites >= connectionCloseNumDroppedMsg) {
                 log.warn("Too many ({}) dropped messages for client [id={}, username={}]. Forcing disconnect",
@@ -260,8 +348,13 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
             return;
         }
         droppedWrites = 0;
+        writeFrame(dataType, frameEncoder);
+    }
+
+    private void writeFrame(ProtoDataType dataType, DataFrameEncoder frameEncoder) {
+        dataSeqCount++;
         try {
-            WebSocketFrame frame = getEncoder().encodeData(dataSeqCount, dataType, data);
+            WebSocketFrame frame = frameEncoder.encode(dataSeqCount);
             channel.writeAndFlush(frame);
         } catch (IOException e) {
             log.warn(String.format("Closing channel due to encoding exception for data of type %s", dataType), e);
@@ -269,7 +362,35 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
         }
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            flushConflated();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    /**
+     * @return the number of updates which have been replaced in the conflation buffer by a newer update of the same
+     *         object
+     */
+    public synchronized long getConflatedUpdates() {
+        return conflatedUpdates;
+    }
+
+    /**
+     * @return the number of updates which have been dropped because the channel was not writable
+     */
+    public synchronized long getDroppedUpdates() {
+        return droppedUpdates;
+    }
+
     public Channel getChannel() {
         return channel;
     }
+
+    @FunctionalInterface
+    private interface DataFrameEncoder {
+        WebSocketFrame encode(int sequenceNumber) throws IOException;
+    }
 }
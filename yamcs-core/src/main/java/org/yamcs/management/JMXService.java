@@ -21,8 +21,10 @@ import org.yamcs.commanding.CommandQueueListener;
 import org.yamcs.protobuf.LinkInfo;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.management.RdbFactoryControlImpl;
 import org.yamcs.yarch.management.StreamControlImpl;
 import org.yamcs.yarch.management.TableControlImpl;
+import org.yamcs.yarch.rocksdb.RDBFactory;
 
 import com.google.common.util.concurrent.Service;
 
@@ -46,6 +48,7 @@ public class JMXService extends AbstractYamcsService
         mgmSrv.addLinkListener(this);
         mgmSrv.addManagementListener(this);
         mgmSrv.addTableStreamListener(this);
+        mgmSrv.getRdbFactories().forEach(this::rdbFactoryRegistered);
     }
 
     @Override
@@ -152,6 +155,31 @@ public class JMXService extends AbstractYamcsService
         }
     }
 
+    @Override
+    public void rdbFactoryRegistered(RDBFactory rdbFactory) {
+        try {
+            RdbFactoryControlImpl rci = new RdbFactoryControlImpl(rdbFactory);
+            mbeanServer.registerMBean(rci, getRdbFactoryObjectName(rdbFactory));
+        } catch (InstanceAlreadyExistsException e) {
+            // Ignore. The registries are global and shared by all the instances.
+        } catch (Exception e) {
+            log.warn("Got exception when registering a RocksDB database registry: ", e);
+        }
+    }
+
+    @Override
+    public void rdbFactoryUnregistered(RDBFactory rdbFactory) {
+        try {
+            mbeanServer.unregisterMBean(getRdbFactoryObjectName(rdbFactory));
+        } catch (Exception e) {
+            log.warn("Got exception when unregistering a RocksDB database registry: ", e);
+        }
+    }
+
+    private static ObjectName getRdbFactoryObjectName(RDBFactory rdbFactory) throws MalformedObjectNameException {
+        return ObjectName.getInstance(TOP_LEVEL_NAME + ":type=rdb,name=" + ObjectName.quote(rdbFactory.getDataDir()));
+    }
+
     @Override
     public void linkRegistered(LinkInfo linkInfo) {
         try {
@@ -5,6 +5,7 @@ import java.util.Collection;
 import org.yamcs.Processor;
 import org.yamcs.commanding.CommandQueue;
 import org.yamcs.commanding.PreparedCommand;
+import org.yamcs.protobuf.AlgorithmStatistics;
 import org.yamcs.protobuf.Commanding.CommandQueueEntry;
 import org.yamcs.protobuf.Commanding.CommandQueueInfo;
 import org.yamcs.protobuf.ProcessorInfo;
@@ -44,6 +45,16 @@ public final class ManagementGpbHelper {
                     .build();
             statsb.addTmstats(ts);
         }
+        for (ProcessingStatistics.AlgorithmStats a : ps.algorithmStats.values()) {
+            synchronized (a) {
+                statsb.addAlgorithmStats(AlgorithmStatistics.newBuilder()
+                        .setQualifiedName(a.qualifiedName)
+                        .setRuns(a.runs)
+                        .setTotalRunTime(a.totalRunTime)
+                        .setMaxRunTime(a.maxRunTime)
+                        .setLastRun(TimeEncoding.toProtobufTimestamp(a.lastRun)));
+            }
+        }
         return statsb.build();
     }
 
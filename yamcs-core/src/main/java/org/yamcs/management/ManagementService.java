@@ -1,5 +1,6 @@
 package org.yamcs.management;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,11 +36,16 @@ import org.yamcs.protobuf.ProcessorInfo;
 import org.yamcs.protobuf.ProcessorManagementRequest;
 import org.yamcs.protobuf.Statistics;
 import org.yamcs.protobuf.Table.StreamInfo;
+import org.yamcs.protobuf.Table.StreamSubscriberInfo;
 import org.yamcs.tctm.Link;
 import org.yamcs.utils.TimestampUtil;
 import org.yamcs.xtceproc.ProcessingStatistics;
+import org.yamcs.yarch.AbstractTableReaderStream;
+import org.yamcs.yarch.AsyncStreamDispatcher;
 import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.rocksdb.RDBFactory;
 
 import com.google.common.util.concurrent.Service;
 
@@ -48,7 +54,7 @@ import com.google.common.util.concurrent.Service;
  * <ul>
  * <li>instances, processors and clients - see {@link ManagementListener}
  * <li>links - see {@link LinkListener}
- * <li>streams and tables - see {@link TableStreamListener}
+ * <li>streams, tables and RocksDB database registries - see {@link TableStreamListener}
  * <li>command queues - see {@link CommandQueueListener}
  * </ul>
  */
@@ -62,6 +68,7 @@ public class ManagementService implements ProcessorListener {
     List<LinkWithInfo> links = new CopyOnWriteArrayList<>();
     List<StreamWithInfo> streams = new CopyOnWriteArrayList<>();
     List<CommandQueueManager> qmanagers = new CopyOnWriteArrayList<>();
+    List<RDBFactory> rdbFactories = new CopyOnWriteArrayList<>();
 
     // Used to update TM-statistics, and Link State
     ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
@@ -541,6 +548,26 @@ public class ManagementService implements ProcessorListener {
         tableStreamListeners.forEach(l -> l.streamUnregistered(instance, name));
     }
 
+    public void registerRdbFactory(RDBFactory rdbFactory) {
+        rdbFactories.add(rdbFactory);
+        tableStreamListeners.forEach(l -> l.rdbFactoryRegistered(rdbFactory));
+    }
+
+    public void unregisterRdbFactory(RDBFactory rdbFactory) {
+        if (rdbFactories.remove(rdbFactory)) {
+            tableStreamListeners.forEach(l -> l.rdbFactoryUnregistered(rdbFactory));
+        }
+    }
+
+    /**
+     * 
+     * @return the registries of RocksDB databases created so far; they are created when the tablespaces are loaded,
+     *         possibly before the listeners are added.
+     */
+    public List<RDBFactory> getRdbFactories() {
+        return rdbFactories;
+    }
+
     static class LinkWithInfo {
         final Link link;
         LinkInfo linkInfo;
@@ -587,15 +614,46 @@ public class ManagementService implements ProcessorListener {
         }
 
         boolean hasChanged() {
-            if (streamInfo.getDataCount() != stream.getDataCount()) {
-                streamInfo = StreamInfo.newBuilder(streamInfo)
+            List<StreamSubscriberInfo> subscriberInfo = getSubscriberInfo();
+            AbstractTableReaderStream reader = AbstractTableReaderStream.getTableReader(stream);
+            if (streamInfo.getDataCount() != stream.getDataCount()
+                    || !streamInfo.getSubscriberList().equals(subscriberInfo)
+                    || (reader != null && (streamInfo.getRowsScanned() != reader.getNumRowsScanned()
+                            || streamInfo.getRowsReturned() != reader.getNumRowsReturned()))) {
+                StreamInfo.Builder streamb = StreamInfo.newBuilder(streamInfo)
                         .setDataCount(stream.getDataCount())
-                        .build();
+                        .clearSubscriber()
+                        .addAllSubscriber(subscriberInfo);
+                if (reader != null) {
+                    streamb.setRowsScanned(reader.getNumRowsScanned())
+                            .setRowsReturned(reader.getNumRowsReturned());
+                }
+                streamInfo = streamb.build();
 
                 return true;
             } else {
                 return false;
             }
         }
+
+        private List<StreamSubscriberInfo> getSubscriberInfo() {
+            AsyncStreamDispatcher dispatcher = stream.getDispatcher();
+            if (dispatcher == null) {
+                return Collections.emptyList();
+            }
+            List<StreamSubscriberInfo> l = new ArrayList<>();
+            for (StreamSubscriber s : stream.getSubscribers()) {
+                long lag = dispatcher.getLag(s);
+                if (lag < 0) {
+                    continue;
+                }
+                l.add(StreamSubscriberInfo.newBuilder()
+                        .setName(s.toString())
+                        .setLag(lag)
+                        .setDroppedCount(dispatcher.getNumDropped(s))
+                        .build());
+            }
+            return l;
+        }
     }
 }
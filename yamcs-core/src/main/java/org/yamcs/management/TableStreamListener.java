@@ -3,9 +3,11 @@ package org.yamcs.management;
 import org.yamcs.protobuf.Table.StreamInfo;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.rocksdb.RDBFactory;
 
 /**
- * Implement and subscribe to the {@link ManagementService} to know when new tables or streams are created/removed
+ * Implement and subscribe to the {@link ManagementService} to know when new tables, streams or RocksDB database
+ * registries are created/removed
  * 
  * @author nm
  *
@@ -26,4 +28,10 @@ public interface TableStreamListener {
 
     default void tableUnregistered(String instance, String tblName) {
     }
+
+    default void rdbFactoryRegistered(RDBFactory rdbFactory) {
+    }
+
+    default void rdbFactoryUnregistered(RDBFactory rdbFactory) {
+    }
 }
@@ -70,6 +70,27 @@ public class ArrayParameterCache implements ParameterCache {
         }
     }
 
+    /**
+     * Only the values of the parameters to be cached are created.
+     */
+    @Override
+    public void update(ParameterValueBlock block, int from, int to) {
+        if (cacheConfig.cacheAll) {
+            update(block.getParameterValues(from, to));
+            return;
+        }
+        List<ParameterValue> pvs = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Parameter p = block.getParameter(i);
+            if (p != null && parametersToCache.containsKey(p)) {
+                pvs.add(block.getParameterValue(i));
+            }
+        }
+        if (!pvs.isEmpty()) {
+            update(pvs);
+        }
+    }
+
     private void addToCache(long t, SortedParameterList pvList) {
         SortedIntArray sia = pvList.getParameterIdArray();
         ParameterValueTable table = tables.get(sia);
@@ -26,6 +26,9 @@ public class BasicParameterValue {
 
     // use this singleton as a default status
     ParameterStatus status = ParameterStatus.NOMINAL;
+    // false if the status object may be shared with other values (e.g. NOMINAL or passed to setStatus)
+    // in which case it is copied before being modified
+    private boolean ownStatus = false;
 
     public BasicParameterValue() {
     }
@@ -74,7 +77,7 @@ public class BasicParameterValue {
     }
 
     public void setRawValue(boolean b) {
-        rawValue = new BooleanValue(b);
+        rawValue = ValueUtility.getBooleanValue(b);
     }
 
     public void setRawValue(String s) {
@@ -82,11 +85,11 @@ public class BasicParameterValue {
     }
 
     public void setRawSignedInteger(int x) {
-        rawValue = new SInt32Value(x);
+        rawValue = ValueUtility.getSint32Value(x);
     }
 
     public void setRawUnsignedInteger(int x) {
-        rawValue = new UInt32Value(x);
+        rawValue = ValueUtility.getUint32Value(x);
     }
 
     public void setRawSignedLong(long x) {
@@ -106,7 +109,7 @@ public class BasicParameterValue {
     }
 
     public void setBooleanValue(boolean b) {
-        engValue = new BooleanValue(b);
+        engValue = ValueUtility.getBooleanValue(b);
     }
 
     public void setDoubleValue(double v) {
@@ -118,11 +121,11 @@ public class BasicParameterValue {
     }
 
     public void setSignedIntegerValue(int v) {
-        engValue = new SInt32Value(v);
+        engValue = ValueUtility.getSint32Value(v);
     }
 
     public void setUnsignedIntegerValue(int v) {
-        engValue = new UInt32Value(v);
+        engValue = ValueUtility.getUint32Value(v);
     }
 
     public void setSignedLongValue(long v) {
@@ -152,8 +155,9 @@ public class BasicParameterValue {
 
     // *********** parameter status
     private void changeNominalStatus() {
-        if (status == ParameterStatus.NOMINAL) {
-            status = new ParameterStatus();
+        if (!ownStatus) {
+            status = new ParameterStatus(status);
+            ownStatus = true;
         }
     }
 
@@ -255,8 +259,13 @@ public class BasicParameterValue {
         return status;
     }
 
+    /**
+     * Sets the status object of this value. The object may be shared between multiple values; it is not modified by
+     * the setters of this class, a copy is made instead.
+     */
     public void setStatus(ParameterStatus parameterStatus) {
         this.status = parameterStatus;
+        this.ownStatus = false;
     }
 
     public static AlarmRange toGpbAlarmRange(AlarmLevelType gpbLevel, DoubleRange floatRange) {
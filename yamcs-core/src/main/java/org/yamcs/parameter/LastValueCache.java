@@ -1,36 +1,42 @@
 package org.yamcs.parameter;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.xtce.Parameter;
 
 /**
  * Cache for the last known value of each parameter.
- * 
- * 
+ * <p>
+ * The values of the primitive entries of a {@link ParameterValueBlock} are copied into a slot kept for the parameter
+ * and the {@link ParameterValue} is only created when the value is requested.
+ *
  * thread safe
- * 
+ *
  * @author nm
  *
  */
 //NM's notes for whomever will implement a smarter version of this
 // - one thing we know about this is that remove is never called, but we may want to allow a clearAll when doing time jumps during replays
 // - we will need to allow in limited cases multiple historical values to be kept. This will correspond to the ParameterInstanceRef with instance<0
-// - 
+// -
 public class LastValueCache {
-    ConcurrentHashMap<Parameter, ParameterValue> m = new ConcurrentHashMap<>();
-    
+    // the values are either ParameterValue or PrimitiveSlot
+    ConcurrentHashMap<Parameter, Object> m = new ConcurrentHashMap<>();
+
     /**
      * Returns the latest known value for p or null if there is none.
-     * 
+     *
      * @param p
      * @return
      */
     public ParameterValue getValue(Parameter p) {
-        return m.get(p);
+        return toParameterValue(m.get(p));
     }
-    
+
     /**
      * Puts a new value in the map.
      * @param p
@@ -38,7 +44,7 @@ public class LastValueCache {
      * @return the previous value or null if there was none.
      */
     public ParameterValue put(Parameter p, ParameterValue pv) {
-        return m.put(p, pv);
+        return toParameterValue(m.put(p, pv));
     }
 
     /**
@@ -55,7 +61,35 @@ public class LastValueCache {
             }
         }
     }
-    
+
+    /**
+     * Update the cache with the entries [from, to) of the block.
+     * <p>
+     * The primitive entries are copied into the slot of the parameter without creating a {@link ParameterValue}.
+     * <p>
+     * Note: This is not an atomic operation!
+     */
+    public void update(ParameterValueBlock block, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Parameter p = block.getParameter(i);
+            if (p == null) {
+                continue;
+            }
+            if (block.isPrimitive(i)) {
+                Object o = m.get(p);
+                if (o instanceof PrimitiveSlot) {
+                    ((PrimitiveSlot) o).set(block, i);
+                } else {
+                    PrimitiveSlot slot = new PrimitiveSlot(p);
+                    slot.set(block, i);
+                    m.put(p, slot);
+                }
+            } else {
+                m.put(p, block.getParameterValue(i));
+            }
+        }
+    }
+
     public int size() {
         return m.size();
     }
@@ -65,6 +99,61 @@ public class LastValueCache {
      * @return
      */
     public Collection<ParameterValue> getValues() {
-        return m.values();
+        List<ParameterValue> l = new ArrayList<>(m.size());
+        for (Object o : m.values()) {
+            l.add(toParameterValue(o));
+        }
+        return l;
+    }
+
+    private static ParameterValue toParameterValue(Object o) {
+        if (o instanceof PrimitiveSlot) {
+            return ((PrimitiveSlot) o).get();
+        } else {
+            return (ParameterValue) o;
+        }
+    }
+
+    /**
+     * Last value of a parameter extracted in a primitive entry; updated in place by each new value.
+     */
+    static final class PrimitiveSlot {
+        final Parameter param;
+        Type rawType;
+        long rawBits;
+        Type engType;
+        long engBits;
+        ParameterStatus status;
+        long acquisitionTime;
+        long generationTime;
+        // the value created for the current content; reset by each update
+        ParameterValue pv;
+
+        PrimitiveSlot(Parameter param) {
+            this.param = param;
+        }
+
+        synchronized void set(ParameterValueBlock block, int i) {
+            rawType = block.getRawType(i);
+            rawBits = block.getRawBits(i);
+            engType = block.getEngType(i);
+            engBits = block.getEngBits(i);
+            status = block.getStatus(i);
+            acquisitionTime = block.getAcquisitionTime();
+            generationTime = block.getGenerationTime();
+            pv = null;
+        }
+
+        synchronized ParameterValue get() {
+            if (pv == null) {
+                pv = new ParameterValue(param);
+                pv.setRawValue(ParameterValueBlock.toValue(rawType, rawBits));
+                pv.setEngValue(ParameterValueBlock.toValue(engType, engBits));
+                pv.setAcquisitionTime(acquisitionTime);
+                pv.setGenerationTime(generationTime);
+                pv.setStatus(status);
+            }
+            return pv;
+        }
     }
 }
@@ -0,0 +1,25 @@
+package org.yamcs.parameter;
+
+import org.yamcs.utils.IntArray;
+
+/**
+ * Consumer which can read the parameters directly from the {@link ParameterValueBlock} extracted from a packet, such
+ * that the {@link ParameterValue} objects are not created for the primitive entries.
+ * <p>
+ * The {@link #updateItems(int, java.util.List)} method is still called for the parameters which are not delivered in
+ * a block.
+ */
+public interface ParameterBlockConsumer extends ParameterConsumer {
+    /**
+     * Called with the indexes of the block entries which are part of the subscription.
+     * <p>
+     * The block and the indexes are reused after the call returns; the consumer shall not keep references to them. The
+     * objects returned by {@link ParameterValueBlock#getParameterValue(int)} can be kept.
+     *
+     * @param subscriptionId
+     * @param block
+     * @param indexes
+     *            - the indexes of the entries in the block
+     */
+    void updateItems(int subscriptionId, ParameterValueBlock block, IntArray indexes);
+}
@@ -14,6 +14,19 @@ public interface ParameterCache {
      */
     void update(Collection<ParameterValue> pvs);
 
+    /**
+     * update the parameters in the cache with the entries [from, to) of the block
+     * <p>
+     * The default implementation creates the {@link ParameterValue} objects for all the entries.
+     *
+     * @param block
+     * @param from
+     * @param to
+     */
+    default void update(ParameterValueBlock block, int from, int to) {
+        update(block.getParameterValues(from, to));
+    }
+
     /**
      * Returns cached value for parameter or an empty list if there is no value in the cache
      * 
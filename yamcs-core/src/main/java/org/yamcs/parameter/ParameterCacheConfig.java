@@ -6,12 +6,30 @@ public class ParameterCacheConfig {
     //maximum duration of the cache
     final long maxDuration;
     final int maxNumEntries;
-    
+    final Implementation implementation;
+
+    public enum Implementation {
+        /**
+         * {@link ArrayParameterCache} - the parameters delivered together are stored in the same table
+         */
+        ARRAY,
+        /**
+         * {@link RingParameterCache} - each parameter has its own ring buffer
+         */
+        RING
+    }
+
     public ParameterCacheConfig(boolean enabled, boolean cacheAll, long duration, int maxNumEntries) {
+        this(enabled, cacheAll, duration, maxNumEntries, Implementation.ARRAY);
+    }
+
+    public ParameterCacheConfig(boolean enabled, boolean cacheAll, long duration, int maxNumEntries,
+            Implementation implementation) {
         this.enabled = enabled;
         this.cacheAll = cacheAll;
         this.maxDuration = duration;
         this.maxNumEntries = maxNumEntries;
+        this.implementation = implementation;
     }
    
 }
@@ -19,4 +19,17 @@ public interface ParameterListener {
      *            - new delivered parameter values
      */
     public abstract void update(Collection<ParameterValue> params);
+
+    /**
+     * Called each time some parameters have been extracted in a block.
+     * <p>
+     * The block is only valid during the call; the default implementation creates the {@link ParameterValue} objects
+     * for all the entries and calls {@link #update(Collection)}.
+     *
+     * @param block
+     *            - new delivered parameter values
+     */
+    public default void update(ParameterValueBlock block) {
+        update(block.toParameterValueList());
+    }
 }
@@ -1,13 +1,15 @@
 package org.yamcs.parameter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.yamcs.ConfigurationException;
@@ -19,6 +21,7 @@ import org.yamcs.alarms.AlarmServer;
 import org.yamcs.alarms.ParameterAlarmStreamer;
 import org.yamcs.logging.Log;
 import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.utils.IntArray;
 import org.yamcs.xtce.DataSource;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtceproc.ParameterAlarmChecker;
@@ -40,19 +43,24 @@ public class ParameterRequestManager extends AbstractService implements Paramete
     Log log;
 
     static final String REALTIME_ALARM_SERVER = "alarms_realtime";
-    // Maps the parameters to the request(subscription id) in which they have been asked
-    private ConcurrentHashMap<Parameter, SubscriptionArray> param2RequestMap = new ConcurrentHashMap<>();
+    // Maps the parameters to the requests (subscriptions) in which they have been asked
+    private final ParameterRoutingTable routingTable = new ParameterRoutingTable();
 
-    // Maps the request (subscription id) to the consumer
-    private Map<Integer, ParameterConsumer> request2ParameterConsumerMap = new ConcurrentHashMap<>();
+    // Maps the subscription id to the subscription
+    private final Map<Integer, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // the slots allocated to the current subscriptions
+    private final BitSet slots = new BitSet();
 
     // these are the consumers that may update the list of parameters
     // they are delivered with priority such that in one update cycle the algorithms (or derived values) are also
     // computed
-    private Map<Integer, DVParameterConsumer> request2DVParameterConsumerMap = new HashMap<>();
+    private final List<Subscription> dvSubscriptions = new CopyOnWriteArrayList<>();
 
     // contains subscribe all
-    private SubscriptionArray subscribeAll = new SubscriptionArray();
+    private final List<Subscription> subscribeAll = new CopyOnWriteArrayList<>();
+
+    // the structures used for collecting the values of one delivery are reused by each thread
+    private static final ThreadLocal<DeliveryBuffer> deliveryBuffer = ThreadLocal.withInitial(DeliveryBuffer::new);
 
     private ParameterAlarmChecker alarmChecker;
     private Map<Class<?>, ParameterProvider> parameterProviders = new LinkedHashMap<>();
@@ -93,7 +101,11 @@ public class ParameterRequestManager extends AbstractService implements Paramete
         }
 
         if (cacheConfig.enabled) {
-            parameterCache = new ArrayParameterCache(yproc.getInstance(), cacheConfig);
+            if (cacheConfig.implementation == ParameterCacheConfig.Implementation.RING) {
+                parameterCache = new RingParameterCache(cacheConfig);
+            } else {
+                parameterCache = new ArrayParameterCache(yproc.getInstance(), cacheConfig);
+            }
         }
     }
 
@@ -139,8 +151,9 @@ public class ParameterRequestManager extends AbstractService implements Paramete
                 provider.startProvidingAll();
             }
         }
-        subscribeAll.add(id);
-        request2ParameterConsumerMap.put(id, consumer);
+        Subscription subscr = getOrCreateSubscription(id);
+        subscr.consumer = consumer;
+        subscribeAll.add(subscr);
         return id;
     }
 
@@ -153,7 +166,8 @@ public class ParameterRequestManager extends AbstractService implements Paramete
      * @return
      */
     public boolean unsubscribeAll(int subscriptionId) {
-        return subscribeAll.remove(subscriptionId);
+        Subscription subscr = subscriptions.get(subscriptionId);
+        return subscr != null && subscribeAll.remove(subscr);
     }
 
     public int addRequest(final List<Parameter> paraList, final ParameterConsumer tpc) {
@@ -162,12 +176,11 @@ public class ParameterRequestManager extends AbstractService implements Paramete
         log.debug("new request with subscriptionId {} with {} items", id, paraList.size());
         subscribeToProviders(paraList);
 
+        getOrCreateSubscription(id).consumer = tpc;
         for (int i = 0; i < paraList.size(); i++) {
             log.trace("adding to subscriptionID: {} item:{} ", id, paraList.get(i).getQualifiedName());
             addItemToRequest(id, paraList.get(i));
         }
-
-        request2ParameterConsumerMap.put(id, tpc);
         return id;
     }
 
@@ -183,8 +196,8 @@ public class ParameterRequestManager extends AbstractService implements Paramete
         final int id = lastSubscriptionId.incrementAndGet();
         log.debug("new request with subscriptionId {} for parameter: {}", id, para.getQualifiedName());
         subscribeToProviders(para);
+        getOrCreateSubscription(id).consumer = tpc;
         addItemToRequest(id, para);
-        request2ParameterConsumerMap.put(id, tpc);
 
         return id;
     }
@@ -201,11 +214,13 @@ public class ParameterRequestManager extends AbstractService implements Paramete
         log.debug("new request with subscriptionId {} for itemList={}", id, paraList);
 
         subscribeToProviders(paraList);
+        Subscription subscr = getOrCreateSubscription(id);
+        subscr.dvConsumer = dvtpc;
         for (int i = 0; i < paraList.size(); i++) {
             log.trace("adding to subscriptionID:{} item:{}", id, paraList.get(i));
             addItemToRequest(id, paraList.get(i));
         }
-        request2DVParameterConsumerMap.put(id, dvtpc);
+        dvSubscriptions.add(subscr);
         return id;
     }
 
@@ -220,11 +235,11 @@ public class ParameterRequestManager extends AbstractService implements Paramete
      */
     public void addRequest(int subscriptionId, List<Parameter> paraList, ParameterConsumer tpc) {
         subscribeToProviders(paraList);
+        getOrCreateSubscription(subscriptionId).consumer = tpc;
         for (int i = 0; i < paraList.size(); i++) {
             log.trace("creating subscriptionID:{} with item:{}", subscriptionId, paraList.get(i));
             addItemToRequest(subscriptionId, paraList.get(i));
         }
-        request2ParameterConsumerMap.put(subscriptionId, tpc);
     }
 
     /**
@@ -235,11 +250,10 @@ public class ParameterRequestManager extends AbstractService implements Paramete
      */
     public void addItemsToRequest(final int subscriptionId, final Parameter para) throws InvalidRequestIdentification {
         log.debug("adding to subscriptionID {}: items: {} ", subscriptionId, para.getName());
-        final ParameterConsumer consumer = request2ParameterConsumerMap.get(subscriptionId);
-        if ((consumer == null) && !request2DVParameterConsumerMap.containsKey(subscriptionId)
+        if (!hasConsumer(subscriptionId)
                 && alarmChecker != null && alarmChecker.getSubscriptionId() != subscriptionId) {
-            log.error(" addItemsToRequest called with an invalid subscriptionId={}\n current subscr:\n{}dv "
-                    + "subscr:\n {}", subscriptionId, request2ParameterConsumerMap, request2DVParameterConsumerMap);
+            log.error(" addItemsToRequest called with an invalid subscriptionId={}\n current subscr:\n{}",
+                    subscriptionId, subscriptions.keySet());
             throw new InvalidRequestIdentification("no such subscriptionID", subscriptionId);
         }
         subscribeToProviders(para);
@@ -257,11 +271,9 @@ public class ParameterRequestManager extends AbstractService implements Paramete
     public void addItemsToRequest(final int subscriptionId, final List<Parameter> paraList)
             throws InvalidRequestIdentification {
         log.debug("adding to subscriptionID {}: {} items ", subscriptionId, paraList.size());
-        final ParameterConsumer consumer = request2ParameterConsumerMap.get(subscriptionId);
-        if ((consumer == null) && !request2DVParameterConsumerMap.containsKey(subscriptionId)) {
-            log.error(" addItemsToRequest called with an invalid subscriptionId={}\n current "
-                    + "subscr:\ndv subscr:\n{}", subscriptionId, request2ParameterConsumerMap,
-                    request2DVParameterConsumerMap);
+        if (!hasConsumer(subscriptionId)) {
+            log.error(" addItemsToRequest called with an invalid subscriptionId={}\n current subscr:\n{}",
+                    subscriptionId, subscriptions.keySet());
             throw new InvalidRequestIdentification("no such subscriptionID", subscriptionId);
         }
         subscribeToProviders(paraList);
@@ -301,23 +313,17 @@ public class ParameterRequestManager extends AbstractService implements Paramete
      * @param para
      */
     private void addItemToRequest(int id, Parameter para) {
-        if (!param2RequestMap.containsKey(para)) {
-            // this parameter is not requested by any other request
-            if (param2RequestMap.putIfAbsent(para, new SubscriptionArray()) == null) {
-                if (alarmChecker != null) {
-                    alarmChecker.parameterSubscribed(para);
-                }
-            }
+        // the parameter is not requested by any other request
+        if (routingTable.add(para, getOrCreateSubscription(id)) && alarmChecker != null) {
+            alarmChecker.parameterSubscribed(para);
         }
-        SubscriptionArray al_req = param2RequestMap.get(para);
-        al_req.add(id);
     }
 
     private void removeItemFromRequest(int subscriptionId, Parameter para) {
-        if (param2RequestMap.containsKey(para)) { // is there really any request associated to this parameter?
-            SubscriptionArray al_req = param2RequestMap.get(para);
+        if (routingTable.contains(para)) { // is there really any request associated to this parameter?
+            Subscription subscr = subscriptions.get(subscriptionId);
             // remove the subscription from the list of this parameter
-            if (al_req.remove(subscriptionId)) {
+            if (subscr != null && routingTable.remove(para, subscr)) {
                 /*
                  * Don't remove the al_req from the map and
                  * don't ask provider to stop providing
@@ -341,33 +347,38 @@ public class ParameterRequestManager extends AbstractService implements Paramete
      */
     public List<Parameter> removeRequest(int subscriptionId) {
         log.debug("removing request for subscriptionId {}", subscriptionId);
+        Subscription subscr = subscriptions.remove(subscriptionId);
+        if (subscr == null) {
+            return new ArrayList<>();
+        }
         // It's a bit annoying that we have to loop through all the parameters to find the ones that
         // are relevant for this request. We could keep track of an additional map.
-        ArrayList<Parameter> result = new ArrayList<>();
-        // loop through all the parameter definitions
-        // find all the subscriptions with the requested subscriptionId and add their corresponding
-        // itemId to the list.
-        Iterator<Map.Entry<Parameter, SubscriptionArray>> it = param2RequestMap.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Parameter, SubscriptionArray> m = it.next();
-            Parameter param = m.getKey();
-            SubscriptionArray al_req = m.getValue();
-            if (al_req.remove(subscriptionId)) {
-                result.add(param);
-            }
-            if (al_req.isEmpty()) { // nobody wants this parameter anymore
-                /*
-                 * if(!cacheAll) { commented out because not thread safe
-                 * getProvider(param).stopProviding(param);
-                 * }
-                 */
-            }
+        // The parameters stay in the routing table even if nobody wants them anymore; the providers are not asked to
+        // stop providing because it is not thread safe.
+        List<Parameter> result = routingTable.removeAll(subscr);
+        dvSubscriptions.remove(subscr);
+        subscribeAll.remove(subscr);
+        synchronized (slots) {
+            slots.clear(subscr.slot);
         }
-        request2ParameterConsumerMap.remove(subscriptionId);
-        request2DVParameterConsumerMap.remove(subscriptionId);
         return result;
     }
 
+    private Subscription getOrCreateSubscription(int subscriptionId) {
+        return subscriptions.computeIfAbsent(subscriptionId, id -> {
+            synchronized (slots) {
+                int slot = slots.nextClearBit(0);
+                slots.set(slot);
+                return new Subscription(id, slot);
+            }
+        });
+    }
+
+    private boolean hasConsumer(int subscriptionId) {
+        Subscription subscr = subscriptions.get(subscriptionId);
+        return subscr != null && (subscr.consumer != null || subscr.dvConsumer != null);
+    }
+
     private void subscribeToProviders(Parameter param) throws NoProviderException {
         if (shouldSubcribeAllParameters) {
             return;
@@ -426,43 +437,153 @@ public class ParameterRequestManager extends AbstractService implements Paramete
         log.trace("ParamRequestManager.updateItems with {} parameters", params.size());
 
         lastValueCache.update(params);
-        // maps subscription id to a list of (value,id) to be delivered for that subscription
-        HashMap<Integer, ArrayList<ParameterValue>> delivery = new HashMap<>();
+        // collects for each subscription the values to be delivered
+        DeliveryBuffer delivery = deliveryBuffer.get();
+        if (delivery.inUse) { // called from one of the consumers
+            delivery = new DeliveryBuffer();
+        }
+        delivery.inUse = true;
+        try {
+            // so first we add to the delivery the parameters just received
+            updateDelivery(delivery, params);
+
+            // then if the delivery updates some of the parameters required by the derived values
+            // compute the derived values
+            for (Subscription subscr : dvSubscriptions) {
+                List<ParameterValue> l = delivery.get(subscr);
+                if (l != null) {
+                    List<ParameterValue> pvList = subscr.dvConsumer.updateParameters(subscr.id, l);
+                    lastValueCache.update(pvList);
+                    updateDelivery(delivery, pvList);
+                }
+            }
 
-        // so first we add to the delivery the parameters just received
-        updateDelivery(delivery, params);
+            // and finally deliver the delivery :)
+            for (int k = 0; k < delivery.size; k++) {
+                Subscription subscr = delivery.subscription(k);
+                if (subscr.dvConsumer != null) {
+                    continue;
+                }
+                if (alarmChecker != null && alarmChecker.getSubscriptionId() == subscr.id) {
+                    continue;
+                }
 
-        // then if the delivery updates some of the parameters required by the derived values
-        // compute the derived values
-        for (Map.Entry<Integer, DVParameterConsumer> entry : request2DVParameterConsumerMap.entrySet()) {
-            Integer subscriptionId = entry.getKey();
-            if (delivery.containsKey(subscriptionId)) {
-                List<ParameterValue> pvList = entry.getValue().updateParameters(subscriptionId,
-                        delivery.get(subscriptionId));
-                lastValueCache.update(pvList);
-                updateDelivery(delivery, pvList);
+                ParameterConsumer consumer = subscr.consumer;
+                if (consumer == null) {
+                    log.warn("subscriptionId {} appears in the delivery list, but there is no consumer for it",
+                            subscr.id);
+                } else {
+                    consumer.updateItems(subscr.id, delivery.take(k));
+                }
             }
+        } finally {
+            delivery.clear();
+            delivery.inUse = false;
         }
+    }
 
-        // and finally deliver the delivery :)
-        for (Map.Entry<Integer, ArrayList<ParameterValue>> entry : delivery.entrySet()) {
-            Integer subscriptionId = entry.getKey();
-            if (request2DVParameterConsumerMap.containsKey(subscriptionId)) {
-                continue;
+    /**
+     * Delivers the parameters extracted in a block.
+     * <p>
+     * The subscriptions collect the indexes of the block entries; the {@link ParameterValue} objects of the primitive
+     * entries are only created for the consumers which are not {@link ParameterBlockConsumer}s, for the algorithms and
+     * for the parameter cache. The values computed by the algorithms are appended to the block.
+     */
+    @Override
+    public void update(ParameterValueBlock block) {
+        log.trace("ParamRequestManager.updateItems with a block of {} parameters", block.size());
+
+        DeliveryBuffer delivery = deliveryBuffer.get();
+        if (delivery.inUse) { // called from one of the consumers
+            delivery = new DeliveryBuffer();
+        }
+        delivery.inUse = true;
+        try {
+            updateDelivery(delivery, block, 0, block.size());
+
+            for (Subscription subscr : dvSubscriptions) {
+                IntArray indexes = delivery.getIndexes(subscr);
+                if (indexes != null) {
+                    List<ParameterValue> pvList = subscr.dvConsumer.updateParameters(subscr.id,
+                            block.getParameterValues(indexes));
+                    if (pvList != null && !pvList.isEmpty()) {
+                        int from = block.size();
+                        block.addAll(pvList);
+                        updateDelivery(delivery, block, from, block.size());
+                    }
+                }
             }
-            if (alarmChecker != null && alarmChecker.getSubscriptionId() == subscriptionId) {
+
+            for (int k = 0; k < delivery.size; k++) {
+                Subscription subscr = delivery.subscription(k);
+                if (subscr.dvConsumer != null) {
+                    continue;
+                }
+                if (alarmChecker != null && alarmChecker.getSubscriptionId() == subscr.id) {
+                    continue;
+                }
+
+                ParameterConsumer consumer = subscr.consumer;
+                IntArray indexes = delivery.indexes(k);
+                if (consumer == null) {
+                    log.warn("subscriptionId {} appears in the delivery list, but there is no consumer for it",
+                            subscr.id);
+                } else if (consumer instanceof ParameterBlockConsumer) {
+                    ((ParameterBlockConsumer) consumer).updateItems(subscr.id, block, indexes);
+                } else {
+                    consumer.updateItems(subscr.id, block.getParameterValues(indexes));
+                }
+            }
+        } finally {
+            delivery.clear();
+            delivery.inUse = false;
+        }
+    }
+
+    /**
+     * adds the entries [from, to) of the block to the delivery
+     */
+    private void updateDelivery(DeliveryBuffer delivery, ParameterValueBlock block, int from, int to) {
+        lastValueCache.update(block, from, to);
+
+        for (int i = from; i < to; i++) {
+            Subscription[] subscrs = routingTable.get(block.getParameter(i));
+            if (subscrs == null) {
                 continue;
             }
+            for (Subscription subscr : subscrs) {
+                delivery.add(subscr, i);
+            }
+        }
 
-            ArrayList<ParameterValue> al = entry.getValue();
-            ParameterConsumer consumer = request2ParameterConsumerMap.get(subscriptionId);
-            if (consumer == null) {
-                log.warn("subscriptionId {} appears in the delivery list, but there is no consumer for it",
-                        subscriptionId);
-            } else {
-                consumer.updateItems(subscriptionId, al);
+        for (Subscription subscr : subscribeAll) {
+            for (int i = from; i < to; i++) {
+                delivery.add(subscr, i);
             }
         }
+        if (alarmChecker != null) {
+            // the parameters with alarms are never extracted in primitive entries
+            List<ParameterValue> objects = null;
+            for (int i = from; i < to; i++) {
+                if (!block.isPrimitive(i)) {
+                    if (objects == null) {
+                        objects = new ArrayList<>();
+                    }
+                    objects.add(block.getParameterValue(i));
+                }
+            }
+            if (objects != null) {
+                try {
+                    alarmChecker.performAlarmChecking(objects);
+                } catch (Exception e) {
+                    log.error("Error when performing alarm checking ", e);
+                }
+            }
+        }
+
+        if (parameterCache != null) {
+            parameterCache.update(block, from, to);
+        }
     }
 
     /**
@@ -471,42 +592,26 @@ public class ParameterRequestManager extends AbstractService implements Paramete
      * @param delivery
      * @param params
      */
-    private void updateDelivery(HashMap<Integer, ArrayList<ParameterValue>> delivery,
-            Collection<ParameterValue> params) {
+    private void updateDelivery(DeliveryBuffer delivery, Collection<ParameterValue> params) {
         if (params == null) {
             return;
         }
 
-        for (Iterator<ParameterValue> it = params.iterator(); it.hasNext();) {
-            ParameterValue pv = it.next();
-            Parameter pDef = pv.getParameter();
-            SubscriptionArray cowal = param2RequestMap.get(pDef);
+        for (ParameterValue pv : params) {
+            Subscription[] subscrs = routingTable.get(pv.getParameter());
             // now walk through the requests and add this item to their delivery list
-            if (cowal == null) {
+            if (subscrs == null) {
                 continue;
             }
-
-            for (int s : cowal.getArray()) {
-                ArrayList<ParameterValue> al = delivery.get(s);
-                if (al == null) {
-                    al = new ArrayList<>();
-                    delivery.put(s, al);
-                }
-                al.add(pv);
+            for (Subscription subscr : subscrs) {
+                delivery.add(subscr, pv);
             }
         }
 
         // update the subscribeAll subscriptions
-        for (int id : subscribeAll.getArray()) {
-            ArrayList<ParameterValue> al = delivery.get(id);
-
-            if (al == null) {
-                al = new ArrayList<>();
-                delivery.put(id, al);
-            }
-
+        for (Subscription subscr : subscribeAll) {
             for (ParameterValue pv : params) {
-                al.add(pv);
+                delivery.add(subscr, pv);
             }
         }
         if (alarmChecker != null) {
@@ -543,15 +648,14 @@ public class ParameterRequestManager extends AbstractService implements Paramete
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Current Subscription list:\n");
-        for (Parameter param : param2RequestMap.keySet()) {
+        routingTable.forEach((param, subscrs) -> {
             sb.append(param);
             sb.append("requested by [");
-            SubscriptionArray al_req = param2RequestMap.get(param);
-            for (int id : al_req.getArray()) {
-                sb.append(id);
+            for (Subscription subscr : subscrs) {
+                sb.append(subscr.id);
             }
             sb.append("]\n");
-        }
+        });
         return sb.toString();
     }
 
@@ -652,4 +756,154 @@ public class ParameterRequestManager extends AbstractService implements Paramete
         }
         spm.put(ds, swParameterManager);
     }
+
+    static final class Subscription {
+        final int id;
+        // dense number used to index the delivery buffers; reused after the subscription is removed
+        final int slot;
+        volatile ParameterConsumer consumer;
+        volatile DVParameterConsumer dvConsumer;
+
+        Subscription(int id, int slot) {
+            this.id = id;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Collects the values to be delivered to each subscription, indexed by subscription slot.
+     * <p>
+     * One delivery collects either values or, when delivering a {@link ParameterValueBlock}, the indexes of the block
+     * entries.
+     * <p>
+     * The lists handed over to the consumers are not reused; the index arrays are.
+     */
+    static final class DeliveryBuffer {
+        Subscription[] subscriptions = new Subscription[16];
+        List<ParameterValue>[] values = newValues(16);
+        IntArray[] indexes = new IntArray[16];
+        // the slots in the order in which they have been added to the delivery
+        int[] order = new int[16];
+        int size;
+        boolean inUse;
+
+        /**
+         * adds the subscription to the delivery if not already there
+         * 
+         * @return false if the slot of the subscription is used by another subscription
+         */
+        private boolean register(Subscription subscr) {
+            int slot = subscr.slot;
+            if (slot >= subscriptions.length) {
+                int n = Math.max(slot + 1, 2 * subscriptions.length);
+                subscriptions = Arrays.copyOf(subscriptions, n);
+                values = Arrays.copyOf(values, n);
+                indexes = Arrays.copyOf(indexes, n);
+            }
+            Subscription s1 = subscriptions[slot];
+            if (s1 != subscr) {
+                if (s1 != null) {
+                    // the slot of a subscription removed during this delivery has been already reused
+                    return false;
+                }
+                subscriptions[slot] = subscr;
+                if (size == order.length) {
+                    order = Arrays.copyOf(order, 2 * size);
+                }
+                order[size++] = slot;
+            }
+            return true;
+        }
+
+        void add(Subscription subscr, ParameterValue pv) {
+            if (!register(subscr)) {
+                return;
+            }
+            int slot = subscr.slot;
+            List<ParameterValue> l = values[slot];
+            if (l == null) {
+                l = new ArrayList<>();
+                values[slot] = l;
+            }
+            l.add(pv);
+        }
+
+        void add(Subscription subscr, int idx) {
+            if (!register(subscr)) {
+                return;
+            }
+            int slot = subscr.slot;
+            IntArray a = indexes[slot];
+            if (a == null) {
+                a = new IntArray();
+                indexes[slot] = a;
+            }
+            a.add(idx);
+        }
+
+        /**
+         * @return the indexes collected for the subscription or null if there is none
+         */
+        IntArray getIndexes(Subscription subscr) {
+            int slot = subscr.slot;
+            if (slot < subscriptions.length && subscriptions[slot] == subscr) {
+                IntArray a = indexes[slot];
+                return (a == null || a.size() == 0) ? null : a;
+            }
+            return null;
+        }
+
+        /**
+         * returns the indexes of the k-th subscription; the array stays in the buffer.
+         */
+        IntArray indexes(int k) {
+            return indexes[order[k]];
+        }
+
+        /**
+         * @return the values collected for the subscription or null if there is none
+         */
+        List<ParameterValue> get(Subscription subscr) {
+            int slot = subscr.slot;
+            if (slot < subscriptions.length && subscriptions[slot] == subscr) {
+                return values[slot];
+            }
+            return null;
+        }
+
+        Subscription subscription(int k) {
+            return subscriptions[order[k]];
+        }
+
+        /**
+         * returns the values of the k-th subscription; the list is removed from the buffer.
+         */
+        List<ParameterValue> take(int k) {
+            int slot = order[k];
+            List<ParameterValue> l = values[slot];
+            values[slot] = null;
+            return l;
+        }
+
+        void clear() {
+            for (int k = 0; k < size; k++) {
+                int slot = order[k];
+                subscriptions[slot] = null;
+                List<ParameterValue> l = values[slot];
+                if (l != null) {
+                    l.clear();
+                }
+                IntArray a = indexes[slot];
+                if (a != null) {
+                    a.clear();
+                }
+            }
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<ParameterValue>[] newValues(int n) {
+            return new List[n];
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package org.yamcs.parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+import org.yamcs.parameter.ParameterRequestManager.Subscription;
+import org.yamcs.xtce.Parameter;
+
+/**
+ * Maps the parameters to the subscriptions in which they have been requested.
+ * <p>
+ * The parameters are looked up by their XtceDb index (see {@link Parameter#getIndex()}) in an array; a hash map is
+ * used only for the parameters without index or whose index is already taken by another parameter (e.g. a parameter
+ * coming from a different XtceDb).
+ * <p>
+ * The lookup is lock free; the modifications are synchronized and replace the subscription arrays (copy on write).
+ * The route array grows by doubling when a parameter with a larger index is added.
+ */
+class ParameterRoutingTable {
+    static final Subscription[] NO_SUBSCRIPTION = new Subscription[0];
+
+    static final class Route {
+        final Parameter parameter;
+        volatile Subscription[] subscriptions = NO_SUBSCRIPTION;
+
+        Route(Parameter parameter) {
+            this.parameter = parameter;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Route> routes = new AtomicReferenceArray<>(0);
+    // parameters which cannot be placed in the array
+    private final Map<Parameter, Route> others = new ConcurrentHashMap<>();
+
+    /**
+     *
+     * @return the subscriptions requesting the parameter or null if the parameter has never been requested
+     */
+    Subscription[] get(Parameter p) {
+        int idx = p.getIndex();
+        if (idx >= 0) {
+            AtomicReferenceArray<Route> a = routes;
+            if (idx >= a.length()) {
+                return null;
+            }
+            Route r = a.get(idx);
+            if (r == null) {
+                return null;
+            } else if (r.parameter == p) {
+                return r.subscriptions;
+            }
+        }
+        Route r = others.get(p);
+        return r == null ? null : r.subscriptions;
+    }
+
+    /**
+     * Adds the subscription to the parameter. If the subscription is already there, the operation has no effect.
+     *
+     * @return true if the parameter has not been requested before
+     */
+    synchronized boolean add(Parameter p, Subscription s) {
+        boolean newParameter = false;
+        Route r = getRoute(p);
+        if (r == null) {
+            r = new Route(p);
+            putRoute(r);
+            newParameter = true;
+        }
+        Subscription[] a = r.subscriptions;
+        for (Subscription s1 : a) {
+            if (s1 == s) {
+                return newParameter;
+            }
+        }
+        Subscription[] b = Arrays.copyOf(a, a.length + 1);
+        b[a.length] = s;
+        r.subscriptions = b;
+        return newParameter;
+    }
+
+    /**
+     * Removes the subscription from the parameter.
+     * <p>
+     * The parameter stays in the table even if there is no subscription left.
+     *
+     * @return true if the subscription has been removed or false if it was not there
+     */
+    synchronized boolean remove(Parameter p, Subscription s) {
+        Route r = getRoute(p);
+        return r != null && remove(r, s);
+    }
+
+    /**
+     * Removes the subscription from all the parameters
+     *
+     * @return the parameters from which the subscription has been removed
+     */
+    synchronized List<Parameter> removeAll(Subscription s) {
+        List<Parameter> result = new ArrayList<>();
+        AtomicReferenceArray<Route> a = routes;
+        for (int i = 0; i < a.length(); i++) {
+            Route r = a.get(i);
+            if (r != null && remove(r, s)) {
+                result.add(r.parameter);
+            }
+        }
+        for (Route r : others.values()) {
+            if (remove(r, s)) {
+                result.add(r.parameter);
+            }
+        }
+        return result;
+    }
+
+    synchronized boolean contains(Parameter p) {
+        return getRoute(p) != null;
+    }
+
+    synchronized void forEach(BiConsumer<Parameter, Subscription[]> consumer) {
+        AtomicReferenceArray<Route> a = routes;
+        for (int i = 0; i < a.length(); i++) {
+            Route r = a.get(i);
+            if (r != null) {
+                consumer.accept(r.parameter, r.subscriptions);
+            }
+        }
+        for (Route r : others.values()) {
+            consumer.accept(r.parameter, r.subscriptions);
+        }
+    }
+
+    private boolean remove(Route r, Subscription s) {
+        Subscription[] a = r.subscriptions;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == s) {
+                Subscription[] b = new Subscription[a.length - 1];
+                System.arraycopy(a, 0, b, 0, i);
+                System.arraycopy(a, i + 1, b, i, a.length - i - 1);
+                r.subscriptions = b;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Route getRoute(Parameter p) {
+        int idx = p.getIndex();
+        if (idx >= 0 && idx < routes.length()) {
+            Route r = routes.get(idx);
+            if (r != null && r.parameter == p) {
+                return r;
+            }
+        }
+        return others.get(p);
+    }
+
+    private void putRoute(Route r) {
+        int idx = r.parameter.getIndex();
+        AtomicReferenceArray<Route> a = routes;
+        if (idx < 0 || (idx < a.length() && a.get(idx) != null)) {
+            others.put(r.parameter, r);
+            return;
+        }
+        if (idx >= a.length()) {
+            AtomicReferenceArray<Route> b = new AtomicReferenceArray<>(Math.max(idx + 1, 2 * a.length()));
+            for (int i = 0; i < a.length(); i++) {
+                b.set(i, a.get(i));
+            }
+            b.set(idx, r);
+            routes = b;
+        } else {
+            a.set(idx, r);
+        }
+    }
+}
@@ -25,6 +25,24 @@ public class ParameterStatus {
     //-1 means it's not set.
     private long expireMillis = -1;
 
+    public ParameterStatus() {
+    }
+
+    // copy constructor - copies all the fields in a shallow mode
+    public ParameterStatus(ParameterStatus s) {
+        this.acquisitionStatus = s.acquisitionStatus;
+        this.processingStatus = s.processingStatus;
+        this.monitoringResult = s.monitoringResult;
+        this.deltaMonitoringResult = s.deltaMonitoringResult;
+        this.rangeCondition = s.rangeCondition;
+        this.watchRange = s.watchRange;
+        this.warningRange = s.warningRange;
+        this.distressRange = s.distressRange;
+        this.criticalRange = s.criticalRange;
+        this.severeRange = s.severeRange;
+        this.expireMillis = s.expireMillis;
+    }
+
     public AcquisitionStatus getAcquisitionStatus() {
         return acquisitionStatus;
     }
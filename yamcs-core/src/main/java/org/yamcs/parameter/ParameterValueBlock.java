@@ -0,0 +1,410 @@
+package org.yamcs.parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.SequenceEntry;
+
+/**
+ * Stores the parameter values extracted from one packet in columns of primitive arrays.
+ * <p>
+ * Each entry is either:
+ * <ul>
+ * <li>primitive - the raw and engineering values are numeric or boolean and stored as the type and bits of the value
+ * (see {@link #toValue(Type, long)}); the acquisition and generation time are the ones of the block. No object is
+ * created when adding such an entry.</li>
+ * <li>object - a {@link ParameterValue} (string, binary, aggregate, values with a specific status, etc).</li>
+ * </ul>
+ * The {@link ParameterValue} objects for the primitive entries are created on request by
+ * {@link #getParameterValue(int)}; the same object is returned for an entry until the block is cleared.
+ * <p>
+ * The block is reused by the extractor for the next packet, so it cannot be kept by the consumers; the objects
+ * returned by {@link #getParameterValue(int)} can be kept.
+ * <p>
+ * Not thread safe.
+ */
+public class ParameterValueBlock {
+    static final int INITIAL_CAPACITY = 64;
+
+    int size;
+    Parameter[] params = new Parameter[INITIAL_CAPACITY];
+    // null for the object entries
+    Type[] rawTypes = new Type[INITIAL_CAPACITY];
+    long[] rawBits = new long[INITIAL_CAPACITY];
+    Type[] engTypes = new Type[INITIAL_CAPACITY];
+    long[] engBits = new long[INITIAL_CAPACITY];
+    ParameterStatus[] statuses = new ParameterStatus[INITIAL_CAPACITY];
+    // the position in the container where the primitive values have been extracted from
+    SequenceEntry[] entries = new SequenceEntry[INITIAL_CAPACITY];
+    int[] bitOffsets = new int[INITIAL_CAPACITY];
+    int[] bitSizes = new int[INITIAL_CAPACITY];
+    // the object entries and the objects created for the primitive entries
+    ParameterValue[] values = new ParameterValue[INITIAL_CAPACITY];
+
+    // open addressing hash table with the index+1 of the last entry of each parameter
+    int[] lastIndex = new int[2 * INITIAL_CAPACITY];
+
+    long acquisitionTime = TimeEncoding.INVALID_INSTANT;
+    long generationTime = TimeEncoding.INVALID_INSTANT;
+
+    public void setTime(long acquisitionTime, long generationTime) {
+        this.acquisitionTime = acquisitionTime;
+        this.generationTime = generationTime;
+    }
+
+    public long getAcquisitionTime() {
+        return acquisitionTime;
+    }
+
+    public long getGenerationTime() {
+        return generationTime;
+    }
+
+    /**
+     * Adds an object entry.
+     *
+     * @return the index of the entry
+     */
+    public int add(ParameterValue pv) {
+        int i = newEntry(pv.getParameter());
+        values[i] = pv;
+        return i;
+    }
+
+    public void addAll(Collection<ParameterValue> pvs) {
+        for (ParameterValue pv : pvs) {
+            add(pv);
+        }
+    }
+
+    /**
+     * Adds a primitive entry.
+     *
+     * @param status
+     *            - the status of the value; it can be shared with other entries and values
+     * @return the index of the entry
+     */
+    public int addPrimitive(Parameter p, ParameterStatus status, Type rawType, long rawValue, Type engType,
+            long engValue) {
+        int i = newEntry(p);
+        statuses[i] = status;
+        rawTypes[i] = rawType;
+        rawBits[i] = rawValue;
+        engTypes[i] = engType;
+        engBits[i] = engValue;
+        return i;
+    }
+
+    /**
+     * Sets the position in the container where the primitive entry i has been extracted from
+     */
+    public void setLocation(int i, SequenceEntry entry, int absoluteBitOffset, int bitSize) {
+        entries[i] = entry;
+        bitOffsets[i] = absoluteBitOffset;
+        bitSizes[i] = bitSize;
+    }
+
+    private int newEntry(Parameter p) {
+        if (size == params.length) {
+            grow();
+        }
+        int i = size++;
+        params[i] = p;
+        if (p != null) {
+            if (2 * size > lastIndex.length) {
+                rehash(2 * lastIndex.length);
+            }
+            putIndex(p, i);
+        }
+        return i;
+    }
+
+    private void grow() {
+        int n = 2 * params.length;
+        params = Arrays.copyOf(params, n);
+        rawTypes = Arrays.copyOf(rawTypes, n);
+        rawBits = Arrays.copyOf(rawBits, n);
+        engTypes = Arrays.copyOf(engTypes, n);
+        engBits = Arrays.copyOf(engBits, n);
+        statuses = Arrays.copyOf(statuses, n);
+        entries = Arrays.copyOf(entries, n);
+        bitOffsets = Arrays.copyOf(bitOffsets, n);
+        bitSizes = Arrays.copyOf(bitSizes, n);
+        values = Arrays.copyOf(values, n);
+    }
+
+    private void putIndex(Parameter p, int i) {
+        int mask = lastIndex.length - 1;
+        int h = hash(p) & mask;
+        while (lastIndex[h] != 0 && params[lastIndex[h] - 1] != p) {
+            h = (h + 1) & mask;
+        }
+        lastIndex[h] = i + 1;
+    }
+
+    private void rehash(int capacity) {
+        lastIndex = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            if (params[i] != null) {
+                putIndex(params[i], i);
+            }
+        }
+    }
+
+    private static int hash(Parameter p) {
+        int h = System.identityHashCode(p);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     *
+     * @return the index of the last entry for the parameter p or -1 if there is none
+     */
+    public int lastIndexOf(Parameter p) {
+        int mask = lastIndex.length - 1;
+        int h = hash(p) & mask;
+        while (lastIndex[h] != 0) {
+            int i = lastIndex[h] - 1;
+            if (params[i] == p) {
+                return i;
+            }
+            h = (h + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @return the index of the first entry for the parameter p or -1 if there is none
+     */
+    public int indexOf(Parameter p) {
+        if (lastIndexOf(p) < 0) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (params[i] == p) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of the last entry for the parameter p or null if there is none.
+     * <p>
+     * If the entry is primitive, the ParameterValue is created.
+     */
+    public ParameterValue getLastInserted(Parameter p) {
+        int i = lastIndexOf(p);
+        return i < 0 ? null : getParameterValue(i);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Parameter getParameter(int i) {
+        return params[i];
+    }
+
+    /**
+     *
+     * @return true if the entry i is primitive, false if it is an object entry
+     */
+    public boolean isPrimitive(int i) {
+        return rawTypes[i] != null;
+    }
+
+    /**
+     *
+     * @return the type of the raw value of the primitive entry i
+     */
+    public Type getRawType(int i) {
+        return rawTypes[i];
+    }
+
+    /**
+     *
+     * @return the bits of the raw value of the primitive entry i
+     */
+    public long getRawBits(int i) {
+        return rawBits[i];
+    }
+
+    /**
+     *
+     * @return the type of the engineering value of the primitive entry i
+     */
+    public Type getEngType(int i) {
+        return engTypes[i];
+    }
+
+    /**
+     *
+     * @return the bits of the engineering value of the primitive entry i
+     */
+    public long getEngBits(int i) {
+        return engBits[i];
+    }
+
+    /**
+     *
+     * @return the status of the entry i
+     */
+    public ParameterStatus getStatus(int i) {
+        return isPrimitive(i) ? statuses[i] : values[i].getStatus();
+    }
+
+    /**
+     * Returns the raw value of the entry i; for primitive entries a new Value is created.
+     */
+    public Value getRawValue(int i) {
+        return isPrimitive(i) ? toValue(rawTypes[i], rawBits[i]) : values[i].getRawValue();
+    }
+
+    /**
+     * Returns the engineering value of the entry i; for primitive entries a new Value is created.
+     */
+    public Value getEngValue(int i) {
+        return isPrimitive(i) ? toValue(engTypes[i], engBits[i]) : values[i].getEngValue();
+    }
+
+    /**
+     * Returns the ParameterValue of the entry i, creating it if the entry is primitive.
+     * <p>
+     * The values of the primitive entries extracted from a container are {@link ContainerParameterValue}s.
+     */
+    public ParameterValue getParameterValue(int i) {
+        ParameterValue pv = values[i];
+        if (pv == null) {
+            pv = entries[i] == null ? new ParameterValue(params[i]) : newContainerParameterValue(i);
+            pv.setRawValue(toValue(rawTypes[i], rawBits[i]));
+            pv.setEngValue(toValue(engTypes[i], engBits[i]));
+            pv.setAcquisitionTime(acquisitionTime);
+            pv.setGenerationTime(generationTime);
+            pv.setStatus(statuses[i]);
+            values[i] = pv;
+        }
+        return pv;
+    }
+
+    private ContainerParameterValue newContainerParameterValue(int i) {
+        ContainerParameterValue cpv = new ContainerParameterValue(params[i]);
+        cpv.setSequenceEntry(entries[i]);
+        cpv.setAbsoluteBitOffset(bitOffsets[i]);
+        cpv.setBitSize(bitSizes[i]);
+        return cpv;
+    }
+
+    /**
+     *
+     * @return the values of the entries [from, to), creating them for the primitive entries
+     */
+    public List<ParameterValue> getParameterValues(int from, int to) {
+        List<ParameterValue> l = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            l.add(getParameterValue(i));
+        }
+        return l;
+    }
+
+    /**
+     *
+     * @return the values of the entries with the given indexes, creating them for the primitive entries
+     */
+    public List<ParameterValue> getParameterValues(IntArray indexes) {
+        List<ParameterValue> l = new ArrayList<>(indexes.size());
+        for (int k = 0; k < indexes.size(); k++) {
+            l.add(getParameterValue(indexes.get(k)));
+        }
+        return l;
+    }
+
+    /**
+     *
+     * @return the values of all entries, creating them for the primitive entries
+     */
+    public ParameterValueList toParameterValueList() {
+        ParameterValueList pvlist = new ParameterValueList();
+        for (int i = 0; i < size; i++) {
+            pvlist.add(getParameterValue(i));
+        }
+        return pvlist;
+    }
+
+    /**
+     * Removes all the entries such that the block can be reused.
+     */
+    public void clear() {
+        Arrays.fill(params, 0, size, null);
+        Arrays.fill(rawTypes, 0, size, null);
+        Arrays.fill(engTypes, 0, size, null);
+        Arrays.fill(statuses, 0, size, null);
+        Arrays.fill(entries, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(lastIndex, 0);
+        size = 0;
+        acquisitionTime = TimeEncoding.INVALID_INSTANT;
+        generationTime = TimeEncoding.INVALID_INSTANT;
+    }
+
+    /**
+     * Creates the value corresponding to the type and bits of a primitive entry:
+     * <ul>
+     * <li>SINT32, UINT32 - the value is (int) bits</li>
+     * <li>SINT64, UINT64 - the value is bits</li>
+     * <li>FLOAT - the value is Float.intBitsToFloat((int) bits)</li>
+     * <li>DOUBLE - the value is Double.longBitsToDouble(bits)</li>
+     * <li>BOOLEAN - the value is bits != 0</li>
+     * </ul>
+     */
+    public static Value toValue(Type type, long bits) {
+        switch (type) {
+        case SINT32:
+            return ValueUtility.getSint32Value((int) bits);
+        case UINT32:
+            return ValueUtility.getUint32Value((int) bits);
+        case SINT64:
+            return ValueUtility.getSint64Value(bits);
+        case UINT64:
+            return ValueUtility.getUint64Value(bits);
+        case FLOAT:
+            return ValueUtility.getFloatValue(Float.intBitsToFloat((int) bits));
+        case DOUBLE:
+            return ValueUtility.getDoubleValue(Double.longBitsToDouble(bits));
+        case BOOLEAN:
+            return ValueUtility.getBooleanValue(bits != 0);
+        default:
+            throw new IllegalArgumentException("Type " + type + " cannot be stored in a primitive entry");
+        }
+    }
+
+    /**
+     * Returns true if the values of the given type can be stored in primitive entries.
+     */
+    public static boolean isPrimitive(Type type) {
+        switch (type) {
+        case SINT32:
+        case UINT32:
+        case SINT64:
+        case UINT64:
+        case FLOAT:
+        case DOUBLE:
+        case BOOLEAN:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
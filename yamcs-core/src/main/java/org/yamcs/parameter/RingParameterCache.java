@@ -0,0 +1,401 @@
+package org.yamcs.parameter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+/**
+ * Parameter cache keeping the values of each parameter in a separate ring buffer made of primitive columns: generation
+ * time, acquisition time, raw and engineering values stored as double[], long[], int[],... depending on the value type
+ * and the parameter status.
+ * <p>
+ * Unlike {@link ArrayParameterCache} which groups the parameters delivered together into tables, the values of a
+ * parameter are found with one hash lookup, whatever the way they have been delivered.
+ * <p>
+ * The updates of one parameter are serialized whereas the readers do not lock: they read optimistically (see
+ * {@link StampedLock}) and retry with a read lock only if the parameter has been updated in the meanwhile.
+ * <p>
+ * If the type of the raw or engineering value of a parameter changes, the values previously cached for the parameter
+ * are discarded.
+ */
+public class RingParameterCache implements ParameterCache {
+    static final int INITIAL_CAPACITY = 8;
+
+    final ConcurrentHashMap<Parameter, ParameterRing> rings = new ConcurrentHashMap<>();
+    // parameters subscribed to if not all parameters are cached
+    final ConcurrentHashMap<Parameter, Boolean> parametersToCache;
+    final ParameterCacheConfig cacheConfig;
+
+    public RingParameterCache(ParameterCacheConfig cacheConfig) {
+        this.cacheConfig = cacheConfig;
+        parametersToCache = cacheConfig.cacheAll ? null : new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void update(Collection<ParameterValue> pvs) {
+        for (ParameterValue pv : pvs) {
+            Parameter p = pv.getParameter();
+            if (p == null) {
+                continue;
+            }
+            if (!(cacheConfig.cacheAll || parametersToCache.containsKey(p))) {
+                continue;
+            }
+            ParameterRing ring = rings.get(p);
+            if (ring == null) {
+                ring = rings.computeIfAbsent(p,
+                        k -> new ParameterRing(k, cacheConfig.maxDuration, cacheConfig.maxNumEntries));
+            }
+            ring.add(pv);
+        }
+    }
+
+    /**
+     * Only the values of the parameters to be cached are created.
+     */
+    @Override
+    public void update(ParameterValueBlock block, int from, int to) {
+        if (cacheConfig.cacheAll) {
+            update(block.getParameterValues(from, to));
+            return;
+        }
+        List<ParameterValue> pvs = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Parameter p = block.getParameter(i);
+            if (p != null && parametersToCache.containsKey(p)) {
+                pvs.add(block.getParameterValue(i));
+            }
+        }
+        if (!pvs.isEmpty()) {
+            update(pvs);
+        }
+    }
+
+    @Override
+    public List<ParameterValue> getValues(List<Parameter> plist) {
+        List<ParameterValue> result = new ArrayList<>(plist.size());
+        long now = TimeEncoding.getWallclockTime();
+        for (Parameter p : plist) {
+            ParameterValue pv = getLastValue(p);
+            if (pv == null) {
+                continue;
+            }
+            if ((pv.getAcquisitionStatus() == AcquisitionStatus.ACQUIRED) && pv.isExpired(now)) {
+                pv.setAcquisitionStatus(AcquisitionStatus.EXPIRED);
+            }
+            result.add(pv);
+        }
+        return result;
+    }
+
+    @Override
+    public ParameterValue getLastValue(Parameter p) {
+        ParameterRing ring = getRing(p);
+        return ring == null ? null : ring.getLastValue();
+    }
+
+    @Override
+    public List<ParameterValue> getAllValues(Parameter p) {
+        return getAllValues(p, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<ParameterValue> getAllValues(Parameter p, long start, long stop) {
+        ParameterRing ring = getRing(p);
+        if (ring == null) {
+            return null;
+        }
+        List<ParameterValue> result = ring.getValues(start, stop);
+        return (result == null || result.isEmpty()) ? null : result;
+    }
+
+    private ParameterRing getRing(Parameter p) {
+        ParameterRing ring = rings.get(p);
+        if (ring == null && !cacheConfig.cacheAll) {
+            parametersToCache.put(p, Boolean.TRUE);
+        }
+        return ring;
+    }
+
+    @Override
+    public void clear() {
+        rings.clear();
+    }
+
+    /**
+     * Circular buffer holding the values of one parameter.
+     * <p>
+     * The values are stored at the position count &amp; mask where count is the total number of values stored in the
+     * current columns. When the buffer is full, it either grows or the oldest value is overwritten, depending on the
+     * maximum duration and the maximum number of entries configured for the cache.
+     */
+    static final class ParameterRing {
+        final Parameter parameter;
+        final long maxDuration;
+        final int maxNumEntries;
+        final StampedLock lock = new StampedLock();
+
+        // both replaced under the write lock
+        Columns columns;
+        long count;
+
+        ParameterRing(Parameter parameter, long maxDuration, int maxNumEntries) {
+            this.parameter = parameter;
+            this.maxDuration = maxDuration;
+            this.maxNumEntries = maxNumEntries;
+        }
+
+        void add(ParameterValue pv) {
+            Value engValue = pv.getEngValue();
+            Value rawValue = pv.getRawValue();
+            Type engType = (engValue == null) ? null : engValue.getType();
+            Type rawType = (rawValue == null) ? null : rawValue.getType();
+            long t = pv.getGenerationTime();
+
+            long stamp = lock.writeLock();
+            try {
+                Columns c = columns;
+                if (c == null || c.engType != engType || c.rawType != rawType) {
+                    c = columns = new Columns(engType, rawType, Math.min(INITIAL_CAPACITY, maxNumEntries));
+                    count = 0;
+                } else if (count >= c.capacity) {
+                    long t0 = c.generationTime[(int) count & c.mask];
+                    if (t < t0) {
+                        // older than the oldest value in the cache -> ignore
+                        return;
+                    }
+                    if (t - t0 < maxDuration && c.capacity < maxNumEntries) {
+                        int n = c.capacity;
+                        c = columns = c.grow((int) count & c.mask, Math.min(2 * n, maxNumEntries));
+                        count = n;
+                    }
+                }
+                c.store((int) count & c.mask, pv);
+                count++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        ParameterValue getLastValue() {
+            return read(c -> {
+                long cnt = count;
+                return (cnt == 0) ? null : c.toParameterValue(parameter, (int) (cnt - 1) & c.mask);
+            });
+        }
+
+        /**
+         * returns the values with the generation time in the (start, stop] interval, newest first
+         */
+        List<ParameterValue> getValues(long start, long stop) {
+            return read(c -> {
+                List<ParameterValue> result = new ArrayList<>();
+                long cnt = count;
+                long n = Math.min(cnt, c.capacity);
+                for (long i = cnt - 1; i >= cnt - n; i--) {
+                    int row = (int) i & c.mask;
+                    long t = c.generationTime[row];
+                    if (t > start && t <= stop) {
+                        result.add(c.toParameterValue(parameter, row));
+                    }
+                }
+                return result;
+            });
+        }
+
+        /**
+         * Executes the reader without locking and validates afterwards that no write happened in the meantime. If it
+         * did, the reader is executed again under the read lock.
+         */
+        private <T> T read(Function<Columns, T> reader) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Columns c = columns;
+                    if (c == null) {
+                        if (lock.validate(stamp)) {
+                            return null;
+                        }
+                    } else {
+                        T result = reader.apply(c);
+                        if (lock.validate(stamp)) {
+                            return result;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // inconsistent data read while a writer was active; retry below
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return columns == null ? null : reader.apply(columns);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * The primitive columns of a ring; the capacity is fixed, a new object is created when the ring grows.
+     */
+    static final class Columns {
+        final Type engType;
+        final Type rawType;
+        final int capacity;
+        final int mask;
+
+        final long[] generationTime;
+        final long[] acquisitionTime;
+        final Object engValues;
+        final Object rawValues;
+        // the same object is stored for consecutive identical statuses
+        final ParameterStatus[] status;
+
+        Columns(Type engType, Type rawType, int capacity) {
+            this.engType = engType;
+            this.rawType = rawType;
+            this.capacity = Integer.highestOneBit(capacity) == capacity ? capacity
+                    : Integer.highestOneBit(capacity) << 1;
+            this.mask = this.capacity - 1;
+            generationTime = new long[this.capacity];
+            acquisitionTime = new long[this.capacity];
+            engValues = (engType == null) ? null : newColumn(engType, this.capacity);
+            rawValues = (rawType == null) ? null : newColumn(rawType, this.capacity);
+            status = new ParameterStatus[this.capacity];
+        }
+
+        void store(int row, ParameterValue pv) {
+            generationTime[row] = pv.getGenerationTime();
+            acquisitionTime[row] = pv.getAcquisitionTime();
+            if (engValues != null) {
+                storeValue(engValues, row, pv.getEngValue());
+            }
+            if (rawValues != null) {
+                storeValue(rawValues, row, pv.getRawValue());
+            }
+            ParameterStatus s = pv.getStatus();
+            ParameterStatus prev = status[(row - 1) & mask];
+            status[row] = (prev != null && prev.equals(s)) ? prev : s;
+        }
+
+        ParameterValue toParameterValue(Parameter p, int row) {
+            ParameterValue pv = new ParameterValue(p);
+            if (engValues != null) {
+                pv.setEngValue(getValue(engValues, engType, row));
+            }
+            if (rawValues != null) {
+                pv.setRawValue(getValue(rawValues, rawType, row));
+            }
+            pv.setGenerationTime(generationTime[row]);
+            pv.setAcquisitionTime(acquisitionTime[row]);
+            pv.setStatus(status[row]);
+            return pv;
+        }
+
+        /**
+         * Creates a copy with the new capacity where the values are ordered from the oldest (found at position start
+         * in this object) to the newest.
+         */
+        Columns grow(int start, int newCapacity) {
+            Columns c = new Columns(engType, rawType, newCapacity);
+            copy(generationTime, start, c.generationTime);
+            copy(acquisitionTime, start, c.acquisitionTime);
+            if (engValues != null) {
+                copy(engValues, start, c.engValues);
+            }
+            if (rawValues != null) {
+                copy(rawValues, start, c.rawValues);
+            }
+            copy(status, start, c.status);
+            return c;
+        }
+
+        private void copy(Object src, int start, Object dst) {
+            System.arraycopy(src, start, dst, 0, capacity - start);
+            System.arraycopy(src, 0, dst, capacity - start, start);
+        }
+
+        private static Object newColumn(Type type, int capacity) {
+            switch (type) {
+            case BOOLEAN:
+                return new boolean[capacity];
+            case DOUBLE:
+                return new double[capacity];
+            case FLOAT:
+                return new float[capacity];
+            case SINT32:
+            case UINT32:
+                return new int[capacity];
+            case SINT64:
+            case UINT64:
+            case TIMESTAMP:
+                return new long[capacity];
+            default:
+                return new Value[capacity];
+            }
+        }
+
+        private static void storeValue(Object column, int row, Value v) {
+            switch (v.getType()) {
+            case BOOLEAN:
+                ((boolean[]) column)[row] = v.getBooleanValue();
+                break;
+            case DOUBLE:
+                ((double[]) column)[row] = v.getDoubleValue();
+                break;
+            case FLOAT:
+                ((float[]) column)[row] = v.getFloatValue();
+                break;
+            case SINT32:
+                ((int[]) column)[row] = v.getSint32Value();
+                break;
+            case UINT32:
+                ((int[]) column)[row] = v.getUint32Value();
+                break;
+            case SINT64:
+                ((long[]) column)[row] = v.getSint64Value();
+                break;
+            case UINT64:
+                ((long[]) column)[row] = v.getUint64Value();
+                break;
+            case TIMESTAMP:
+                ((long[]) column)[row] = v.getTimestampValue();
+                break;
+            default:
+                ((Value[]) column)[row] = v;
+            }
+        }
+
+        private static Value getValue(Object column, Type type, int row) {
+            switch (type) {
+            case BOOLEAN:
+                return ValueUtility.getBooleanValue(((boolean[]) column)[row]);
+            case DOUBLE:
+                return ValueUtility.getDoubleValue(((double[]) column)[row]);
+            case FLOAT:
+                return ValueUtility.getFloatValue(((float[]) column)[row]);
+            case SINT32:
+                return ValueUtility.getSint32Value(((int[]) column)[row]);
+            case UINT32:
+                return ValueUtility.getUint32Value(((int[]) column)[row]);
+            case SINT64:
+                return ValueUtility.getSint64Value(((long[]) column)[row]);
+            case UINT64:
+                return ValueUtility.getUint64Value(((long[]) column)[row]);
+            case TIMESTAMP:
+                return ValueUtility.getTimestampValue(((long[]) column)[row]);
+            default:
+                return ((Value[]) column)[row];
+            }
+        }
+    }
+}
@@ -9,11 +9,13 @@ import java.util.List;
 import java.util.Map;
 
 import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
 import org.yamcs.Processor;
 import org.yamcs.logging.Log;
 import org.yamcs.parameter.ParameterConsumer;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameter.Value;
+import org.yamcs.parameterarchive.ParameterArchive.Partition;
 import org.yamcs.utils.TimeEncoding;
 
 /**
@@ -36,6 +38,11 @@ class ArchiveFillerTask implements ParameterConsumer {
 
     // ignore any data older than this
     protected long collectionSegmentStart;
+    // ignore any data newer than this
+    protected long collectionEnd = Long.MAX_VALUE;
+
+    // if not null, the data is accumulated in these batches (one per partition) and written by the flush
+    private Map<Partition, WriteBatch> pendingBatches;
 
     long threshold = 60000;
     int maxSegmentSize;
@@ -55,6 +62,22 @@ class ArchiveFillerTask implements ParameterConsumer {
         this.collectionSegmentStart = collectionSegmentStart;
     }
 
+    /**
+     * Sets the time after which the data is ignored. It is used when several tasks fill adjacent intervals in parallel
+     * such that each interval is written by only one task.
+     */
+    void setCollectionEnd(long collectionEnd) {
+        this.collectionEnd = collectionEnd;
+    }
+
+    /**
+     * If set to true, nothing is written to the archive until the {@link #flush()}, when all the data is written at
+     * once. If the task is aborted, the data previously in the archive is left unchanged.
+     */
+    void setAtomicWrite(boolean atomicWrite) {
+        pendingBatches = atomicWrite ? new HashMap<>() : null;
+    }
+
     /**
      * adds the parameters to the pgSegments structure
      * 
@@ -68,7 +91,7 @@ class ArchiveFillerTask implements ParameterConsumer {
         Map<Long, BasicParameterList> m = new HashMap<>();
         for (ParameterValue pv : items) {
             long t = pv.getGenerationTime();
-            if (t < collectionSegmentStart) {
+            if (t < collectionSegmentStart || t > collectionEnd) {
                 continue;
             }
 
@@ -126,6 +149,24 @@ class ArchiveFillerTask implements ParameterConsumer {
         if (pgSegments != null) {
             writeToArchive(collectionSegmentStart);
         }
+        if (pendingBatches != null) {
+            try {
+                parameterArchive.writeBatches(pendingBatches);
+            } catch (RocksDBException | IOException e) {
+                log.error("failed to write data to the archive", e);
+            }
+            discard();
+        }
+    }
+
+    /**
+     * releases the data not yet written to the archive
+     */
+    void discard() {
+        if (pendingBatches != null) {
+            pendingBatches.values().forEach(WriteBatch::close);
+            pendingBatches.clear();
+        }
     }
 
     /**
@@ -138,7 +179,11 @@ class ArchiveFillerTask implements ParameterConsumer {
                 pgSegments.size());
 
         try {
-            parameterArchive.writeToArchive(segStart, pgSegments.values());
+            if (pendingBatches != null) {
+                parameterArchive.addToBatch(segStart, pgSegments.values(), pendingBatches);
+            } else {
+                parameterArchive.writeToArchive(segStart, pgSegments.values());
+            }
         } catch (RocksDBException | IOException e) {
             log.error("failed to write data to the archive", e);
         }
@@ -1,17 +1,27 @@
 package org.yamcs.parameterarchive;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
 import org.yamcs.logging.Log;
+import org.yamcs.parameterarchive.ParameterArchive.Partition;
 import org.yamcs.utils.TimeEncoding;
 
 /**
  * Filler for one interval of the parameter archive.
  * 
  * An interval is composed from multiple segments each having maximum maxSegmentSize parameter values.
+ * <p>
+ * The segments which reach the maximum size are not written immediately but kept until the next
+ * {@link #commit(Map, long, long)} such that they can be written together in one batch. The open segments are written
+ * periodically; their start, which is part of the key in the archive, is set to their first timestamp before the first
+ * write and does not change afterwards.
  * 
  * 
  * @author nm
@@ -21,6 +31,10 @@ public class ArchiveIntervalFiller {
 
     // parameter group id -> segment
     final Map<Integer, PGSegment> pgSegments = new HashMap<>();
+    // parameter group id -> wall clock time when the open segment has been created or last written
+    final Map<Integer, Long> lastWriteTime = new HashMap<>();
+    // segments which reached the max size and have not yet been written
+    final List<PGSegment> closedSegments = new ArrayList<>();
     final ParameterArchive parchive;
     final ParameterGroupIdDb parameterGroupIdMap;
     int numParams;
@@ -45,8 +59,12 @@ public class ArchiveIntervalFiller {
         numParams += pvList.size();
         int parameterGroupId = parameterGroupIdMap.createAndGet(pvList.getPids());
 
-        PGSegment pgs = pgSegments.computeIfAbsent(parameterGroupId,
-                k -> new PGSegment(parameterGroupId, intervalStart, pvList.getPids()));
+        PGSegment pgs = pgSegments.get(parameterGroupId);
+        if (pgs == null) {
+            pgs = new PGSegment(parameterGroupId, intervalStart, pvList.getPids());
+            pgSegments.put(parameterGroupId, pgs);
+            lastWriteTime.put(parameterGroupId, System.currentTimeMillis());
+        }
 
         if (t < pgs.getSegmentStart()) {
             log.warn(
@@ -60,23 +78,56 @@ public class ArchiveIntervalFiller {
         pgs.addRecord(t, pvList.getValues());
         if (pgs.size() >= maxSegmentSize) {
             pgs.trimSegmentStart();
-            log.debug("Segment {} reached max size {}, writing to disk", pgs, maxSegmentSize);
-            parchive.writeToArchive(pgs);
+            log.debug("Segment {} reached max size {}, scheduling it for writing", pgs, maxSegmentSize);
+            closedSegments.add(pgs);
             pgSegments.put(parameterGroupId,
                     new PGSegment(parameterGroupId, pgs.getSegmentEnd() + 1, pvList.getPids()));
+            lastWriteTime.put(parameterGroupId, System.currentTimeMillis());
         }
     }
 
+    /**
+     * Adds to the batches the closed segments and the open segments which have not been written for at least maxAge
+     * milliseconds. The open segments are written again when they have grown older than maxAge.
+     * 
+     * @param now
+     *            - the current wall clock time
+     * @return the number of segments added to the batches
+     */
+    int commit(Map<Partition, WriteBatch> batches, long now, long maxAge) throws RocksDBException {
+        int n = closedSegments.size();
+        for (PGSegment pgs : closedSegments) {
+            parchive.addToBatch(pgs.getSegmentStart(), Collections.singletonList(pgs), batches);
+        }
+        closedSegments.clear();
+
+        for (PGSegment pgs : pgSegments.values()) {
+            int pgid = pgs.getParameterGroupId();
+            if (pgs.size() > 0 && now - lastWriteTime.get(pgid) >= maxAge) {
+                // the segment start is part of the key; it is fixed to the first timestamp before the first write
+                // such that the next writes of the segment (including the one when it is full) replace this one
+                pgs.trimSegmentStart();
+                parchive.addToBatch(pgs.getSegmentStart(), Collections.singletonList(pgs), batches);
+                lastWriteTime.put(pgid, now);
+                n++;
+            }
+        }
+        return n;
+    }
+
     void flush() throws RocksDBException, IOException {
         log.debug("Flushing interval [{} - {}] with {} segments",
                 TimeEncoding.toString(intervalStart),
                 TimeEncoding.toString(ParameterArchive.getIntervalEnd(intervalStart)),
-                pgSegments.size());
+                pgSegments.size() + closedSegments.size());
 
-        for (PGSegment pgs : pgSegments.values()) {
-            if (pgs.size() > 0) {
-                parchive.writeToArchive(pgs);
+        Map<Partition, WriteBatch> batches = new HashMap<>();
+        try {
+            if (commit(batches, System.currentTimeMillis(), 0) > 0) {
+                parchive.writeBatches(batches);
             }
+        } finally {
+            batches.values().forEach(WriteBatch::close);
         }
     }
 }
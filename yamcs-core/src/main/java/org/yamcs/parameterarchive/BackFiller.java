@@ -5,6 +5,9 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +36,8 @@ import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Back-fills the parameter archive by triggering replays: - either regularly scheduled replays - or monitor data
  * streams (tm, param) and keep track of which segments have to be rebuild
@@ -63,6 +68,12 @@ public class BackFiller implements StreamSubscriber {
 
     private int maxSegmentSize = ArchiveFillerTask.DEFAULT_MAX_SEGMENT_SIZE;
 
+    // number of archive intervals filled in parallel
+    int parallelism = 1;
+    private ExecutorService rebuildExecutor;
+    private volatile RebuildProgress progress;
+    static final long PROGRESS_LOG_INTERVAL = 10000;
+
     BackFiller(ParameterArchive parchive, YConfiguration config) {
         this.parchive = parchive;
         if (config != null) {
@@ -70,6 +81,11 @@ public class BackFiller implements StreamSubscriber {
         }
         timeService = YamcsServer.getTimeService(parchive.getYamcsInstance());
         log = new Log(BackFiller.class, parchive.getYamcsInstance());
+        if (parallelism > 1) {
+            rebuildExecutor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                    .setNameFormat("ParameterArchive-fillup[" + parchive.getYamcsInstance() + "]-%d")
+                    .setDaemon(true).build());
+        }
     }
 
     void start() {
@@ -104,6 +120,10 @@ public class BackFiller implements StreamSubscriber {
     private void parseConfig(YConfiguration config) {
         warmupTime = 1000L * config.getInt("warmupTime", 60);
         maxSegmentSize = config.getInt("maxSegmentSize", ArchiveFillerTask.DEFAULT_MAX_SEGMENT_SIZE);
+        parallelism = config.getInt("parallelism", 1);
+        if (parallelism < 1) {
+            throw new ConfigurationException("The backFiller parallelism has to be at least 1");
+        }
 
         if (config.containsKey("schedule")) {
             List<YConfiguration> l = config.getConfigList("schedule");
@@ -148,14 +168,35 @@ public class BackFiller implements StreamSubscriber {
     }
 
     private void runTask(long start, long stop) {
-        try {
-            start = ParameterArchive.getIntervalStart(start);
-            stop = ParameterArchive.getIntervalEnd(stop) + 1;
+        start = ParameterArchive.getIntervalStart(start);
+        stop = ParameterArchive.getIntervalEnd(stop) + 1;
+        if (parallelism > 1 && stop - start > ParameterArchive.getIntervalDuration()) {
+            runParallel(start, stop);
+        } else {
+            fill(start, stop, false);
+        }
+    }
 
-            ArchiveFillerTask aft = new ArchiveFillerTask(parchive, maxSegmentSize);
+    /**
+     * Fills the archive for the [start, stop) time range with one replay.
+     * 
+     * @param singleInterval
+     *            if true, the range is one archive interval, the data outside of it is ignored and the interval is
+     *            written at once at the end of the replay.
+     * @return true if the filling has been successful
+     */
+    boolean fill(long start, long stop, boolean singleInterval) {
+        String timePeriod = '[' + TimeEncoding.toString(start) + "-" + TimeEncoding.toString(stop) + ')';
+        ArchiveFillerTask aft = new ArchiveFillerTask(parchive, maxSegmentSize);
+        try {
             aft.setCollectionSegmentStart(start);
-            String timePeriod = '[' + TimeEncoding.toString(start) + "-" + TimeEncoding.toString(stop) + ')';
-            log.info("Starting parameter archive fillup for interval {}", timePeriod);
+            if (singleInterval) {
+                aft.setCollectionEnd(stop - 1);
+                aft.setAtomicWrite(true);
+                log.debug("Starting parameter archive fillup for interval {}", timePeriod);
+            } else {
+                log.info("Starting parameter archive fillup for interval {}", timePeriod);
+            }
 
             ReplayRequest.Builder rrb = ReplayRequest.newBuilder()
                     .setSpeed(ReplaySpeed.newBuilder().setType(ReplaySpeedType.AFAP));
@@ -169,17 +210,129 @@ public class BackFiller implements StreamSubscriber {
             aft.setProcessor(proc);
             proc.getParameterRequestManager().subscribeAll(aft);
 
-            proc.start();
+            // not waiting for the processor to be running, the replay of an empty interval can finish before that
+            proc.setAllowEarlyTermination(true);
+            proc.startAsync();
             proc.awaitTerminated();
             if (aft.aborted) {
                 log.warn("Parameter archive fillup for interval {} aborted", timePeriod);
+                aft.discard();
+                return false;
             } else {
                 aft.flush();
-                log.info("Parameter archive fillup for interval {} finished, processed samples: {}",
-                        timePeriod, aft.getNumProcessedParameters());
+                if (singleInterval) {
+                    log.debug("Parameter archive fillup for interval {} finished, processed samples: {}",
+                            timePeriod, aft.getNumProcessedParameters());
+                } else {
+                    log.info("Parameter archive fillup for interval {} finished, processed samples: {}",
+                            timePeriod, aft.getNumProcessedParameters());
+                }
+                return true;
             }
         } catch (Exception e) {
             log.error("Error when running the archive filler task", e);
+            aft.discard();
+            return false;
+        }
+    }
+
+    /**
+     * Splits the [start, stop) time range into archive intervals and fills them in parallel, each with its own replay.
+     */
+    private void runParallel(long start, long stop) {
+        List<Long> intervals = new ArrayList<>();
+        for (long t = start; t < stop; t = ParameterArchive.getIntervalEnd(t) + 1) {
+            intervals.add(t);
+        }
+        String timePeriod = '[' + TimeEncoding.toString(start) + "-" + TimeEncoding.toString(stop) + ')';
+        log.info("Starting parallel parameter archive fillup for interval {}: {} archive intervals on {} threads",
+                timePeriod, intervals.size(), parallelism);
+
+        RebuildProgress rp = new RebuildProgress(intervals.size());
+        progress = rp;
+        List<Future<?>> futures = new ArrayList<>(intervals.size());
+        for (long t : intervals) {
+            futures.add(rebuildExecutor.submit(() -> {
+                boolean ok = fill(t, ParameterArchive.getIntervalEnd(t) + 1, true);
+                rp.intervalDone(ok);
+            }));
+        }
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            log.error("Error when running the archive filler task", e.getCause());
+        }
+        log.info("Parallel parameter archive fillup for interval {} finished in {}; {} intervals done, {} failed",
+                timePeriod, formatDuration(rp.elapsed()), rp.getDone() - rp.getFailed(), rp.getFailed());
+    }
+
+    /**
+     * @return the progress of the last parallel fillup or null if there was none
+     */
+    RebuildProgress getProgress() {
+        return progress;
+    }
+
+    static String formatDuration(long millis) {
+        long sec = millis / 1000;
+        return String.format("%dh%02dm%02ds", sec / 3600, (sec / 60) % 60, sec % 60);
+    }
+
+    /**
+     * Keeps track of the number of intervals processed by a parallel fillup and logs the progress with an estimation
+     * of the remaining time.
+     */
+    class RebuildProgress {
+        final int total;
+        final long startTime = System.currentTimeMillis();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile long lastLogTime = startTime;
+
+        RebuildProgress(int total) {
+            this.total = total;
+        }
+
+        void intervalDone(boolean ok) {
+            if (!ok) {
+                failed.incrementAndGet();
+            }
+            int n = done.incrementAndGet();
+            long now = System.currentTimeMillis();
+            if (n < total && now - lastLogTime >= PROGRESS_LOG_INTERVAL) {
+                lastLogTime = now;
+                log.info("Parameter archive fillup progress: {}/{} intervals ({}%), {} failed, ETA {}", n, total,
+                        100 * n / total, failed.get(), formatDuration(getEta()));
+            }
+        }
+
+        int getDone() {
+            return done.get();
+        }
+
+        int getFailed() {
+            return failed.get();
+        }
+
+        long elapsed() {
+            return System.currentTimeMillis() - startTime;
+        }
+
+        /**
+         * @return the estimated time in milliseconds until all the intervals are processed
+         */
+        long getEta() {
+            int n = done.get();
+            if (n == 0) {
+                return -1;
+            }
+            return elapsed() * (total - n) / n;
         }
     }
 
@@ -252,6 +405,9 @@ public class BackFiller implements StreamSubscriber {
             }
         }
         executor.shutdownNow();
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
     }
 
     @Override
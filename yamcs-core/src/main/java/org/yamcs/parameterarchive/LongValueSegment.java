@@ -1,5 +1,6 @@
 package org.yamcs.parameterarchive;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -11,9 +12,16 @@ import org.yamcs.utils.LongArray;
 import org.yamcs.utils.ValueUtility;
 import org.yamcs.utils.VarIntUtil;
 
+import me.lemire.integercompression.FastPFOR128;
+import me.lemire.integercompression.IntWrapper;
+
 public class LongValueSegment extends BaseSegment implements ValueSegment {
 
     final static int SUBFORMAT_ID_RAW = 0;
+    // delta of delta zigzag encoded and then compressed with FastPFOR128 plus VarInt32 for the remaining
+    final static int SUBFORMAT_ID_DELTAZG_FPF128_VB = 1;
+    // delta of delta zigzag encoded plus VarInt32
+    final static int SUBFORMAT_ID_DELTAZG_VB = 2;
     LongArray values;
 
     // all possible types that can be stored by this segment
@@ -41,6 +49,20 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
 
     @Override
     public void writeTo(ByteBuffer bb) {
+        int position = bb.position();
+        // try to write it compressed, if it does not fit or it is bigger than the raw encoding, revert to raw
+        try {
+            if (writeCompressed(bb) && bb.position() - position < getRawSize()) {
+                return;
+            }
+        } catch (BufferOverflowException e) {
+            // fall through to raw
+        }
+        bb.position(position);
+        writeRaw(bb);
+    }
+
+    private void writeRaw(ByteBuffer bb) {
         writeHeader(SUBFORMAT_ID_RAW, bb);
         int n = values.size();
         VarIntUtil.writeVarInt32(bb, n);
@@ -49,6 +71,83 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
         }
     }
 
+    /**
+     * The first value is written as it is followed by the delta of delta zigzag encoding of the remaining ones.
+     * 
+     * @return false if the values cannot be compressed because some of the zigzag encoded delta of deltas do not fit
+     *         into 32 bits.
+     */
+    private boolean writeCompressed(ByteBuffer bb) {
+        int n = values.size();
+        if (n == 0) {
+            return false;
+        }
+        int[] ddz = encodeDeltaDeltaZigZag(values);
+        if (ddz == null) {
+            return false;
+        }
+        int position = bb.position();
+        writeHeader(SUBFORMAT_ID_DELTAZG_FPF128_VB, bb);
+        VarIntUtil.writeVarInt32(bb, n);
+        bb.putLong(values.get(0));
+
+        FastPFOR128 fastpfor = FastPFORFactory.get();
+        IntWrapper inputoffset = new IntWrapper(0);
+        IntWrapper outputoffset = new IntWrapper(0);
+        int[] out = new int[ddz.length];
+        fastpfor.compress(ddz, inputoffset, ddz.length, out, outputoffset);
+        if (outputoffset.get() == 0) {
+            // fastpfor didn't compress anything, probably there were too few datapoints
+            writeHeader(SUBFORMAT_ID_DELTAZG_VB, bb, position);
+        } else {
+            for (int i = 0; i < outputoffset.get(); i++) {
+                bb.putInt(out[i]);
+            }
+        }
+        // write the remaining values varint compressed
+        for (int i = inputoffset.get(); i < ddz.length; i++) {
+            VarIntUtil.writeVarInt32(bb, ddz[i]);
+        }
+        return true;
+    }
+
+    // returns the delta of delta zigzag encoding of all the values except the first one or null if it does not fit
+    // into 32 bits (the array elements are unsigned)
+    static int[] encodeDeltaDeltaZigZag(LongArray values) {
+        int n = values.size();
+        int[] ddz = new int[n - 1];
+        long d = 0;
+        for (int i = 1; i < n; i++) {
+            long d1 = values.get(i) - values.get(i - 1);
+            long dd = d1 - d;
+            long z = (dd << 1) ^ (dd >> 63);
+            if ((z >>> 32) != 0) {
+                return null;
+            }
+            ddz[i - 1] = (int) z;
+            d = d1;
+        }
+        return ddz;
+    }
+
+    // this is the reverse of the above
+    static long[] decodeDeltaDeltaZigZag(long first, int[] ddz) {
+        long[] x = new long[ddz.length + 1];
+        x[0] = first;
+        long d = 0;
+        for (int i = 0; i < ddz.length; i++) {
+            long z = ddz[i] & 0xFFFFFFFFL;
+            d += (z >>> 1) ^ -(z & 1);
+            x[i + 1] = x[i] + d;
+        }
+        return x;
+    }
+
+    private int getRawSize() {
+        int n = values.size();
+        return 1 + VarIntUtil.getEncodedSize(n) + 8 * n;
+    }
+
     // write header:
     // 1st byte: spare   type   subformatid
     //           2 bits  2 bits 4 bits    
@@ -57,16 +156,27 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
         bb.put((byte) x);
     }
 
+    private void writeHeader(int subFormatId, ByteBuffer bb, int position) {
+        int x = (numericType << 4) | subFormatId;
+        bb.put(position, (byte) x);
+    }
+
     private void parse(ByteBuffer bb) throws DecodingException {
         byte x = bb.get();
         int subFormatId = x & 0xF;
-        if (subFormatId != SUBFORMAT_ID_RAW)
-            throw new DecodingException("Unknown subformatId " + subFormatId + " for LongValueSegment");
-        
         numericType = (x >> 4) & 3;
 
         int n = VarIntUtil.readVarInt32(bb);
+        if (subFormatId == SUBFORMAT_ID_RAW) {
+            parseRaw(bb, n);
+        } else if (subFormatId == SUBFORMAT_ID_DELTAZG_FPF128_VB || subFormatId == SUBFORMAT_ID_DELTAZG_VB) {
+            parseCompressed(bb, n, subFormatId);
+        } else {
+            throw new DecodingException("Unknown subformatId " + subFormatId + " for LongValueSegment");
+        }
+    }
 
+    private void parseRaw(ByteBuffer bb, int n) throws DecodingException {
         if (bb.limit() - bb.position() < 8 * n) {
             throw new DecodingException("Cannot decode long segment: expected " + (8 * n) + " bytes and only "
                     + (bb.limit() - bb.position()) + " available");
@@ -77,6 +187,27 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
         }
     }
 
+    private void parseCompressed(ByteBuffer bb, int n, int subFormatId) throws DecodingException {
+        long first = bb.getLong();
+        int[] ddz = new int[n - 1];
+        IntWrapper inputoffset = new IntWrapper(0);
+        IntWrapper outputoffset = new IntWrapper(0);
+        if (subFormatId == SUBFORMAT_ID_DELTAZG_FPF128_VB) {
+            int position = bb.position();
+            int[] x = new int[(bb.limit() - bb.position()) / 4];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = bb.getInt();
+            }
+            FastPFOR128 fastpfor = FastPFORFactory.get();
+            fastpfor.uncompress(x, inputoffset, x.length, ddz, outputoffset);
+            bb.position(position + inputoffset.get() * 4);
+        }
+        for (int i = outputoffset.get(); i < ddz.length; i++) {
+            ddz[i] = VarIntUtil.readVarInt32(bb);
+        }
+        values = LongArray.wrap(decodeDeltaDeltaZigZag(first, ddz));
+    }
+
     public static LongValueSegment parseFrom(ByteBuffer bb) throws DecodingException {
         LongValueSegment r = new LongValueSegment();
         r.parse(bb);
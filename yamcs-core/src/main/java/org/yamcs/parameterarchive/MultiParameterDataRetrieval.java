@@ -1,13 +1,11 @@
 package org.yamcs.parameterarchive;
 
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.TreeMap;
 import java.util.function.Consumer;
 
 import org.rocksdb.RocksDBException;
@@ -22,6 +20,18 @@ import org.yamcs.utils.TimeEncoding;
 import static org.yamcs.parameterarchive.ParameterArchive.getIntervalStart;
 import static org.yamcs.parameterarchive.ParameterArchive.getIntervalEnd;
 
+/**
+ * Retrieves the values of multiple parameters from the parameter archive, merged in time order.
+ * <p>
+ * The segments of all the parameters starting at the same time are decoded together and merged with a priority queue;
+ * the values are passed to the consumer as soon as they are known. The memory used is therefore bounded by the number
+ * of parameters requested times the size of one segment, independent of the time range of the request.
+ * <p>
+ * There is no configurable memory budget and the decoded segments are not reused between segment groups: the merge
+ * needs all the segments of a group decoded at the same time to preserve the time order, and reusing the value buffers
+ * would require changes to all the segment decoders. A request for a very large number of parameters has to be split
+ * by the caller.
+ */
 public class MultiParameterDataRetrieval {
     final ParameterArchive parchive;
     final MultipleParameterValueRequest mpvr;
@@ -52,8 +62,7 @@ public class MultiParameterDataRetrieval {
         RocksIterator[] its = new RocksIterator[mpvr.parameterIds.length];
         Map<PartitionIterator, String> partition2ParameterName = new HashMap<>();
         PriorityQueue<PartitionIterator> queue = new PriorityQueue<>(new PartitionIteratorComparator(mpvr.ascending));
-        SegmentMerger merger = null;
-      
+
         for (int i = 0; i < mpvr.parameterIds.length; i++) {
             boolean retrieveEng = mpvr.retrieveEngValues || mpvr.retrieveRawValues.get(i);
             its[i] = parchive.getIterator(p);
@@ -71,81 +80,30 @@ public class MultiParameterDataRetrieval {
         }
 
         try {
+            // the segments having the same start are merged together; the values of each segment are decoded only
+            // when the merge reaches that segment start, and are released once the merge has passed them
+            Map<Integer, SortedTimeSegment> timeSegments = new HashMap<>();
+            PriorityQueue<MergedSegment> mergeQueue = new PriorityQueue<>(new MergedSegmentComparator(mpvr.ascending));
             while (!queue.isEmpty()) {
-                if ((mpvr.limit > 0) && (count >= mpvr.limit)) {
+                if (limitReached()) {
                     break;
                 }
-
-                PartitionIterator pit = queue.poll();
-                SegmentKey key = pit.key();
-                if (merger == null) {
-                    merger = new SegmentMerger(key, mpvr);
-                } else {
-                    if (key.segmentStart != merger.key.segmentStart) {
-                        sendAllData(merger, consumer);
-                        merger = new SegmentMerger(key, mpvr);
+                long segmentStart = queue.peek().key().segmentStart;
+                while (!queue.isEmpty() && queue.peek().key().segmentStart == segmentStart) {
+                    PartitionIterator pit = queue.poll();
+                    SegmentIterator sit = getSegmentIterator(p, pit, timeSegments);
+                    if (sit.hasNext()) {
+                        mergeQueue.add(new MergedSegment(pit.getParameterId(), pit.getParameterGroupId(),
+                                partition2ParameterName.get(pit), sit));
                     }
-                }
-
-                SortedTimeSegment timeSegment = parchive.getTimeSegment(p, key.segmentStart, pit.getParameterGroupId());
-                if (timeSegment == null) {
-                    String msg = "Cannot find a time segment for parameterGroupId=" + pit.getParameterGroupId()
-                            + " segmentStart = " + key.segmentStart
-                            + " despite having a value segment for parameterId: " + pit.getParameterId();
-                    log.error(msg);
-                    throw new IOException(msg);
-                }
-                ValueSegment engValueSegment = mpvr.retrieveEngValues ? pit.engValue() : null;
-                ParameterStatusSegment paramStatuSegment = mpvr.retrieveParamStatus ? pit.parameterStatus() : null;
-
-                ValueSegment rawValueSegment = null;
-                if (pit.retrieveRawValue) {
-                    rawValueSegment = pit.rawValue();
-                    if (rawValueSegment == null) {
-                        rawValueSegment = pit.engValue();
+                    pit.next();
+                    if (pit.isValid()) {
+                        queue.add(pit);
                     }
                 }
-                // do some sanity checks
-                long numRecords = timeSegment.size();
-                if (engValueSegment != null && engValueSegment.size() != numRecords) {
-                    throw new DecodingException("EngValueSegment has a different number of records than timeSegment: "
-                            + engValueSegment.size() + " vs " + timeSegment.size() + " for segment: ["
-                            + TimeEncoding.toString(timeSegment.getSegmentStart()) + " - "
-                            + TimeEncoding.toString(timeSegment.getSegmentEnd()) + "]" + " offending key: "
-                            + pit.key());
-                }
-
-                if (rawValueSegment != null && rawValueSegment.size() != numRecords) {
-                    throw new DecodingException("RawValueSegment has a different number of records than timeSegment: "
-                            + rawValueSegment.size() + " vs " + timeSegment.size() + " for segment: ["
-                            + TimeEncoding.toString(timeSegment.getSegmentStart()) + " - "
-                            + TimeEncoding.toString(timeSegment.getSegmentEnd()) + "]" + " offending key: "
-                            + pit.key());
-                }
-
-                if (paramStatuSegment != null && paramStatuSegment.size() != numRecords) {
-                    throw new DecodingException(
-                            "ParmaeterStatusSegment has a different number of records than timeSegment: "
-                                    + paramStatuSegment.size() + " vs " + timeSegment.size() + " for segment: ["
-                                    + TimeEncoding.toString(timeSegment.getSegmentStart()) + " - "
-                                    + TimeEncoding.toString(timeSegment.getSegmentEnd()) + "]" + " offending key: "
-                                    + pit.key());
-                }
-
-                merger.currentParameterGroupId = pit.getParameterGroupId();
-                merger.currentParameterId = pit.getParameterId();
-                merger.currentParameterName = partition2ParameterName.get(pit);
-                new SegmentIterator(timeSegment, (ValueSegment) engValueSegment, (ValueSegment) rawValueSegment,
-                        paramStatuSegment, mpvr.start, mpvr.stop, mpvr.ascending).forEachRemaining(merger);
-                pit.next();
-                if (pit.isValid()) {
-                    queue.add(pit);
-                }
+                timeSegments.clear();
+                merge(mergeQueue, consumer);
             }
-            if (merger != null) {
-                sendAllData(merger, consumer);
-            }
-
         } finally {
             for (int i = 0; i < mpvr.parameterIds.length; i++) {
                 if (its[i] != null) {
@@ -155,92 +113,185 @@ public class MultiParameterDataRetrieval {
         }
     }
 
-    private void sendAllData(SegmentMerger merger, Consumer<ParameterIdValueList> consumer) {
-        Collection<ParameterIdValueList> c = merger.values.values();
-        if (mpvr.limit < 0) {
-            merger.values.values().forEach(consumer);
-        } else {
-            if (count < mpvr.limit) {
-                for (ParameterIdValueList pivl : c) {
-                    consumer.accept(pivl);
-                    count++;
-                    if (count >= mpvr.limit) {
-                        break;
-                    }
-                }
+    /**
+     * Creates an iterator over the current segment of the partition iterator. The time segments are shared between
+     * the parameters of the same group.
+     */
+    private SegmentIterator getSegmentIterator(Partition p, PartitionIterator pit,
+            Map<Integer, SortedTimeSegment> timeSegments) throws RocksDBException, DecodingException, IOException {
+        SegmentKey key = pit.key();
+        SortedTimeSegment timeSegment = timeSegments.get(pit.getParameterGroupId());
+        if (timeSegment == null) {
+            timeSegment = parchive.getTimeSegment(p, key.segmentStart, pit.getParameterGroupId());
+            if (timeSegment == null) {
+                String msg = "Cannot find a time segment for parameterGroupId=" + pit.getParameterGroupId()
+                        + " segmentStart = " + key.segmentStart
+                        + " despite having a value segment for parameterId: " + pit.getParameterId();
+                log.error(msg);
+                throw new IOException(msg);
+            }
+            timeSegments.put(pit.getParameterGroupId(), timeSegment);
+        }
+        ValueSegment engValueSegment = mpvr.retrieveEngValues ? pit.engValue() : null;
+        ParameterStatusSegment paramStatuSegment = mpvr.retrieveParamStatus ? pit.parameterStatus() : null;
+
+        ValueSegment rawValueSegment = null;
+        if (pit.retrieveRawValue) {
+            rawValueSegment = pit.rawValue();
+            if (rawValueSegment == null) {
+                rawValueSegment = pit.engValue();
             }
         }
+        // do some sanity checks
+        long numRecords = timeSegment.size();
+        if (engValueSegment != null && engValueSegment.size() != numRecords) {
+            throw new DecodingException("EngValueSegment has a different number of records than timeSegment: "
+                    + engValueSegment.size() + " vs " + timeSegment.size() + " for segment: ["
+                    + TimeEncoding.toString(timeSegment.getSegmentStart()) + " - "
+                    + TimeEncoding.toString(timeSegment.getSegmentEnd()) + "]" + " offending key: "
+                    + pit.key());
+        }
+
+        if (rawValueSegment != null && rawValueSegment.size() != numRecords) {
+            throw new DecodingException("RawValueSegment has a different number of records than timeSegment: "
+                    + rawValueSegment.size() + " vs " + timeSegment.size() + " for segment: ["
+                    + TimeEncoding.toString(timeSegment.getSegmentStart()) + " - "
+                    + TimeEncoding.toString(timeSegment.getSegmentEnd()) + "]" + " offending key: "
+                    + pit.key());
+        }
+
+        if (paramStatuSegment != null && paramStatuSegment.size() != numRecords) {
+            throw new DecodingException(
+                    "ParmaeterStatusSegment has a different number of records than timeSegment: "
+                            + paramStatuSegment.size() + " vs " + timeSegment.size() + " for segment: ["
+                            + TimeEncoding.toString(timeSegment.getSegmentStart()) + " - "
+                            + TimeEncoding.toString(timeSegment.getSegmentEnd()) + "]" + " offending key: "
+                            + pit.key());
+        }
+        return new SegmentIterator(timeSegment, engValueSegment, rawValueSegment, paramStatuSegment, mpvr.start,
+                mpvr.stop, mpvr.ascending);
     }
 
     /**
-     * Sorted merging of parameter values from segments with the same start
-     *  taking care that parameters from the same group end up in the same list  
-     *
+     * k-way merge of the segments from the queue: the values with the same timestamp and parameter group are sent to
+     * the consumer in one list, as soon as they are known. Only the decoded segments are kept in memory.
      */
-    static class SegmentMerger implements Consumer<TimedValue> {
-        final SegmentKey key;
-        TreeMap<Long, ParameterIdValueList> values;
-        int currentParameterId;
-        int currentParameterGroupId;
-        String currentParameterName;
-
-        final MultipleParameterValueRequest mpvr;
-
-        public SegmentMerger(SegmentKey key, MultipleParameterValueRequest mpvr) {
-            this.key = key;
-            this.mpvr = mpvr;
-            values = new TreeMap<>(new Comparator<Long>() {
-                @Override
-                public int compare(Long o1, Long o2) {
-                    if (mpvr.ascending) {
-                        return Long.compareUnsigned(o1,  o2);
-                    } else {
-                        return Long.compareUnsigned(o2, o1);
-                    }
+    private void merge(PriorityQueue<MergedSegment> mergeQueue, Consumer<ParameterIdValueList> consumer) {
+        while (!mergeQueue.isEmpty()) {
+            if (limitReached()) {
+                mergeQueue.clear();
+                return;
+            }
+            MergedSegment ms = mergeQueue.poll();
+            long t = ms.time();
+            int parameterGroupId = ms.parameterGroupId;
+            ParameterIdValueList pidvl = new ParameterIdValueList(t);
+            while (true) {
+                ms.addNextValue(pidvl);
+                if (ms.it.hasNext()) {
+                    mergeQueue.add(ms);
+                }
+                ms = mergeQueue.peek();
+                if (ms == null || ms.time() != t || ms.parameterGroupId != parameterGroupId) {
+                    break;
                 }
-            });
+                mergeQueue.poll();
+            }
+            consumer.accept(pidvl);
+            count++;
         }
+    }
 
-        @Override
-        public void accept(TimedValue tv) {
-            long k = k(currentParameterGroupId, tv.instant);
-            ParameterIdValueList vlist = values.computeIfAbsent(k, k1 -> new ParameterIdValueList(tv.instant));
-            
-            ParameterValue pv = new ParameterValue(currentParameterName);
-            pv.setGenerationTime(tv.instant);
+    private boolean limitReached() {
+        return mpvr.limit > 0 && count >= mpvr.limit;
+    }
+
+    static ParameterValue toParameterValue(String parameterName, TimedValue tv) {
+        ParameterValue pv = new ParameterValue(parameterName);
+        pv.setGenerationTime(tv.instant);
 
-            if (tv.engValue != null) {
-                pv.setEngValue(tv.engValue);
+        if (tv.engValue != null) {
+            pv.setEngValue(tv.engValue);
+        }
+        if (tv.rawValue != null) {
+            pv.setRawValue(tv.rawValue);
+        }
+        if (tv.paramStatus != null) {
+            ParameterStatus ps = tv.paramStatus;
+            if (ps.hasAcquisitionStatus()) {
+                pv.setAcquisitionStatus(ps.getAcquisitionStatus());
             }
-            if (tv.rawValue != null) {
-                pv.setRawValue(tv.rawValue);
+            if (ps.hasMonitoringResult()) {
+                pv.setMonitoringResult(ps.getMonitoringResult());
             }
-            if (tv.paramStatus != null) {
-                ParameterStatus ps = tv.paramStatus;
-                if (ps.hasAcquisitionStatus()) {
-                    pv.setAcquisitionStatus(ps.getAcquisitionStatus());
-                }
-                if (ps.hasMonitoringResult()) {
-                    pv.setMonitoringResult(ps.getMonitoringResult());
-                }
-                if (ps.getAlarmRangeCount() > 0) {
-                    pv.addAlarmRanges(ps.getAlarmRangeList());
-                }
-                if(ps.hasExpireMillis()) {
-                    pv.setExpireMillis(ps.getExpireMillis());
-                }
-                if(ps.hasRangeCondition()) {
-                    pv.setRangeCondition(ps.getRangeCondition());
-                }
+            if (ps.getAlarmRangeCount() > 0) {
+                pv.addAlarmRanges(ps.getAlarmRangeList());
+            }
+            if (ps.hasExpireMillis()) {
+                pv.setExpireMillis(ps.getExpireMillis());
             }
+            if (ps.hasRangeCondition()) {
+                pv.setRangeCondition(ps.getRangeCondition());
+            }
+        }
+        return pv;
+    }
 
-            vlist.add(currentParameterId, pv);
+    /**
+     * The decoded segment of one parameter taking part in the merge
+     */
+    static class MergedSegment {
+        final int parameterId;
+        final int parameterGroupId;
+        final String parameterName;
+        final SegmentIterator it;
+
+        MergedSegment(int parameterId, int parameterGroupId, String parameterName, SegmentIterator it) {
+            this.parameterId = parameterId;
+            this.parameterGroupId = parameterGroupId;
+            this.parameterName = parameterName;
+            this.it = it;
         }
 
-        private long k(int parameterGroupId, long instant) {
-          return (instant<<32 ) | ((long) parameterGroupId) ;
+        long time() {
+            return it.currentTime();
         }
 
+        void addNextValue(ParameterIdValueList pidvl) {
+            pidvl.add(parameterId, toParameterValue(parameterName, it.next()));
+        }
+    }
+
+    /**
+     * Orders the merged segments by the time of their next value, then by parameter group such that the parameters of
+     * the same group end up in the same list and then by parameter id.
+     */
+    static class MergedSegmentComparator implements Comparator<MergedSegment> {
+        final boolean ascending;
+
+        MergedSegmentComparator(boolean ascending) {
+            this.ascending = ascending;
+        }
+
+        @Override
+        public int compare(MergedSegment ms1, MergedSegment ms2) {
+            int c;
+            if (ascending) {
+                c = Long.compare(ms1.time(), ms2.time());
+                if (c == 0) {
+                    c = Integer.compare(ms1.parameterGroupId, ms2.parameterGroupId);
+                }
+            } else {
+                c = Long.compare(ms2.time(), ms1.time());
+                if (c == 0) {
+                    c = Integer.compare(ms2.parameterGroupId, ms1.parameterGroupId);
+                }
+            }
+            if (c != 0) {
+                return c;
+            }
+            return Integer.compare(ms1.parameterId, ms2.parameterId);
+        }
     }
 
     static class PartitionIteratorComparator implements Comparator<PartitionIterator> {
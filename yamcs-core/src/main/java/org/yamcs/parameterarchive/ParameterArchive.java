@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 import org.rocksdb.RocksDBException;
@@ -21,6 +22,7 @@ import org.yamcs.Spec;
 import org.yamcs.Spec.OptionType;
 import org.yamcs.YConfiguration;
 import org.yamcs.YamcsServer;
+import org.yamcs.parameter.ValueArray;
 import org.yamcs.time.TimeService;
 import org.yamcs.utils.ByteArrayUtils;
 import org.yamcs.utils.DatabaseCorruptionException;
@@ -81,6 +83,7 @@ public class ParameterArchive extends AbstractYamcsService {
     YConfiguration backFillerConfig;
     boolean realtimeFillerEnabled;
     boolean backFillerEnabled;
+    boolean rollupsEnabled = true;
 
     @Override
     public Spec getSpec() {
@@ -89,6 +92,7 @@ public class ParameterArchive extends AbstractYamcsService {
         spec.addOption("realtimeFiller", OptionType.ANY);
         spec.addOption("partitioningSchema", OptionType.STRING).withDefault("YYYY")
                 .withChoices("YYYY/DOY", "YYYY/MM", "YYYY", "none");
+        spec.addOption("rollups", OptionType.BOOLEAN).withDefault(true);
 
         return spec;
     }
@@ -112,6 +116,7 @@ public class ParameterArchive extends AbstractYamcsService {
             log.debug("realtimeFillerConfig: {}", realtimeFillerConfig);
         }
 
+        rollupsEnabled = config.getBoolean("rollups");
         String schema = config.getString("partitioningSchema");
         if (!"none".equalsIgnoreCase(schema)) {
             partitioningSchema = TimePartitionSchema.getInstance(schema);
@@ -200,6 +205,13 @@ public class ParameterArchive extends AbstractYamcsService {
         return parameterGroupIdMap;
     }
 
+    /**
+     * @return the realtime filler or null if it is not enabled
+     */
+    public RealtimeArchiveFiller getRealtimeFiller() {
+        return realtimeFiller;
+    }
+
     public void writeToArchive(PGSegment pgs) throws RocksDBException, IOException {
         pgs.consolidate();
         Partition p = createAndGetPartition(pgs.getSegmentStart());
@@ -222,6 +234,33 @@ public class ParameterArchive extends AbstractYamcsService {
         }
     }
 
+    /**
+     * Adds the segments to the write batch of the partition they belong to, without writing them to the database.
+     * <p>
+     * The batches are written with {@link #writeBatches(Map)}; this allows writing the data of an interval at once.
+     */
+    public void addToBatch(long segStart, Collection<PGSegment> pgList, Map<Partition, WriteBatch> batches)
+            throws RocksDBException {
+        Partition p = createAndGetPartition(segStart);
+        WriteBatch writeBatch = batches.computeIfAbsent(p, k -> new WriteBatch());
+        for (PGSegment pgs : pgList) {
+            pgs.consolidate();
+            assert (segStart == pgs.getSegmentStart());
+            writeToBatch(writeBatch, p, pgs);
+        }
+    }
+
+    /**
+     * Writes the batches prepared with {@link #addToBatch(long, Collection, Map)}, each in one operation.
+     */
+    public void writeBatches(Map<Partition, WriteBatch> batches) throws RocksDBException, IOException {
+        try (WriteOptions wo = new WriteOptions()) {
+            for (Map.Entry<Partition, WriteBatch> me : batches.entrySet()) {
+                tablespace.getRdb(me.getKey().partitionDir, false).getDb().write(wo, me.getValue());
+            }
+        }
+    }
+
     private void writeToBatch(WriteBatch writeBatch, Partition p, PGSegment pgs) throws RocksDBException {
         // write the time segment
         SortedTimeSegment timeSegment = pgs.getTimeSegment();
@@ -251,6 +290,9 @@ public class ParameterArchive extends AbstractYamcsService {
                     SegmentKey.TYPE_ENG_VALUE).encode();
             byte[] engValue = vsEncoder.encode(vs);
             writeBatch.put(engKey, engValue);
+            if (rollupsEnabled) {
+                writeRollups(writeBatch, pgs, parameterId, timeSegment, vs);
+            }
 
             if (STORE_RAW_VALUES && consolidatedRawValues != null) {
                 BaseSegment rvs = consolidatedRawValues.get(i);
@@ -285,6 +327,30 @@ public class ParameterArchive extends AbstractYamcsService {
         }
     }
 
+    private void writeRollups(WriteBatch writeBatch, PGSegment pgs, int parameterId, SortedTimeSegment timeSegment,
+            BaseSegment vs) throws RocksDBException {
+        ParameterId pid = parameterIdMap.getParameterId(parameterId);
+        if (pid == null || !RollupSegment.isNumeric(pid.engType) || !(vs instanceof ValueSegment)) {
+            return;
+        }
+        int n = timeSegment.size();
+        long[] timestamps = timeSegment.getRange(0, n, true);
+        ValueArray values = ((ValueSegment) vs).getRange(0, n, true);
+        for (int level = 0; level < RollupSegment.numLevels(); level++) {
+            RollupSegment rs = RollupSegment.build(level, timestamps, values);
+            byte[] key = new SegmentKey(parameterId, pgs.getParameterGroupId(), pgs.getSegmentStart(),
+                    SegmentKey.rollupType(level)).encode();
+            writeBatch.put(key, vsEncoder.encode(rs));
+        }
+    }
+
+    /**
+     * @return true if the rollup segments are written together with the value segments
+     */
+    public boolean hasRollups() {
+        return rollupsEnabled;
+    }
+
     /**
      * get partition for segment, creating it if it doesn't exist
      * 
@@ -52,6 +52,10 @@ public class PartitionIterator {
     }
 
     public void next() {
+        // release the previous segments, they may also not exist for the next one
+        currentEngValueSegment = null;
+        currentRawValueSegment = null;
+        currentStatusSegment = null;
         if (!dbIterator.isValid()) {
             valid = false;
             return;
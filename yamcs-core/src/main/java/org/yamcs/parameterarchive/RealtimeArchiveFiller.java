@@ -5,17 +5,21 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
 import org.yamcs.ConfigurationException;
 import org.yamcs.Processor;
 import org.yamcs.YConfiguration;
 import org.yamcs.logging.Log;
 import org.yamcs.parameter.ParameterConsumer;
 import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameterarchive.ParameterArchive.Partition;
 
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 
@@ -32,12 +36,36 @@ import com.google.common.util.concurrent.AbstractExecutionThreadService;
  * We keep open max two segments for each group, one in each interval.
  * 
  * If the group reaches its max size, we archive it and open another one.
+ * <p>
+ * The deliveries are handed over from the processor thread through a lock-free queue of configurable size; when the
+ * queue is full the {@link OverflowPolicy} decides if the processor waits or some data is dropped. Every commitInterval
+ * milliseconds, the full segments and the open segments not written for flushInterval seconds are written together in
+ * one batch.
  * 
  * @author nm
  *
  */
 public class RealtimeArchiveFiller extends AbstractExecutionThreadService implements ParameterConsumer {
+    public enum OverflowPolicy {
+        /**
+         * the processor waits until there is space in the queue
+         */
+        BLOCK,
+        /**
+         * the new delivery is dropped
+         */
+        DROP_NEWEST,
+        /**
+         * the oldest delivery from the queue is dropped to make space for the new one
+         */
+        DROP_OLDEST
+    }
+
+    static final int DEFAULT_QUEUE_SIZE = 1024;
+    static final long BLOCK_PARK_NANOS = 100_000;
+
     int flushInterval; // seconds
+    long commitInterval = 1000; // milliseconds
     String processorName = "realtime";
     final String yamcsInstance;
     Processor realtimeProcessor;
@@ -46,7 +74,18 @@ public class RealtimeArchiveFiller extends AbstractExecutionThreadService implem
     protected final ParameterGroupIdDb parameterGroupIdMap;
     final ParameterArchive parameterArchive;
     final private Log log;
-    final BlockingQueue<List<ParameterValue>> queue = new ArrayBlockingQueue<>(10);
+
+    final ConcurrentLinkedQueue<List<ParameterValue>> queue = new ConcurrentLinkedQueue<>();
+    final AtomicInteger queueSize = new AtomicInteger();
+    int maxQueueSize = DEFAULT_QUEUE_SIZE;
+    OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+    final AtomicLong numDropped = new AtomicLong();
+    private volatile Thread fillerThread;
+    private volatile boolean waiting;
+
+    private volatile long numCommits;
+    private volatile long lastCommitDuration; // microseconds
+    private volatile long maxCommitDuration; // microseconds
 
     // max allowed time for old data
     long threshold;
@@ -72,14 +111,28 @@ public class RealtimeArchiveFiller extends AbstractExecutionThreadService implem
         processorName = config.getString("processorName", processorName);
         maxSegmentSize = config.getInt("maxSegmentSize", ArchiveFillerTask.DEFAULT_MAX_SEGMENT_SIZE);
         threshold = config.getInt("orderingThreshold", 20000);
+        commitInterval = config.getLong("commitInterval", commitInterval);
+        maxQueueSize = config.getInt("queueSize", DEFAULT_QUEUE_SIZE);
+        if (maxQueueSize < 1) {
+            throw new ConfigurationException("Invalid queueSize " + maxQueueSize + "; it has to be at least 1");
+        }
+        if (config.containsKey("overflowPolicy")) {
+            overflowPolicy = config.getEnum("overflowPolicy", OverflowPolicy.class);
+        }
     }
 
     @Override
     protected void run() throws Exception {
+        fillerThread = Thread.currentThread();
+        long nextCommit = System.currentTimeMillis() + commitInterval;
         while (isRunning()) {
-            List<ParameterValue> items = queue.poll(flushInterval, TimeUnit.SECONDS);
+            long now = System.currentTimeMillis();
+            if (now >= nextCommit) {
+                commit(flushInterval * 1000L);
+                nextCommit = now + commitInterval;
+            }
+            List<ParameterValue> items = poll(nextCommit - now);
             if ((items == null) || items.isEmpty()) {
-                flush();
                 continue;
             }
             if (first == null) { // this is the first delivery
@@ -104,10 +157,96 @@ public class RealtimeArchiveFiller extends AbstractExecutionThreadService implem
     // send the parameters to the processing thread
     @Override
     public void updateItems(int subscriptionId, List<ParameterValue> items) {
+        if (queueSize.incrementAndGet() > maxQueueSize) {
+            switch (overflowPolicy) {
+            case BLOCK:
+                while (queueSize.get() > maxQueueSize && isRunning()) {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                break;
+            case DROP_OLDEST:
+                if (queue.poll() != null) {
+                    queueSize.decrementAndGet();
+                    dropped();
+                }
+                break;
+            case DROP_NEWEST:
+                queueSize.decrementAndGet();
+                dropped();
+                return;
+            }
+        }
+        queue.offer(items);
+        if (waiting) {
+            LockSupport.unpark(fillerThread);
+        }
+    }
+
+    private void dropped() {
+        long n = numDropped.incrementAndGet();
+        if (n == 1 || n % 1000 == 0) {
+            log.warn("The realtime filler cannot keep up with the processor, {} deliveries dropped so far "
+                    + "(queueSize: {}, overflowPolicy: {})", n, maxQueueSize, overflowPolicy);
+        }
+    }
+
+    /**
+     * Retrieves the next delivery from the queue, waiting at most timeoutMillis for it to arrive.
+     * 
+     * @return the delivery or null if the timeout has expired
+     */
+    private List<ParameterValue> poll(long timeoutMillis) {
+        List<ParameterValue> items = queue.poll();
+        if (items == null && timeoutMillis > 0) {
+            waiting = true;
+            // check again after publishing the waiting flag, the producer may have missed it
+            items = queue.poll();
+            if (items == null) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+                items = queue.poll();
+            }
+            waiting = false;
+        }
+        if (items != null) {
+            queueSize.decrementAndGet();
+        }
+        return items;
+    }
+
+    /**
+     * Writes in one batch the segments which are full and the open segments which have not been written in the last
+     * maxAge milliseconds.
+     */
+    void commit(long maxAge) {
+        Map<Partition, WriteBatch> batches = new HashMap<>();
         try {
-            queue.put(items);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            long t0 = System.nanoTime();
+            long now = System.currentTimeMillis();
+            int n = 0;
+            if (first != null) {
+                n += first.commit(batches, now, maxAge);
+            }
+            if (second != null) {
+                n += second.commit(batches, now, maxAge);
+            }
+            if (n == 0) {
+                return;
+            }
+            parameterArchive.writeBatches(batches);
+            long d = (System.nanoTime() - t0) / 1000;
+            lastCommitDuration = d;
+            if (d > maxCommitDuration) {
+                maxCommitDuration = d;
+            }
+            numCommits++;
+            log.trace("Committed {} segments in {} us", n, d);
+            if (d > commitInterval * 1000) {
+                log.warn("Writing {} segments to the parameter archive took {} ms", n, d / 1000);
+            }
+        } catch (RocksDBException | IOException e) {
+            log.error("Failed to write data to the parameter archive", e);
+        } finally {
+            batches.values().forEach(WriteBatch::close);
         }
     }
 
@@ -134,6 +273,14 @@ public class RealtimeArchiveFiller extends AbstractExecutionThreadService implem
         subscriptionId = realtimeProcessor.getParameterRequestManager().subscribeAll(this);
     }
 
+    @Override
+    protected void triggerShutdown() {
+        Thread t = fillerThread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
     @Override
     protected void shutDown() {
         realtimeProcessor.getParameterRequestManager().unsubscribeAll(subscriptionId);
@@ -202,4 +349,36 @@ public class RealtimeArchiveFiller extends AbstractExecutionThreadService implem
     public long getNumProcessedParameters() {
         return numParams;
     }
+
+    /**
+     * @return the number of deliveries waiting to be processed
+     */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    /**
+     * @return the number of deliveries dropped because the queue was full
+     */
+    public long getNumDropped() {
+        return numDropped.get();
+    }
+
+    public long getNumCommits() {
+        return numCommits;
+    }
+
+    /**
+     * @return the duration in microseconds of the last write to the archive
+     */
+    public long getLastCommitDuration() {
+        return lastCommitDuration;
+    }
+
+    /**
+     * @return the maximum duration in microseconds of a write to the archive
+     */
+    public long getMaxCommitDuration() {
+        return maxCommitDuration;
+    }
 }
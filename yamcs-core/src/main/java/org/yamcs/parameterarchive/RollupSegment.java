@@ -0,0 +1,269 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.ByteBuffer;
+
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.DoubleArray;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.UnsignedLong;
+import org.yamcs.utils.VarIntUtil;
+
+/**
+ * Pre-aggregated values (min, max, sum and count) of a numeric parameter over fixed time buckets.
+ * <p>
+ * There is one rollup segment for each value segment and for each rollup level. The buckets are aligned to the
+ * parameter archive intervals: a bucket covers 2^shift milliseconds and the bucket duration divides the interval
+ * duration, such that the buckets of different segments of the same interval can be merged.
+ * <p>
+ * The rollups are used to serve the plot requests over long time ranges without decoding all the values.
+ */
+public class RollupSegment extends BaseSegment {
+    static final byte SUBFORMAT_ID_RAW = 0;
+
+    /**
+     * log2 of the bucket duration in milliseconds for each level; the levels correspond roughly to 1 minute, 17 minutes
+     * and to one full interval (about 2 hours and 20 minutes).
+     */
+    static final int[] LEVEL_SHIFTS = new int[] { 16, 20, ParameterArchive.NUMBITS_MASK };
+
+    private int shift;
+    private long intervalStart;
+    // bucket index relative to the interval start
+    private IntArray buckets;
+    private IntArray counts;
+    private DoubleArray min;
+    private DoubleArray max;
+    private DoubleArray sum;
+    // the timestamp of the last value aggregated in this segment
+    private long lastTime;
+
+    RollupSegment(int shift, long intervalStart) {
+        super(FORMAT_ID_RollupSegment);
+        this.shift = shift;
+        this.intervalStart = ParameterArchive.getIntervalStart(intervalStart);
+        buckets = new IntArray();
+        counts = new IntArray();
+        min = new DoubleArray();
+        max = new DoubleArray();
+        sum = new DoubleArray();
+    }
+
+    /**
+     * Builds the rollup of the given values.
+     *
+     * @param level
+     * @param timestamps
+     *            - sorted timestamps, all part of the same interval
+     * @param values
+     * @return the rollup segment or null if the values are not numeric
+     */
+    static RollupSegment build(int level, long[] timestamps, ValueArray values) {
+        double[] dv = toDoubleArray(values);
+        if (dv == null || timestamps.length == 0) {
+            return null;
+        }
+        RollupSegment rs = new RollupSegment(LEVEL_SHIFTS[level], timestamps[0]);
+        for (int i = 0; i < timestamps.length; i++) {
+            rs.add(timestamps[i], dv[i]);
+        }
+        return rs;
+    }
+
+    static boolean isNumeric(Type type) {
+        switch (type) {
+        case DOUBLE:
+        case FLOAT:
+        case UINT32:
+        case SINT32:
+        case UINT64:
+        case SINT64:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    static double[] toDoubleArray(ValueArray va) {
+        int n = va.size();
+        double[] r;
+        switch (va.getType()) {
+        case DOUBLE:
+            return va.getDoubleArray();
+        case FLOAT:
+            float[] fv = va.getFloatArray();
+            r = new double[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = fv[i];
+            }
+            return r;
+        case UINT32:
+            int[] iv = va.getIntArray();
+            r = new double[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = iv[i] & 0xFFFFFFFFL;
+            }
+            return r;
+        case SINT32:
+            iv = va.getIntArray();
+            r = new double[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = iv[i];
+            }
+            return r;
+        case UINT64:
+            long[] lv = va.getLongArray();
+            r = new double[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = UnsignedLong.toDouble(lv[i]);
+            }
+            return r;
+        case SINT64:
+            lv = va.getLongArray();
+            r = new double[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = lv[i];
+            }
+            return r;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Adds a value to the rollup; the timestamps have to be added in ascending order
+     */
+    void add(long t, double v) {
+        if (ParameterArchive.getIntervalStart(t) != intervalStart) {
+            throw new IllegalArgumentException("The timestamp does not fit into this interval");
+        }
+        int b = (int) ((t - intervalStart) >> shift);
+        int n = buckets.size();
+        if (n > 0 && buckets.get(n - 1) == b) {
+            n--;
+            counts.set(n, counts.get(n) + 1);
+            if (v < min.get(n)) {
+                min.set(n, v);
+            }
+            if (v > max.get(n)) {
+                max.set(n, v);
+            }
+            sum.set(n, sum.get(n) + v);
+        } else {
+            buckets.add(b);
+            counts.add(1);
+            min.add(v);
+            max.add(v);
+            sum.add(v);
+        }
+        lastTime = t;
+    }
+
+    /**
+     * @return number of buckets
+     */
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getBucketStart(int idx) {
+        return intervalStart + ((long) buckets.get(idx) << shift);
+    }
+
+    public long getBucketDuration() {
+        return 1L << shift;
+    }
+
+    public int getCount(int idx) {
+        return counts.get(idx);
+    }
+
+    public double getMin(int idx) {
+        return min.get(idx);
+    }
+
+    public double getMax(int idx) {
+        return max.get(idx);
+    }
+
+    public double getSum(int idx) {
+        return sum.get(idx);
+    }
+
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * Returns the coarsest rollup level which gives at least sampleCount buckets over the duration, or -1 if even
+     * the finest level is too coarse.
+     */
+    public static int getLevel(long duration, int sampleCount) {
+        if (sampleCount <= 0) {
+            return -1;
+        }
+        long step = duration / sampleCount;
+        for (int i = LEVEL_SHIFTS.length - 1; i >= 0; i--) {
+            if ((1L << LEVEL_SHIFTS[i]) <= step) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int numLevels() {
+        return LEVEL_SHIFTS.length;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer bb) {
+        bb.put(SUBFORMAT_ID_RAW);
+        bb.put((byte) shift);
+        bb.putLong(lastTime);
+        int n = buckets.size();
+        VarIntUtil.writeVarInt32(bb, n);
+        for (int i = 0; i < n; i++) {
+            VarIntUtil.writeVarInt32(bb, buckets.get(i));
+            VarIntUtil.writeVarInt32(bb, counts.get(i));
+            bb.putDouble(min.get(i));
+            bb.putDouble(max.get(i));
+            bb.putDouble(sum.get(i));
+        }
+    }
+
+    private void parse(ByteBuffer bb) throws DecodingException {
+        byte fid = bb.get();
+        if (fid != SUBFORMAT_ID_RAW) {
+            throw new DecodingException("Unknown sub format id: " + fid);
+        }
+        shift = bb.get();
+        lastTime = bb.getLong();
+        intervalStart = ParameterArchive.getIntervalStart(lastTime);
+        int n = VarIntUtil.readVarInt32(bb);
+        buckets = new IntArray(n);
+        counts = new IntArray(n);
+        min = new DoubleArray(n);
+        max = new DoubleArray(n);
+        sum = new DoubleArray(n);
+        for (int i = 0; i < n; i++) {
+            buckets.add(VarIntUtil.readVarInt32(bb));
+            counts.add(VarIntUtil.readVarInt32(bb));
+            min.add(bb.getDouble());
+            max.add(bb.getDouble());
+            sum.add(bb.getDouble());
+        }
+    }
+
+    public static RollupSegment parseFrom(ByteBuffer bb) throws DecodingException {
+        RollupSegment r = new RollupSegment(0, 0);
+        r.parse(bb);
+        return r;
+    }
+
+    @Override
+    public int getMaxSerializedSize() {
+        return 15 + 34 * buckets.size();
+    }
+}
@@ -57,6 +57,13 @@ public class SegmentIterator {
         }
     }
     
+    /**
+     * @return the timestamp of the value that will be returned by {@link #next()}
+     */
+    long currentTime() {
+        return timeSegment.getTime(pos);
+    }
+
     public TimedValue next() {
         long t = timeSegment.getTime(pos);
         Value ev = (valueSegment==null)?null:valueSegment.getValue(pos);
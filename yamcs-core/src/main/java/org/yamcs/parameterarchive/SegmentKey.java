@@ -18,6 +18,8 @@ public class SegmentKey {
     public static final byte TYPE_ENG_VALUE = 0;
     public static final byte TYPE_RAW_VALUE = 1;
     public static final byte TYPE_PARAMETER_STATUS = 2;
+    // the rollup segments use the types starting from this one, one for each level
+    public static final byte TYPE_ROLLUP = 3;
     
     public SegmentKey(int parameterId, int parameterGroupId, long segmentStart, byte type) {
         this.parameterId = parameterId;
@@ -27,6 +29,10 @@ public class SegmentKey {
     }
     
 
+    public static byte rollupType(int level) {
+        return (byte) (TYPE_ROLLUP + level);
+    }
+
     public byte[] encode() {
         ByteBuffer bb = ByteBuffer.allocate(17);
         bb.putInt(parameterId);
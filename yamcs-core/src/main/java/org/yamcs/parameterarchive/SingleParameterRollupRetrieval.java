@@ -0,0 +1,135 @@
+package org.yamcs.parameterarchive;
+
+import static org.yamcs.parameterarchive.ParameterArchive.getIntervalEnd;
+import static org.yamcs.parameterarchive.ParameterArchive.getIntervalStart;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.parameterarchive.ParameterArchive.Partition;
+import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.rocksdb.AscendingRangeIterator;
+
+/**
+ * Retrieves the rollup segments of one level for one numeric parameter.
+ * <p>
+ * The segments written before the rollups have been enabled do not have rollups; for those the values are retrieved
+ * from the engineering value segments and passed to the value consumer.
+ * <p>
+ * The retrieval is always in ascending order. However when multiple parameter groups are involved, the segments are
+ * not merged, so the consumers should not rely on the order.
+ */
+public class SingleParameterRollupRetrieval {
+    private static final Logger log = LoggerFactory.getLogger(SingleParameterRollupRetrieval.class);
+    final ParameterArchive parchive;
+    final ParameterId[] pids;
+    final long start;
+    final long stop;
+    final int level;
+    final SegmentEncoderDecoder segmentEncoder = new SegmentEncoderDecoder();
+    long lastTime = TimeEncoding.INVALID_INSTANT;
+
+    public SingleParameterRollupRetrieval(ParameterArchive parchive, String parameterFqn, long start, long stop,
+            int level) {
+        this.parchive = parchive;
+        this.start = start;
+        this.stop = stop;
+        this.level = level;
+        pids = parchive.getParameterIdDb().get(parameterFqn);
+        if (pids == null) {
+            log.warn("No parameter id found in the parameter archive for {}", parameterFqn);
+        }
+    }
+
+    /**
+     *
+     * @param rollupConsumer
+     *            - receives the rollup segments
+     * @param valueConsumer
+     *            - receives the values for the segments which do not have rollups
+     * @return the timestamp of the last value covered by the retrieved data or
+     *         {@link TimeEncoding#INVALID_INSTANT} if no data has been found.
+     */
+    public long retrieve(Consumer<RollupSegment> rollupConsumer, Consumer<ParameterValueArray> valueConsumer)
+            throws RocksDBException, IOException {
+        if (pids == null) {
+            return lastTime;
+        }
+        List<Partition> parts = parchive.getPartitions(getIntervalStart(start), getIntervalEnd(stop), true);
+        for (ParameterId pid : pids) {
+            if (!RollupSegment.isNumeric(pid.engType)) {
+                continue;
+            }
+            int[] pgids = parchive.getParameterGroupIdDb().getAllGroups(pid.pid);
+            for (Partition p : parts) {
+                for (int pgid : pgids) {
+                    retrieveFromPartition(p, pid.pid, pgid, rollupConsumer, valueConsumer);
+                }
+            }
+        }
+        return lastTime;
+    }
+
+    private void retrieveFromPartition(Partition p, int pid, int pgid, Consumer<RollupSegment> rollupConsumer,
+            Consumer<ParameterValueArray> valueConsumer) throws RocksDBException, IOException {
+        byte rollupType = SegmentKey.rollupType(level);
+        byte[] rangeStart = new SegmentKey(pid, pgid, getIntervalStart(start), (byte) 0).encode();
+        byte[] rangeStop = new SegmentKey(pid, pgid, stop, Byte.MAX_VALUE).encode();
+
+        try (AscendingRangeIterator dbit = new AscendingRangeIterator(parchive.getIterator(p), rangeStart, false,
+                rangeStop, false)) {
+            long segmentStart = TimeEncoding.INVALID_INSTANT;
+            byte[] rollup = null;
+            byte[] engValue = null;
+            while (dbit.isValid()) {
+                SegmentKey key = SegmentKey.decode(dbit.key());
+                if (key.segmentStart != segmentStart) {
+                    sendSegment(p, pgid, segmentStart, rollup, engValue, rollupConsumer, valueConsumer);
+                    segmentStart = key.segmentStart;
+                    rollup = null;
+                    engValue = null;
+                }
+                if (key.type == rollupType) {
+                    rollup = dbit.value();
+                } else if (key.type == SegmentKey.TYPE_ENG_VALUE) {
+                    engValue = dbit.value();
+                }
+                dbit.next();
+            }
+            sendSegment(p, pgid, segmentStart, rollup, engValue, rollupConsumer, valueConsumer);
+        }
+    }
+
+    private void sendSegment(Partition p, int pgid, long segmentStart, byte[] rollup, byte[] engValue,
+            Consumer<RollupSegment> rollupConsumer, Consumer<ParameterValueArray> valueConsumer)
+            throws RocksDBException, IOException {
+        try {
+            if (rollup != null) {
+                RollupSegment rs = (RollupSegment) segmentEncoder.decode(rollup, segmentStart);
+                lastTime = Math.max(lastTime, rs.getLastTime());
+                rollupConsumer.accept(rs);
+            } else if (engValue != null) {
+                SortedTimeSegment timeSegment = parchive.getTimeSegment(p, segmentStart, pgid);
+                if (timeSegment == null) {
+                    throw new DatabaseCorruptionException("Cannot find a time segment for parameterGroupId=" + pgid
+                            + " segmentStart = " + segmentStart);
+                }
+                ValueSegment vs = (ValueSegment) segmentEncoder.decode(engValue, segmentStart);
+                int n = timeSegment.size();
+                long[] timestamps = timeSegment.getRange(0, n, true);
+                ValueArray values = vs.getRange(0, n, true);
+                lastTime = Math.max(lastTime, timestamps[n - 1]);
+                valueConsumer.accept(new ParameterValueArray(timestamps, values, null, null));
+            }
+        } catch (DecodingException e) {
+            throw new DatabaseCorruptionException(e);
+        }
+    }
+}
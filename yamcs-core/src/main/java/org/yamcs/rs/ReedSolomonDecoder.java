@@ -0,0 +1,344 @@
+package org.yamcs.rs;
+
+import java.util.Arrays;
+
+/**
+ * Table driven Reed-Solomon decoder for the codes defined by a {@link ReedSolomon} object.
+ * <p>
+ * It gives the same results as {@link ReedSolomon#decode(byte[], int[])} but:
+ * <ul>
+ * <li>the syndromes are computed using one precomputed multiplication table per root of the generator polynomial,
+ * four roots at a time over the whole codeword;</li>
+ * <li>if all the syndromes are zero, the method returns without further processing;</li>
+ * <li>the log/antilog tables are extended such that the sum of two logarithms does not need to be reduced modulo
+ * nn;</li>
+ * <li>the work buffers are allocated once in the constructor;</li>
+ * <li>the codeword can be read from any offset with any stride, allowing to decode interleaved code blocks in place.
+ * </li>
+ * </ul>
+ * Because of the work buffers, the objects of this class are not thread safe; one decoder per thread should be used.
+ *
+ */
+public class ReedSolomonDecoder {
+    final int nn;
+    final int nroots;
+    final int fcr;
+    final int prim;
+    final int iprim;
+    final int pad;
+    final int A0;
+
+    // alphaTo[i] = alpha**i for i < 2*nn
+    final int[] alphaTo;
+    final int[] indexOf;
+    // synTable[i*(nn+1) + x] = x * alpha**((fcr+i)*prim)
+    final byte[] synTable;
+
+    // work buffers
+    final int[] s;
+    final int[] lambda;
+    final int[] b;
+    final int[] t;
+    final int[] omega;
+    final int[] reg;
+    final int[] root;
+    final int[] loc;
+
+    public ReedSolomonDecoder(ReedSolomon rs) {
+        this.nn = rs.nn;
+        this.nroots = rs.nroots;
+        this.fcr = rs.fcr;
+        this.prim = rs.prim;
+        this.iprim = rs.iprim;
+        this.pad = rs.pad;
+        this.A0 = nn;
+
+        alphaTo = new int[2 * nn];
+        indexOf = new int[nn + 1];
+        for (int i = 0; i < nn; i++) {
+            alphaTo[i] = rs._alpha_to[i] & 0xFF;
+            alphaTo[i + nn] = alphaTo[i];
+        }
+        for (int i = 0; i <= nn; i++) {
+            indexOf[i] = rs._index_of[i] & 0xFF;
+        }
+
+        synTable = new byte[nroots * (nn + 1)];
+        for (int i = 0; i < nroots; i++) {
+            int r = modnn((fcr + i) * prim);
+            for (int x = 1; x <= nn; x++) {
+                synTable[i * (nn + 1) + x] = (byte) alphaTo[indexOf[x] + r];
+            }
+        }
+
+        s = new int[nroots];
+        lambda = new int[nroots + 1];
+        b = new int[nroots + 1];
+        t = new int[nroots + 1];
+        omega = new int[nroots + 1];
+        reg = new int[nroots + 1];
+        root = new int[nroots];
+        loc = new int[nroots];
+    }
+
+    /**
+     * Corrects in place data and returns the number of error corrected.
+     *
+     * @param data
+     *            - data to be corrected
+     * @param erasPos
+     *            - erasures positions (can be null)
+     * @return the number of errors corrected
+     * @throws ReedSolomonException
+     *             - thrown if the data cannot be corrected
+     * @see ReedSolomon#decode(byte[], int[])
+     */
+    public int decode(byte[] data, int[] erasPos) throws ReedSolomonException {
+        return decode(data, 0, 1, erasPos);
+    }
+
+    /**
+     * Corrects in place a codeword starting at the given offset in the data array.
+     *
+     * @return the number of errors corrected
+     * @throws ReedSolomonException
+     *             - thrown if the data cannot be corrected
+     */
+    public int decode(byte[] data, int offset) throws ReedSolomonException {
+        return decode(data, offset, 1, null);
+    }
+
+    /**
+     * Corrects in place the interleaved code blocks starting at the given offset.
+     * <p>
+     * As specified in CCSDS 131.0-B-3, the symbol j of codeword i is found at position {@code offset + j*depth + i}.
+     * The data has to contain {@code depth*(nn - pad)} symbols starting from offset.
+     *
+     * @param depth
+     *            the interleaving depth
+     * @return the total number of errors corrected in all the codewords
+     * @throws ReedSolomonException
+     *             - thrown if any of the codewords cannot be corrected; in this case the other codewords may have been
+     *             corrected.
+     */
+    public int decodeInterleaved(byte[] data, int offset, int depth) throws ReedSolomonException {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid interleaving depth " + depth);
+        }
+        int count = 0;
+        ReedSolomonException exception = null;
+        for (int i = 0; i < depth; i++) {
+            try {
+                count += decode(data, offset + i, depth, null);
+            } catch (ReedSolomonException e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return count;
+    }
+
+    private int decode(byte[] data, int offset, int stride, int[] erasPos) throws ReedSolomonException {
+        int n = nn - pad;
+        if (offset < 0 || offset + (n - 1) * stride >= data.length) {
+            throw new IllegalArgumentException("The data is too short for a codeword at offset " + offset);
+        }
+        /* form the syndromes; i.e., evaluate data(x) at roots of g(x) */
+        int synError = 0;
+        int i0 = 0;
+        // four roots at a time, the table lookups of the four chains being independent of each other
+        for (; i0 + 4 <= nroots; i0 += 4) {
+            int t0 = i0 * (nn + 1);
+            int t1 = t0 + nn + 1;
+            int t2 = t1 + nn + 1;
+            int t3 = t2 + nn + 1;
+            int d = data[offset] & nn;
+            int s0 = d, s1 = d, s2 = d, s3 = d;
+            for (int j = 1, p = offset + stride; j < n; j++, p += stride) {
+                d = data[p] & nn;
+                s0 = d ^ (synTable[t0 + s0] & 0xFF);
+                s1 = d ^ (synTable[t1 + s1] & 0xFF);
+                s2 = d ^ (synTable[t2 + s2] & 0xFF);
+                s3 = d ^ (synTable[t3 + s3] & 0xFF);
+            }
+            synError |= s0 | s1 | s2 | s3;
+            s[i0] = s0;
+            s[i0 + 1] = s1;
+            s[i0 + 2] = s2;
+            s[i0 + 3] = s3;
+        }
+        for (int i = i0; i < nroots; i++) {
+            int tbase = i * (nn + 1);
+            int si = data[offset] & nn;
+            for (int j = 1, p = offset + stride; j < n; j++, p += stride) {
+                si = (data[p] & nn) ^ (synTable[tbase + si] & 0xFF);
+            }
+            synError |= si;
+            s[i] = si;
+        }
+        if (synError == 0) {
+            /*
+             * if syndrome is zero, data[] is a codeword and there are no errors to correct. So return data[] unmodified
+             */
+            return 0;
+        }
+        /* Convert syndromes to index form */
+        for (int i = 0; i < nroots; i++) {
+            s[i] = indexOf[s[i]];
+        }
+
+        Arrays.fill(lambda, 0);
+        lambda[0] = 1;
+        int noEras = 0;
+        if (erasPos != null && erasPos.length > 0) {
+            noEras = erasPos.length;
+            /* Init lambda to be the erasure locator polynomial */
+            lambda[1] = alphaTo[modnn(prim * (nn - 1 - erasPos[0]))];
+            for (int i = 1; i < noEras; i++) {
+                int u = modnn(prim * (nn - 1 - erasPos[i]));
+                for (int j = i + 1; j > 0; j--) {
+                    int tmp = indexOf[lambda[j - 1]];
+                    if (tmp != A0) {
+                        lambda[j] ^= alphaTo[u + tmp];
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < nroots + 1; i++) {
+            b[i] = indexOf[lambda[i]];
+        }
+
+        /* Berlekamp-Massey algorithm to determine error+erasure locator polynomial */
+        int r = noEras;
+        int el = noEras;
+        while (++r <= nroots) {
+            /* Compute discrepancy at the r-th step in poly-form */
+            int discr = 0;
+            for (int i = 0; i < r; i++) {
+                if ((lambda[i] != 0) && (s[r - i - 1] != A0)) {
+                    discr ^= alphaTo[indexOf[lambda[i]] + s[r - i - 1]];
+                }
+            }
+            discr = indexOf[discr];
+            if (discr == A0) {
+                /* B(x) <-- x*B(x) */
+                System.arraycopy(b, 0, b, 1, nroots);
+                b[0] = A0;
+            } else {
+                /* T(x) <-- lambda(x) - discr*x*b(x) */
+                t[0] = lambda[0];
+                for (int i = 0; i < nroots; i++) {
+                    if (b[i] != A0) {
+                        t[i + 1] = lambda[i + 1] ^ alphaTo[discr + b[i]];
+                    } else {
+                        t[i + 1] = lambda[i + 1];
+                    }
+                }
+                if (2 * el <= r + noEras - 1) {
+                    el = r + noEras - el;
+                    /* B(x) <-- inv(discr) * lambda(x) */
+                    for (int i = 0; i <= nroots; i++) {
+                        b[i] = (lambda[i] == 0) ? A0 : modnn(indexOf[lambda[i]] - discr + nn);
+                    }
+                } else {
+                    /* B(x) <-- x*B(x) */
+                    System.arraycopy(b, 0, b, 1, nroots);
+                    b[0] = A0;
+                }
+                System.arraycopy(t, 0, lambda, 0, nroots + 1);
+            }
+        }
+
+        /* Convert lambda to index form and compute deg(lambda(x)) */
+        int degLambda = 0;
+        for (int i = 0; i < nroots + 1; i++) {
+            lambda[i] = indexOf[lambda[i]];
+            if (lambda[i] != A0) {
+                degLambda = i;
+            }
+        }
+
+        /* Find roots of the error+erasure locator polynomial by Chien search */
+        System.arraycopy(lambda, 1, reg, 1, nroots);
+        int count = 0;
+        for (int i = 1, k = iprim - 1; i <= nn; i++, k = modnn(k + iprim)) {
+            int q = 1; /* lambda[0] is always 0 */
+            for (int j = degLambda; j > 0; j--) {
+                if (reg[j] != A0) {
+                    int x = reg[j] + j;
+                    if (x >= nn) {
+                        x -= nn;
+                    }
+                    reg[j] = x;
+                    q ^= alphaTo[x];
+                }
+            }
+            if (q != 0) {
+                continue; /* Not a root */
+            }
+            /* store root (index-form) and error location number */
+            root[count] = i;
+            loc[count] = k;
+            /* If we've already found max possible roots, abort the search to save time */
+            if (++count == degLambda) {
+                break;
+            }
+        }
+        if (degLambda != count) {
+            /* deg(lambda) unequal to number of roots => uncorrectable error detected */
+            throw new ReedSolomonException("Uncorrectable");
+        }
+
+        /* Compute err+eras evaluator poly omega(x) = s(x)*lambda(x) (modulo x**nroots) in index form */
+        int degOmega = degLambda - 1;
+        for (int i = 0; i <= degOmega; i++) {
+            int tmp = 0;
+            for (int j = i; j >= 0; j--) {
+                if ((s[i - j] != A0) && (lambda[j] != A0)) {
+                    tmp ^= alphaTo[s[i - j] + lambda[j]];
+                }
+            }
+            omega[i] = indexOf[tmp];
+        }
+
+        /*
+         * Compute error values in poly-form. num1 = omega(inv(X(l))), num2 = inv(X(l))**(fcr-1) and
+         * den = lambda_pr(inv(X(l))) all in poly-form
+         */
+        for (int j = count - 1; j >= 0; j--) {
+            int num1 = 0;
+            for (int i = degOmega; i >= 0; i--) {
+                if (omega[i] != A0) {
+                    num1 ^= alphaTo[modnn(omega[i] + i * root[j])];
+                }
+            }
+            int num2 = alphaTo[modnn(root[j] * (fcr - 1) + nn)];
+            int den = 0;
+
+            /* lambda[i+1] for i even is the formal derivative lambda_pr of lambda[i] */
+            for (int i = Math.min(degLambda, nroots - 1) & ~1; i >= 0; i -= 2) {
+                if (lambda[i + 1] != A0) {
+                    den ^= alphaTo[modnn(lambda[i + 1] + i * root[j])];
+                }
+            }
+            /* Apply error to data */
+            if (num1 != 0 && loc[j] >= pad) {
+                int p = offset + (loc[j] - pad) * stride;
+                data[p] ^= alphaTo[modnn(indexOf[num1] + indexOf[num2] + nn - indexOf[den])];
+            }
+        }
+
+        if (erasPos != null) {
+            for (int i = 0; i < Math.min(count, erasPos.length); i++) {
+                erasPos[i] = loc[i];
+            }
+        }
+        return count;
+    }
+
+    private int modnn(int x) {
+        return x % nn;
+    }
+}
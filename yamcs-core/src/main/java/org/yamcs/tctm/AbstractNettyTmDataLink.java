@@ -0,0 +1,265 @@
+package org.yamcs.tctm;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.yamcs.ConfigurationException;
+import org.yamcs.YConfiguration;
+import org.yamcs.YamcsServer;
+import org.yamcs.archive.PacketWithTime;
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.SystemParametersCollector;
+import org.yamcs.parameter.SystemParametersProducer;
+import org.yamcs.time.TimeService;
+import org.yamcs.utils.DataRateMeter;
+import org.yamcs.utils.YObjectLoader;
+
+import com.google.common.util.concurrent.AbstractService;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Base class for the TM links receiving data through Netty channels.
+ * <p>
+ * Contrary to the {@link AbstractTmDataLink}, these links do not have their own thread for reading; the data is
+ * received on the threads of the event loop group shared by all the links (see {@link TmLinkEventLoop}).
+ * <p>
+ * By default, the packets are then passed through the preprocessor and sent to the TM sink on a processing thread
+ * specific to the link, such that a slow preprocessor or stream subscriber does not delay the other links served by
+ * the same event loop thread. The processing queue is bounded; when it is full, the event loop thread waits for space,
+ * which delays the other links of the thread but also stops reading from the channel (TCP flow control) instead of
+ * accumulating packets in memory. With the {@code processingThread: false} option, the packets are processed directly
+ * on the event loop thread: this saves one thread hand-off per packet but any delay in the processing is shared by
+ * all the links of the thread.
+ * <p>
+ * The data is read in pooled buffers; the only allocation per packet is the byte array passed to the packet
+ * preprocessor.
+ */
+public abstract class AbstractNettyTmDataLink extends AbstractService
+        implements TmPacketDataLink, SystemParametersProducer {
+    protected volatile long packetcount = 0;
+    DataRateMeter packetRateMeter = new DataRateMeter();
+    DataRateMeter dataRateMeter = new DataRateMeter();
+
+    PacketPreprocessor packetPreprocessor;
+    protected TmSink tmSink;
+    protected volatile boolean disabled = false;
+
+    protected final Log log;
+    protected SystemParametersCollector sysParamCollector;
+    private String spLinkStatus, spDataCount, spDataRate, spPacketRate;
+    final protected TimeService timeService;
+
+    final protected String yamcsInstance;
+    final protected String name;
+    final YConfiguration config;
+
+    protected EventLoopGroup eventLoopGroup;
+
+    // runs the preprocessor and the TM sink, null if they are run on the event loop thread
+    private volatile ThreadPoolExecutor processingExecutor;
+    final boolean processingThread;
+    final int processingQueueSize;
+
+    final static String CFG_PREPRO_CLASS = "packetPreprocessorClassName";
+
+    protected AbstractNettyTmDataLink(String instance, String name, YConfiguration config) {
+        this.timeService = YamcsServer.getTimeService(instance);
+        this.yamcsInstance = instance;
+        this.name = name;
+        this.config = config;
+        log = new Log(getClass(), instance);
+        log.setContext(name);
+        processingThread = config.getBoolean("processingThread", true);
+        processingQueueSize = config.getInt("processingQueueSize", 1024);
+        if (processingQueueSize < 1) {
+            throw new ConfigurationException("processingQueueSize has to be at least 1");
+        }
+        initPreprocessor(instance, config);
+    }
+
+    private void initPreprocessor(String instance, YConfiguration config) {
+        String className = config.getString(CFG_PREPRO_CLASS, IssPacketPreprocessor.class.getName());
+        Object args = config.get("packetPreprocessorArgs");
+        try {
+            if (args != null) {
+                packetPreprocessor = YObjectLoader.loadObject(className, instance, args);
+            } else {
+                packetPreprocessor = YObjectLoader.loadObject(className, instance);
+            }
+        } catch (ConfigurationException e) {
+            log.error("Cannot instantiate the packet preprocessor", e);
+            throw e;
+        } catch (Exception e) {
+            log.error("Cannot instantiate the packet preprocessor", e);
+            throw new ConfigurationException(e);
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        setupSysVariables();
+        if (processingThread) {
+            processingExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(processingQueueSize),
+                    new DefaultThreadFactory("TmLink-" + yamcsInstance + "-" + name, true),
+                    (r, executor) -> waitForSpace(r, executor));
+        }
+        eventLoopGroup = TmLinkEventLoop.acquire();
+        try {
+            startChannel();
+        } catch (Exception e) {
+            TmLinkEventLoop.release();
+            shutdownProcessing();
+            notifyFailed(e);
+            return;
+        }
+        notifyStarted();
+    }
+
+    // called on the event loop thread when the processing queue is full
+    private void waitForSpace(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            log.debug("Link stopped, dropping packet");
+            return;
+        }
+        try {
+            executor.getQueue().put(r);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for space in the processing queue, dropping packet");
+        }
+    }
+
+    private void shutdownProcessing() {
+        if (processingExecutor != null) {
+            // the packets already queued are still processed
+            processingExecutor.shutdown();
+            processingExecutor = null;
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        try {
+            closeChannel();
+        } finally {
+            TmLinkEventLoop.release();
+            shutdownProcessing();
+        }
+        if (sysParamCollector != null) {
+            sysParamCollector.unregisterProducer(this);
+        }
+        notifyStopped();
+    }
+
+    /**
+     * Called when the service is started to open the channel (connect or bind) using the {@link #eventLoopGroup}.
+     */
+    protected abstract void startChannel() throws Exception;
+
+    /**
+     * Called when the service is stopped to close the channel
+     */
+    protected abstract void closeChannel();
+
+    /**
+     * Copies the readable bytes of the buffer into a new byte array, passes it through the preprocessor and sends the
+     * resulting packet to the TM sink.
+     * <p>
+     * Called on the event loop thread; the buffer is not released by this method. The preprocessor and the TM sink are
+     * called on the processing thread of the link, if there is one.
+     */
+    protected void processPacket(ByteBuf buf) {
+        byte[] packet = new byte[buf.readableBytes()];
+        buf.readBytes(packet);
+        updateStats(packet.length);
+        ThreadPoolExecutor executor = processingExecutor;
+        if (executor == null) {
+            preprocessAndSend(packet);
+        } else {
+            executor.execute(() -> preprocessAndSend(packet));
+        }
+    }
+
+    private void preprocessAndSend(byte[] packet) {
+        PacketWithTime pwt = packetPreprocessor.process(packet);
+        if (pwt != null) {
+            tmSink.processPacket(pwt);
+        }
+    }
+
+    @Override
+    public void setTmSink(TmSink tmSink) {
+        this.tmSink = tmSink;
+    }
+
+    protected void setupSysVariables() {
+        this.sysParamCollector = SystemParametersCollector.getInstance(yamcsInstance);
+        if (sysParamCollector != null) {
+            sysParamCollector.registerProducer(this);
+            spLinkStatus = sysParamCollector.getNamespace() + "/" + name + "/linkStatus";
+            spDataCount = sysParamCollector.getNamespace() + "/" + name + "/dataCount";
+            spDataRate = sysParamCollector.getNamespace() + "/" + name + "/dataRate";
+            spPacketRate = sysParamCollector.getNamespace() + "/" + name + "/packetRate";
+        } else {
+            log.info("System variables collector not defined for instance {} ", yamcsInstance);
+        }
+    }
+
+    @Override
+    public Collection<ParameterValue> getSystemParameters() {
+        long time = timeService.getMissionTime();
+        ParameterValue linkStatus = SystemParametersCollector.getPV(spLinkStatus, time, getLinkStatus().name());
+        ParameterValue dataCount = SystemParametersCollector.getPV(spDataCount, time, packetcount);
+        ParameterValue dataRate = SystemParametersCollector.getPV(spDataRate, time, dataRateMeter.getFiveSecondsRate());
+        ParameterValue packetRate = SystemParametersCollector.getPV(spPacketRate, time,
+                packetRateMeter.getFiveSecondsRate());
+        return Arrays.asList(linkStatus, dataCount, dataRate, packetRate);
+    }
+
+    /**
+     * called when a new packet is received to update the statistics
+     */
+    protected void updateStats(int packetSize) {
+        packetcount++;
+        packetRateMeter.mark(1);
+        dataRateMeter.mark(packetSize);
+    }
+
+    @Override
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    @Override
+    public long getDataInCount() {
+        return packetcount;
+    }
+
+    @Override
+    public long getDataOutCount() {
+        return 0;
+    }
+
+    @Override
+    public void resetCounters() {
+        packetcount = 0;
+    }
+
+    @Override
+    public YConfiguration getConfig() {
+        return config;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,190 @@
+package org.yamcs.tctm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.yamcs.ConfigurationException;
+import org.yamcs.YConfiguration;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * Receives telemetry packets via a TCP connection, like the {@link TcpTmDataLink}, but without a dedicated thread: the
+ * connection is handled by the event loop group shared by all the Netty based links.
+ * <p>
+ * The stream is split into packets based on a length field, with the same configuration options as the
+ * {@link GenericPacketInputStream}. By default the CCSDS primary header is used (the packet length is found in the
+ * bytes 4 and 5 and is the total length minus 7).
+ * <p>
+ * In case the TCP connection cannot be opened or is broken, it retries to connect after a configurable delay.
+ */
+public class NettyTcpTmDataLink extends AbstractNettyTmDataLink {
+    final String host;
+    final int port;
+    final long initialDelay;
+    final long reconnectionDelay;
+
+    final int maxPacketLength;
+    final int lengthFieldOffset;
+    final int lengthFieldLength;
+    final int lengthAdjustment;
+    final int initialBytesToStrip;
+
+    private Bootstrap bootstrap;
+    private volatile Channel channel;
+    private volatile boolean quitting = false;
+
+    public NettyTcpTmDataLink(String instance, String name, YConfiguration config) throws ConfigurationException {
+        super(instance, name, config);
+        host = config.getString("host");
+        port = config.getInt("port");
+        initialDelay = config.getLong("initialDelay", 0);
+        reconnectionDelay = config.getLong("reconnectionDelay", 10000);
+
+        maxPacketLength = config.getInt("maxPacketLength", 1500);
+        lengthFieldOffset = config.getInt("lengthFieldOffset", 4);
+        lengthFieldLength = config.getInt("lengthFieldLength", 2);
+        lengthAdjustment = config.getInt("lengthAdjustment", 7);
+        initialBytesToStrip = config.getInt("initialBytesToStrip", 0);
+        if (lengthFieldLength != 1 && lengthFieldLength != 2 && lengthFieldLength != 3 && lengthFieldLength != 4) {
+            throw new ConfigurationException("Unsupported lengthFieldLength, supported values are 1,2,3 or 4");
+        }
+    }
+
+    @Override
+    protected void startChannel() {
+        quitting = false;
+        bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(TmLinkEventLoop.getSocketChannelClass())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 1000)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        // the length computed by Netty includes the bytes up to the end of the length field
+                        int adjustment = lengthAdjustment - lengthFieldOffset - lengthFieldLength;
+                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(maxPacketLength, lengthFieldOffset,
+                                lengthFieldLength, adjustment, initialBytesToStrip));
+                        ch.pipeline().addLast(new PacketHandler());
+                    }
+                });
+        eventLoopGroup.schedule(this::connect, initialDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private void connect() {
+        if (quitting || disabled || channel != null) {
+            return;
+        }
+        ChannelFuture future = bootstrap.connect(host, port);
+        channel = future.channel();
+        future.addListener(f -> {
+            if (f.isSuccess()) {
+                log.info("Link established to {}:{}", host, port);
+            } else {
+                log.info("Cannot open TM socket {}:{} {}. Retrying in {}s", host, port, f.cause().toString(),
+                        reconnectionDelay / 1000);
+                channel = null;
+                scheduleReconnect();
+            }
+        });
+    }
+
+    private void scheduleReconnect() {
+        if (!quitting && !disabled) {
+            eventLoopGroup.schedule(this::connect, reconnectionDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected void closeChannel() {
+        quitting = true;
+        close();
+    }
+
+    private void close() {
+        Channel ch = channel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    @Override
+    public void disable() {
+        disabled = true;
+        close();
+    }
+
+    @Override
+    public void enable() {
+        disabled = false;
+        if (isRunning() && eventLoopGroup != null) {
+            eventLoopGroup.execute(this::connect);
+        }
+    }
+
+    @Override
+    public Status getLinkStatus() {
+        if (disabled) {
+            return Status.DISABLED;
+        }
+        Channel ch = channel;
+        if (ch == null || !ch.isActive()) {
+            return Status.UNAVAIL;
+        } else {
+            return Status.OK;
+        }
+    }
+
+    @Override
+    public String getDetailedStatus() {
+        if (disabled) {
+            return String.format("DISABLED (should connect to %s:%d)", host, port);
+        }
+        if (getLinkStatus() == Status.UNAVAIL) {
+            return String.format("Not connected to %s:%d", host, port);
+        } else {
+            return String.format("OK, connected to %s:%d, received %d packets", host, port, packetcount);
+        }
+    }
+
+    class PacketHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf buf) {
+            if (!disabled) {
+                processPacket(buf);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            if (channel == ctx.channel()) {
+                channel = null;
+                if (!quitting && !disabled) {
+                    log.warn("TM Connection closed. Reconnecting in {}s", reconnectionDelay / 1000);
+                    scheduleReconnect();
+                }
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (cause instanceof TooLongFrameException) {
+                log.warn(cause.toString());
+            } else {
+                log.info("Error reading from the TM socket {}:{} {}", host, port, cause.toString());
+            }
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.yamcs.tctm;
+
+import java.net.InetSocketAddress;
+
+import org.yamcs.ConfigurationException;
+import org.yamcs.YConfiguration;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * Receives telemetry packets via UDP, like the {@link UdpTmDataLink}, but without a dedicated thread: the datagrams
+ * are received on the event loop group shared by all the Netty based links. One UDP datagram = one TM packet.
+ * <p>
+ * Keeps simple statistics about the number of datagram received; the datagrams received while the link is disabled
+ * are discarded.
+ */
+public class NettyUdpTmDataLink extends AbstractNettyTmDataLink {
+    private volatile int validDatagramCount = 0;
+
+    final static int MAX_LENGTH = 1500;
+    final int port;
+    final int maxLength;
+    private Channel channel;
+
+    /**
+     * Creates a new UDP TM Data Link
+     *
+     * @throws ConfigurationException
+     *             if port is not defined in the configuration
+     */
+    public NettyUdpTmDataLink(String instance, String name, YConfiguration config) throws ConfigurationException {
+        super(instance, name, config);
+        port = config.getInt("port");
+        maxLength = config.getInt("maxLength", MAX_LENGTH);
+    }
+
+    @Override
+    protected void startChannel() throws InterruptedException {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(TmLinkEventLoop.getDatagramChannelClass())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxLength))
+                .handler(new DatagramHandler());
+        channel = bootstrap.bind(port).sync().channel();
+    }
+
+    @Override
+    protected void closeChannel() {
+        if (channel != null) {
+            channel.close().awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Returns the local port on which the link listens; it can differ from the configured port if that one is 0.
+     */
+    public int getLocalPort() {
+        return ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @Override
+    public Status getLinkStatus() {
+        return disabled ? Status.DISABLED : Status.OK;
+    }
+
+    @Override
+    public String getDetailedStatus() {
+        if (disabled) {
+            return "DISABLED";
+        } else {
+            return String.format("OK (%s) %nValid datagrams received: %d", port, validDatagramCount);
+        }
+    }
+
+    @Override
+    public void disable() {
+        disabled = true;
+    }
+
+    @Override
+    public void enable() {
+        disabled = false;
+    }
+
+    @Override
+    public long getDataInCount() {
+        return validDatagramCount;
+    }
+
+    @Override
+    public void resetCounters() {
+        validDatagramCount = 0;
+    }
+
+    class DatagramHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket datagram) {
+            if (disabled) {
+                return;
+            }
+            validDatagramCount++;
+            processPacket(datagram.content());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("exception thrown when reading from the UDP socket at port {}", port, cause);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.yamcs.tctm;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Event loop group shared by all the Netty based data links.
+ * <p>
+ * The group is created when the first link is started and shut down when the last link is stopped. By default (as in
+ * the {@link org.yamcs.http.HttpServer}) Netty limits the number of threads to 2*number of CPU cores, independent of
+ * the number of links.
+ * <p>
+ * The native epoll transport is used if the netty-transport-native-epoll library is found in the classpath and is
+ * available on the platform; otherwise the NIO transport is used.
+ */
+public class TmLinkEventLoop {
+    private static final Logger log = LoggerFactory.getLogger(TmLinkEventLoop.class);
+    private static final String EPOLL_PACKAGE = "io.netty.channel.epoll.";
+
+    private static EventLoopGroup group;
+    private static Class<? extends SocketChannel> socketChannelClass;
+    private static Class<? extends DatagramChannel> datagramChannelClass;
+    private static int refCount = 0;
+
+    private TmLinkEventLoop() {
+    }
+
+    /**
+     * Returns the shared event loop group, creating it if necessary. Each call has to be paired with a call to
+     * {@link #release()}.
+     */
+    public static synchronized EventLoopGroup acquire() {
+        if (group == null) {
+            ThreadFactory threadFactory = new DefaultThreadFactory("YamcsTmLinks", true);
+            if (!createEpollGroup(threadFactory)) {
+                group = new NioEventLoopGroup(0, threadFactory);
+                socketChannelClass = NioSocketChannel.class;
+                datagramChannelClass = NioDatagramChannel.class;
+            }
+        }
+        refCount++;
+        return group;
+    }
+
+    /**
+     * Releases the event loop group; the group is shut down when no link uses it anymore.
+     */
+    public static synchronized void release() {
+        if (refCount == 0) {
+            throw new IllegalStateException("release called without acquire");
+        }
+        refCount--;
+        if (refCount == 0) {
+            group.shutdownGracefully();
+            group = null;
+        }
+    }
+
+    public static synchronized Class<? extends SocketChannel> getSocketChannelClass() {
+        return socketChannelClass;
+    }
+
+    public static synchronized Class<? extends DatagramChannel> getDatagramChannelClass() {
+        return datagramChannelClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean createEpollGroup(ThreadFactory threadFactory) {
+        try {
+            Class<?> epoll = Class.forName(EPOLL_PACKAGE + "Epoll");
+            if (!(Boolean) epoll.getMethod("isAvailable").invoke(null)) {
+                return false;
+            }
+            group = (EventLoopGroup) Class.forName(EPOLL_PACKAGE + "EpollEventLoopGroup")
+                    .getConstructor(int.class, ThreadFactory.class).newInstance(0, threadFactory);
+            socketChannelClass = (Class<? extends SocketChannel>) Class.forName(EPOLL_PACKAGE + "EpollSocketChannel");
+            datagramChannelClass = (Class<? extends DatagramChannel>) Class
+                    .forName(EPOLL_PACKAGE + "EpollDatagramChannel");
+            log.debug("Using the native epoll transport for the data links");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Cannot use the native epoll transport, falling back to NIO", e);
+            if (group != null) {
+                group.shutdownGracefully();
+                group = null;
+            }
+            return false;
+        }
+    }
+}
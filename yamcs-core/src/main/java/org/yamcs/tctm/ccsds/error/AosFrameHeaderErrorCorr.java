@@ -1,6 +1,7 @@
 package org.yamcs.tctm.ccsds.error;
 
 import org.yamcs.rs.ReedSolomon;
+import org.yamcs.rs.ReedSolomonDecoder;
 import org.yamcs.rs.ReedSolomonException;
 
 /**
@@ -15,6 +16,7 @@ import org.yamcs.rs.ReedSolomonException;
  */
 public class AosFrameHeaderErrorCorr {
     static ReedSolomon rs = new ReedSolomon(4, 4, 6, 1, 0x13, 5);
+    static ThreadLocal<ReedSolomonDecoder> decoder = ThreadLocal.withInitial(() -> new ReedSolomonDecoder(rs));
 
     /**
      * Compute the Error Control word based on the virtual channel id and signaling field byte
@@ -68,7 +70,7 @@ public class AosFrameHeaderErrorCorr {
                 (byte) ((errControl & 0xF))
         };
 
-        int numc = rs.decode(data, null);
+        int numc = decoder.get().decode(data, null);
         int cvcid = (data[0] << 12) + (data[1] << 8) + (data[2] << 4) + data[3];
         int csig = (data[4] << 4) + data[5];
         return new DecoderResult(cvcid, csig, numc);
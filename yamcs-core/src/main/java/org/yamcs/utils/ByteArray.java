@@ -60,6 +60,110 @@ public class ByteArray {
         length++;
     }
 
+    /**
+     * add all the elements of the array
+     * 
+     * @param x
+     */
+    public void add(byte[] x) {
+        add(x, 0, x.length);
+    }
+
+    /**
+     * add length elements of the array x starting from offset
+     * 
+     * @param x
+     * @param offset
+     * @param length
+     */
+    public void add(byte[] x, int offset, int length) {
+        ensureCapacity(this.length + length);
+        System.arraycopy(x, offset, a, this.length, length);
+        this.length += length;
+    }
+
+    /**
+     * add the short value in big endian
+     * 
+     * @param x
+     */
+    public void addShort(short x) {
+        ensureCapacity(length + 2);
+        ByteArrayUtils.encodeShort(x, a, length);
+        length += 2;
+    }
+
+    /**
+     * add the int value in big endian
+     * 
+     * @param x
+     */
+    public void addInt(int x) {
+        ensureCapacity(length + 4);
+        ByteArrayUtils.encodeInt(x, a, length);
+        length += 4;
+    }
+
+    /**
+     * add the long value in big endian
+     * 
+     * @param x
+     */
+    public void addLong(long x) {
+        ensureCapacity(length + 8);
+        ByteArrayUtils.encodeLong(x, a, length);
+        length += 8;
+    }
+
+    /**
+     * add the double value in big endian (same encoding as {@link java.io.DataOutput#writeDouble(double)})
+     * 
+     * @param x
+     */
+    public void addDouble(double x) {
+        addLong(Double.doubleToLongBits(x));
+    }
+
+    /**
+     * Overwrites the int value in big endian at the given position
+     * 
+     * @param pos
+     * @param x
+     */
+    public void setInt(int pos, int x) {
+        rangeCheck(pos + 3);
+        ByteArrayUtils.encodeInt(x, a, pos);
+    }
+
+    /**
+     * Makes sure that at least n more elements can be added without re-allocating the backing array
+     * 
+     * @param n
+     */
+    public void reserve(int n) {
+        ensureCapacity(length + n);
+    }
+
+    /**
+     * Sets the length to the new value. If the new length is greater than the current one, the new elements are
+     * undefined and have to be set by the caller.
+     * 
+     * @param newLength
+     */
+    public void setLength(int newLength) {
+        ensureCapacity(newLength);
+        length = newLength;
+        hash = 0;
+    }
+
+    /**
+     * Removes all the elements of the array, keeping the backing array for reuse
+     */
+    public void reset() {
+        length = 0;
+        hash = 0;
+    }
+
     public void add(int pos, byte x) {
         if (pos > length) {
             throw new IndexOutOfBoundsException("Index: " + pos + " length: " + length);
@@ -116,6 +116,14 @@ public class IntArray {
         return length;
     }
 
+    /**
+     * Removes all the elements; the capacity is kept such that the array can be reused.
+     */
+    public void clear() {
+        length = 0;
+        hash = 0;
+    }
+
     public void set(int pos, int x) {
         rangeCheck(pos);
         a[pos] = x;
@@ -29,11 +29,30 @@ import org.yamcs.yarch.DataType;
 import com.google.protobuf.ByteString;
 
 public class ValueUtility {
+    // the values are immutable; the most common ones (flags, small counters, enumeration raw values) are shared
+    static final int INT_CACHE_SIZE = 256;
+    static final Value[] UINT32_CACHE = new Value[INT_CACHE_SIZE];
+    static final Value[] SINT32_CACHE = new Value[INT_CACHE_SIZE];
+    static final Value TRUE = new BooleanValue(true);
+    static final Value FALSE = new BooleanValue(false);
+    static {
+        for (int i = 0; i < INT_CACHE_SIZE; i++) {
+            UINT32_CACHE[i] = new UInt32Value(i);
+            SINT32_CACHE[i] = new SInt32Value(i);
+        }
+    }
+
     public static Value getUint32Value(int x) {
+        if (x >= 0 && x < INT_CACHE_SIZE) {
+            return UINT32_CACHE[x];
+        }
         return new UInt32Value(x);
     }
 
     public static Value getSint32Value(int x) {
+        if (x >= 0 && x < INT_CACHE_SIZE) {
+            return SINT32_CACHE[x];
+        }
         return new SInt32Value(x);
     }
 
@@ -58,7 +77,7 @@ public class ValueUtility {
     }
 
     public static Value getBooleanValue(boolean b) {
-        return new BooleanValue(b);
+        return b ? TRUE : FALSE;
     }
 
     public static Value getFloatValue(float f) {
@@ -0,0 +1,29 @@
+package org.yamcs.xtceproc;
+
+/**
+ * Decoder generated by the {@link ContainerCompiler} for the entries of a container.
+ * <p>
+ * It extracts the raw values of all the entries from the byte array, without any interpretation of the XTCE
+ * definitions.
+ */
+public interface CompiledEntryDecoder {
+
+    /**
+     * Extracts the raw values of the entries.
+     *
+     * @param b
+     *            - the packet
+     * @param offset
+     *            - the offset in bytes inside the array of the buffer used for extracting the container
+     * @param position
+     *            - the bit position (relative to the offset) where the container starts
+     * @param values
+     *            - array where the bits of the raw values are stored (as in a
+     *            {@link org.yamcs.parameter.ParameterValueBlock}), one for each entry
+     * @param positions
+     *            - array where the bit positions of the entries (relative to the offset) are stored
+     * @return true if all the entries have been extracted or false if some of them do not fit inside the packet - in
+     *         this case the data has to be extracted with the interpreter which knows how to deal with the error.
+     */
+    boolean decode(byte[] b, int offset, int position, long[] values, int[] positions);
+}
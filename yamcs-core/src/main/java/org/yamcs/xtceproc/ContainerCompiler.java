@@ -0,0 +1,364 @@
+package org.yamcs.xtceproc;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.DataEncoding;
+import org.yamcs.xtce.FloatDataEncoding;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.ParameterEntry;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.SequenceEntry;
+import org.yamcs.xtce.XtceDb;
+
+/**
+ * Generates and compiles (using janino) the Java code extracting the raw values of the entries of a container.
+ * <p>
+ * Only the containers whose entries (as subscribed) are all plain parameter entries without include condition or
+ * repetition, with an integer (unsigned or two's complement) or IEEE754 float encoding, are compiled. The positions of
+ * the entries and the bit manipulations required to read them are fixed in the generated code.
+ * <p>
+ * The entries having the same encoding are read by one loop over a table with their positions, either fixed or
+ * relative to the start of the container. One straight-line block of code per entry would be executed only once per
+ * packet; with hundreds of entries per container the JIT would compile it late and the machine code would not fit in
+ * the CPU caches, making it slower than the interpreter. The loops keep the size of the generated code proportional to
+ * the number of different encodings instead of the number of entries.
+ * <p>
+ * The other containers are extracted by the {@link SequenceContainerProcessor} interpreting the XTCE definitions.
+ */
+public class ContainerCompiler {
+    static final Logger log = LoggerFactory.getLogger(ContainerCompiler.class);
+    static final String PACKAGE = "org.yamcs.xtceproc.compiled";
+    static final AtomicInteger counter = new AtomicInteger();
+
+    // the compiled containers are shared between all the extractors (processors) using the same MDB such that the
+    // generated classes are loaded and optimized by the JIT only once; they are discarded together with the MDB.
+    static final Map<XtceDb, Map<List<SequenceEntry>, CompiledContainer>> cache = new WeakHashMap<>();
+
+    /**
+     * Returns the compiled container for the given entries, compiling them if they have not been compiled before.
+     *
+     * @return the compiled container; the decoder is null if the entries cannot be compiled
+     */
+    static synchronized CompiledContainer getCompiledContainer(XtceDb xtcedb, SequenceContainer sc,
+            Collection<SequenceEntry> entries) {
+        Map<List<SequenceEntry>, CompiledContainer> m = cache.computeIfAbsent(xtcedb, k -> new HashMap<>());
+        return m.computeIfAbsent(new ArrayList<>(entries), k -> compile(sc, k));
+    }
+
+    /**
+     * Compiles the entries of the container.
+     *
+     * @return the compiled container; the decoder is null if the entries cannot be compiled
+     */
+    static CompiledContainer compile(SequenceContainer sc, Collection<SequenceEntry> entries) {
+        int n = entries.size();
+        ParameterEntry[] pentries = new ParameterEntry[n];
+        int[] sizes = new int[n];
+        Type[] rawTypes = new Type[n];
+        int i = 0;
+        for (SequenceEntry se : entries) {
+            if (!isCompilable(se)) {
+                log.debug("Container {} has entry {} which cannot be compiled", sc.getQualifiedName(), se);
+                return new CompiledContainer(null, null, null, null);
+            }
+            pentries[i] = (ParameterEntry) se;
+            sizes[i] = getEncoding(pentries[i]).getSizeInBits();
+            rawTypes[i] = DataEncodingDecoder.getPrimitiveRawType(getEncoding(pentries[i]));
+            i++;
+        }
+
+        String className = "ContainerDecoder" + counter.incrementAndGet();
+        String code = generateCode(className, sc, pentries);
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.cook(code);
+            Class<?> decoderClass = compiler.getClassLoader().loadClass(PACKAGE + "." + className);
+            CompiledEntryDecoder decoder = (CompiledEntryDecoder) decoderClass.newInstance();
+            log.debug("Compiled decoder for container {} with {} entries", sc.getQualifiedName(), n);
+            return new CompiledContainer(decoder, pentries, sizes, rawTypes);
+        } catch (Exception e) {
+            log.warn("Failed to compile the decoder for container {}, the interpreter will be used. Code:\n{}",
+                    sc.getQualifiedName(), code, e);
+            return new CompiledContainer(null, null, null, null);
+        }
+    }
+
+    static boolean isCompilable(SequenceEntry se) {
+        if (se.getClass() != ParameterEntry.class || se.getIncludeCondition() != null
+                || se.getRepeatEntry() != null) {
+            return false;
+        }
+        ParameterType ptype = ((ParameterEntry) se).getParameter().getParameterType();
+        if (!(ptype instanceof BaseDataType)) {
+            return false;
+        }
+        DataEncoding de = ((BaseDataType) ptype).getEncoding();
+        if (de == null || de.getFromBinaryTransformAlgorithm() != null) {
+            return false;
+        }
+        int n = de.getSizeInBits();
+        if (de instanceof IntegerDataEncoding) {
+            IntegerDataEncoding.Encoding enc = ((IntegerDataEncoding) de).getEncoding();
+            return (enc == IntegerDataEncoding.Encoding.UNSIGNED || enc == IntegerDataEncoding.Encoding.TWOS_COMPLEMENT)
+                    && n > 0 && n <= 64;
+        } else if (de instanceof FloatDataEncoding) {
+            return ((FloatDataEncoding) de).getEncoding() == FloatDataEncoding.Encoding.IEEE754_1985
+                    && (n == 32 || n == 64);
+        }
+        return false;
+    }
+
+    private static DataEncoding getEncoding(ParameterEntry pe) {
+        return ((BaseDataType) pe.getParameter().getParameterType()).getEncoding();
+    }
+
+    static String generateCode(String className, SequenceContainer sc, ParameterEntry[] entries) {
+        // the position of each entry is either fixed or fixed relative to the position where the container starts
+        int n = entries.length;
+        boolean[] relative = new boolean[n];
+        int[] offsets = new int[n];
+        boolean rel = true;
+        int off = 0;
+        for (int i = 0; i < n; i++) {
+            ParameterEntry pe = entries[i];
+            if (pe.getReferenceLocation() == SequenceEntry.ReferenceLocationType.containerStart) {
+                rel = false;
+                off = pe.getLocationInContainerInBits();
+            } else {
+                off += pe.getLocationInContainerInBits();
+            }
+            relative[i] = rel;
+            offsets[i] = off;
+            off += getEncoding(pe).getSizeInBits();
+        }
+
+        // the entries with the same encoding and the same reference are extracted in one loop
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            groups.computeIfAbsent(getGroupKey(relative[i], getEncoding(entries[i])), k -> new ArrayList<>()).add(i);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE).append(";\n")
+                .append("import org.yamcs.xtceproc.ContainerCompiler;\n")
+                .append("// decoder for ").append(sc.getQualifiedName()).append("\n")
+                .append("public class ").append(className)
+                .append(" implements org.yamcs.xtceproc.CompiledEntryDecoder {\n");
+
+        int g = 0;
+        for (List<Integer> group : groups.values()) {
+            sb.append("  // ");
+            for (int k = 0; k < group.size(); k++) {
+                if (k > 0) {
+                    sb.append(k % 8 == 0 ? "\n  // " : ", ");
+                }
+                sb.append(entries[group.get(k)].getParameter().getQualifiedName().replaceAll("[\\r\\n]", " "));
+            }
+            sb.append("\n");
+            appendArray(sb, "IDX" + g, group, i -> i);
+            appendArray(sb, "OFF" + g, group, i -> offsets[i]);
+            g++;
+        }
+
+        sb.append("  public boolean decode(byte[] b, int offset, int position, long[] values, int[] positions) {\n")
+                .append("    int size = (b.length - offset) << 3;\n");
+        appendBoundsCheck(sb, entries, relative, offsets, false);
+        appendBoundsCheck(sb, entries, relative, offsets, true);
+        g = 0;
+        for (List<Integer> group : groups.values()) {
+            sb.append("    decode").append(g).append("(b, offset, ").append(relative[group.get(0)] ? "position" : "0")
+                    .append(", values, positions);\n");
+            g++;
+        }
+        sb.append("    return true;\n")
+                .append("  }\n");
+
+        g = 0;
+        for (List<Integer> group : groups.values()) {
+            DataEncoding de = getEncoding(entries[group.get(0)]);
+            int nbits = de.getSizeInBits();
+            sb.append("  private static void decode").append(g)
+                    .append("(byte[] b, int offset, int base, long[] values, int[] positions) {\n")
+                    .append("    long bits;\n")
+                    .append("    for (int j = 0; j < IDX").append(g).append(".length; j++) {\n")
+                    .append("    int i = IDX").append(g).append("[j];\n")
+                    .append("    int pos = base + OFF").append(g).append("[j];\n")
+                    .append("    positions[i] = pos;\n");
+            appendRead(sb, de.getByteOrder(), nbits);
+            sb.append("    values[i] = ");
+            appendValue(sb, de, nbits);
+            sb.append(";\n")
+                    .append("    }\n")
+                    .append("  }\n");
+            g++;
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String getGroupKey(boolean relative, DataEncoding de) {
+        String enc = de instanceof IntegerDataEncoding ? ((IntegerDataEncoding) de).getEncoding().toString()
+                : ((FloatDataEncoding) de).getEncoding().toString();
+        return relative + "/" + enc + "/" + de.getSizeInBits() + "/" + de.getByteOrder();
+    }
+
+    private static void appendArray(StringBuilder sb, String name, List<Integer> group, IntUnaryOperator f) {
+        sb.append("  static final int[] ").append(name).append(" = {");
+        for (int k = 0; k < group.size(); k++) {
+            if (k > 0) {
+                sb.append(k % 16 == 0 ? ",\n    " : ", ");
+            }
+            sb.append(f.applyAsInt(group.get(k)));
+        }
+        sb.append("};\n");
+    }
+
+    // checks once that all the entries (fixed or relative to the container start) fit inside the packet
+    private static void appendBoundsCheck(StringBuilder sb, ParameterEntry[] entries, boolean[] relative,
+            int[] offsets, boolean rel) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < entries.length; i++) {
+            if (relative[i] == rel) {
+                min = Math.min(min, offsets[i]);
+                max = Math.max(max, offsets[i] + getEncoding(entries[i]).getSizeInBits());
+            }
+        }
+        if (min > max) {
+            return;
+        }
+        String base = rel ? "position + " : "";
+        sb.append("    if (").append(base).append(min).append(" < 0 || ").append(base).append(max)
+                .append(" > size) {\n")
+                .append("      return false;\n")
+                .append("    }\n");
+    }
+
+    // reads n bits from position pos into the variable bits
+    private static void appendRead(StringBuilder sb, ByteOrder byteOrder, int n) {
+        boolean le = byteOrder == ByteOrder.LITTLE_ENDIAN;
+        String getBits = le ? "getBitsLE" : "getBitsBE";
+        if ((n & 7) != 0) {
+            sb.append("    bits = ContainerCompiler.").append(getBits).append("(b, offset, pos, ").append(n)
+                    .append(");\n");
+            return;
+        }
+        // byte aligned value -> read the bytes directly
+        int numBytes = n >> 3;
+        sb.append("    if ((pos & 7) == 0) {\n")
+                .append("      int k = offset + (pos >> 3);\n")
+                .append("      bits = ");
+        for (int j = 0; j < numBytes; j++) {
+            int shift = le ? 8 * j : 8 * (numBytes - 1 - j);
+            if (j > 0) {
+                sb.append(" | ");
+            }
+            sb.append("((long) (b[k + ").append(j).append("] & 0xFF) << ").append(shift).append(")");
+        }
+        sb.append(";\n")
+                .append("    } else {\n")
+                .append("      bits = ContainerCompiler.").append(getBits).append("(b, offset, pos, ").append(n)
+                .append(");\n")
+                .append("    }\n");
+    }
+
+    // the bits of the raw value as stored in a ParameterValueBlock
+    private static void appendValue(StringBuilder sb, DataEncoding de, int n) {
+        if (de instanceof FloatDataEncoding) {
+            sb.append("bits");
+            return;
+        }
+        boolean unsigned = ((IntegerDataEncoding) de).getEncoding() == IntegerDataEncoding.Encoding.UNSIGNED;
+        if (!unsigned && n < 64) {
+            // shift left to get the sign and back again
+            sb.append("((bits << " + (64 - n) + ") >> " + (64 - n) + ")");
+        } else {
+            sb.append("bits");
+        }
+    }
+
+    /**
+     * Reads numBits big endian from the bit position (relative to the offset in bytes) - same as
+     * {@link org.yamcs.utils.BitBuffer#getBits(int)}
+     */
+    public static long getBitsBE(byte[] b, int offset, int position, int numBits) {
+        long r = 0;
+        int bytepos = offset + (position >> 3);
+        int n = numBits;
+        int fbb = -position & 0x7; // how many bits are from position until the end of the byte
+        if (fbb > 0) {
+            if (n <= fbb) { // the value fits entirely within the first byte
+                return (b[bytepos] >>> (fbb - n)) & ((1 << n) - 1);
+            } else {
+                r = b[bytepos] & ((1 << fbb) - 1);
+                n -= fbb;
+                bytepos++;
+            }
+        }
+        while (n > 8) {
+            r = (r << 8) | (b[bytepos] & 0xFF);
+            n -= 8;
+            bytepos++;
+        }
+        return (r << n) | ((b[bytepos] & 0xFF) >>> (8 - n));
+    }
+
+    /**
+     * Reads numBits little endian from the bit position (relative to the offset in bytes) - same as
+     * {@link org.yamcs.utils.BitBuffer#getBits(int)}
+     */
+    public static long getBitsLE(byte[] b, int offset, int position, int numBits) {
+        long r = 0;
+        int bytepos = offset + ((position + numBits - 1) >> 3);
+        int n = numBits;
+        int lbb = (position + numBits) & 0x7; // how many bits are to be read from the last byte
+        if (lbb > 0) {
+            if (lbb >= n) { // the value fits entirely within one byte
+                return (b[bytepos] >> (lbb - n)) & ((1 << n) - 1);
+            } else {
+                r = b[bytepos] & ((1 << lbb) - 1);
+                n -= lbb;
+                bytepos--;
+            }
+        }
+        while (n > 8) {
+            r = (r << 8) | (b[bytepos] & 0xFF);
+            n -= 8;
+            bytepos--;
+        }
+        return (r << n) | ((b[bytepos] & 0xFF) >>> (8 - n));
+    }
+
+    /**
+     * The entries of a container (as subscribed) together with the decoder generated for them.
+     */
+    static class CompiledContainer {
+        // null if the entries cannot be compiled
+        final CompiledEntryDecoder decoder;
+        final ParameterEntry[] entries;
+        final int[] sizes;
+        final Type[] rawTypes;
+
+        CompiledContainer(CompiledEntryDecoder decoder, ParameterEntry[] entries, int[] sizes, Type[] rawTypes) {
+            this.decoder = decoder;
+            this.entries = entries;
+            this.sizes = sizes;
+            this.rawTypes = rawTypes;
+        }
+    }
+}
@@ -4,13 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.yamcs.ContainerExtractionResult;
-import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterStatus;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
 import org.yamcs.utils.BitBuffer;
 import org.yamcs.xtce.CriteriaEvaluator;
-import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.ParameterInstanceRef;
 import org.yamcs.xtce.XtceDb;
 
@@ -46,7 +46,7 @@ public class ContainerProcessingContext {
         this.pdata = pdata;
         this.buffer = buffer;
         this.subscription = subscription;
-        this.criteriaEvaluator = new CriteriaEvaluatorImpl(result.params, pdata.getLastValueCache());
+        this.criteriaEvaluator = new CriteriaEvaluatorImpl(result.block, pdata.getLastValueCache());
         this.result = result;
         this.options = options;
 
@@ -57,17 +57,51 @@ public class ContainerProcessingContext {
     }
 
     static class ContainerProcessingResult {
-        ParameterValueList params = new ParameterValueList();
+        // the extracted values; the numeric and boolean values without a specific status are stored as primitives
+        final ParameterValueBlock block;
+        private ParameterValueList params;
         List<ContainerExtractionResult> containers = new ArrayList<>();
         long acquisitionTime;
         long generationTime;
         ProcessingStatistics stats;
         long expireMillis = -1; // -1 means not defined
+        // shared by the nominal parameter values extracted with the current expireMillis
+        private ParameterStatus nominalStatus;
 
         public ContainerProcessingResult(long aquisitionTime, long generationTime, ProcessingStatistics stats) {
+            this(aquisitionTime, generationTime, stats, new ParameterValueBlock());
+        }
+
+        /**
+         * @param block
+         *            - empty block where the values are stored
+         */
+        ContainerProcessingResult(long aquisitionTime, long generationTime, ProcessingStatistics stats,
+                ParameterValueBlock block) {
             this.acquisitionTime = aquisitionTime;
             this.generationTime = generationTime;
             this.stats = stats;
+            this.block = block;
+            block.setTime(aquisitionTime, generationTime);
+        }
+
+        /**
+         * Returns the extracted values as ParameterValue objects, creating them from the block the first time this is
+         * called.
+         */
+        ParameterValueList getParameterValueList() {
+            if (params == null) {
+                params = block.toParameterValueList();
+            }
+            return params;
+        }
+
+        ParameterStatus getNominalStatus() {
+            if (nominalStatus == null || nominalStatus.getExpireMills() != expireMillis) {
+                nominalStatus = new ParameterStatus();
+                nominalStatus.setExpireMillis(expireMillis);
+            }
+            return nominalStatus;
         }
 
     }
@@ -81,16 +115,16 @@ public class ContainerProcessingContext {
      * @return the value found or null if not value has been found
      */
     public Value getValue(ParameterInstanceRef pir) {
-        Parameter p = pir.getParameter();
-        ParameterValue pv = result.params.getLastInserted(p);
-        if (pv == null) {
+        ParameterValueBlock block = result.block;
+        int i = block.lastIndexOf(pir.getParameter());
+        if (i < 0) {
             return null;
         }
-        if (pv.getAcquisitionStatus() != AcquisitionStatus.ACQUIRED) {
+        if (block.getStatus(i).getAcquisitionStatus() != AcquisitionStatus.ACQUIRED) {
             return null;
         }
 
-        return pir.useCalibratedValue() ? pv.getEngValue() : pv.getRawValue();
+        return pir.useCalibratedValue() ? block.getEngValue(i) : block.getRawValue(i);
     }
 
     public XtceDb getXtceDb() {
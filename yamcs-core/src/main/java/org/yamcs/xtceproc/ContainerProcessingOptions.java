@@ -15,7 +15,13 @@ public class ContainerProcessingOptions {
      * e.g. if a container comes each 1000 millisec, the parameters will be marked as expired after 1000*expirationTolerance millisec
      */
     double expirationTolerance = 1.9;
-    
+
+    /**
+     * If set to true, the entries of the containers are extracted by code generated and compiled at runtime (see
+     * {@link ContainerCompiler}) instead of interpreting the XTCE definitions for each packet.
+     */
+    boolean compileContainers = false;
+
     public boolean ignoreOutOfContainerEntries() {
         return ignoreOutOfContainerEntries;
     }
@@ -33,4 +39,11 @@ public class ContainerProcessingOptions {
         this.expirationTolerance = expirationTolerance;
     }
 
+    public boolean compileContainers() {
+        return compileContainers;
+    }
+
+    public void setCompileContainers(boolean compileContainers) {
+        this.compileContainers = compileContainers;
+    }
 }
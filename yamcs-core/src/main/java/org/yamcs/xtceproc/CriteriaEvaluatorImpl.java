@@ -8,8 +8,10 @@ import org.yamcs.parameter.AggregateValue;
 import org.yamcs.parameter.ArrayValue;
 import org.yamcs.parameter.LastValueCache;
 import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.parameter.Value;
+import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.AggregateUtil;
 import org.yamcs.xtce.CriteriaEvaluator;
 import org.yamcs.xtce.OperatorType;
@@ -24,6 +26,7 @@ public class CriteriaEvaluatorImpl implements CriteriaEvaluator {
     private static Logger LOG = LoggerFactory.getLogger(CriteriaEvaluatorImpl.class.getName());
 
     ParameterValueList currentDelivery;
+    ParameterValueBlock currentBlock;
     final LastValueCache lastValueCache;
 
     /**
@@ -40,6 +43,14 @@ public class CriteriaEvaluatorImpl implements CriteriaEvaluator {
         this.lastValueCache = lastValueCache;
     }
 
+    /**
+     * Same as above with the parameters just being extracted stored in a block.
+     */
+    public CriteriaEvaluatorImpl(ParameterValueBlock currentBlock, LastValueCache lastValueCache) {
+        this.currentBlock = currentBlock;
+        this.lastValueCache = lastValueCache;
+    }
+
     @Override
     public boolean evaluate(OperatorType op, Object lValueRef, Object rValueRef) {
         ResolvedValue lValue = resolveValue(lValueRef);
@@ -96,6 +107,16 @@ public class CriteriaEvaluatorImpl implements CriteriaEvaluator {
         Parameter p = paramRef.getParameter();
         if (currentDelivery != null) {
             pv = currentDelivery.getLastInserted(p);
+        } else if (currentBlock != null) {
+            int i = currentBlock.lastIndexOf(p);
+            if (i >= 0) {
+                if (currentBlock.isPrimitive(i)) {
+                    return resolvePrimitive(paramRef.useCalibratedValue() ? currentBlock.getEngType(i)
+                            : currentBlock.getRawType(i),
+                            paramRef.useCalibratedValue() ? currentBlock.getEngBits(i) : currentBlock.getRawBits(i));
+                }
+                pv = currentBlock.getParameterValue(i);
+            }
         }
         if (pv == null) {
             pv = lastValueCache.getValue(p);
@@ -146,6 +167,28 @@ public class CriteriaEvaluatorImpl implements CriteriaEvaluator {
         }
     }
 
+    // same as above for the values stored in a ParameterValueBlock
+    private ResolvedValue resolvePrimitive(Type type, long bits) {
+        switch (type) {
+        case SINT32:
+            return new ResolvedValue((long) (int) bits, false, intEvaluator);
+        case SINT64:
+            return new ResolvedValue(bits, false, intEvaluator);
+        case UINT32:
+            return new ResolvedValue((long) (int) bits, true, intEvaluator);
+        case UINT64:
+            return new ResolvedValue(bits, true, intEvaluator);
+        case FLOAT:
+            return new ResolvedValue((double) Float.intBitsToFloat((int) bits), false, floatEvaluator);
+        case DOUBLE:
+            return new ResolvedValue(Double.longBitsToDouble(bits), false, floatEvaluator);
+        case BOOLEAN:
+            return new ResolvedValue(bits != 0, false, booleanEvaluator);
+        default:
+            return null;
+        }
+    }
+
     static interface Evaluator {
         String getComparedType();
 
@@ -4,6 +4,7 @@ import java.nio.charset.Charset;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.BitBuffer;
@@ -77,7 +78,10 @@ public class DataEncodingDecoder {
         if (ide.getEncoding() == Encoding.STRING) {
             return extractRaw(ide.getStringEncoding());
         }
+        return getRawValue(ide, decodeInteger(ide));
+    }
 
+    private long decodeInteger(IntegerDataEncoding ide) {
         buffer.setByteOrder(ide.getByteOrder());
         int numBits = ide.getSizeInBits();
 
@@ -112,7 +116,57 @@ public class DataEncodingDecoder {
         default: // shouldn't happen
             throw new IllegalStateException();
         }
-        return getRawValue(ide, rv);
+        return rv;
+    }
+
+    /**
+     * Returns the type of the raw value extracted by {@link #extractRawBits(DataEncoding)} or null if the encoding
+     * cannot be extracted as a primitive value (custom algorithm, string, binary).
+     */
+    public static Type getPrimitiveRawType(DataEncoding de) {
+        if (de.getFromBinaryTransformAlgorithm() != null) {
+            return null;
+        }
+        if (de instanceof IntegerDataEncoding) {
+            IntegerDataEncoding ide = (IntegerDataEncoding) de;
+            if (ide.getEncoding() == Encoding.STRING) {
+                return null;
+            }
+            boolean unsigned = ide.getEncoding() == Encoding.UNSIGNED;
+            if (ide.getSizeInBits() <= 32) {
+                return unsigned ? Type.UINT32 : Type.SINT32;
+            } else {
+                return unsigned ? Type.UINT64 : Type.SINT64;
+            }
+        } else if (de instanceof FloatDataEncoding) {
+            FloatDataEncoding fde = (FloatDataEncoding) de;
+            if (fde.getEncoding() == FloatDataEncoding.Encoding.STRING) {
+                return null;
+            }
+            return fde.getSizeInBits() == 32 ? Type.FLOAT : Type.DOUBLE;
+        } else if (de instanceof BooleanDataEncoding) {
+            return Type.BOOLEAN;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Extracts the raw value without creating a Value object; the encoding has to be one for which
+     * {@link #getPrimitiveRawType(DataEncoding)} returns non null.
+     * 
+     * @return the bits of the value as stored in the {@link org.yamcs.parameter.ParameterValueBlock}
+     */
+    public long extractRawBits(DataEncoding de) {
+        if (de instanceof IntegerDataEncoding) {
+            return decodeInteger((IntegerDataEncoding) de);
+        } else if (de instanceof FloatDataEncoding) {
+            return extractFloatBits((FloatDataEncoding) de);
+        } else if (de instanceof BooleanDataEncoding) {
+            return buffer.getBits(1);
+        } else {
+            throw new IllegalArgumentException("DataEncoding " + de + " cannot be extracted as a primitive value");
+        }
     }
 
     private static Value getRawValue(IntegerDataEncoding ide, long longValue) {
@@ -173,35 +227,26 @@ public class DataEncodingDecoder {
     }
 
     private Value extractRawFloat(FloatDataEncoding de) {
-        switch (de.getEncoding()) {
-        case IEEE754_1985:
-            return extractRawIEEE754_1985(de);
-        case MILSTD_1750A:
-            return extractRawMILSTD_1750A(de);
-        case STRING:
+        if (de.getEncoding() == FloatDataEncoding.Encoding.STRING) {
             return extractRaw(de.getStringDataEncoding());
-        default:
-            throw new IllegalArgumentException("Float Encoding " + de.getEncoding() + " not implemented");
         }
+        long bits = extractFloatBits(de);
+        return ParameterValueBlock.toValue(de.getSizeInBits() == 32 ? Type.FLOAT : Type.DOUBLE, bits);
     }
 
-    private Value extractRawIEEE754_1985(FloatDataEncoding de) {
+    private long extractFloatBits(FloatDataEncoding de) {
         buffer.setByteOrder(de.getByteOrder());
-
-        if (de.getSizeInBits() == 32) {
-            return ValueUtility.getFloatValue(Float.intBitsToFloat((int) buffer.getBits(32)));
-        } else {
-            return ValueUtility.getDoubleValue(Double.longBitsToDouble(buffer.getBits(64)));
-        }
-    }
-    
-    private Value extractRawMILSTD_1750A(FloatDataEncoding de) {
-        buffer.setByteOrder(de.getByteOrder());
-
-        if (de.getSizeInBits() == 32) {
-            return ValueUtility.getFloatValue((float)MilStd1750A.decode32((int) buffer.getBits(32)));
-        } else {
-            return ValueUtility.getDoubleValue(MilStd1750A.decode48(buffer.getBits(64)));
+        switch (de.getEncoding()) {
+        case IEEE754_1985:
+            return de.getSizeInBits() == 32 ? buffer.getBits(32) : buffer.getBits(64);
+        case MILSTD_1750A:
+            if (de.getSizeInBits() == 32) {
+                return Float.floatToRawIntBits((float) MilStd1750A.decode32((int) buffer.getBits(32)));
+            } else {
+                return Double.doubleToRawLongBits(MilStd1750A.decode48(buffer.getBits(64)));
+            }
+        default:
+            throw new IllegalArgumentException("Float Encoding " + de.getEncoding() + " not implemented");
         }
     }
 
@@ -0,0 +1,197 @@
+package org.yamcs.xtceproc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamcs.parameter.ParameterValueBlock;
+import org.yamcs.utils.BitBuffer;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ContainerProcessingContext.ContainerProcessingResult;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Extracts packets on a number of worker threads, each of them using its own {@link XtceTmExtractor}.
+ * <p>
+ * The packets are distributed to the workers based on a shard key (CCSDS APID or the link thread which submitted
+ * them), such that all the packets with the same key are extracted by the same worker, in order.
+ * <p>
+ * The results are passed to the consumer on a single delivery thread, in the order in which the packets have been
+ * submitted. This means that the consumers see exactly the same sequence of parameters as with the serial extraction
+ * and the time ordering of each parameter is preserved.
+ * <p>
+ * However the extraction of a packet does not wait for the previous packets to be delivered. The values of the
+ * previous packets are put in the last value cache only when delivered, so the extraction of a packet may see older
+ * values (up to queueSize packets behind) than the serial extraction would, for the parameters of other packets used
+ * in:
+ * <ul>
+ * <li>context calibrators;</li>
+ * <li>the restriction criteria of the containers and the include conditions of the entries.</li>
+ * </ul>
+ * This also applies to the packets with the same shard key: they are extracted in order, but not after the delivery of
+ * the previous packet. The references to parameters of the same packet (including the dynamic sizes, which can only
+ * refer to the current packet) are not affected. The alarms are not affected either, they are checked on the delivery
+ * thread, with the last value cache updated in order.
+ * <p>
+ * The serial extraction (extractionThreads: 0) has to be used for the MDBs relying on such references across packets.
+ * <p>
+ * The submission blocks if more than queueSize packets are waiting to be delivered.
+ */
+class ParallelTmExtractor {
+    static final Logger log = LoggerFactory.getLogger(ParallelTmExtractor.class);
+
+    enum ShardBy {
+        /**
+         * shard by the CCSDS APID read from the first two bytes of the packet
+         */
+        APID,
+        /**
+         * shard by the thread submitting the packet; each link delivers its packets from its own thread
+         */
+        LINK
+    }
+
+    final XtceTmExtractor[] extractors;
+    final ExecutorService[] workers;
+    final ShardBy shardBy;
+    final BlockingQueue<CompletableFuture<ContainerProcessingResult>> deliveryQueue;
+    final Thread deliveryThread;
+    final Consumer<ContainerProcessingResult> consumer;
+    // the blocks of the delivered results, reused by the workers
+    final BlockingQueue<ParameterValueBlock> freeBlocks;
+    volatile boolean quitting = false;
+
+    /**
+     *
+     * @param extractors
+     *            - one extractor for each worker thread; they have to be subscribed to the same parameters and
+     *            containers
+     * @param shardBy
+     * @param queueSize
+     *            - maximum number of packets in the pipeline
+     * @param name
+     *            - used to name the threads
+     * @param consumer
+     *            - receives the extraction results, always from the same thread
+     */
+    ParallelTmExtractor(XtceTmExtractor[] extractors, ShardBy shardBy, int queueSize, String name,
+            Consumer<ContainerProcessingResult> consumer) {
+        this.extractors = extractors;
+        this.shardBy = shardBy;
+        this.consumer = consumer;
+        this.deliveryQueue = new ArrayBlockingQueue<>(queueSize);
+        this.freeBlocks = new ArrayBlockingQueue<>(queueSize + extractors.length + 1);
+
+        workers = new ExecutorService[extractors.length];
+        for (int i = 0; i < extractors.length; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("TmExtractor[" + name + "]-" + i).setDaemon(true).build());
+        }
+        deliveryThread = new Thread(this::deliver, "TmDelivery[" + name + "]");
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+    }
+
+    /**
+     * Submits a packet for extraction. Blocks if the delivery queue is full.
+     */
+    void processPacket(byte[] packet, long generationTime, long acquisitionTime, SequenceContainer startContainer) {
+        int shard = Math.floorMod(getShardKey(packet), extractors.length);
+        XtceTmExtractor extractor = extractors[shard];
+        CompletableFuture<ContainerProcessingResult> cf = CompletableFuture.supplyAsync(() -> {
+            ParameterValueBlock block = freeBlocks.poll();
+            if (block == null) {
+                block = new ParameterValueBlock();
+            }
+            extractor.processPacket(new BitBuffer(packet), generationTime, acquisitionTime, startContainer, block);
+            return extractor.getResult();
+        }, workers[shard]);
+        try {
+            deliveryQueue.put(cf);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while submitting packet for extraction");
+        }
+    }
+
+    private int getShardKey(byte[] packet) {
+        if (shardBy == ShardBy.LINK) {
+            return Long.hashCode(Thread.currentThread().getId());
+        } else {
+            if (packet.length < 2) {
+                return 0;
+            }
+            return ((packet[0] & 0x07) << 8) | (packet[1] & 0xFF);
+        }
+    }
+
+    private void deliver() {
+        while (true) {
+            CompletableFuture<ContainerProcessingResult> cf;
+            try {
+                cf = deliveryQueue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (cf == null) {
+                if (quitting) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                ContainerProcessingResult result = cf.get();
+                consumer.accept(result);
+                result.block.clear();
+                freeBlocks.offer(result.block);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Got exception when extracting packet", e.getCause());
+            } catch (Exception e) {
+                log.error("Got exception when delivering parameters", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for all the submitted packets to be delivered and stops the threads.
+     */
+    void shutdown() {
+        quitting = true;
+        try {
+            deliveryThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ExecutorService w : workers) {
+            w.shutdown();
+        }
+    }
+
+    /**
+     * Creates count extractors sharing the same options and statistics.
+     * <p>
+     * The first one in the returned array is the one passed as argument.
+     */
+    static XtceTmExtractor[] createExtractors(XtceTmExtractor first, XtceDb xtcedb, ProcessorData pdata, int count) {
+        XtceTmExtractor[] extractors = new XtceTmExtractor[count];
+        extractors[0] = first;
+        for (int i = 1; i < count; i++) {
+            extractors[i] = new XtceTmExtractor(xtcedb, pdata, first.getStatistics());
+            extractors[i].setOptions(first.options);
+        }
+        return extractors;
+    }
+}
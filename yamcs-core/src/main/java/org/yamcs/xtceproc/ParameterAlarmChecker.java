@@ -6,6 +6,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.alarms.AlarmReporter;
 import org.yamcs.alarms.AlarmServer;
 import org.yamcs.parameter.LastValueCache;
@@ -76,7 +77,7 @@ public class ParameterAlarmChecker {
      * information.
      */
     public void performAlarmChecking(Collection<ParameterValue> pvals) {
-        CriteriaEvaluator criteriaEvaluator = new CriteriaEvaluatorImpl(null, lastValueCache);
+        CriteriaEvaluator criteriaEvaluator = new CriteriaEvaluatorImpl((ParameterValueList) null, lastValueCache);
         for (ParameterValue pval : pvals) {
             ParameterType ptype = pdata.getParameterType(pval.getParameter());
             if (ptype != null && ptype.hasAlarm()) {
@@ -7,7 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.yamcs.parameter.AggregateValue;
 import org.yamcs.parameter.ArrayValue;
 import org.yamcs.parameter.ParameterValue;
-import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
 import org.yamcs.protobuf.Yamcs.Value.Type;
@@ -56,7 +56,7 @@ public class ParameterTypeProcessor {
      * @param pval
      */
     public void calibrate(ContainerProcessingContext pcontext, ParameterValue pval) {
-        Value engValue = doCalibrate(pcontext.result.params, pcontext.criteriaEvaluator,
+        Value engValue = doCalibrate(pcontext.result.block, pcontext.criteriaEvaluator,
                 pdata.getParameterType(pval.getParameter()), pval.getRawValue());
         if (engValue != null) {
             pval.setEngineeringValue(engValue);
@@ -74,7 +74,127 @@ public class ParameterTypeProcessor {
         }
     }
 
-    private Value doCalibrate(ParameterValueList pvalues, CriteriaEvaluator contextEvaluator, ParameterType ptype,
+    /**
+     * Returns true if the values of the parameter type, extracted with a raw value of the given type, can be calibrated
+     * with {@link #calibrate(ContainerProcessingContext, ParameterType, Type, long)} without creating Value objects.
+     * <p>
+     * The types having alarms are excluded, the alarm checking requires a ParameterValue.
+     */
+    public static boolean isPrimitive(ParameterType ptype, Type rawType) {
+        if (rawType == null || ptype.hasAlarm()) {
+            return false;
+        }
+        if (ptype instanceof IntegerParameterType || ptype instanceof FloatParameterType) {
+            return rawType != Type.BOOLEAN && ParameterValueBlock.isPrimitive(rawType);
+        } else if (ptype instanceof BooleanParameterType) {
+            return ParameterValueBlock.isPrimitive(rawType);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the type of the engineering value computed by
+     * {@link #calibrate(ContainerProcessingContext, ParameterType, Type, long)}
+     */
+    public static Type getEngType(ParameterType ptype, Type rawType) {
+        if (ptype instanceof IntegerParameterType) {
+            return ((IntegerParameterType) ptype).getValueType();
+        } else if (ptype instanceof FloatParameterType) {
+            FloatParameterType fpt = (FloatParameterType) ptype;
+            if (!hasCalibrator(fpt) && fpt.getValueType() == rawType) {
+                return rawType;
+            }
+            return fpt.getSizeInBits() == 32 ? Type.FLOAT : Type.DOUBLE;
+        } else {
+            return Type.BOOLEAN;
+        }
+    }
+
+    /**
+     * Same as {@link #calibrate(ContainerProcessingContext, ParameterValue)} for the primitive values (see
+     * {@link #isPrimitive(ParameterType, Type)}); the values are passed as bits as stored in the
+     * {@link ParameterValueBlock}.
+     * 
+     * @return the bits of the engineering value of type {@link #getEngType(ParameterType, Type)}
+     */
+    public long calibrate(ContainerProcessingContext pcontext, ParameterType ptype, Type rawType, long rawBits) {
+        if (ptype instanceof IntegerParameterType) {
+            IntegerParameterType ipt = (IntegerParameterType) ptype;
+            if (!hasCalibrator(ipt) && ipt.getValueType() == rawType) {
+                return rawBits;
+            }
+            long longValue;
+            switch (rawType) {
+            case FLOAT:
+                longValue = (long) Float.intBitsToFloat((int) rawBits);
+                break;
+            case DOUBLE:
+                longValue = (long) Double.longBitsToDouble(rawBits);
+                break;
+            default:
+                longValue = toLong(rawType, rawBits);
+            }
+            CalibratorProc calibrator = pdata.getCalibrator(pcontext.criteriaEvaluator, ipt.getEncoding());
+            return (calibrator == null) ? longValue : (long) calibrator.calibrate(longValue);
+        } else if (ptype instanceof FloatParameterType) {
+            FloatParameterType fpt = (FloatParameterType) ptype;
+            if (!hasCalibrator(fpt) && fpt.getValueType() == rawType) {
+                return rawBits;
+            }
+            double doubleValue;
+            switch (rawType) {
+            case FLOAT:
+                doubleValue = Float.intBitsToFloat((int) rawBits);
+                break;
+            case DOUBLE:
+                doubleValue = Double.longBitsToDouble(rawBits);
+                break;
+            case UINT64:
+                doubleValue = UnsignedLong.toDouble(rawBits);
+                break;
+            default:
+                doubleValue = toLong(rawType, rawBits);
+            }
+            CalibratorProc calibrator = pdata.getCalibrator(pcontext.criteriaEvaluator, fpt.getEncoding());
+            double doubleCalValue = (calibrator == null) ? doubleValue : calibrator.calibrate(doubleValue);
+            if (fpt.getSizeInBits() == 32) {
+                return Float.floatToRawIntBits((float) doubleCalValue);
+            } else {
+                return Double.doubleToRawLongBits(doubleCalValue);
+            }
+        } else {
+            boolean b;
+            switch (rawType) {
+            case FLOAT:
+                b = Float.intBitsToFloat((int) rawBits) != 0;
+                break;
+            case DOUBLE:
+                b = Double.longBitsToDouble(rawBits) != 0;
+                break;
+            case BOOLEAN:
+                b = rawBits != 0;
+                break;
+            default:
+                b = toLong(rawType, rawBits) != 0;
+            }
+            return b ? 1 : 0;
+        }
+    }
+
+    // the integer raw values as converted by the calibrate functions below
+    private static long toLong(Type rawType, long rawBits) {
+        switch (rawType) {
+        case SINT32:
+            return (int) rawBits;
+        case UINT32:
+            return rawBits & 0xFFFFFFFFL;
+        default:
+            return rawBits;
+        }
+    }
+
+    private Value doCalibrate(ParameterValueBlock pvalues, CriteriaEvaluator contextEvaluator, ParameterType ptype,
             Value rawValue) {
         Value engValue;
 
@@ -223,7 +343,7 @@ public class ParameterTypeProcessor {
         }
     }
 
-    private boolean hasCalibrator(NumericParameterType npt) {
+    private static boolean hasCalibrator(NumericParameterType npt) {
         DataEncoding encoding = npt.getEncoding();
         if (encoding == null) {
             return false;
@@ -305,7 +425,7 @@ public class ParameterTypeProcessor {
         }
     }
 
-    private Value calibrateAbsoluteTime(ParameterValueList context, AbsoluteTimeParameterType ptype, Value rawValue) {
+    private Value calibrateAbsoluteTime(ParameterValueBlock context, AbsoluteTimeParameterType ptype, Value rawValue) {
         ReferenceTime rtime = ptype.getReferenceTime();
         TimeEpoch epoch = rtime.getEpoch();
         long referenceTime = 0;
@@ -360,7 +480,7 @@ public class ParameterTypeProcessor {
         }
     }
 
-    private long getParaReferenceTime(ParameterValueList context, ParameterType ptype, ParameterInstanceRef ref) {
+    private long getParaReferenceTime(ParameterValueBlock context, ParameterType ptype, ParameterInstanceRef ref) {
         if (context == null) {
             log.warn("{}: no parameter processing context avaialble", ptype.getName());
             return TimeEncoding.INVALID_INSTANT;
@@ -402,7 +522,7 @@ public class ParameterTypeProcessor {
         }
     }
 
-    private Value calibrateAggregate(ParameterValueList pvalues, CriteriaEvaluator contextEvaluator,
+    private Value calibrateAggregate(ParameterValueBlock pvalues, CriteriaEvaluator contextEvaluator,
             AggregateParameterType ptype, AggregateValue rawValue) {
         AggregateValue engValue = new AggregateValue(ptype.getMemberNames());
         for (Member m : ptype.getMemberList()) {
@@ -421,7 +541,7 @@ public class ParameterTypeProcessor {
         return engValue;
     }
 
-    private Value calibrateArray(ParameterValueList pvalues, CriteriaEvaluator contextEvaluator,
+    private Value calibrateArray(ParameterValueBlock pvalues, CriteriaEvaluator contextEvaluator,
             ArrayParameterType ptype, ArrayValue rawValue) {
         ParameterType engValueType = (ParameterType) ptype.getElementType();
         boolean hasCalibrator = (engValueType instanceof NumericParameterType)
@@ -2,26 +2,52 @@ package org.yamcs.xtceproc;
 
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.yamcs.xtce.Algorithm;
 import org.yamcs.xtce.SequenceContainer;
 
 public class ProcessingStatistics {
 
     long lastUpdated; // local java time of the last update
     public ConcurrentHashMap<String, TmStats> stats = new ConcurrentHashMap<>();
+    public ConcurrentHashMap<String, AlgorithmStats> algorithmStats = new ConcurrentHashMap<>();
 
     public void newPacket(SequenceContainer seq, int subscribedParameterCount, long acquisitionTime,
             long generationTime) {
         TmStats s = stats.computeIfAbsent(seq.getName(), k -> new TmStats(k));
-        s.qualifiedName = seq.getQualifiedName();
-        s.receivedPackets++;
-        s.subscribedParameterCount = subscribedParameterCount;
-        s.lastReceived = acquisitionTime;
-        s.lastPacketTime = generationTime;
+        synchronized (s) { // the statistics may be shared by extractors running in parallel
+            s.qualifiedName = seq.getQualifiedName();
+            s.receivedPackets++;
+            s.subscribedParameterCount = subscribedParameterCount;
+            s.lastReceived = acquisitionTime;
+            s.lastPacketTime = generationTime;
+        }
+        lastUpdated = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the execution of an algorithm
+     * 
+     * @param duration
+     *            - how long the execution took in nanoseconds
+     * @param acquisitionTime
+     *            - the time when the algorithm has been run
+     */
+    public void newAlgorithmRun(Algorithm algorithm, long duration, long acquisitionTime) {
+        AlgorithmStats s = algorithmStats.computeIfAbsent(algorithm.getQualifiedName(), k -> new AlgorithmStats(k));
+        synchronized (s) {
+            s.runs++;
+            s.totalRunTime += duration;
+            if (duration > s.maxRunTime) {
+                s.maxRunTime = duration;
+            }
+            s.lastRun = acquisitionTime;
+        }
         lastUpdated = System.currentTimeMillis();
     }
 
     public void reset() {
         stats.clear();
+        algorithmStats.clear();
     }
 
     public long getLastUpdated() {
@@ -40,4 +66,17 @@ public class ProcessingStatistics {
             this.packetName = packetName;
         }
     }
+
+    public static class AlgorithmStats {
+        public final String qualifiedName;
+        public long runs;
+        // nanoseconds
+        public long totalRunTime;
+        public long maxRunTime;
+        public long lastRun;
+
+        AlgorithmStats(String qualifiedName) {
+            this.qualifiedName = qualifiedName;
+        }
+    }
 }
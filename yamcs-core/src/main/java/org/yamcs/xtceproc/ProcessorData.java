@@ -3,6 +3,7 @@ package org.yamcs.xtceproc;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,8 +48,8 @@ public class ProcessorData {
      */
     final ParameterTypeProcessor parameterTypeProcessor = new ParameterTypeProcessor(this);
 
-    private Map<Calibrator, CalibratorProc> calibrators = new HashMap<>();
-    private Map<DataEncoding, DataDecoder> decoders = new HashMap<>();
+    private Map<Calibrator, CalibratorProc> calibrators = new ConcurrentHashMap<>();
+    private Map<DataEncoding, DataDecoder> decoders = new ConcurrentHashMap<>();
 
     final XtceDb xtcedb;
     static Logger log = LoggerFactory.getLogger(SequenceEntryProcessor.class.getName());
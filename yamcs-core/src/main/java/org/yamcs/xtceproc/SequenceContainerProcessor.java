@@ -12,6 +12,7 @@ import org.yamcs.utils.BitBuffer;
 import org.yamcs.xtce.RateInStream;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.SequenceEntry;
+import org.yamcs.xtceproc.ContainerCompiler.CompiledContainer;
 import org.yamcs.xtceproc.ContainerProcessingContext.ContainerProcessingResult;
 
 public class SequenceContainerProcessor {
@@ -22,6 +23,33 @@ public class SequenceContainerProcessor {
         this.pcontext = pcontext;
     }
 
+    /**
+     * Extracts the entries using the compiled decoder.
+     * 
+     * @return the maximum position reached in the buffer or -1 if the entries do not fit in the buffer; nothing has
+     *         been extracted in this case.
+     */
+    private int extractCompiled(CompiledContainer compiled) {
+        BitBuffer buf = pcontext.buffer;
+        int n = compiled.entries.length;
+        long[] values = pcontext.subscription.getCompiledValues(n);
+        int[] positions = pcontext.subscription.getCompiledPositions(n);
+        if (!compiled.decoder.decode(buf.array(), buf.offset(), buf.getPosition(), values, positions)) {
+            return -1;
+        }
+        int maxposition = buf.getPosition();
+        for (int i = 0; i < n; i++) {
+            int size = compiled.sizes[i];
+            pcontext.sequenceEntryProcessor.addParameterEntry(compiled.entries[i], compiled.rawTypes[i], values[i],
+                    positions[i], size);
+            maxposition = Math.max(maxposition, positions[i] + size);
+        }
+        if (n > 0) {
+            buf.setPosition(positions[n - 1] + compiled.sizes[n - 1]);
+        }
+        return maxposition;
+    }
+
     public void extract(SequenceContainer seq) {
         ContainerProcessingResult result = pcontext.result;
         BitBuffer buf = pcontext.buffer;
@@ -37,7 +65,13 @@ public class SequenceContainerProcessor {
 
         // then extract the entries
         SortedSet<SequenceEntry> entries = pcontext.subscription.getEntries(seq);
-        if (entries != null) {
+        CompiledContainer compiled = pcontext.options.compileContainers()
+                ? pcontext.subscription.getCompiledContainer(seq)
+                : null;
+        int cmaxposition = (compiled != null && compiled.decoder != null) ? extractCompiled(compiled) : -1;
+        if (cmaxposition >= 0) {
+            maxposition = cmaxposition;
+        } else if (entries != null) {
             for (SequenceEntry se : entries) {
                 try {
 
@@ -7,8 +7,11 @@ import org.slf4j.LoggerFactory;
 import org.yamcs.parameter.AggregateValue;
 import org.yamcs.parameter.ArrayValue;
 import org.yamcs.parameter.ContainerParameterValue;
+import org.yamcs.parameter.ParameterStatus;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.BitBuffer;
 import org.yamcs.xtce.AggregateDataType;
 import org.yamcs.xtce.ArrayDataType;
@@ -26,6 +29,7 @@ import org.yamcs.xtce.ParameterInstanceRef;
 import org.yamcs.xtce.ParameterType;
 import org.yamcs.xtce.SequenceEntry;
 import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ContainerProcessingContext.ContainerProcessingResult;
 
 public class SequenceEntryProcessor {
     static Logger log = LoggerFactory.getLogger(SequenceEntryProcessor.class.getName());
@@ -91,17 +95,87 @@ public class SequenceEntryProcessor {
         pv.setBitSize(pcontext.buffer.getPosition() - offset);
 
         pcontext.pdata.parameterTypeProcessor.calibrate(pcontext, pv);
-
-        pv.setAcquisitionTime(pcontext.result.acquisitionTime);
-        pv.setGenerationTime(pcontext.result.generationTime);
-        pv.setExpireMillis(pcontext.result.expireMillis);
+        setTimeAndStatus(pv);
         return pv;
     }
 
+    /**
+     * Sets the acquisition/generation time and the expiration of a value extracted from the current packet.
+     * <p>
+     * The values without a specific status (most of them) share the status object of the packet instead of having
+     * their own.
+     */
+    private void setTimeAndStatus(ContainerParameterValue pv) {
+        ContainerProcessingResult result = pcontext.result;
+        pv.setAcquisitionTime(result.acquisitionTime);
+        pv.setGenerationTime(result.generationTime);
+        if (result.expireMillis >= 0) {
+            if (pv.getStatus() == ParameterStatus.NOMINAL) {
+                pv.setStatus(result.getNominalStatus());
+            } else {
+                pv.setExpireMillis(result.expireMillis);
+            }
+        }
+    }
+
+    /**
+     * Adds to the result the value of a parameter entry whose raw value has been extracted by the compiled decoder.
+     * 
+     * @param rawType
+     *            - the type of the raw value
+     * @param rawBits
+     *            - the bits of the raw value as stored in a {@link ParameterValueBlock}
+     * @param offset
+     *            - the bit position in the buffer where the value has been extracted from
+     */
+    void addParameterEntry(ParameterEntry pe, Type rawType, long rawBits, int offset, int bitSize) {
+        Parameter param = pe.getParameter();
+        ParameterType ptype = pcontext.pdata.getParameterType(param);
+        if (ParameterTypeProcessor.isPrimitive(ptype, rawType)) {
+            addPrimitive(pe, ptype, rawType, rawBits, offset, bitSize);
+            return;
+        }
+        ContainerParameterValue pv = new ContainerParameterValue(param);
+        pv.setAbsoluteBitOffset(pcontext.containerAbsoluteByteOffset + offset);
+        pv.setRawValue(ParameterValueBlock.toValue(rawType, rawBits));
+        pv.setBitSize(bitSize);
+
+        pcontext.pdata.parameterTypeProcessor.calibrate(pcontext, pv);
+        setTimeAndStatus(pv);
+        pv.setSequenceEntry(pe);
+        pcontext.result.block.add(pv);
+    }
+
     private void extractParameterEntry(ParameterEntry pe) {
-        ContainerParameterValue pv = extractParameter(pe.getParameter());
+        Parameter param = pe.getParameter();
+        ParameterType ptype = param.getParameterType();
+        if (ptype instanceof BaseDataType && ((BaseDataType) ptype).getEncoding() != null) {
+            DataEncoding encoding = ((BaseDataType) ptype).getEncoding();
+            Type rawType = DataEncodingDecoder.getPrimitiveRawType(encoding);
+            ParameterType calibType = pcontext.pdata.getParameterType(param);
+            if (ParameterTypeProcessor.isPrimitive(calibType, rawType)) {
+                int offset = pcontext.buffer.getPosition();
+                long rawBits = pcontext.dataEncodingProcessor.extractRawBits(encoding);
+                addPrimitive(pe, calibType, rawType, rawBits, offset, pcontext.buffer.getPosition() - offset);
+                return;
+            }
+        }
+        ContainerParameterValue pv = extractParameter(param);
         pv.setSequenceEntry(pe);
-        pcontext.result.params.add(pv);
+        pcontext.result.block.add(pv);
+    }
+
+    /**
+     * Calibrates the raw value and adds it as a primitive entry to the result, without creating any object.
+     */
+    private void addPrimitive(ParameterEntry pe, ParameterType ptype, Type rawType, long rawBits, int offset,
+            int bitSize) {
+        long engBits = pcontext.pdata.parameterTypeProcessor.calibrate(pcontext, ptype, rawType, rawBits);
+        ContainerProcessingResult result = pcontext.result;
+        ParameterStatus status = result.expireMillis >= 0 ? result.getNominalStatus() : ParameterStatus.NOMINAL;
+        int i = result.block.addPrimitive(pe.getParameter(), status, rawType, rawBits,
+                ParameterTypeProcessor.getEngType(ptype, rawType), engBits);
+        result.block.setLocation(i, pe, pcontext.containerAbsoluteByteOffset + offset, bitSize);
     }
 
     private void extractArrayParameterEntry(ArrayParameterEntry pe) {
@@ -144,13 +218,10 @@ public class SequenceEntryProcessor {
         pv.setBitSize(pcontext.buffer.getPosition() - offset);
 
         pcontext.pdata.parameterTypeProcessor.calibrate(pcontext, pv);
-
-        pv.setAcquisitionTime(pcontext.result.acquisitionTime);
-        pv.setGenerationTime(pcontext.result.generationTime);
-        pv.setExpireMillis(pcontext.result.expireMillis);
+        setTimeAndStatus(pv);
         pv.setSequenceEntry(pe);
 
-        pcontext.result.params.add(pv);
+        pcontext.result.block.add(pv);
     }
 
     private void extractIndirectParameterRefEntry(IndirectParameterRefEntry se) {
@@ -176,7 +247,7 @@ public class SequenceEntryProcessor {
         }
         ContainerParameterValue pv = extractParameter(p);
         pv.setSequenceEntry(se);
-        pcontext.result.params.add(pv);
+        pcontext.result.block.add(pv);
     }
 
     private Value extract(ParameterType ptype) {
@@ -19,6 +19,7 @@ import org.yamcs.xtce.ParameterEntry;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.SequenceEntry;
 import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ContainerCompiler.CompiledContainer;
 
 /**
  * keeps track of the parameters and containers subscribed (because we only want to extract those)
@@ -33,6 +34,12 @@ public class Subscription {
 
     // For each container list the derived containers which have to be processed also
     private final Map<SequenceContainer, HashSet<SequenceContainer>> container2InheritingContainerMap = new HashMap<>();
+
+    // the compiled decoders for the entries of the containers, discarded when the entries change
+    private final Map<SequenceContainer, CompiledContainer> compiledContainers = new HashMap<>();
+    // work buffers for the compiled decoders, used by the extractor while holding the lock on the subscription
+    private long[] compiledValues = new long[0];
+    private int[] compiledPositions = new int[0];
     Logger log = LoggerFactory.getLogger(Subscription.class);
 
     XtceDb xtcedb;
@@ -141,7 +148,9 @@ public class Subscription {
 
     private void addContainer2Entry(SequenceContainer sc, SequenceEntry se) {
         TreeSet<SequenceEntry> ts = container2EntryMap.computeIfAbsent(sc, k-> new TreeSet<SequenceEntry>());
-        ts.add(se);
+        if (ts.add(se)) {
+            compiledContainers.remove(sc);
+        }
     }
 
     private void addContainer2InheritingContainer(SequenceContainer container, SequenceContainer inheritedContainer) {
@@ -153,6 +162,40 @@ public class Subscription {
         return container2EntryMap.get(container);
     }
 
+    /**
+     * Returns the compiled decoder for the entries of the container, compiling them if not already done.
+     * 
+     * @return the compiled container or null if the container has no entry subscribed
+     */
+    CompiledContainer getCompiledContainer(SequenceContainer container) {
+        TreeSet<SequenceEntry> entries = container2EntryMap.get(container);
+        if (entries == null) {
+            return null;
+        }
+        return compiledContainers.computeIfAbsent(container, sc -> ContainerCompiler.getCompiledContainer(xtcedb, sc, entries));
+    }
+
+    /**
+     * Returns the buffer where the compiled decoders store the raw values; it is reused for each packet.
+     */
+    long[] getCompiledValues(int n) {
+        if (compiledValues.length < n) {
+            compiledValues = new long[n];
+        }
+        return compiledValues;
+    }
+
+    /**
+     * Returns the buffer where the compiled decoders store the bit positions of the values; it is reused for each
+     * packet.
+     */
+    int[] getCompiledPositions(int n) {
+        if (compiledPositions.length < n) {
+            compiledPositions = new int[n];
+        }
+        return compiledPositions;
+    }
+
     public Set<SequenceContainer> getInheritingContainers(SequenceContainer container) {
         return container2InheritingContainerMap.get(container);
     }
@@ -2,7 +2,7 @@ package org.yamcs.xtceproc;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.xtce.DynamicIntegerValue;
 import org.yamcs.xtce.FixedIntegerValue;
 import org.yamcs.xtce.IntegerValue;
@@ -34,10 +34,10 @@ public class ValueProcessor {
 
     private Long getDynamicIntegerValue(DynamicIntegerValue div) {
         Parameter pref = div.getParameterInstnaceRef().getParameter();
-        for (ParameterValue pv : pcontext.result.params) {
-            if (pv.getParameter() == pref) {
-                return (long)pv.getEngValue().getUint32Value();
-            }
+        ParameterValueBlock block = pcontext.result.block;
+        int i = block.indexOf(pref);
+        if (i >= 0) {
+            return (long) block.getEngValue(i).getUint32Value();
         }
         log.warn("Could not find the parameter in the list of extracted parameters, parameter: {}", pref);
         return null;
@@ -6,6 +6,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.ContainerExtractionResult;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.utils.BitBuffer;
 import org.yamcs.xtce.IndirectParameterRefEntry;
@@ -24,9 +25,11 @@ import org.yamcs.xtceproc.ContainerProcessingContext.ContainerProcessingResult;
 public class XtceTmExtractor {
     private static final Logger log = LoggerFactory.getLogger(XtceTmExtractor.class);
     protected final Subscription subscription;
-    private ProcessingStatistics stats = new ProcessingStatistics();
+    private final ProcessingStatistics stats;
 
     private ContainerProcessingResult result;
+    // the block where the values are extracted, reused by each thread for the next packet
+    private final ThreadLocal<ParameterValueBlock> blocks = ThreadLocal.withInitial(ParameterValueBlock::new);
 
     public final XtceDb xtcedb;
     final SequenceContainer rootContainer;
@@ -49,10 +52,18 @@ public class XtceTmExtractor {
      * @param pdata
      */
     public XtceTmExtractor(XtceDb xtcedb, ProcessorData pdata) {
+        this(xtcedb, pdata, new ProcessingStatistics());
+    }
+
+    /**
+     * Create a new TM extractor updating the given statistics (which can be shared between extractors)
+     */
+    XtceTmExtractor(XtceDb xtcedb, ProcessorData pdata, ProcessingStatistics stats) {
         this.xtcedb = xtcedb;
         this.subscription = new Subscription(xtcedb);
         rootContainer = xtcedb.getRootSequenceContainer();
         this.pdata = pdata;
+        this.stats = stats;
     }
 
     /**
@@ -118,7 +129,17 @@ public class XtceTmExtractor {
      */
     public void processPacket(BitBuffer buf, long generationTime, long acquisitionTime,
             SequenceContainer startContainer) {
-        result = new ContainerProcessingResult(acquisitionTime, generationTime, stats);
+        ParameterValueBlock block = blocks.get();
+        block.clear();
+        processPacket(buf, generationTime, acquisitionTime, startContainer, block);
+    }
+
+    /**
+     * Extract one packet, starting at the specified container, storing the values in the given (empty) block.
+     */
+    void processPacket(BitBuffer buf, long generationTime, long acquisitionTime, SequenceContainer startContainer,
+            ParameterValueBlock block) {
+        result = new ContainerProcessingResult(acquisitionTime, generationTime, stats, block);
         try {
             synchronized (subscription) {
                 ContainerProcessingContext cpc = new ContainerProcessingContext(pdata, buf, result, subscription,
@@ -149,14 +170,33 @@ public class XtceTmExtractor {
     public void stopProviding(SequenceContainer sequenceContainer) {
     }
 
+    /**
+     * Returns the values extracted from the last packet as ParameterValue objects.
+     * <p>
+     * The objects are created when this method is called; {@link #getParameterBlock()} gives access to the values
+     * without creating them.
+     */
     public ParameterValueList getParameterResult() {
-        return result.params;
+        return result.getParameterValueList();
+    }
+
+    /**
+     * Returns the values extracted from the last packet.
+     * <p>
+     * The block is reused when the next packet is extracted by the same thread.
+     */
+    public ParameterValueBlock getParameterBlock() {
+        return result.block;
     }
 
     public List<ContainerExtractionResult> getContainerResult() {
         return result.containers;
     }
 
+    ContainerProcessingResult getResult() {
+        return result;
+    }
+
     public Subscription getSubscription() {
         return subscription;
     }
@@ -13,7 +13,7 @@ import org.yamcs.container.ContainerProvider;
 import org.yamcs.logging.Log;
 import org.yamcs.parameter.ParameterListener;
 import org.yamcs.parameter.ParameterProvider;
-import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.xtce.Container;
@@ -45,6 +45,18 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
     final XtceTmExtractor tmExtractor;
     final String CONFIG_KEY_ignoreOutOfContainerEntries = "ignoreOutOfContainerEntries";
     final String CONFIG_KEY_expirationTolerance = "expirationTolerance";
+    final String CONFIG_KEY_compileContainers = "compileContainers";
+    final String CONFIG_KEY_extractionThreads = "extractionThreads";
+    final String CONFIG_KEY_extractionShardBy = "extractionShardBy";
+    final String CONFIG_KEY_extractionQueueSize = "extractionQueueSize";
+
+    /**
+     * used when the extraction is done in parallel (extractionThreads &gt; 0), otherwise null
+     * <p>
+     * The parallel extraction may use older values than the serial one for the context calibrators, restriction
+     * criteria and include conditions referring to parameters of other packets, see {@link ParallelTmExtractor}.
+     */
+    ParallelTmExtractor parallelExtractor;
 
     public XtceTmProcessor(Processor processor, YConfiguration tmProcessorConfig) {
         this.processor = processor;
@@ -61,7 +73,25 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
                     tmProcessorConfig.getBoolean(CONFIG_KEY_ignoreOutOfContainerEntries, false));
             opts.setExpirationTolerance(
                     tmProcessorConfig.getDouble(CONFIG_KEY_expirationTolerance, opts.expirationTolerance));
+            opts.setCompileContainers(tmProcessorConfig.getBoolean(CONFIG_KEY_compileContainers, false));
             tmExtractor.setOptions(opts);
+
+            int numThreads = tmProcessorConfig.getInt(CONFIG_KEY_extractionThreads, 0);
+            if (numThreads > 0) {
+                String s = tmProcessorConfig.getString(CONFIG_KEY_extractionShardBy, "apid");
+                ParallelTmExtractor.ShardBy shardBy;
+                try {
+                    shardBy = ParallelTmExtractor.ShardBy.valueOf(s.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new ConfigurationException("Invalid value '" + s + "' for " + CONFIG_KEY_extractionShardBy
+                            + "; supported values: apid, link");
+                }
+                int queueSize = tmProcessorConfig.getInt(CONFIG_KEY_extractionQueueSize, 1024);
+                XtceTmExtractor[] extractors = ParallelTmExtractor.createExtractors(tmExtractor, xtcedb,
+                        processor.getProcessorData(), numThreads);
+                parallelExtractor = new ParallelTmExtractor(extractors, shardBy, queueSize, processor.getName(),
+                        r -> deliver(r.block, r.containers));
+            }
         }
     }
 
@@ -108,7 +138,9 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
      */
     @Override
     public void startProviding(Parameter param) {
-        tmExtractor.startProviding(param);
+        for (XtceTmExtractor x : getExtractors()) {
+            x.startProviding(param);
+        }
     }
 
     /**
@@ -116,12 +148,16 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
      */
     @Override
     public void startProvidingAll() {
-        tmExtractor.provideAll();
+        for (XtceTmExtractor x : getExtractors()) {
+            x.provideAll();
+        }
     }
 
     @Override
     public void stopProviding(Parameter param) {
-        tmExtractor.stopProviding(param);
+        for (XtceTmExtractor x : getExtractors()) {
+            x.stopProviding(param);
+        }
     }
 
     @Override
@@ -167,18 +203,13 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
             if (rectime == TimeEncoding.INVALID_INSTANT) {
                 rectime = getCurrentTime();
             }
-            tmExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), rectime);
-
-            ParameterValueList paramResult = tmExtractor.getParameterResult();
-            List<ContainerExtractionResult> containerResult = tmExtractor.getContainerResult();
-
-            if ((parameterRequestManager != null) && (paramResult.size() > 0)) {
-                parameterRequestManager.update(paramResult);
-            }
-
-            if ((containerRequestManager != null) && (containerResult.size() > 0)) {
-                containerRequestManager.update(containerResult);
+            if (parallelExtractor != null) {
+                parallelExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), rectime,
+                        xtcedb.getRootSequenceContainer());
+                return;
             }
+            tmExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), rectime);
+            deliver(tmExtractor.getParameterBlock(), tmExtractor.getContainerResult());
 
         } catch (Exception e) {
             log.error("got exception in tmprocessor ", e);
@@ -192,24 +223,31 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
             if (rectime == TimeEncoding.INVALID_INSTANT) {
                 rectime = TimeEncoding.getWallclockTime();
             }
-            tmExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), rectime, sc);
-
-            ParameterValueList paramResult = tmExtractor.getParameterResult();
-            List<ContainerExtractionResult> containerResult = tmExtractor.getContainerResult();
-
-            if ((parameterRequestManager != null) && (paramResult.size() > 0)) {
-                parameterRequestManager.update(paramResult);
-            }
-
-            if ((containerRequestManager != null) && (containerResult.size() > 0)) {
-                containerRequestManager.update(containerResult);
+            if (parallelExtractor != null) {
+                parallelExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), rectime, sc);
+                return;
             }
-
+            tmExtractor.processPacket(pwrt.getPacket(), pwrt.getGenerationTime(), rectime, sc);
+            deliver(tmExtractor.getParameterBlock(), tmExtractor.getContainerResult());
         } catch (Exception e) {
             log.error("got exception in tmprocessor ", e);
         }
     }
 
+    private void deliver(ParameterValueBlock paramResult, List<ContainerExtractionResult> containerResult) {
+        if ((parameterRequestManager != null) && (paramResult.size() > 0)) {
+            parameterRequestManager.update(paramResult);
+        }
+
+        if ((containerRequestManager != null) && (containerResult.size() > 0)) {
+            containerRequestManager.update(containerResult);
+        }
+    }
+
+    private XtceTmExtractor[] getExtractors() {
+        return parallelExtractor == null ? new XtceTmExtractor[] { tmExtractor } : parallelExtractor.extractors;
+    }
+
     @Override
     public void finished() {
         stopAsync();
@@ -230,17 +268,23 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
 
     @Override
     public void startProviding(SequenceContainer container) {
-        tmExtractor.startProviding(container);
+        for (XtceTmExtractor x : getExtractors()) {
+            x.startProviding(container);
+        }
     }
 
     @Override
     public void stopProviding(SequenceContainer container) {
-        tmExtractor.stopProviding(container);
+        for (XtceTmExtractor x : getExtractors()) {
+            x.stopProviding(container);
+        }
     }
 
     @Override
     public void startProvidingAllContainers() {
-        tmExtractor.provideAll();
+        for (XtceTmExtractor x : getExtractors()) {
+            x.provideAll();
+        }
     }
 
     @Override
@@ -263,6 +307,9 @@ public class XtceTmProcessor extends AbstractService implements TmProcessor, Par
 
     @Override
     protected void doStop() {
+        if (parallelExtractor != null) {
+            parallelExtractor.shutdown();
+        }
         notifyStopped();
     }
 
@@ -1,12 +1,22 @@
 package org.yamcs.yarch;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.yamcs.yarch.streamsql.ColumnExpression;
 import org.yamcs.yarch.streamsql.RelOp;
@@ -36,12 +46,31 @@ public abstract class AbstractTableReaderStream extends Stream implements Runnab
     static AtomicInteger count = new AtomicInteger(0);
     volatile protected boolean quit = false;
     Comparator<byte[]> bytesComparator = UnsignedBytes.lexicographicalComparator();
-    private Tuple lastEmitted;
 
     final protected PartitionManager partitionManager;
     final protected boolean ascending;
     final protected boolean follow;
 
+    // if greater than 1, the tuples are accumulated and emitted in batches
+    private int batchSize;
+    // if greater than 1, the partitions are read concurrently and the tuples are emitted in no particular order
+    private int parallelism = 1;
+    // used to serialize the emission of tuples from the parallel partition readers
+    private final Object emitLock = new Object();
+
+    // non key conditions pushed down from the select; the rows not matching are not emitted
+    private CompiledExpression rowFilter;
+    private CompiledBatchPredicate batchRowFilter;
+    // columns used by the row filter
+    private Set<String> filterColumns;
+    // if not null, only these value columns are deserialized for the emitted tuples
+    private Set<String> outputColumns;
+
+    private final AtomicLong numRowsScanned = new AtomicLong();
+    private final AtomicLong numRowsReturned = new AtomicLong();
+    // the row processors add their counts to the stream statistics after this number of rows
+    static final int STATS_UPDATE_INTERVAL = 1000;
+
     protected AbstractTableReaderStream(YarchDatabaseInstance ydb, TableDefinition tblDef,
             PartitionManager partitionManager, boolean ascending, boolean follow) {
         super(ydb, tblDef.getName() + "_" + count.getAndIncrement(), tblDef.getTupleDefinition());
@@ -82,62 +111,350 @@ public abstract class AbstractTableReaderStream extends Stream implements Runnab
                 }
             }
 
-            while ((!quit) && partitionIterator.hasNext()) {
-                List<Partition> partitions = partitionIterator.next();
-                boolean endReached = runPartitions(partitions, rangeIndexFilter);
-                if (endReached) {
-                    break;
+            if (parallelism > 1) {
+                runParallel(partitionIterator);
+            } else {
+                RowProcessor processor = new RowProcessor(false);
+                try {
+                    while ((!quit) && partitionIterator.hasNext()) {
+                        List<Partition> partitions = partitionIterator.next();
+                        boolean endReached = runPartitions(partitions, rangeIndexFilter, processor);
+                        if (endReached) {
+                            break;
+                        }
+                    }
+                    if (!quit) {
+                        processor.flush();
+                    }
+                } finally {
+                    processor.updateStatistics();
                 }
             }
         } catch (Exception e) {
             log.error("got exception ", e);
         } finally {
+            log.debug("Table stream from table {} finished; rows scanned: {}, rows returned: {}",
+                    tableDefinition.getName(), numRowsScanned, numRowsReturned);
             close();
         }
     }
 
+    /**
+     * Each partition (one value partition in one time interval) is read separately, the partitions are distributed
+     * to parallelism tasks running in the {@link YarchDatabase#getTableScanPool()}.
+     */
+    private void runParallel(Iterator<List<Partition>> partitionIterator) {
+        Queue<List<Partition>> queue = new ConcurrentLinkedQueue<>();
+        while (partitionIterator.hasNext()) {
+            for (Partition p : partitionIterator.next()) {
+                queue.add(Collections.singletonList(p));
+            }
+        }
+        int n = Math.min(parallelism, queue.size());
+        log.debug("Reading {} partitions with {} parallel tasks", queue.size(), n);
+
+        ForkJoinPool pool = YarchDatabase.getTableScanPool();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            tasks.add(pool.submit(() -> runPartitionQueue(queue)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private void runPartitionQueue(Queue<List<Partition>> queue) {
+        RowProcessor processor = new RowProcessor(true);
+        try {
+            List<Partition> partitions;
+            while (!quit && (partitions = queue.poll()) != null) {
+                runPartitions(partitions, rangeIndexFilter, processor);
+            }
+            if (!quit) {
+                processor.flush();
+            }
+        } catch (IOException e) {
+            quit = true;
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            quit = true;
+            throw e;
+        } finally {
+            processor.updateStatistics();
+        }
+    }
+
+    /**
+     * Makes the stream emit the tuples in batches of the given size (using {@link #emitTupleBatch(TupleBatch)})
+     * instead of one by one. Has to be called before the stream is started.
+     *
+     * <p>
+     * The batch mode is not used for the streams following the table, the tuples are emitted as soon as they are read.
+     *
+     * @param batchSize
+     *            - if smaller than 2, the batch mode is disabled
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = follow ? 0 : batchSize;
+    }
+
+    /**
+     * Makes the stream read the partitions concurrently, using up to parallelism tasks. Has to be called before the
+     * stream is started.
+     * <p>
+     * The tuples are emitted (from one thread at a time) in no particular order; this is meant for the bulk exports
+     * where the order does not matter. The parallel mode is not used for the streams following the table.
+     *
+     * @param parallelism
+     *            - if smaller than 2, the partitions are read sequentially and the tuples are emitted in the order of
+     *            the key
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = follow ? 1 : parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Pushes a condition into the table reader; only the rows for which the condition is true are emitted.
+     * <p>
+     * To evaluate the condition, only the filterColumns (and the key columns) are deserialized. The other columns are
+     * deserialized only for the rows that pass the filter.
+     * 
+     * @param filter
+     *            - the row by row condition
+     * @param batchFilter
+     *            - if not null, it is used to evaluate the condition on batches of rows when the batch mode is enabled
+     * @param filterColumns
+     *            - the columns used in the condition
+     */
+    public void setRowFilter(CompiledExpression filter, CompiledBatchPredicate batchFilter,
+            Set<String> filterColumns) {
+        this.rowFilter = filter;
+        this.batchRowFilter = batchFilter;
+        this.filterColumns = filterColumns;
+    }
+
+    /**
+     * Restricts the value columns deserialized for the emitted tuples. The key columns are always included.
+     * 
+     * @param columns
+     *            - the value columns to be included in the emitted tuples; if null, all the columns are included
+     */
+    public void setProjection(Set<String> columns) {
+        this.outputColumns = columns;
+    }
+
+    /**
+     * 
+     * @return the number of rows read from the table in the requested range
+     */
+    public long getNumRowsScanned() {
+        return numRowsScanned.get();
+    }
+
+    /**
+     * 
+     * @return the number of rows emitted after applying the row filter
+     */
+    public long getNumRowsReturned() {
+        return numRowsReturned.get();
+    }
+
+    /**
+     * 
+     * @return the table reader providing the data of the stream: the stream itself or the input of a select from a
+     *         table; null if the stream does not read from a table
+     */
+    public static AbstractTableReaderStream getTableReader(Stream stream) {
+        if (stream instanceof SelectStream) {
+            stream = ((SelectStream) stream).getInput();
+        }
+        return stream instanceof AbstractTableReaderStream ? (AbstractTableReaderStream) stream : null;
+    }
+
     /**
      * Runs the partitions sending data only that conform with the start and end filters. returns true if the stop
      * condition is met
      * 
      * All the partitions are from the same time interval
+     * 
+     * @param processor
+     *            - receives the rows read; in parallel mode, this method is called concurrently with different
+     *            processors
+     */
+    protected abstract boolean runPartitions(List<Partition> partitions, IndexFilter range, RowProcessor processor)
+            throws IOException;
+
+    /**
+     * Filters the rows read from the table, converts them to tuples and emits them.
+     * <p>
+     * It keeps the state of one reading thread; in parallel mode each task has its own processor and the tuples are
+     * accumulated in batches emitted under a lock.
      */
-    protected abstract boolean runPartitions(List<Partition> partitions, IndexFilter range) throws IOException;
-
-    protected boolean emitIfNotPastStop(byte[] key, byte[] value, byte[] rangeEnd, boolean strictEnd) {
-        boolean emit = true;
-        if (rangeEnd != null) { // check if we have reached the end
-            int c = compare(key, rangeEnd);
-            if (c < 0 || (c == 0 && !strictEnd)) {
-                emit = true;
+    protected class RowProcessor {
+        // if not null, the tuples are accumulated and emitted in batches
+        private final TupleBatch batch;
+        private final boolean concurrent;
+
+        // when filtering in batch mode, the rows are kept until the batch is evaluated
+        private final TupleBatch filterBatch;
+        private final byte[][] pendingKeys;
+        private final byte[][] pendingValues;
+
+        private long scanned;
+        private long returned;
+
+        RowProcessor(boolean concurrent) {
+            this.concurrent = concurrent;
+            int n = batchSize;
+            if (concurrent && n < 2) {
+                n = SelectStream.DEFAULT_BATCH_SIZE;
+            }
+            batch = n > 1 ? new TupleBatch(n) : null;
+            if (batch != null && batchRowFilter != null) {
+                filterBatch = new TupleBatch(n);
+                pendingKeys = new byte[n][];
+                pendingValues = new byte[n][];
             } else {
-                emit = false;
+                filterBatch = null;
+                pendingKeys = null;
+                pendingValues = null;
             }
         }
-        lastEmitted = dataToTuple(key, value);
-        if (emit) {
-            emitTuple(lastEmitted);
+
+        public boolean emitIfNotPastStop(byte[] key, byte[] value, byte[] rangeEnd, boolean strictEnd) {
+            boolean emit = true;
+            if (rangeEnd != null) { // check if we have reached the end
+                int c = compare(key, rangeEnd);
+                if (c < 0 || (c == 0 && !strictEnd)) {
+                    emit = true;
+                } else {
+                    emit = false;
+                }
+            }
+            if (emit) {
+                processRow(key, value);
+            }
+            return emit;
         }
-        return emit;
-    }
 
-    protected boolean emitIfNotPastStart(byte[] key, byte[] value, byte[] rangeStart, boolean strictStart) {
-        boolean emit = true;
-        if (rangeStart != null) { // check if we have reached the start
-            int c = compare(key, rangeStart);
-            if (c > 0) {
-                emit = true;
-            } else if ((c == 0) && (!strictStart)) {
-                emit = true;
+        public boolean emitIfNotPastStart(byte[] key, byte[] value, byte[] rangeStart, boolean strictStart) {
+            boolean emit = true;
+            if (rangeStart != null) { // check if we have reached the start
+                int c = compare(key, rangeStart);
+                if (c > 0) {
+                    emit = true;
+                } else if ((c == 0) && (!strictStart)) {
+                    emit = true;
+                } else {
+                    emit = false;
+                }
+            }
+            if (emit) {
+                processRow(key, value);
+            }
+            return emit;
+        }
+
+        private void processRow(byte[] key, byte[] value) {
+            if (++scanned >= STATS_UPDATE_INTERVAL) {
+                updateStatistics();
+            }
+            if (filterBatch != null) {
+                int idx = filterBatch.size();
+                pendingKeys[idx] = key;
+                pendingValues[idx] = value;
+                filterBatch.add(tableDefinition.deserialize(key, value, filterColumns));
+                if (filterBatch.size() >= filterBatch.capacity()) {
+                    flushFilterBatch();
+                }
+                return;
+            }
+            if (rowFilter != null) {
+                Tuple t = tableDefinition.deserialize(key, value, filterColumns);
+                if (!(Boolean) rowFilter.getValue(t)) {
+                    return;
+                }
+            }
+            returned++;
+            emitRow(dataToTuple(key, value));
+        }
+
+        private void flushFilterBatch() {
+            if (filterBatch == null || filterBatch.isEmpty()) {
+                return;
+            }
+            int n = filterBatch.size();
+            BitSet selection = new BitSet(n);
+            BitSet fallback = new BitSet(n);
+            batchRowFilter.evaluate(filterBatch, selection, fallback);
+            for (int i = fallback.nextSetBit(0); i >= 0; i = fallback.nextSetBit(i + 1)) {
+                if ((Boolean) rowFilter.getValue(filterBatch.get(i))) {
+                    selection.set(i);
+                }
+            }
+            for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+                returned++;
+                emitRow(dataToTuple(pendingKeys[i], pendingValues[i]));
+            }
+            filterBatch.clear();
+            Arrays.fill(pendingKeys, 0, n, null);
+            Arrays.fill(pendingValues, 0, n, null);
+        }
+
+        private void emitRow(Tuple t) {
+            if (batch == null) {
+                emitTuple(t);
+            } else {
+                batch.add(t);
+                if (batch.size() >= batch.capacity()) {
+                    flushBatch();
+                }
+            }
+        }
+
+        private void flushBatch() {
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+            if (concurrent) {
+                synchronized (emitLock) {
+                    if (!quit) {
+                        emitBatch();
+                    }
+                }
             } else {
-                emit = false;
+                emitBatch();
             }
+            batch.clear();
         }
-        lastEmitted = dataToTuple(key, value);
-        if (emit) {
-            emitTuple(lastEmitted);
+
+        private void emitBatch() {
+            if (batchSize > 1) {
+                emitTupleBatch(batch);
+            } else {
+                for (int i = 0; i < batch.size(); i++) {
+                    emitTuple(batch.get(i));
+                }
+            }
+        }
+
+        /**
+         * emits the rows still pending
+         */
+        void flush() {
+            flushFilterBatch();
+            flushBatch();
+        }
+
+        void updateStatistics() {
+            numRowsScanned.addAndGet(scanned);
+            numRowsReturned.addAndGet(returned);
+            scanned = returned = 0;
         }
-        return emit;
     }
 
     @SuppressWarnings("unchecked")
@@ -226,8 +543,8 @@ public abstract class AbstractTableReaderStream extends Stream implements Runnab
     }
 
     protected Tuple dataToTuple(byte[] k, byte[] v) {
-        return tableDefinition.deserialize(k, v); // TODO adapt to the stream
-                                                  // schema
+        return tableDefinition.deserialize(k, v, outputColumns); // TODO adapt to the stream
+                                                                 // schema
     }
 
     /**
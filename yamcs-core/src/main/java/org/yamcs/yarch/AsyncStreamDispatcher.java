@@ -0,0 +1,388 @@
+package org.yamcs.yarch;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.yamcs.logging.Log;
+
+/**
+ * Delivers the tuples emitted on a stream to its subscribers from a dedicated executor instead of the emitting thread.
+ * <p>
+ * The tuples are stored in a bounded ring buffer shared by all the subscribers. Each subscriber has its own cursor and
+ * is drained by one task at a time on the executor, such that a slow subscriber does not delay the emitter or the other
+ * subscribers. Neither the subscribers nor the {@link #publish(Tuple)} take a lock: the emitters claim a sequence
+ * number with a compare-and-set, write the slot and then make it visible in the order of the sequence numbers. The
+ * monitor of the dispatcher is only used by {@link #close()} and when adding subscribers.
+ * <p>
+ * When the buffer is full for one subscriber, the {@link OverflowPolicy} decides what happens.
+ */
+public class AsyncStreamDispatcher {
+    public enum OverflowPolicy {
+        /**
+         * the emitter waits until the slow subscriber has made space in the buffer; a subscriber emitting into the
+         * same stream cannot wait for itself, see {@link AsyncStreamDispatcher#publish(Tuple)}
+         */
+        BLOCK,
+        /**
+         * the oldest tuples not yet delivered to the slow subscriber are dropped
+         */
+        DROP_OLDEST,
+        /**
+         * the slow subscriber is removed from the stream and notified with {@link StreamSubscriber#streamClosed}
+         */
+        DISCONNECT
+    }
+
+    static final long BLOCK_PARK_NANOS = 100_000;
+
+    final Stream stream;
+    final int capacity;
+    final int mask;
+    final OverflowPolicy overflowPolicy;
+
+    final AtomicReferenceArray<Tuple> tuples;
+    // sequence number of the tuple stored in each slot, -1 while the slot is being written
+    final AtomicLongArray sequences;
+    // sequence number of the next tuple to be claimed by an emitter
+    final AtomicLong claimSequence = new AtomicLong();
+    // sequence number of the next tuple to be published; all the tuples before it are readable
+    final AtomicLong writeSequence = new AtomicLong();
+    // number of emitters inside publish, close waits for them before shutting down the executor
+    final AtomicInteger activePublishers = new AtomicInteger();
+
+    final List<SubscriberCursor> cursors = new CopyOnWriteArrayList<>();
+    final ExecutorService executor;
+    volatile boolean closed = false;
+    final Log log;
+
+    /**
+     *
+     * @param stream
+     * @param bufferSize
+     *            - the size of the ring buffer; it is rounded up to the next power of 2
+     * @param overflowPolicy
+     */
+    public AsyncStreamDispatcher(Stream stream, int bufferSize, OverflowPolicy overflowPolicy) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("The buffer size has to be at least 2");
+        }
+        this.stream = stream;
+        this.capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        this.mask = capacity - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.tuples = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, -1);
+        }
+        this.log = stream.log;
+        String threadName = "stream-" + stream.getName();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName(threadName);
+            return t;
+        });
+    }
+
+    /**
+     * Adds the tuple to the buffer and schedules its delivery to all subscribers.
+     * <p>
+     * With the {@link OverflowPolicy#BLOCK} policy, the emitter waits for the slow subscribers before claiming a slot,
+     * such that a subscriber emitting back into the same stream from its {@link StreamSubscriber#onTuple} does not
+     * deadlock. The tuple being delivered to that subscriber has already been read from the buffer, so it can emit one
+     * tuple per tuple received even if the buffer is full; if it emits more and its own part of the buffer is full,
+     * waiting would never end and an {@link IllegalStateException} is thrown instead.
+     */
+    void publish(Tuple tuple) {
+        activePublishers.incrementAndGet();
+        try {
+            if (closed) {
+                return;
+            }
+            long w = claim();
+            if (w < 0) {
+                return;
+            }
+            int idx = (int) (w & mask);
+            sequences.set(idx, -1);
+            tuples.set(idx, tuple);
+            sequences.set(idx, w);
+            // the tuples are made visible in order; another emitter may still be writing the previous slot
+            while (writeSequence.get() != w) {
+                Thread.yield();
+            }
+            writeSequence.set(w + 1);
+
+            for (SubscriberCursor c : cursors) {
+                c.schedule();
+            }
+        } finally {
+            activePublishers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Claims the sequence number of the next tuple, applying the overflow policy to the subscribers which are too far
+     * behind.
+     * <p>
+     * The check of the subscribers and the claim are not atomic but the subscribers can only move forward in between,
+     * so the compare-and-set ensures that no slot still needed with the {@link OverflowPolicy#BLOCK} policy is claimed.
+     *
+     * @return the claimed sequence number or -1 if the dispatcher has been closed while waiting
+     */
+    private long claim() {
+        while (true) {
+            long w = claimSequence.get();
+            SubscriberCursor full = null;
+            for (SubscriberCursor c : cursors) {
+                if (c.lag(w) >= capacity) {
+                    if (overflowPolicy == OverflowPolicy.BLOCK) {
+                        full = c;
+                        break;
+                    }
+                    handleOverflow(c, w);
+                }
+            }
+            if (full != null) {
+                if (!awaitSpace(full)) {
+                    return -1;
+                }
+            } else if (claimSequence.compareAndSet(w, w + 1)) {
+                return w;
+            }
+        }
+    }
+
+    /**
+     * @return false if the dispatcher has been closed while waiting
+     */
+    private boolean awaitSpace(SubscriberCursor c) {
+        if (c.deliveryThread == Thread.currentThread()) {
+            throw new IllegalStateException("Subscriber " + c.subscriber + " emits on the stream " + stream.getName()
+                    + " more tuples than the buffer can hold while its own delivery is blocked");
+        }
+        while (c.lag(claimSequence.get()) >= capacity && !c.removed) {
+            if (closed) {
+                return false;
+            }
+            c.schedule();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return true;
+    }
+
+    private void handleOverflow(SubscriberCursor c, long w) {
+        switch (overflowPolicy) {
+        case DROP_OLDEST:
+            // the subscriber notices that it has been overtaken and skips the overwritten tuples
+            break;
+        case DISCONNECT:
+            if (!removeCursor(c)) {
+                // already disconnected by a concurrent emitter
+                break;
+            }
+            log.warn("Subscriber {} cannot keep up with the stream (lag {}), disconnecting it", c.subscriber,
+                    w - c.position);
+            executor.execute(() -> {
+                stream.removeSubscriber(c.subscriber);
+                c.subscriber.streamClosed(stream);
+            });
+            break;
+        default:
+            throw new IllegalStateException("Unexpected overflow policy " + overflowPolicy);
+        }
+    }
+
+    synchronized void addSubscriber(StreamSubscriber s) {
+        SubscriberCursor c = new SubscriberCursor(s);
+        c.position = writeSequence.get();
+        cursors.add(c);
+    }
+
+    void removeSubscriber(StreamSubscriber s) {
+        SubscriberCursor c = getCursor(s);
+        if (c != null) {
+            removeCursor(c);
+        }
+    }
+
+    private boolean removeCursor(SubscriberCursor c) {
+        c.removed = true;
+        return cursors.remove(c);
+    }
+
+    /**
+     * Delivers the remaining tuples followed by the {@link StreamSubscriber#streamClosed(Stream)} to all the
+     * subscribers and shuts down the executor.
+     * <p>
+     * The emitters do not take the monitor; instead the executor is shut down only after all the emitters which have
+     * entered {@link #publish(Tuple)} before the dispatcher was closed have left it, such that they do not submit tasks
+     * to the shut down executor. An emitter waiting with the {@link OverflowPolicy#BLOCK} policy notices the close and
+     * returns without publishing.
+     */
+    synchronized void close() {
+        closed = true;
+        while (activePublishers.get() > 0) {
+            Thread.yield();
+        }
+        for (SubscriberCursor c : cursors) {
+            c.schedule();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for all the tuples published before the stream has been closed to be delivered.
+     *
+     * @return true if the delivery finished before the timeout expired
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     *
+     * @return the number of tuples published but not yet delivered to the subscriber or -1 if the subscriber is not
+     *         known
+     */
+    public long getLag(StreamSubscriber s) {
+        SubscriberCursor c = getCursor(s);
+        return c == null ? -1 : writeSequence.get() - c.position;
+    }
+
+    /**
+     *
+     * @return the number of tuples not delivered to the subscriber because of the {@link OverflowPolicy#DROP_OLDEST}
+     *         policy or -1 if the subscriber is not known
+     */
+    public long getNumDropped(StreamSubscriber s) {
+        SubscriberCursor c = getCursor(s);
+        return c == null ? -1 : c.numDropped.get();
+    }
+
+    private SubscriberCursor getCursor(StreamSubscriber s) {
+        for (SubscriberCursor c : cursors) {
+            if (c.subscriber == s) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the delivery state of one subscriber. The {@link #schedule()} has to be called either from
+     * {@link AsyncStreamDispatcher#publish(Tuple)} or from {@link AsyncStreamDispatcher#close()}, such that no task is
+     * submitted after the executor has been shut down.
+     */
+    class SubscriberCursor implements Runnable {
+        final StreamSubscriber subscriber;
+        // sequence number of the next tuple to be delivered
+        volatile long position;
+        volatile boolean removed = false;
+        // the thread running the drain task, used to detect the tuples emitted by the subscriber itself
+        volatile Thread deliveryThread;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closeNotified = new AtomicBoolean();
+        final AtomicLong numDropped = new AtomicLong();
+
+        SubscriberCursor(StreamSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Returns the number of tuples from the buffer that the subscriber still needs, given the write sequence w.
+         * <p>
+         * When called from the subscriber's own delivery, the tuple being delivered has already been read and its slot
+         * can be reused.
+         */
+        long lag(long w) {
+            long l = w - position;
+            return deliveryThread == Thread.currentThread() ? l - 1 : l;
+        }
+
+        @Override
+        public void run() {
+            deliveryThread = Thread.currentThread();
+            try {
+                drainLoop();
+            } finally {
+                deliveryThread = null;
+            }
+            if (closed && !removed && position == writeSequence.get() && closeNotified.compareAndSet(false, true)) {
+                subscriber.streamClosed(stream);
+            }
+        }
+
+        private void drainLoop() {
+            while (true) {
+                drain();
+                scheduled.set(false);
+                // the publisher may have added tuples after the drain, without being able to schedule this task
+                if (removed || position == writeSequence.get() || !scheduled.compareAndSet(false, true)) {
+                    break;
+                }
+            }
+        }
+
+        private void drain() {
+            long p = position;
+            long w;
+            while (!removed && p < (w = writeSequence.get())) {
+                if (w - p > capacity) {
+                    long np = w - capacity;
+                    numDropped.addAndGet(np - p);
+                    p = np;
+                }
+                int idx = (int) (p & mask);
+                long s1 = sequences.get(idx);
+                Tuple tuple = tuples.get(idx);
+                long s2 = sequences.get(idx);
+                if (s1 != p || s2 != p) {
+                    // the slot is being overwritten by the publisher
+                    Thread.yield();
+                    continue;
+                }
+                deliver(tuple);
+                p++;
+                position = p;
+            }
+        }
+
+        private void deliver(Tuple tuple) {
+            try {
+                subscriber.onTuple(stream, tuple);
+            } catch (Exception e) {
+                Stream.ExceptionHandler handler = stream.getExceptionHandler();
+                if (handler != null) {
+                    handler.handle(tuple, subscriber, e);
+                } else {
+                    log.warn("Exception received when emitting tuple to subscriber " + subscriber + ": {}", e);
+                }
+            }
+        }
+    }
+}
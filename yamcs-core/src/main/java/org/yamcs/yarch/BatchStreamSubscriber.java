@@ -0,0 +1,10 @@
+package org.yamcs.yarch;
+
+/**
+ * Subscriber able to process the tuples emitted with {@link Stream#emitTupleBatch(TupleBatch)} in one go.
+ * <p>
+ * The batch is only valid for the duration of the call, the stream may reuse it afterwards.
+ */
+public interface BatchStreamSubscriber extends StreamSubscriber {
+    void onTupleBatch(Stream stream, TupleBatch batch);
+}
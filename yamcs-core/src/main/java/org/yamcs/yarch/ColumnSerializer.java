@@ -3,6 +3,9 @@ package org.yamcs.yarch;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.yamcs.utils.ByteArray;
 
 /**
  * Serializes column values to byte arrays (used as part of tables) and back
@@ -29,6 +32,42 @@ public interface ColumnSerializer<T> {
      * @throws IOException
      */    
     public void serialize(DataOutputStream stream, T v) throws IOException ;    
+
+    /**
+     * Read one column value from the current position of the buffer, advancing the position.
+     * <p>
+     * The binary format is the same as for {@link #deserialize(DataInputStream, ColumnDefinition)}.
+     * 
+     * @param buf - buffer used for input
+     * @param cd the column definition for the involved column
+     * @return the deserialized value
+     * @throws IOException
+     */
+    T deserialize(ByteBuffer buf, ColumnDefinition cd) throws IOException;
+
+    /**
+     * Advances the position of the buffer past one column value without deserializing it.
+     * <p>
+     * The default implementation deserializes the value and discards it.
+     * 
+     * @param buf - buffer used for input
+     * @param cd the column definition for the involved column
+     * @throws IOException
+     */
+    default void skip(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+        deserialize(buf, cd);
+    }
+
+    /**
+     * Appends the serialized value at the end of the array.
+     * <p>
+     * The binary format is the same as for {@link #serialize(DataOutputStream, Object)}.
+     * 
+     * @param array
+     * @param v
+     * @throws IOException
+     */
+    void serialize(ByteArray array, T v) throws IOException;
     
     /**
      * This method serializes the value into a byte array
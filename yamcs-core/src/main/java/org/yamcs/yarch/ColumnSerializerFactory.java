@@ -1,23 +1,25 @@
 package org.yamcs.yarch;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UTFDataFormatException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.YConfiguration;
+import org.yamcs.utils.ByteArray;
 import org.yamcs.utils.ByteArrayUtils;
 import org.yamcs.yarch.DataType._type;
 
 import com.google.common.collect.BiMap;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
 import com.google.protobuf.MessageLite.Builder;
@@ -128,20 +130,18 @@ public class ColumnSerializerFactory {
 
         @Override
         public T fromByteArray(byte[] b, ColumnDefinition cd) throws IOException {
-            DataInputStream dos = new DataInputStream(new ByteArrayInputStream(b));
-            return deserialize(dos, cd);
+            return deserialize(ByteBuffer.wrap(b), cd);
         }
 
         @Override
         public byte[] toByteArray(T v) {
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream(size)) {
-                DataOutputStream dos = new DataOutputStream(baos);
-                serialize(dos, v);
-                return baos.toByteArray();
+            ByteArray array = new ByteArray(size);
+            try {
+                serialize(array, v);
             } catch (IOException e) {
                 throw new UncheckedIOException("cannot serialize in memory?", e);
             }
-
+            return array.toArray();
         }
     }
 
@@ -156,6 +156,16 @@ public class ColumnSerializerFactory {
             stream.writeBoolean((Boolean) v);
         }
 
+        @Override
+        public Boolean deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            return buf.get() != 0;
+        }
+
+        @Override
+        public void serialize(ByteArray array, Boolean v) {
+            array.add((byte) (v ? 1 : 0));
+        }
+
         @Override
         public byte[] toByteArray(Boolean v) {
             boolean b = (Boolean) v;
@@ -179,6 +189,16 @@ public class ColumnSerializerFactory {
             stream.writeByte((Byte) v);
         }
 
+        @Override
+        public Byte deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            return buf.get();
+        }
+
+        @Override
+        public void serialize(ByteArray array, Byte v) {
+            array.add(v);
+        }
+
         @Override
         public byte[] toByteArray(Byte v) {
             return new byte[] { v };
@@ -201,6 +221,16 @@ public class ColumnSerializerFactory {
             stream.writeShort((Short) v);
         }
 
+        @Override
+        public Short deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            return buf.getShort();
+        }
+
+        @Override
+        public void serialize(ByteArray array, Short v) {
+            array.addShort(v);
+        }
+
         @Override
         public byte[] toByteArray(Short v) {
             short s = v;
@@ -224,6 +254,16 @@ public class ColumnSerializerFactory {
             stream.writeInt((Integer) v);
         }
 
+        @Override
+        public Integer deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            return buf.getInt();
+        }
+
+        @Override
+        public void serialize(ByteArray array, Integer v) {
+            array.addInt(v);
+        }
+
         @Override
         public byte[] toByteArray(Integer v) {
             int x = v;
@@ -251,6 +291,16 @@ public class ColumnSerializerFactory {
         public void serialize(DataOutputStream stream, Double v) throws IOException {
             stream.writeDouble(v);
         }
+
+        @Override
+        public Double deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            return buf.getDouble();
+        }
+
+        @Override
+        public void serialize(ByteArray array, Double v) {
+            array.addDouble(v);
+        }
     }
 
     static class LongColumnSerializer extends AbstractColumnSerializer<Long> {
@@ -267,6 +317,16 @@ public class ColumnSerializerFactory {
         public void serialize(DataOutputStream stream, Long v) throws IOException {
             stream.writeLong(v);
         }
+
+        @Override
+        public Long deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            return buf.getLong();
+        }
+
+        @Override
+        public void serialize(ByteArray array, Long v) {
+            array.addLong(v);
+        }
     }
 
     static class StringColumnSerializer extends AbstractColumnSerializer<String> {
@@ -283,6 +343,22 @@ public class ColumnSerializerFactory {
         public void serialize(DataOutputStream stream, String v) throws IOException {
             stream.writeUTF(v);
         }
+
+        @Override
+        public String deserialize(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+            return readUTF(buf);
+        }
+
+        @Override
+        public void skip(ByteBuffer buf, ColumnDefinition cd) {
+            int utflen = buf.getShort() & 0xFFFF;
+            buf.position(buf.position() + utflen);
+        }
+
+        @Override
+        public void serialize(ByteArray array, String v) throws IOException {
+            writeUTF(array, v);
+        }
     }
 
     static class BinaryColumnSerializer implements ColumnSerializer<byte[]> {
@@ -305,6 +381,34 @@ public class ColumnSerializerFactory {
             stream.write(v);
         }
 
+        @Override
+        public byte[] deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            int length = buf.getInt();
+            if (length > maxBinaryLength) {
+                log.warn("binary length greater than maxBinaryLenght (is the endianess wrong?): ?>?", length,
+                        maxBinaryLength);
+                return null;
+            }
+            byte[] bp = new byte[length];
+            buf.get(bp);
+            return bp;
+        }
+
+        @Override
+        public void skip(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+            int length = buf.getInt();
+            if (length > maxBinaryLength) {
+                throw new IOException("binary length greater than maxBinaryLength");
+            }
+            buf.position(buf.position() + length);
+        }
+
+        @Override
+        public void serialize(ByteArray array, byte[] v) {
+            array.addInt(v.length);
+            array.add(v);
+        }
+
         @Override
         public byte[] toByteArray(byte[] v) {
             byte[] r = new byte[4 + v.length];
@@ -350,10 +454,48 @@ public class ColumnSerializerFactory {
             stream.write(b);
         }
 
+        @Override
+        public MessageLite deserialize(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+            int length = buf.getInt();
+            if (length > maxBinaryLength) {
+                log.warn("binary length greater than maxBinaryLenght (is the endianess wrong?): ?>?", length,
+                        maxBinaryLength);
+                throw new IOException("binary length greater than maxBinaryLength");
+            }
+            if (buf.hasArray()) {
+                MessageLite msg = readProtobufMessage(buf.array(), buf.arrayOffset() + buf.position(), length);
+                buf.position(buf.position() + length);
+                return msg;
+            } else {
+                byte[] bp = new byte[length];
+                buf.get(bp);
+                return readProtobufMessage(bp);
+            }
+        }
+
+        @Override
+        public void skip(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+            int length = buf.getInt();
+            if (length > maxBinaryLength) {
+                throw new IOException("binary length greater than maxBinaryLength");
+            }
+            buf.position(buf.position() + length);
+        }
+
+        @Override
+        public void serialize(ByteArray array, MessageLite v) throws IOException {
+            writeProtobufMessage(array, v);
+        }
+
         private MessageLite readProtobufMessage(byte[] bp) throws InvalidProtocolBufferException {
+            return readProtobufMessage(bp, 0, bp.length);
+        }
+
+        private MessageLite readProtobufMessage(byte[] bp, int offset, int length)
+                throws InvalidProtocolBufferException {
             try {
                 Builder b = (Builder) newBuilderMethod.invoke(null);
-                b.mergeFrom(bp);
+                b.mergeFrom(bp, offset, length);
                 return b.build();
             } catch (IllegalAccessException | InvocationTargetException e) {
                 throw new IllegalStateException(e);
@@ -390,6 +532,23 @@ public class ColumnSerializerFactory {
             stream.writeShort(v1);
         }
 
+        @Override
+        public String deserialize(ByteBuffer buf, ColumnDefinition cd) {
+            short x = buf.getShort();
+            return enumValues.inverse().get(x);
+        }
+
+        @Override
+        public void serialize(ByteArray array, String v) throws IOException {
+            Short v1;
+            if ((enumValues == null) || (v1 = enumValues.get(v)) == null) {
+                tblDef.addEnumValue(this, v);
+                serialize(array, v);
+                return;
+            }
+            array.addShort(v1);
+        }
+
         void setEnumValues(BiMap<String, Short> enumValues) {
             this.enumValues = enumValues;
         }
@@ -398,4 +557,112 @@ public class ColumnSerializerFactory {
             return columnName;
         }
     }
+
+    /**
+     * Appends the size of the message as 4 bytes int followed by the message itself, encoded directly in the array.
+     */
+    static void writeProtobufMessage(ByteArray array, MessageLite msg) throws IOException {
+        int size = msg.getSerializedSize();
+        array.addInt(size);
+        int pos = array.size();
+        array.setLength(pos + size);
+        CodedOutputStream cos = CodedOutputStream.newInstance(array.array(), pos, size);
+        msg.writeTo(cos);
+        cos.checkNoSpaceLeft();
+    }
+
+    /**
+     * Appends the string encoded in the same modified UTF-8 format as {@link DataOutputStream#writeUTF(String)}
+     */
+    static void writeUTF(ByteArray array, String s) throws UTFDataFormatException {
+        int strlen = s.length();
+        int utflen = 0;
+        for (int i = 0; i < strlen; i++) {
+            char c = s.charAt(i);
+            if ((c >= 0x0001) && (c <= 0x007F)) {
+                utflen++;
+            } else if (c > 0x07FF) {
+                utflen += 3;
+            } else {
+                utflen += 2;
+            }
+        }
+        if (utflen > 65535) {
+            throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+        }
+        int pos = array.size();
+        array.setLength(pos + 2 + utflen);
+        byte[] a = array.array();
+        a[pos++] = (byte) (utflen >>> 8);
+        a[pos++] = (byte) utflen;
+        for (int i = 0; i < strlen; i++) {
+            char c = s.charAt(i);
+            if ((c >= 0x0001) && (c <= 0x007F)) {
+                a[pos++] = (byte) c;
+            } else if (c > 0x07FF) {
+                a[pos++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                a[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                a[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                a[pos++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                a[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Reads a string encoded in the modified UTF-8 format written by {@link DataOutputStream#writeUTF(String)}
+     */
+    static String readUTF(ByteBuffer buf) throws UTFDataFormatException {
+        int utflen = buf.getShort() & 0xFFFF;
+        if (utflen > buf.remaining()) {
+            throw new UTFDataFormatException("encoded string length " + utflen + " exceeds the available data");
+        }
+        char[] chars = new char[utflen];
+        int count = 0;
+        int charCount = 0;
+        while (count < utflen) {
+            int c = buf.get() & 0xFF;
+            count++;
+            switch (c >> 4) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                chars[charCount++] = (char) c;
+                break;
+            case 12:
+            case 13:
+                if (count + 1 > utflen) {
+                    throw new UTFDataFormatException("malformed input: partial character at end");
+                }
+                int c2 = buf.get();
+                count++;
+                if ((c2 & 0xC0) != 0x80) {
+                    throw new UTFDataFormatException("malformed input around byte " + count);
+                }
+                chars[charCount++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                break;
+            case 14:
+                if (count + 2 > utflen) {
+                    throw new UTFDataFormatException("malformed input: partial character at end");
+                }
+                int c3 = buf.get();
+                int c4 = buf.get();
+                count += 2;
+                if (((c3 & 0xC0) != 0x80) || ((c4 & 0xC0) != 0x80)) {
+                    throw new UTFDataFormatException("malformed input around byte " + (count - 1));
+                }
+                chars[charCount++] = (char) (((c & 0x0F) << 12) | ((c3 & 0x3F) << 6) | (c4 & 0x3F));
+                break;
+            default:
+                throw new UTFDataFormatException("malformed input around byte " + count);
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
 }
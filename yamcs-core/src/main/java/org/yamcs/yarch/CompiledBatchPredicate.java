@@ -0,0 +1,19 @@
+package org.yamcs.yarch;
+
+import java.util.BitSet;
+
+/**
+ * Condition evaluated over all the rows of a {@link TupleBatch} at once.
+ *
+ * @see org.yamcs.yarch.streamsql.Expression#compileBatchPredicate()
+ */
+public interface CompiledBatchPredicate {
+    /**
+     * Evaluates the condition for all rows in the batch.
+     * <p>
+     * The rows for which the condition is true are set in the selection. The rows for which the condition cannot be
+     * evaluated on the column vectors (because one of the columns used is missing) are set in the fallback and have to
+     * be evaluated with the row based {@link CompiledExpression}.
+     */
+    void evaluate(TupleBatch batch, BitSet selection, BitSet fallback);
+}
@@ -4,10 +4,12 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import java.util.OptionalInt;
 
 import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.ByteArray;
 import org.yamcs.yarch.ColumnSerializerFactory.AbstractColumnSerializer;
 
 import com.google.common.io.ByteStreams;
@@ -40,4 +42,37 @@ public class ParameterValueColumnSerializer extends AbstractColumnSerializer<Par
         stream.writeInt(size);
         gpv.writeTo(stream);
     }
+
+    @Override
+    public ParameterValue deserialize(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+        int size = buf.getInt();
+        if(size>ColumnSerializerFactory.maxBinaryLength) {
+            throw new IOException("serialized size too big "+size+">"+ColumnSerializerFactory.maxBinaryLength);
+        }
+        org.yamcs.protobuf.Pvalue.ParameterValue.Builder gpvb = org.yamcs.protobuf.Pvalue.ParameterValue.newBuilder();
+        if (buf.hasArray()) {
+            gpvb.mergeFrom(buf.array(), buf.arrayOffset() + buf.position(), size);
+            buf.position(buf.position() + size);
+        } else {
+            byte[] b = new byte[size];
+            buf.get(b);
+            gpvb.mergeFrom(b);
+        }
+        return ParameterValue.fromGpb(cd.getName(), gpvb.build());
+    }
+
+    @Override
+    public void skip(ByteBuffer buf, ColumnDefinition cd) throws IOException {
+        int size = buf.getInt();
+        if (size > ColumnSerializerFactory.maxBinaryLength) {
+            throw new IOException("serialized size too big " + size + ">" + ColumnSerializerFactory.maxBinaryLength);
+        }
+        buf.position(buf.position() + size);
+    }
+
+    @Override
+    public void serialize(ByteArray array, ParameterValue pv) throws IOException {
+        org.yamcs.protobuf.Pvalue.ParameterValue gpv = pv.toProtobufParameterValue(Optional.empty(), OptionalInt.empty(), false);
+        ColumnSerializerFactory.writeProtobufMessage(array, gpv);
+    }
 }
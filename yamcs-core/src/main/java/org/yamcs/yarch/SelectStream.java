@@ -7,7 +7,12 @@ import java.util.List;
  * @see org.yamcs.yarch.streamsql.SelectExpression
  *
  */
-public class SelectStream extends Stream implements StreamSubscriber {
+public class SelectStream extends Stream implements BatchStreamSubscriber {
+    /**
+     * number of tuples read at once from the tables when the where clause can be evaluated on batches
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
     CompiledExpression whereExp;
     Stream input;
     final private List<CompiledExpression> aggInputList;
@@ -74,6 +79,18 @@ public class SelectStream extends Stream implements StreamSubscriber {
                 return;
             }
         }
+        processRow(t);
+    }
+
+    @Override
+    public void onTupleBatch(Stream stream, TupleBatch batch) {
+        // stop if a downstream subscriber (e.g. a limit) closes this stream in the middle of the batch
+        for (int i = 0; i < batch.size() && state != QUITTING; i++) {
+            onTuple(stream, batch.get(i));
+        }
+    }
+
+    private void processRow(Tuple t) {
         if (windowProc != null) {
             processWindow(t);
         } else {
@@ -122,6 +139,10 @@ public class SelectStream extends Stream implements StreamSubscriber {
         close();
     }
 
+    public Stream getInput() {
+        return input;
+    }
+
     @Override
     public void start() {
         if (input.state == SETUP) {
@@ -31,6 +31,7 @@ public abstract class Stream {
     private volatile AtomicLong dataCount = new AtomicLong();
     private volatile AtomicInteger subscriberCount = new AtomicInteger();
     private ExceptionHandler handler;
+    private volatile AsyncStreamDispatcher dispatcher;
 
     protected Stream(YarchDatabaseInstance ydb, String name, TupleDefinition definition) {
         this.name = name;
@@ -49,8 +50,44 @@ public abstract class Stream {
         return outputDefinition;
     }
 
+    /**
+     * Makes the tuples to be delivered to the subscribers from a dedicated executor rather than from the thread calling
+     * {@link #emitTuple(Tuple)}.
+     * <p>
+     * Has to be called before the stream is started.
+     *
+     * @param bufferSize
+     *            - the maximum number of tuples buffered for each subscriber
+     * @param overflowPolicy
+     *            - what to do when a subscriber has bufferSize tuples pending
+     */
+    public synchronized void enableAsyncDispatch(int bufferSize, AsyncStreamDispatcher.OverflowPolicy overflowPolicy) {
+        if (dispatcher != null) {
+            throw new IllegalStateException("Async dispatch already enabled for stream " + name);
+        }
+        AsyncStreamDispatcher d = new AsyncStreamDispatcher(this, bufferSize, overflowPolicy);
+        for (StreamSubscriber s : subscribers) {
+            d.addSubscriber(s);
+        }
+        dispatcher = d;
+    }
+
+    /**
+     *
+     * @return the dispatcher used to deliver the tuples asynchronously or null if the tuples are delivered on the
+     *         emitting thread
+     */
+    public AsyncStreamDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     public void emitTuple(Tuple tuple) {
         dataCount.incrementAndGet();
+        AsyncStreamDispatcher d = dispatcher;
+        if (d != null) {
+            d.publish(tuple);
+            return;
+        }
         for (StreamSubscriber s : subscribers) {
             try {
                 s.onTuple(this, tuple);
@@ -65,6 +102,49 @@ public abstract class Stream {
         }
     }
 
+    /**
+     * Emits all the tuples from the batch. The subscribers implementing {@link BatchStreamSubscriber} receive the
+     * batch as a whole, the others receive the tuples one by one.
+     */
+    public void emitTupleBatch(TupleBatch batch) {
+        if (dispatcher != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                emitTuple(batch.get(i));
+            }
+            return;
+        }
+        dataCount.addAndGet(batch.size());
+        for (StreamSubscriber s : subscribers) {
+            if (s instanceof BatchStreamSubscriber) {
+                try {
+                    ((BatchStreamSubscriber) s).onTupleBatch(this, batch);
+                } catch (Exception e) {
+                    if (handler != null) {
+                        handler.handle(null, s, e);
+                    } else {
+                        log.warn("Exception received when emitting tuple batch to subscriber " + s + ": {}", e);
+                        throw e;
+                    }
+                }
+            } else {
+                // the subscriber may close the stream in the middle of the batch
+                for (int i = 0; i < batch.size() && state != QUITTING; i++) {
+                    Tuple tuple = batch.get(i);
+                    try {
+                        s.onTuple(this, tuple);
+                    } catch (Exception e) {
+                        if (handler != null) {
+                            handler.handle(tuple, s, e);
+                        } else {
+                            log.warn("Exception received when emitting tuple to subscriber " + s + ": {}", e);
+                            throw e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -76,11 +156,18 @@ public abstract class Stream {
     public void addSubscriber(StreamSubscriber s) {
         subscribers.add(s);
         subscriberCount.incrementAndGet();
+        if (dispatcher != null) {
+            dispatcher.addSubscriber(s);
+        }
     }
 
     public void removeSubscriber(StreamSubscriber s) {
-        subscribers.remove(s);
-        subscriberCount.decrementAndGet();
+        if (subscribers.remove(s)) {
+            subscriberCount.decrementAndGet();
+        }
+        if (dispatcher != null) {
+            dispatcher.removeSubscriber(s);
+        }
     }
 
     public ColumnDefinition getColumnDefinition(String colName) {
@@ -99,8 +186,12 @@ public abstract class Stream {
         ydb.removeStream(name);
         log.debug("Closed stream {} num emitted tuples: {}", name, getDataCount());
         doClose();
-        for (StreamSubscriber s : subscribers) {
-            s.streamClosed(this);
+        if (dispatcher != null) {
+            dispatcher.close();
+        } else {
+            for (StreamSubscriber s : subscribers) {
+                s.streamClosed(this);
+            }
         }
     }
 
@@ -126,6 +217,10 @@ public abstract class Stream {
         this.handler = h;
     }
 
+    public ExceptionHandler getExceptionHandler() {
+        return handler;
+    }
+
     @Override
     public String toString() {
         return name;
@@ -1,18 +1,17 @@
 package org.yamcs.yarch;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yamcs.utils.ByteArray;
 import org.yamcs.utils.DatabaseCorruptionException;
 import org.yamcs.utils.StringConverter;
 import org.yamcs.yarch.ColumnSerializerFactory.EnumColumnSerializer;
@@ -55,6 +54,10 @@ public class TableDefinition {
      * To switch to the latest version, use the bin/yamcs archive upgrade command
      */
     public static final int CURRENT_FORMAT_VERSION = 2;
+
+    // reused by the serializeKey/serializeValue methods returning byte arrays
+    private static final ThreadLocal<ByteArray> serializationBuffer = ThreadLocal
+            .withInitial(() -> new ByteArray(1024));
     private int formatVersion = CURRENT_FORMAT_VERSION;
 
     // used for rocksdb - IN_KEY means storing the partition in front of the key
@@ -307,8 +310,20 @@ public class TableDefinition {
      * @return serialized key value
      */
     public byte[] serializeKey(Tuple t) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            DataOutputStream dos = new DataOutputStream(baos);
+        ByteArray array = serializationBuffer.get();
+        array.reset();
+        serializeKey(t, array);
+        return array.toArray();
+    }
+
+    /**
+     * Same as {@link #serializeKey(Tuple)} but appends the serialized key at the end of the given array.
+     * 
+     * @param t
+     * @param array
+     */
+    public void serializeKey(Tuple t, ByteArray array) {
+        try {
             for (int i = 0; i < keyDef.size(); i++) {
                 ColumnSerializer cs = keySerializers.get(i);
                 String colName = keyDef.getColumn(i).getName();
@@ -316,9 +331,8 @@ public class TableDefinition {
                 if (v == null) {
                     throw new IllegalArgumentException("Tuple does not have mandatory column '" + colName + "'");
                 }
-                cs.serialize(dos, v);
+                cs.serialize(array, v);
             }
-            return baos.toByteArray();
         } catch (IOException e) {
             throw new IllegalArgumentException("Cannot serialize key from tuple " + t + ": ", e);
         }
@@ -469,9 +483,22 @@ public class TableDefinition {
      * @return the serialized version of the value part of the tuple
      */
     public byte[] serializeValue(Tuple t) {
+        ByteArray array = serializationBuffer.get();
+        array.reset();
+        serializeValue(t, array);
+        return array.toArray();
+    }
+
+    /**
+     * Same as {@link #serializeValue(Tuple)} but appends the serialized value at the end of the given array.
+     * 
+     * @param t
+     * @param array
+     */
+    public void serializeValue(Tuple t, ByteArray array) {
         TupleDefinition tdef = t.getDefinition();
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            DataOutputStream dos = new DataOutputStream(baos);
+        int startLength = array.size();
+        try {
             for (int i = 0; i < tdef.size(); i++) {
                 ColumnDefinition tupleCd = tdef.getColumn(i);
                 if (keyDef.hasColumn(tupleCd.getName())) {
@@ -481,40 +508,55 @@ public class TableDefinition {
                 if (cidx == -1) { // call again this function after adding the
                                   // missing columns to the table
                     addMissingValueColumns(tdef);
-                    return serializeValue(t);
+                    array.setLength(startLength);
+                    serializeValue(t, array);
+                    return;
                 }
                 ColumnDefinition tableCd = valueDef.getColumn(cidx);
                 Object v = t.getColumn(i);
                 Object v1 = DataType.castAs(tupleCd.type, tableCd.type, v);
                 ColumnSerializer tcs = valueSerializers.get(cidx);
-                dos.writeInt(cidx);
-                tcs.serialize(dos, v1);
+                array.addInt(cidx);
+                tcs.serialize(array, v1);
             }
             // add a final -1 eof marker
-            dos.writeInt(-1);
-            return baos.toByteArray();
+            array.addInt(-1);
         } catch (IOException e) {
             throw new IllegalArgumentException("Cannot serialize column tuple " + t + ": ", e);
         }
     }
 
     public Tuple deserialize(byte[] k, byte[] v) {
+        return deserialize(k, v, null);
+    }
+
+    /**
+     * Deserializes only some of the value columns; the others are skipped without being decoded. The key columns are
+     * always deserialized.
+     * 
+     * @param k
+     * @param v
+     * @param columns
+     *            - the names of the value columns to be deserialized; if null, all the columns are deserialized
+     * @return a tuple containing the key columns and the requested value columns present in the row
+     */
+    public Tuple deserialize(byte[] k, byte[] v, Set<String> columns) {
         TupleDefinition tdef = keyDef.copy();
         ArrayList<Object> cols = new ArrayList<>();
-        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(k));
+        ByteBuffer buf = ByteBuffer.wrap(k);
         try {
             // deserialize the key
             for (int i = 0; i < keyDef.size(); i++) {
                 ColumnDefinition cd = keyDef.getColumn(i);
                 ColumnSerializer cs = keySerializers.get(i);
-                Object o = cs.deserialize(dis, cd);
+                Object o = cs.deserialize(buf, cd);
                 cols.add(o);
             }
 
             // deserialize the value
-            dis = new DataInputStream(new ByteArrayInputStream(v));
+            buf = ByteBuffer.wrap(v);
             while (true) {
-                int cidx = dis.readInt(); // column index
+                int cidx = buf.getInt(); // column index
                 if (cidx == -1) {
                     break;
                 }
@@ -525,12 +567,16 @@ public class TableDefinition {
 
                 ColumnDefinition cd = valueDef.getColumn(cidx);
                 ColumnSerializer cs = valueSerializers.get(cidx);
+                if (columns != null && !columns.contains(cd.getName())) {
+                    cs.skip(buf, cd);
+                    continue;
+                }
 
-                Object o = cs.deserialize(dis, cd);
+                Object o = cs.deserialize(buf, cd);
                 tdef.addColumn(cd);
                 cols.add(o);
             }
-        } catch (IOException e) {
+        } catch (IOException | BufferUnderflowException e) {
             throw new DatabaseCorruptionException(
                     "cannot deserialize (" + StringConverter.byteBufferToHexString(ByteBuffer.wrap(k)) + ","
                             + StringConverter.byteBufferToHexString(ByteBuffer.wrap(v)) + ")",
@@ -0,0 +1,222 @@
+package org.yamcs.yarch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A batch of consecutive tuples emitted together on a stream.
+ * <p>
+ * Besides the row access, the batch offers a column oriented view where the values of one column for all the rows are
+ * extracted into a primitive array. The columns are extracted on request and cached, such that the compiled
+ * {@link CompiledBatchPredicate}s can evaluate the conditions in tight loops without boxing.
+ * <p>
+ * Since the tuples of a table do not necessarily contain all the columns, each extracted column has an associated null
+ * mask with the bits set for the rows where the column is missing.
+ */
+public class TupleBatch {
+    private Tuple[] rows;
+    private int size;
+    private final Map<String, Object> columnCache = new HashMap<>();
+    private final Map<String, BitSet> nullMasks = new HashMap<>();
+
+    public TupleBatch(int capacity) {
+        rows = new Tuple[capacity];
+    }
+
+    public void add(Tuple t) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, 2 * size);
+        }
+        rows[size++] = t;
+        columnCache.clear();
+        nullMasks.clear();
+    }
+
+    public Tuple get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + " size: " + size);
+        }
+        return rows[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return rows.length;
+    }
+
+    /**
+     * removes all the tuples from the batch such that it can be reused
+     */
+    public void clear() {
+        Arrays.fill(rows, 0, size, null);
+        size = 0;
+        columnCache.clear();
+        nullMasks.clear();
+    }
+
+    public long[] getLongColumn(String colName) {
+        long[] v = (long[]) columnCache.get(colName);
+        if (v == null) {
+            v = new long[size];
+            BitSet nulls = nullMask(colName);
+            ColumnReader r = new ColumnReader(colName);
+            for (int i = 0; i < size; i++) {
+                Object o = r.read(rows[i]);
+                if (o == null) {
+                    nulls.set(i);
+                } else {
+                    v[i] = ((Number) o).longValue();
+                }
+            }
+            columnCache.put(colName, v);
+        }
+        return v;
+    }
+
+    public int[] getIntColumn(String colName) {
+        int[] v = (int[]) columnCache.get(colName);
+        if (v == null) {
+            v = new int[size];
+            BitSet nulls = nullMask(colName);
+            ColumnReader r = new ColumnReader(colName);
+            for (int i = 0; i < size; i++) {
+                Object o = r.read(rows[i]);
+                if (o == null) {
+                    nulls.set(i);
+                } else {
+                    v[i] = ((Number) o).intValue();
+                }
+            }
+            columnCache.put(colName, v);
+        }
+        return v;
+    }
+
+    public short[] getShortColumn(String colName) {
+        short[] v = (short[]) columnCache.get(colName);
+        if (v == null) {
+            v = new short[size];
+            BitSet nulls = nullMask(colName);
+            ColumnReader r = new ColumnReader(colName);
+            for (int i = 0; i < size; i++) {
+                Object o = r.read(rows[i]);
+                if (o == null) {
+                    nulls.set(i);
+                } else {
+                    v[i] = ((Number) o).shortValue();
+                }
+            }
+            columnCache.put(colName, v);
+        }
+        return v;
+    }
+
+    public byte[] getByteColumn(String colName) {
+        byte[] v = (byte[]) columnCache.get(colName);
+        if (v == null) {
+            v = new byte[size];
+            BitSet nulls = nullMask(colName);
+            ColumnReader r = new ColumnReader(colName);
+            for (int i = 0; i < size; i++) {
+                Object o = r.read(rows[i]);
+                if (o == null) {
+                    nulls.set(i);
+                } else {
+                    v[i] = ((Number) o).byteValue();
+                }
+            }
+            columnCache.put(colName, v);
+        }
+        return v;
+    }
+
+    public double[] getDoubleColumn(String colName) {
+        double[] v = (double[]) columnCache.get(colName);
+        if (v == null) {
+            v = new double[size];
+            BitSet nulls = nullMask(colName);
+            ColumnReader r = new ColumnReader(colName);
+            for (int i = 0; i < size; i++) {
+                Object o = r.read(rows[i]);
+                if (o == null) {
+                    nulls.set(i);
+                } else {
+                    v[i] = ((Number) o).doubleValue();
+                }
+            }
+            columnCache.put(colName, v);
+        }
+        return v;
+    }
+
+    public Object[] getObjectColumn(String colName) {
+        Object[] v = (Object[]) columnCache.get(colName);
+        if (v == null) {
+            v = new Object[size];
+            BitSet nulls = nullMask(colName);
+            ColumnReader r = new ColumnReader(colName);
+            for (int i = 0; i < size; i++) {
+                Object o = r.read(rows[i]);
+                if (o == null) {
+                    nulls.set(i);
+                }
+                v[i] = o;
+            }
+            columnCache.put(colName, v);
+        }
+        return v;
+    }
+
+    /**
+     * Returns the rows for which the column is missing. The column has to be extracted first with one of the
+     * get&lt;Type&gt;Column methods.
+     *
+     * @param colName
+     * @return
+     */
+    public BitSet getNullMask(String colName) {
+        BitSet nulls = nullMasks.get(colName);
+        if (nulls == null) {
+            throw new IllegalStateException("Column " + colName + " has not been extracted");
+        }
+        return nulls;
+    }
+
+    private BitSet nullMask(String colName) {
+        BitSet nulls = new BitSet(size);
+        nullMasks.put(colName, nulls);
+        return nulls;
+    }
+
+    /**
+     * the tuples of a table stream share the definition in most cases so the column index is looked up only when the
+     * definition changes
+     */
+    static class ColumnReader {
+        final String colName;
+        TupleDefinition lastDef;
+        int idx;
+
+        ColumnReader(String colName) {
+            this.colName = colName;
+        }
+
+        Object read(Tuple t) {
+            TupleDefinition def = t.getDefinition();
+            if (def != lastDef) {
+                idx = def.getColumnIndex(colName);
+                lastDef = def;
+            }
+            return idx == -1 ? null : t.getColumn(idx);
+        }
+    }
+}
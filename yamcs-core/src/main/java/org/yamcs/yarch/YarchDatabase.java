@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.yamcs.ConfigurationException;
 import org.yamcs.YConfiguration;
@@ -29,6 +30,10 @@ public class YarchDatabase {
     private static final String DEFAULT_STORAGE_ENGINE = RDB_ENGINE_NAME;
     private static final String defaultStorageEngineName;
 
+    // maximum number of partitions read concurrently by the table streams running in parallel mode
+    private static final int tableScanParallelism;
+    private static ForkJoinPool tableScanPool;
+
     static {
         config = YConfiguration.getConfiguration("yamcs");
         if (config.containsKey("dataDir")) {
@@ -49,6 +54,14 @@ public class YarchDatabase {
         } else {
             defaultStorageEngineName = DEFAULT_STORAGE_ENGINE;
         }
+        if (config.containsKey("tableScanParallelism")) {
+            tableScanParallelism = config.getInt("tableScanParallelism");
+            if (tableScanParallelism < 1) {
+                throw new ConfigurationException("tableScanParallelism has to be at least 1");
+            }
+        } else {
+            tableScanParallelism = Runtime.getRuntime().availableProcessors();
+        }
 
         if (se != null) {
             for (String s : se) {
@@ -137,4 +150,24 @@ public class YarchDatabase {
     public static String getDefaultStorageEngineName() {
         return defaultStorageEngineName;
     }
+
+    /**
+     * 
+     * @return the number of partitions that can be read in parallel by a table stream when the order of the tuples
+     *         is not important; configured with the tableScanParallelism option in yamcs.yaml
+     */
+    public static int getTableScanParallelism() {
+        return tableScanParallelism;
+    }
+
+    /**
+     * 
+     * @return the pool used by the table streams to read partitions in parallel
+     */
+    public static synchronized ForkJoinPool getTableScanPool() {
+        if (tableScanPool == null) {
+            tableScanPool = new ForkJoinPool(tableScanParallelism);
+        }
+        return tableScanPool;
+    }
 }
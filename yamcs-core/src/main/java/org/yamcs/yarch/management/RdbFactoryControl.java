@@ -0,0 +1,37 @@
+package org.yamcs.yarch.management;
+
+/**
+ * Metrics of the registry of open RocksDB databases residing under one data directory
+ */
+public interface RdbFactoryControl {
+    /**
+     * Returns the directory containing the databases
+     */
+    String getDataDir();
+
+    /**
+     * Returns the number of databases currently open
+     */
+    int getNumOpenDatabases();
+
+    /**
+     * Returns the number of times an open database has been found in the registry
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times a database had to be opened
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of times the reference count of a database could not be incremented from the first attempt
+     * because of concurrent access
+     */
+    long getContentionCount();
+
+    /**
+     * Returns the number of databases closed
+     */
+    long getCloseCount();
+}
@@ -0,0 +1,45 @@
+package org.yamcs.yarch.management;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
+import org.yamcs.yarch.rocksdb.RDBFactory;
+
+public class RdbFactoryControlImpl extends StandardMBean implements RdbFactoryControl {
+    final RDBFactory rdbFactory;
+
+    public RdbFactoryControlImpl(RDBFactory rdbFactory) throws NotCompliantMBeanException {
+        super(RdbFactoryControl.class);
+        this.rdbFactory = rdbFactory;
+    }
+
+    @Override
+    public String getDataDir() {
+        return rdbFactory.getDataDir();
+    }
+
+    @Override
+    public int getNumOpenDatabases() {
+        return rdbFactory.getOpenDbPaths().size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return rdbFactory.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return rdbFactory.getMissCount();
+    }
+
+    @Override
+    public long getContentionCount() {
+        return rdbFactory.getContentionCount();
+    }
+
+    @Override
+    public long getCloseCount() {
+        return rdbFactory.getCloseCount();
+    }
+}
@@ -1,16 +1,19 @@
 package org.yamcs.yarch.rocksdb;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.rocksdb.BackupEngine;
 import org.rocksdb.BackupableDBOptions;
@@ -20,6 +23,7 @@ import org.rocksdb.RestoreOptions;
 import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yamcs.management.ManagementService;
 import org.yamcs.yarch.BackupUtils;
 
 /**
@@ -27,23 +31,54 @@ import org.yamcs.yarch.BackupUtils;
  * {@link org.yamcs.yarch.rocksdb.Tablespace#getDataDir()}.
  * 
  * It runs a thread that synchronises them from time to time and closes those that have not been used in a while
+ * <p>
+ * The open databases are kept in a concurrent map and are reference counted; acquiring ({@link #getRdb}) and releasing
+ * ({@link #dispose(YRDB)}) an open database does not take any lock. A database can only be closed when its reference
+ * count is 0; the closing marks the reference count as -1 such that it cannot be acquired anymore. When the number of
+ * open databases exceeds {@link #maxOpenDbs}, the least recently used ones are closed on the scheduler thread.
+ * <p>
+ * Opening and closing a database is done while holding a lock specific to its path, such that a database is reopened
+ * only after the previous close has finished (otherwise RocksDB fails because the LOCK file is still held).
+ * <p>
+ * The factories created with {@link #getInstance(String)} are registered with the {@link ManagementService} which
+ * publishes their hit, miss, contention and close counters (over JMX if the JMXService is enabled).
  * 
  * @author nm
  *
  */
 public class RDBFactory implements Runnable {
-    HashMap<String, YRDB> databases = new HashMap<>();
+    final ConcurrentHashMap<String, YRDB> databases = new ConcurrentHashMap<>();
 
     static Logger log = LoggerFactory.getLogger(RDBFactory.class.getName());
     static HashMap<String, RDBFactory> instances = new HashMap<>();
     static int maxOpenDbs = 200;
     ScheduledThreadPoolExecutor scheduler;
     final String dataDir;
+    // the name used to find the RdbConfig.TablespaceConfig of the databases (e.g. the partitions) whose own name does
+    // not match any config
+    final String configName;
     public static FlushOptions flushOptions = new FlushOptions();
     static boolean registerShutdownHooks = true;
 
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    // relative path -> lock held while opening or closing the database; the number of paths is limited by the
+    // number of database directories so the locks are never removed
+    private final ConcurrentHashMap<String, Object> pathLocks = new ConcurrentHashMap<>();
+
+    // metrics
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder contentionCount = new LongAdder();
+    private final LongAdder closeCount = new LongAdder();
+
     public static synchronized RDBFactory getInstance(String dataDir) {
-        return instances.computeIfAbsent(dataDir, k -> new RDBFactory(k));
+        RDBFactory rdbFactory = instances.get(dataDir);
+        if (rdbFactory == null) {
+            rdbFactory = new RDBFactory(dataDir);
+            instances.put(dataDir, rdbFactory);
+            ManagementService.getInstance().registerRdbFactory(rdbFactory);
+        }
+        return rdbFactory;
     }
 
     /**
@@ -73,6 +108,7 @@ public class RDBFactory implements Runnable {
      */
     RDBFactory(String dataDir) {
         this.dataDir = dataDir;
+        this.configName = new File(dataDir).getName();
         flushOptions.setWaitForFlush(false);
         scheduler = new ScheduledThreadPoolExecutor(1, (ThreadFactory) r -> {
             Thread t = new Thread(r);
@@ -86,75 +122,151 @@ public class RDBFactory implements Runnable {
         }
     }
 
-    private synchronized YRDB rdb(String relativePath, boolean readonly) throws IOException {
-        YRDB db = databases.get(relativePath);
-        if (db == null) {
-            if (databases.size() >= maxOpenDbs) { // close the db with the oldest timestamp
-                long min = Long.MAX_VALUE;
-                String minFile = null;
-                for (Entry<String, YRDB> entry : databases.entrySet()) {
-                    YRDB rdb1 = entry.getValue();
-                    if ((rdb1.refcount == 0) && (rdb1.lastAccessTime < min)) {
-                        min = rdb1.lastAccessTime;
-                        minFile = entry.getKey();
-                    }
-                }
-                if (minFile != null) {
-                    log.debug("Closing the database: {}  to not have more than {} open databases", minFile, maxOpenDbs);
-                    YRDB rdb = databases.remove(minFile);
-                    rdb.close();
+    private YRDB rdb(String relativePath, boolean readonly) throws IOException {
+        while (true) {
+            YRDB db = databases.get(relativePath);
+            if (db == null) {
+                db = open(relativePath, readonly);
+            } else {
+                hitCount.increment();
+            }
+            if (acquire(db)) {
+                db.lastAccessTime = System.currentTimeMillis();
+                if (databases.size() > maxOpenDbs && evictionScheduled.compareAndSet(false, true)) {
+                    scheduler.execute(this::closeLeastRecentlyUsed);
                 }
+                return db;
+            }
+            // the database is being closed, make sure it is not found again and retry
+            databases.remove(relativePath, db);
+        }
+    }
+
+    private YRDB open(String relativePath, boolean readonly) throws IOException {
+        synchronized (getPathLock(relativePath)) {
+            YRDB db = databases.get(relativePath);
+            if (db != null) {
+                // opened in the meanwhile by another thread
+                hitCount.increment();
+                return db;
             }
-            String absolutePath = dataDir + "/" + relativePath;
+            String absolutePath = getAbsolutePath(relativePath);
             log.debug("Creating or opening RDB {}  total rdb open: {}", absolutePath, databases.size());
             try {
-                db = new YRDB(absolutePath, readonly);
+                db = new YRDB(absolutePath, configName, readonly);
                 log.debug("Opened {} with approximatively {} records", absolutePath, db.getApproxNumRecords());
             } catch (RocksDBException e) {
                 throw new IOException(e);
             }
-
+            db.lastAccessTime = System.currentTimeMillis();
             databases.put(relativePath, db);
+            missCount.increment();
+            return db;
+        }
+    }
+
+    private Object getPathLock(String relativePath) {
+        return pathLocks.computeIfAbsent(relativePath, k -> new Object());
+    }
+
+    // increments the reference count unless the database is being closed
+    private boolean acquire(YRDB db) {
+        while (true) {
+            int c = db.refcount.get();
+            if (c < 0) {
+                return false;
+            }
+            if (db.refcount.compareAndSet(c, c + 1)) {
+                return true;
+            }
+            contentionCount.increment();
+        }
+    }
+
+    /**
+     * closes the database if it is not in use
+     * 
+     * @return true if the database has been closed
+     */
+    private boolean closeIfUnused(String relativePath, YRDB db) {
+        synchronized (getPathLock(relativePath)) {
+            if (!db.refcount.compareAndSet(0, -1)) {
+                return false;
+            }
+            databases.remove(relativePath, db);
+            db.close();
+            closeCount.increment();
+            return true;
+        }
+    }
+
+    // closes the database even if it is in use
+    private void forceClose(String relativePath, YRDB db) {
+        synchronized (getPathLock(relativePath)) {
+            databases.remove(relativePath, db);
+            if (db.refcount.getAndSet(-1) >= 0) {
+                db.close();
+                closeCount.increment();
+            }
+        }
+    }
+
+    // called on the scheduler thread to bring the number of open databases under maxOpenDbs
+    private void closeLeastRecentlyUsed() {
+        evictionScheduled.set(false);
+        while (databases.size() > maxOpenDbs) {
+            long min = Long.MAX_VALUE;
+            Entry<String, YRDB> minEntry = null;
+            for (Entry<String, YRDB> entry : databases.entrySet()) {
+                YRDB rdb1 = entry.getValue();
+                if ((rdb1.refcount.get() == 0) && (rdb1.lastAccessTime < min)) {
+                    min = rdb1.lastAccessTime;
+                    minEntry = entry;
+                }
+            }
+            if (minEntry == null) {
+                return;
+            }
+            if (closeIfUnused(minEntry.getKey(), minEntry.getValue())) {
+                log.debug("Closed the database: {}  to not have more than {} open databases", minEntry.getKey(),
+                        maxOpenDbs);
+            }
         }
-        db.lastAccessTime = System.currentTimeMillis();
-        db.refcount++;
-        return db;
     }
 
     public void delete(String file) {
         del(file);
     }
 
-    private synchronized void del(String dir) {
-        YRDB db = databases.remove(dir);
+    private void del(String dir) {
+        YRDB db = databases.get(dir);
         if (db != null) {
-            db.close();
+            forceClose(dir, db);
         }
     }
 
     @Override
-    public synchronized void run() {
+    public void run() {
         // remove all the databases not accessed in the last 5 min and sync the others
         long time = System.currentTimeMillis();
-        Iterator<Map.Entry<String, YRDB>> it = databases.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, YRDB> entry = it.next();
+        for (Map.Entry<String, YRDB> entry : databases.entrySet()) {
             YRDB db = entry.getValue();
-            if ((db.refcount == 0) && (time - db.lastAccessTime > 300000)) {
-                log.debug("Closing the database: {}", entry.getKey());
-                db.close();
-                it.remove();
+            if ((db.refcount.get() == 0) && (time - db.lastAccessTime > 300000)) {
+                if (closeIfUnused(entry.getKey(), db)) {
+                    log.debug("Closed the database: {}", entry.getKey());
+                }
             }
         }
+        if (log.isDebugEnabled()) {
+            log.debug("{}: {} open databases, hits: {}, misses: {}, contention: {}, closed: {}", dataDir,
+                    databases.size(), getHitCount(), getMissCount(), getContentionCount(), getCloseCount());
+        }
     }
 
     synchronized void shutdown() {
         log.debug("shutting down, closing {} databases under {}: {}", databases.size(), dataDir, databases.keySet());
-        Iterator<Map.Entry<String, YRDB>> it = databases.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, YRDB> entry = it.next();
-            entry.getValue().close();
-            it.remove();
+        for (Map.Entry<String, YRDB> entry : databases.entrySet()) {
+            forceClose(entry.getKey(), entry.getValue());
         }
     }
 
@@ -165,9 +277,9 @@ public class RDBFactory implements Runnable {
         }
     }
 
-    public synchronized void dispose(YRDB rdb) {
+    public void dispose(YRDB rdb) {
         rdb.lastAccessTime = System.currentTimeMillis();
-        rdb.refcount--;
+        rdb.refcount.updateAndGet(c -> c > 0 ? c - 1 : c);
     }
 
     /**
@@ -175,10 +287,10 @@ public class RDBFactory implements Runnable {
      * 
      * @param relativePath
      */
-    public synchronized void closeIfOpen(String relativePath) {
-        YRDB db = databases.remove(relativePath);
+    public void closeIfOpen(String relativePath) {
+        YRDB db = databases.get(relativePath);
         if (db != null) {
-            db.close();
+            forceClose(relativePath, db);
         }
     }
 
@@ -204,17 +316,17 @@ public class RDBFactory implements Runnable {
      *            path of the database to be returned
      * @return the database object
      */
-    public synchronized YRDB getOpenRdb(String relativePath) {
+    public YRDB getOpenRdb(String relativePath) {
         YRDB db = databases.get(relativePath);
-        if (db == null) {
+        if (db == null || !acquire(db)) {
             return null;
         }
+        hitCount.increment();
         db.lastAccessTime = System.currentTimeMillis();
-        db.refcount++;
         return db;
     }
 
-    public synchronized List<String> getOpenDbPaths() {
+    public List<String> getOpenDbPaths() {
         return new ArrayList<>(databases.keySet());
     }
 
@@ -223,9 +335,53 @@ public class RDBFactory implements Runnable {
      * 
      * @param yrdb
      */
-    public synchronized void close(YRDB yrdb) {
-        databases.values().remove(yrdb);
-        yrdb.close();
+    public void close(YRDB yrdb) {
+        for (Map.Entry<String, YRDB> entry : databases.entrySet()) {
+            if (entry.getValue() == yrdb) {
+                forceClose(entry.getKey(), yrdb);
+                return;
+            }
+        }
+        if (yrdb.refcount.getAndSet(-1) >= 0) {
+            yrdb.close();
+            closeCount.increment();
+        }
+    }
+
+    /**
+     * @return the directory containing the databases
+     */
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    /**
+     * @return the number of times an open database has been found in the registry
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of times a database had to be opened
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of times the reference count of a database could not be incremented from the first attempt
+     *         because of concurrent access
+     */
+    public long getContentionCount() {
+        return contentionCount.sum();
+    }
+
+    /**
+     * @return the number of databases closed
+     */
+    public long getCloseCount() {
+        return closeCount.sum();
     }
 
     /**
@@ -332,6 +488,7 @@ public class RDBFactory implements Runnable {
     public static void shutdownAll() {
         for (RDBFactory r : instances.values()) {
             r.shutdown();
+            ManagementService.getInstance().unregisterRdbFactory(r);
         }
         instances.clear();
     }
@@ -1,14 +1,20 @@
 package org.yamcs.yarch.rocksdb;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.BloomFilter;
 import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionOptionsFIFO;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Env;
 import org.rocksdb.IndexType;
@@ -31,9 +37,15 @@ public class RdbConfig {
     public static final String KEY_OPTIONS = "options";
     public static final String KEY_TABLESPACE_NAME_PATTERN = "tablespaceNamePattern";
     public static final String KEY_TF_CONFIG = "tableFormatConfig";
+    public static final String KEY_TABLE_WRITER_CONFIG = "tableWriterConfig";
+    public static final String KEY_TABLE_NAME_PATTERN = "tableNamePattern";
+    public static final String KEY_PROFILE = "profile";
+    public static final String KEY_BLOCK_CACHE_SIZE = "blockCacheSize";
     public static final int DEFAULT_MAX_OPEN_FILES = 1000;
+    public static final long DEFAULT_BLOCK_CACHE_SIZE = 100L * 1024 * 1024;
 
-    private List<TablespaceConfig> tblConfigList = new ArrayList<>();
+    private List<TablespaceConfig> tblConfigList = new CopyOnWriteArrayList<>();
+    private List<TableWriterConfig> twConfigList = new ArrayList<>();
     final Env env;
     final ColumnFamilyOptions defaultColumnFamilyOptions;
     final Options defaultOptions;
@@ -50,8 +62,12 @@ public class RdbConfig {
     @SuppressWarnings("unchecked")
     private RdbConfig() {
         YConfiguration config = YConfiguration.getConfiguration("yamcs");
+        long blockCacheSize = DEFAULT_BLOCK_CACHE_SIZE;
         if (config.containsKey(KEY_RDB_CONFIG)) {
             Map<String, Object> rdbOptions = config.getMap(KEY_RDB_CONFIG);
+            if (rdbOptions.containsKey(KEY_BLOCK_CACHE_SIZE)) {
+                blockCacheSize = 1024L * YConfiguration.getLong(rdbOptions, KEY_BLOCK_CACHE_SIZE);
+            }
             if (rdbOptions.containsKey(KEY_TABLESPACE_CONFIG)) {
                 List<Object> tableConfigs = YConfiguration.getList(rdbOptions, KEY_TABLESPACE_CONFIG);
                 for (Object o : tableConfigs) {
@@ -63,6 +79,16 @@ public class RdbConfig {
                     tblConfigList.add(tblConf);
                 }
             }
+            if (rdbOptions.containsKey(KEY_TABLE_WRITER_CONFIG)) {
+                List<Object> twConfigs = YConfiguration.getList(rdbOptions, KEY_TABLE_WRITER_CONFIG);
+                for (Object o : twConfigs) {
+                    if (!(o instanceof Map)) {
+                        throw new ConfigurationException(
+                                "Error in rdbConfig -> tableWriterConfig in yamcs.yaml: the entries of tableWriterConfig have to be maps");
+                    }
+                    twConfigList.add(new TableWriterConfig((Map<String, Object>) o));
+                }
+            }
         }
 
         env = Env.getDefault();
@@ -70,7 +96,8 @@ public class RdbConfig {
 
         BlockBasedTableConfig tableFormatConfig = new BlockBasedTableConfig();
         tableFormatConfig.setBlockSize(256 * 1024);// 256KB
-        tableFormatConfig.setBlockCacheSize(100l * 1024 * 1024);// 50MB
+        // shared by all the databases opened with the default options
+        tableFormatConfig.setBlockCacheSize(blockCacheSize);
         tableFormatConfig.setFilter(new BloomFilter());
         tableFormatConfig.setIndexType(IndexType.kTwoLevelIndexSearch);
 
@@ -118,6 +145,18 @@ public class RdbConfig {
         return defaultDBOptions;
     }
 
+    /**
+     * Adds a tablespace config which has priority over the ones read from the configuration file.
+     * <p>
+     * It has to be called before the databases of the tablespace are open.
+     * 
+     * @param m
+     *            the tablespace config in the same format as an entry of the {@value #KEY_TABLESPACE_CONFIG} list
+     */
+    public void addTablespaceConfig(Map<String, Object> m) {
+        tblConfigList.add(0, new TablespaceConfig(m));
+    }
+
     /**
      * 
      * @param tableName
@@ -133,16 +172,64 @@ public class RdbConfig {
         return null;
     }
 
+    /**
+     * Adds a table writer config which has priority over the ones read from the configuration file.
+     * <p>
+     * It applies to the table writers created afterwards.
+     * 
+     * @param m
+     *            the table writer config in the same format as an entry of the {@value #KEY_TABLE_WRITER_CONFIG} list
+     */
+    public void addTableWriterConfig(Map<String, Object> m) {
+        twConfigList.add(0, new TableWriterConfig(m));
+    }
+
+    /**
+     * 
+     * @param tableName
+     * @return the first table writer config that matches the table name or null if no config matches
+     */
+    public TableWriterConfig getTableWriterConfig(String tableName) {
+        for (TableWriterConfig twc : twConfigList) {
+            if (twc.tableNamePattern.matcher(tableName).matches()) {
+                return twc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Predefined tunings of the column families, selected with the {@value #KEY_PROFILE} option of a tablespace config.
+     * The options explicitly configured are applied on top of the profile.
+     */
+    public enum Profile {
+        /**
+         * the RocksDB defaults
+         */
+        DEFAULT,
+        /**
+         * tuned for the append-mostly, time-keyed tables (tm, pp, events, parameter archive):
+         * <ul>
+         * <li>bloom filters built on the 4 bytes tbsIndex prefix (in the memtables and in the SST files) such that the
+         * files not containing a table are skipped;</li>
+         * <li>partitioned index, index and filter blocks cached (and pinned for level 0) in the block cache;</li>
+         * <li>LZ4 compression for the first (hot) levels and ZSTD for the last (cold) ones;</li>
+         * <li>level compaction with dynamic level sizes.</li>
+         * </ul>
+         */
+        TIME_SERIES
+    }
+
     public static class TablespaceConfig {
         Pattern tableNamePattern;
+        Profile profile;
         ColumnFamilyOptions cfOptions = new ColumnFamilyOptions();
         // these options are used for the default column family when the database is open
         // for some strange reason we cannot use the cfOptions for that
-        Options options = new Options();
+        // they are built from the cfOptions and dboptions such that both have the same settings
+        Options options;
         DBOptions dboptions = new DBOptions();
 
-        long targetFileSizeBase;
-
         TablespaceConfig(Map<String, Object> m) throws ConfigurationException {
             String s = YConfiguration.getString(m, KEY_TABLESPACE_NAME_PATTERN);
             try {
@@ -150,63 +237,181 @@ public class RdbConfig {
             } catch (PatternSyntaxException e) {
                 throw new ConfigurationException("Cannot parse regexp " + e);
             }
-            options.setCreateIfMissing(true);
+            profile = m.containsKey(KEY_PROFILE) ? YConfiguration.getEnum(m, KEY_PROFILE, Profile.class)
+                    : Profile.DEFAULT;
             int maxOpenFiles = YConfiguration.getInt(m, "maxOpenFiles", DEFAULT_MAX_OPEN_FILES);
             if (maxOpenFiles < 20) {
                 throw new ConfigurationException("Exception when reading table configuration for '" + tableNamePattern
                         + "': maxOpenFiles has to be at least 20");
             }
-            options.setMaxOpenFiles(maxOpenFiles);
+            dboptions.setCreateIfMissing(true);
             dboptions.setMaxOpenFiles(maxOpenFiles);
 
+            if (profile == Profile.TIME_SERIES) {
+                setTimeSeriesProfile();
+            }
             if (m.containsKey(KEY_OPTIONS)) {
-                Map<String, Object> cm = YConfiguration.getMap(m, KEY_OPTIONS);
-                if (cm.containsKey("targetFileSizeBase")) {
-                    options.setTargetFileSizeBase(1024 * YConfiguration.getLong(cm, "targetFileSizeBase"));
-                }
-                if (cm.containsKey("targetFileSizeMultiplier")) {
-                    options.setTargetFileSizeMultiplier(YConfiguration.getInt(cm, "targetFileSizeMultiplier"));
-                }
-                if (cm.containsKey("maxBytesForLevelBase")) {
-                    options.setMaxBytesForLevelBase(1024 * YConfiguration.getLong(cm, "maxBytesForLevelBase"));
-                }
-                if (cm.containsKey("writeBufferSize")) {
-                    options.setWriteBufferSize(1024 * YConfiguration.getLong(cm, "writeBufferSize"));
-                }
-                if (cm.containsKey("maxBytesForLevelMultiplier")) {
-                    options.setMaxBytesForLevelMultiplier(YConfiguration.getInt(cm, "maxBytesForLevelMultiplier"));
+                setOptions(YConfiguration.getMap(m, KEY_OPTIONS));
+            }
+            // without an explicit profile or table format config, the databases keep the RocksDB default table format
+            if (m.containsKey(KEY_PROFILE) || m.containsKey(KEY_TF_CONFIG)) {
+                BlockBasedTableConfig tableFormatConfig = new BlockBasedTableConfig();
+                if (profile == Profile.TIME_SERIES) {
+                    setTimeSeriesTableFormat(tableFormatConfig);
                 }
-                if (cm.containsKey("maxWriteBufferNumber")) {
-                    options.setMaxWriteBufferNumber(YConfiguration.getInt(cm, "maxWriteBufferNumber"));
+                Map<String, Object> tfc = m.containsKey(KEY_TF_CONFIG) ? YConfiguration.getMap(m, KEY_TF_CONFIG)
+                        : Collections.emptyMap();
+                setTableFormatConfig(tableFormatConfig, tfc);
+                // the same table format config (and therefore the same block cache) is used by all the databases
+                // matching this config
+                cfOptions.setTableFormatConfig(tableFormatConfig);
+            }
+            // as before the profiles, the prefix extractor is only set together with the options, such that the
+            // existing databases configured without options are open as they were created
+            if (m.containsKey(KEY_PROFILE) || m.containsKey(KEY_OPTIONS)) {
+                cfOptions.useFixedLengthPrefixExtractor(4);
+            }
+            options = new Options(dboptions, cfOptions);
+        }
+
+        private void setTimeSeriesTableFormat(BlockBasedTableConfig tableFormatConfig) {
+            tableFormatConfig.setBlockSize(256 * 1024);
+            tableFormatConfig.setBlockCacheSize(DEFAULT_BLOCK_CACHE_SIZE);
+            tableFormatConfig.setFilter(new BloomFilter(10, false));
+            tableFormatConfig.setWholeKeyFiltering(false);
+            tableFormatConfig.setCacheIndexAndFilterBlocks(true);
+            tableFormatConfig.setPinL0FilterAndIndexBlocksInCache(true);
+        }
+
+        private void setTimeSeriesProfile() {
+            cfOptions.setWriteBufferSize(50 * 1024 * 1024);
+            cfOptions.setMemtablePrefixBloomSizeRatio(0.1);
+            cfOptions.setLevelCompactionDynamicLevelBytes(true);
+            cfOptions.setCompressionPerLevel(Arrays.asList(CompressionType.LZ4_COMPRESSION,
+                    CompressionType.LZ4_COMPRESSION, CompressionType.LZ4_COMPRESSION, CompressionType.ZSTD_COMPRESSION,
+                    CompressionType.ZSTD_COMPRESSION, CompressionType.ZSTD_COMPRESSION,
+                    CompressionType.ZSTD_COMPRESSION));
+            cfOptions.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION);
+        }
+
+        private void setOptions(Map<String, Object> cm) {
+            if (cm.containsKey("targetFileSizeBase")) {
+                cfOptions.setTargetFileSizeBase(1024 * YConfiguration.getLong(cm, "targetFileSizeBase"));
+            }
+            if (cm.containsKey("targetFileSizeMultiplier")) {
+                cfOptions.setTargetFileSizeMultiplier(YConfiguration.getInt(cm, "targetFileSizeMultiplier"));
+            }
+            if (cm.containsKey("maxBytesForLevelBase")) {
+                cfOptions.setMaxBytesForLevelBase(1024 * YConfiguration.getLong(cm, "maxBytesForLevelBase"));
+            }
+            if (cm.containsKey("writeBufferSize")) {
+                cfOptions.setWriteBufferSize(1024 * YConfiguration.getLong(cm, "writeBufferSize"));
+            }
+            if (cm.containsKey("maxBytesForLevelMultiplier")) {
+                cfOptions.setMaxBytesForLevelMultiplier(YConfiguration.getInt(cm, "maxBytesForLevelMultiplier"));
+            }
+            if (cm.containsKey("maxWriteBufferNumber")) {
+                cfOptions.setMaxWriteBufferNumber(YConfiguration.getInt(cm, "maxWriteBufferNumber"));
+            }
+            if (cm.containsKey("minWriteBufferNumberToMerge")) {
+                cfOptions.setMinWriteBufferNumberToMerge(YConfiguration.getInt(cm, "minWriteBufferNumberToMerge"));
+            }
+            if (cm.containsKey("memtablePrefixBloomSizeRatio")) {
+                cfOptions.setMemtablePrefixBloomSizeRatio(
+                        YConfiguration.getDouble(cm, "memtablePrefixBloomSizeRatio", 0));
+            }
+            if (cm.containsKey("compression")) {
+                CompressionType ct = getCompressionType(cm, "compression");
+                cfOptions.setCompressionType(ct);
+                cfOptions.setCompressionPerLevel(Collections.emptyList());
+            }
+            if (cm.containsKey("compressionPerLevel")) {
+                List<Object> l = YConfiguration.getList(cm, "compressionPerLevel");
+                List<CompressionType> ctl = new ArrayList<>(l.size());
+                for (Object o : l) {
+                    ctl.add(getCompressionType(o.toString()));
                 }
-                if (cm.containsKey("minWriteBufferNumberToMerge")) {
-                    options.setMinWriteBufferNumberToMerge(YConfiguration.getInt(cm, "minWriteBufferNumberToMerge"));
+                cfOptions.setCompressionPerLevel(ctl);
+            }
+            if (cm.containsKey("bottommostCompression")) {
+                cfOptions.setBottommostCompressionType(getCompressionType(cm, "bottommostCompression"));
+            }
+            if (cm.containsKey("compactionStyle")) {
+                CompactionStyle cs = YConfiguration.getEnum(cm, "compactionStyle", CompactionStyle.class);
+                cfOptions.setCompactionStyle(cs);
+                if (cs == CompactionStyle.FIFO) {
+                    if (!cm.containsKey("fifoMaxTableFilesSize")) {
+                        throw new ConfigurationException("Exception when reading table configuration for '"
+                                + tableNamePattern + "': fifoMaxTableFilesSize is required for the FIFO compaction");
+                    }
+                    CompactionOptionsFIFO fifoOptions = new CompactionOptionsFIFO();
+                    fifoOptions.setMaxTableFilesSize(1024 * YConfiguration.getLong(cm, "fifoMaxTableFilesSize"));
+                    cfOptions.setCompactionOptionsFIFO(fifoOptions);
+                } else if (cs == CompactionStyle.UNIVERSAL) {
+                    cfOptions.setLevelCompactionDynamicLevelBytes(false);
                 }
+            }
+        }
 
-                if (m.containsKey(KEY_TF_CONFIG)) {
-                    Map<String, Object> tfc = YConfiguration.getMap(m, KEY_TF_CONFIG);
-                    BlockBasedTableConfig tableFormatConfig = new BlockBasedTableConfig();
-                    if (tfc.containsKey("blockSize")) {
-                        tableFormatConfig.setBlockSize(1024L * YConfiguration.getLong(tfc, "blockSize"));
-                    }
-                    if (tfc.containsKey("blockCacheSize")) {
-                        tableFormatConfig.setBlockCacheSize(1024L * YConfiguration.getLong(tfc, "blockCacheSize"));
-                    }
-                    if (tfc.containsKey("noBlockCache")) {
-                        tableFormatConfig.setNoBlockCache(YConfiguration.getBoolean(tfc, "noBlockCache"));
-                    }
+        private void setTableFormatConfig(BlockBasedTableConfig tableFormatConfig, Map<String, Object> tfc) {
+            if (tfc.containsKey("blockSize")) {
+                tableFormatConfig.setBlockSize(1024L * YConfiguration.getLong(tfc, "blockSize"));
+            }
+            if (tfc.containsKey("blockCacheSize")) {
+                tableFormatConfig.setBlockCacheSize(1024L * YConfiguration.getLong(tfc, "blockCacheSize"));
+            }
+            if (tfc.containsKey("noBlockCache")) {
+                tableFormatConfig.setNoBlockCache(YConfiguration.getBoolean(tfc, "noBlockCache"));
+            }
+            if (tfc.containsKey("bloomFilterBitsPerKey")) {
+                int bitsPerKey = YConfiguration.getInt(tfc, "bloomFilterBitsPerKey");
+                tableFormatConfig.setFilter(new BloomFilter(bitsPerKey, false));
+            }
+            if (tfc.containsKey("wholeKeyFiltering")) {
+                tableFormatConfig.setWholeKeyFiltering(YConfiguration.getBoolean(tfc, "wholeKeyFiltering"));
+            }
+            if (tfc.containsKey("cacheIndexAndFilterBlocks")) {
+                tableFormatConfig
+                        .setCacheIndexAndFilterBlocks(YConfiguration.getBoolean(tfc, "cacheIndexAndFilterBlocks"));
+            }
+            if (tfc.containsKey("pinL0FilterAndIndexBlocksInCache")) {
+                tableFormatConfig.setPinL0FilterAndIndexBlocksInCache(
+                        YConfiguration.getBoolean(tfc, "pinL0FilterAndIndexBlocksInCache"));
+            }
 
-                    boolean partitionedIndex = YConfiguration.getBoolean(tfc, "partitionedIndex", true);
-                    tableFormatConfig
-                            .setIndexType(partitionedIndex ? IndexType.kTwoLevelIndexSearch : IndexType.kBinarySearch);
+            boolean partitionedIndex = YConfiguration.getBoolean(tfc, "partitionedIndex", true);
+            tableFormatConfig
+                    .setIndexType(partitionedIndex ? IndexType.kTwoLevelIndexSearch : IndexType.kBinarySearch);
+        }
 
-                    options.setTableFormatConfig(tableFormatConfig);
+        private CompressionType getCompressionType(Map<String, Object> m, String key) {
+            return getCompressionType(YConfiguration.getString(m, key));
+        }
 
-                }
-                options.useFixedLengthPrefixExtractor(4);
+        private CompressionType getCompressionType(String s) {
+            switch (s.toLowerCase()) {
+            case "none":
+                return CompressionType.NO_COMPRESSION;
+            case "snappy":
+                return CompressionType.SNAPPY_COMPRESSION;
+            case "zlib":
+                return CompressionType.ZLIB_COMPRESSION;
+            case "lz4":
+                return CompressionType.LZ4_COMPRESSION;
+            case "lz4hc":
+                return CompressionType.LZ4HC_COMPRESSION;
+            case "zstd":
+                return CompressionType.ZSTD_COMPRESSION;
+            default:
+                throw new ConfigurationException("Exception when reading table configuration for '" + tableNamePattern
+                        + "': invalid compression '" + s + "'. Valid values are: none, snappy, zlib, lz4, lz4hc, zstd");
             }
         }
 
+        public Profile getProfile() {
+            return profile;
+        }
+
         public ColumnFamilyOptions getColumnFamilyOptions() {
             return cfOptions;
         }
@@ -219,4 +424,44 @@ public class RdbConfig {
             return dboptions;
         }
     }
+
+    /**
+     * Configuration of the batched write path of the {@link RdbTableWriter}.
+     * <p>
+     * When a table matches the pattern, the tuples are accumulated in one write batch per database and written when
+     * the batch reaches {@code batchSize} tuples or when the oldest tuple in the batch is older than
+     * {@code flushInterval} milliseconds.
+     */
+    public static class TableWriterConfig {
+        Pattern tableNamePattern;
+        int batchSize;
+        long flushInterval;
+
+        TableWriterConfig(Map<String, Object> m) throws ConfigurationException {
+            String s = YConfiguration.getString(m, KEY_TABLE_NAME_PATTERN);
+            try {
+                tableNamePattern = Pattern.compile(s);
+            } catch (PatternSyntaxException e) {
+                throw new ConfigurationException("Cannot parse regexp " + e);
+            }
+            batchSize = YConfiguration.getInt(m, "batchSize", 1000);
+            if (batchSize < 1) {
+                throw new ConfigurationException("Exception when reading table writer configuration for '"
+                        + tableNamePattern + "': batchSize has to be at least 1");
+            }
+            flushInterval = YConfiguration.getLong(m, "flushInterval", 200);
+            if (flushInterval < 1) {
+                throw new ConfigurationException("Exception when reading table writer configuration for '"
+                        + tableNamePattern + "': flushInterval has to be at least 1 millisecond");
+            }
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public long getFlushInterval() {
+            return flushInterval;
+        }
+    }
 }
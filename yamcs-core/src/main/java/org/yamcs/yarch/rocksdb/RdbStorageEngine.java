@@ -118,7 +118,8 @@ public class RdbStorageEngine implements StorageEngine {
         }
         checkFormatVersion(ydb, tblDef);
 
-        return new RdbTableWriter(getTablespace(ydb, tblDef), ydb, tblDef, insertMode, partitionManagers.get(tblDef));
+        return new RdbTableWriter(getTablespace(ydb, tblDef), ydb, tblDef, insertMode, partitionManagers.get(tblDef),
+                RdbConfig.getInstance().getTableWriterConfig(tblDef.getName()));
     }
 
     @Override
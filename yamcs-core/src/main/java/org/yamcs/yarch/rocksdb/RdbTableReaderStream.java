@@ -58,7 +58,8 @@ public class RdbTableReaderStream extends AbstractTableReaderStream implements R
      * 
      */
     @Override
-    protected boolean runPartitions(List<Partition> partitions, IndexFilter range) throws IOException {
+    protected boolean runPartitions(List<Partition> partitions, IndexFilter range, RowProcessor processor)
+            throws IOException {
        
         byte[] rangeStart=null;
         boolean strictStart=false;
@@ -78,13 +79,14 @@ public class RdbTableReaderStream extends AbstractTableReaderStream implements R
             }
         }
         
-        return runValuePartitions(partitions, rangeStart, strictStart, rangeEnd, strictEnd);
+        return runValuePartitions(partitions, rangeStart, strictStart, rangeEnd, strictEnd, processor);
     }
 
     /*
      * runs value based partitions: the partition value is encoded as the first bytes of the key, so we have to make multiple parallel iterators
      */
-    private boolean runValuePartitions(List<Partition> partitions, byte[] rangeStart, boolean strictStart, byte[] rangeEnd, boolean strictEnd) {
+    private boolean runValuePartitions(List<Partition> partitions, byte[] rangeStart, boolean strictStart,
+            byte[] rangeEnd, boolean strictEnd, RowProcessor processor) {
         DbIterator iterator = null;
         
         RdbPartition p1 = (RdbPartition) partitions.get(0);
@@ -128,9 +130,9 @@ public class RdbTableReaderStream extends AbstractTableReaderStream implements R
                 iterator = new MergingIterator(itList, ascending?new SuffixAscendingComparator(4):new SuffixDescendingComparator(4) );
             }
             if(ascending) {
-                return runAscending(iterator, rangeEnd, strictEnd);
+                return runAscending(iterator, rangeEnd, strictEnd, processor);
             } else {
-                return runDescending(iterator, rangeStart, strictStart);
+                return runDescending(iterator, rangeStart, strictStart, processor);
             }
         } finally {
             if(iterator!=null) {
@@ -144,11 +146,11 @@ public class RdbTableReaderStream extends AbstractTableReaderStream implements R
         }
     }
     
-    boolean runAscending(DbIterator iterator, byte[] rangeEnd, boolean strictEnd) {
+    boolean runAscending(DbIterator iterator, byte[] rangeEnd, boolean strictEnd, RowProcessor processor) {
         while(!quit && iterator.isValid()){
             byte[] dbKey = iterator.key();
             byte[] key = Arrays.copyOfRange(dbKey, 4, dbKey.length);
-            if(!emitIfNotPastStop(key, iterator.value(), rangeEnd, strictEnd)) {
+            if(!processor.emitIfNotPastStop(key, iterator.value(), rangeEnd, strictEnd)) {
                 return true;
             }
             iterator.next();
@@ -156,11 +158,12 @@ public class RdbTableReaderStream extends AbstractTableReaderStream implements R
         return false;
     }
     
-    boolean runDescending(DbIterator iterator, byte[] rangeStart, boolean strictStart) {
+    boolean runDescending(DbIterator iterator, byte[] rangeStart, boolean strictStart,
+            RowProcessor processor) {
         while(!quit && iterator.isValid()){
             byte[] dbKey = iterator.key();
             byte[] key = Arrays.copyOfRange(dbKey, 4, dbKey.length);
-            if(!emitIfNotPastStart(key, iterator.value(), rangeStart, strictStart)) {
+            if(!processor.emitIfNotPastStart(key, iterator.value(), rangeStart, strictStart)) {
                 return true;
             }
             iterator.prev();
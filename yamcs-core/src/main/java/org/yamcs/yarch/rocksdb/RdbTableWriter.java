@@ -3,13 +3,23 @@ package org.yamcs.yarch.rocksdb;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.rocksdb.DBOptions;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatchWithIndex;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yamcs.CrashHandler;
 import org.yamcs.YamcsServer;
-import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.utils.ByteArray;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.ColumnSerializer;
@@ -22,12 +32,24 @@ import org.yamcs.yarch.TableWriter;
 import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.rocksdb.RdbConfig.TableWriterConfig;
 
 import static org.yamcs.yarch.rocksdb.RdbStorageEngine.dbKey;
-import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;;
+import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;
 
 /**
  * table writer that prepends the partition binary value in front of the key
+ * <p>
+ * If a {@link TableWriterConfig} is given, the writer works in batch mode: the tuples are accumulated into one
+ * {@link WriteBatchWithIndex} per database and written when the number of pending tuples reaches the configured batch
+ * size or, from a background thread, when the oldest pending tuple is older than the configured flush interval. The
+ * existence checks required by the INSERT/UPSERT modes are performed first against the pending batch and then against
+ * the database, skipping the database lookup if the bloom filter says the key cannot exist. The tuples are received
+ * one by one from the stream such that the lookups are done for each key with {@link org.rocksdb.RocksDB#keyMayExist}
+ * rather than for a group of keys with a multiGet; both use the same bloom filters.
+ * <p>
+ * The batch size, flush latency and queue depth are accumulated for all the writers of a table in
+ * {@link RdbTableWriterStats} and published as system parameters.
  * 
  * @author nm
  *
@@ -39,19 +61,84 @@ public class RdbTableWriter extends TableWriter {
     static final byte[] zerobytes = new byte[0];
     Tablespace tablespace;
 
+    // batch mode; null if each tuple is written directly in the database
+    final TableWriterConfig batchConfig;
+    // one batch for each database with pending data; each holds a reference to the database until flushed
+    private final Map<YRDB, PendingBatch> batches = new IdentityHashMap<>();
+    private volatile int numPending = 0;
+    private long oldestPendingTime;
+    private ScheduledFuture<?> flushFuture;
+    private RdbTableWriterStats stats;
+    private final StringBuilder keyMayExistValue = new StringBuilder();
+    static final DBOptions batchDbOptions = new DBOptions();
+    static final ThreadLocal<ByteArray> keyBuffer = ThreadLocal.withInitial(() -> new ByteArray(256));
+    static ScheduledThreadPoolExecutor flushExecutor;
+
     public RdbTableWriter(Tablespace tablespace, YarchDatabaseInstance ydb, TableDefinition tableDefinition,
             InsertMode mode, RdbPartitionManager pm) {
+        this(tablespace, ydb, tableDefinition, mode, pm, null);
+    }
+
+    public RdbTableWriter(Tablespace tablespace, YarchDatabaseInstance ydb, TableDefinition tableDefinition,
+            InsertMode mode, RdbPartitionManager pm, TableWriterConfig batchConfig) {
         super(ydb, tableDefinition, mode);
         this.partitioningSpec = tableDefinition.getPartitioningSpec();
         this.partitionManager = pm;
         this.tablespace = tablespace;
+        this.batchConfig = batchConfig;
+        if (batchConfig != null) {
+            stats = RdbTableWriterStats.register(ydb.getYamcsInstance(), this);
+            long interval = batchConfig.getFlushInterval();
+            flushFuture = getFlushExecutor().scheduleAtFixedRate(this::flushIfExpired, interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static synchronized ScheduledThreadPoolExecutor getFlushExecutor() {
+        if (flushExecutor == null) {
+            flushExecutor = new ScheduledThreadPoolExecutor(1, (ThreadFactory) r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("RdbTableWriter-flush");
+                return t;
+            });
+        }
+        return flushExecutor;
     }
 
     @Override
     public void onTuple(Stream stream, Tuple t) {
+        if (batchConfig == null) {
+            writeTuple(t);
+            return;
+        }
+        synchronized (this) {
+            if (!writeTuple(t)) {
+                return;
+            }
+            if (numPending == 0) {
+                oldestPendingTime = System.currentTimeMillis();
+            }
+            numPending++;
+            if (numPending >= batchConfig.getBatchSize()) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * writes the tuple to the database or, in batch mode, adds it to the pending batch
+     * 
+     * @return false if the tuple could not be written (the error has been logged and reported to the crash handler)
+     */
+    private boolean writeTuple(Tuple t) {
         try {
             RdbPartition partition = getDbPartition(t);
             YRDB db = tablespace.getRdb(partition.dir, false);
+            if (batchConfig != null && !batches.containsKey(db)) {
+                // the batch keeps its own reference such that the database is not closed before the flush
+                batches.put(db, new PendingBatch(tablespace.getRdb(partition.dir, false)));
+            }
 
             boolean inserted = false;
             boolean updated = false;
@@ -81,27 +168,107 @@ public class RdbTableWriter extends TableWriter {
                 // TODO updateHistogram(t);
             }
             tablespace.dispose(db);
+            return true;
         } catch (IOException | RocksDBException e) {
             log.error("failed to insert a record: ", e);
-            YamcsServer.getServer().getCrashHandler(ydb.getYamcsInstance()).handleCrash("Archive",
+            getCrashHandler().handleCrash("Archive",
                     "failed to insert a record in " + tableDefinition.getName() + ": " + e);
+            return false;
+        }
+    }
+
+    private synchronized void flushIfExpired() {
+        // an exception escaping from here would cancel the periodic flush
+        try {
+            if (numPending > 0 && System.currentTimeMillis() - oldestPendingTime >= batchConfig.getFlushInterval()) {
+                flush();
+            }
+        } catch (Throwable t) {
+            log.error("Error when flushing the pending records of {}", tableDefinition.getName(), t);
+        }
+    }
+
+    /**
+     * Writes all the pending batches to the databases. In non batch mode this does nothing.
+     * <p>
+     * A batch that cannot be written (including because of a runtime exception) is reported to the crash handler of the
+     * instance, like the failure of a direct write; its tuples are lost but the batches of the other databases are
+     * still written.
+     */
+    public synchronized void flush() {
+        if (batches.isEmpty()) {
+            return;
+        }
+        long t0 = System.nanoTime();
+        try (WriteOptions wo = new WriteOptions()) {
+            for (PendingBatch pb : batches.values()) {
+                try {
+                    writeBatch(pb.db, wo, pb.writeBatch);
+                } catch (RocksDBException | RuntimeException e) {
+                    log.error("failed to write a batch of records: ", e);
+                    getCrashHandler().handleCrash("Archive",
+                            "failed to write a batch of records in " + tableDefinition.getName() + ": " + e);
+                } finally {
+                    pb.writeBatch.close();
+                    tablespace.dispose(pb.db);
+                }
+            }
+        } finally {
+            batches.clear();
+            stats.flushed(numPending, System.nanoTime() - t0);
+            numPending = 0;
+        }
+    }
+
+    void writeBatch(YRDB db, WriteOptions wo, WriteBatchWithIndex writeBatch) throws RocksDBException {
+        db.getDb().write(wo, writeBatch);
+    }
+
+    CrashHandler getCrashHandler() {
+        return YamcsServer.getServer().getCrashHandler(ydb.getYamcsInstance());
+    }
+
+    /**
+     * retrieves the value from the pending batch (if any) and from the database.
+     */
+    private byte[] get(YRDB db, byte[] k) throws RocksDBException {
+        PendingBatch pb = batches.get(db);
+        if (pb == null) {
+            return db.get(k);
+        }
+        byte[] v = pb.writeBatch.getFromBatch(batchDbOptions, k);
+        if (v != null) {
+            return v;
         }
+        keyMayExistValue.setLength(0);
+        if (!db.getDb().keyMayExist(k, keyMayExistValue)) {
+            return null;
+        }
+        return db.get(k);
+    }
 
+    private void put(YRDB db, byte[] k, byte[] v) throws RocksDBException {
+        PendingBatch pb = batches.get(db);
+        if (pb == null) {
+            db.put(k, v);
+        } else {
+            pb.writeBatch.put(k, v);
+        }
     }
     private boolean load(YRDB db, RdbPartition partition, Tuple t) throws RocksDBException {
-        byte[] k = getPartitionKey(partition, tableDefinition.serializeKey(t));
+        byte[] k = getPartitionKey(partition, t);
         byte[] v = tableDefinition.serializeValue(t);
 
-        db.put(k, v);
+        put(db, k, v);
         return true;
     }
     
     private boolean insert(YRDB db, RdbPartition partition, Tuple t) throws RocksDBException {
-        byte[] k = getPartitionKey(partition, tableDefinition.serializeKey(t));
+        byte[] k = getPartitionKey(partition, t);
         byte[] v = tableDefinition.serializeValue(t);
 
-        if (db.get(k) == null) {
-            db.put(k, v);
+        if (get(db, k) == null) {
+            put(db, k, v);
             return true;
         } else {
             return false;
@@ -109,14 +276,14 @@ public class RdbTableWriter extends TableWriter {
     }
 
     private boolean upsert(YRDB db, RdbPartition partition, Tuple t) throws RocksDBException {
-        byte[] k = getPartitionKey(partition, tableDefinition.serializeKey(t));
+        byte[] k = getPartitionKey(partition, t);
         byte[] v = tableDefinition.serializeValue(t);
-        if (db.get(k) == null) {
+        if (get(db, k) == null) {
 
-            db.put(k, v);
+            put(db, k, v);
             return true;
         } else {
-            db.put(k, v);
+            put(db, k, v);
             return false;
         }
     }
@@ -129,8 +296,8 @@ public class RdbTableWriter extends TableWriter {
      * @throws RocksDBException
      */
     private boolean insertAppend(YRDB db, RdbPartition partition, Tuple t) throws RocksDBException {
-        byte[] k = getPartitionKey(partition, tableDefinition.serializeKey(t));
-        byte[] v = db.get(k);
+        byte[] k = getPartitionKey(partition, t);
+        byte[] v = get(db, k);
         boolean inserted = false;
         if (v != null) {// append to an existing row
             Tuple oldt = tableDefinition.deserialize(k, v);
@@ -150,20 +317,20 @@ public class RdbTableWriter extends TableWriter {
             if (changed) {
                 oldt.setColumns(cols);
                 v = tableDefinition.serializeValue(oldt);
-                db.put(k, v);
+                put(db, k, v);
             }
         } else {// new row
             inserted = true;
             v = tableDefinition.serializeValue(t);
-            db.put(k, v);
+            put(db, k, v);
         }
         return inserted;
     }
 
     private boolean upsertAppend(YRDB db, RdbPartition partition, Tuple t) throws RocksDBException {
-        byte[] dbKey = getPartitionKey(partition, tableDefinition.serializeKey(t));
+        byte[] dbKey = getPartitionKey(partition, t);
 
-        byte[] v = db.get(dbKey);
+        byte[] v = get(db, dbKey);
         boolean inserted = false;
         if (v != null) {// append to an existing row
             byte[] k = Arrays.copyOfRange(dbKey, TBS_INDEX_SIZE, dbKey.length);
@@ -189,21 +356,23 @@ public class RdbTableWriter extends TableWriter {
             if (changed) {
                 oldt.setColumns(cols);
                 v = tableDefinition.serializeValue(oldt);
-                db.put(dbKey, v);
+                put(db, dbKey, v);
             }
         } else {// new row
             inserted = true;
             v = tableDefinition.serializeValue(t);
-            db.put(dbKey, v);
+            put(db, dbKey, v);
         }
         return inserted;
     }
 
-    // prepends the partition binary value to the key
-    private byte[] getPartitionKey(RdbPartition partition, byte[] k) {
-        byte[] pk = ByteArrayUtils.encodeInt(partition.tbsIndex, new byte[4 + k.length], 0);
-        System.arraycopy(k, 0, pk, 4, k.length);
-        return pk;
+    // serializes the key prepended by the partition binary value
+    private byte[] getPartitionKey(RdbPartition partition, Tuple t) {
+        ByteArray array = keyBuffer.get();
+        array.reset();
+        array.addInt(partition.tbsIndex);
+        tableDefinition.serializeKey(t, array);
+        return array.toArray();
     }
 
     /**
@@ -231,12 +400,34 @@ public class RdbTableWriter extends TableWriter {
         return (RdbPartition) partitionManager.createAndGetPartition(time, value);
     }
 
+    @Override
     public void close() {
+        if (batchConfig != null) {
+            flushFuture.cancel(false);
+            flush();
+            RdbTableWriterStats.unregister(this);
+        }
+    }
+
+    /**
+     * 
+     * @return the number of tuples waiting in the batches to be written to the database
+     */
+    public int getQueueDepth() {
+        return numPending;
+    }
+
+    /**
+     * 
+     * @return the statistics of the batched writers of the table or null if this writer is not in batch mode
+     */
+    public RdbTableWriterStats getStats() {
+        return stats;
     }
 
     @Override
     public void streamClosed(Stream stream) {
-
+        close();
     }
 
     protected synchronized void addHistogram(YRDB db, Tuple t) throws IOException, RocksDBException {
@@ -259,7 +450,7 @@ public class RdbTableWriter extends TableWriter {
 
         HistogramSegment segment;
         byte[] key = HistogramSegment.key(sstart, columnv);
-        byte[] val = db.get(dbKey(histoTbsIndex, key));
+        byte[] val = get(db, dbKey(histoTbsIndex, key));
         if (val == null) {
             segment = new HistogramSegment(columnv, sstart);
         } else {
@@ -269,6 +460,16 @@ public class RdbTableWriter extends TableWriter {
         segment.merge(dtime);
 
         byte[] k = dbKey(histoTbsIndex, segment.key());
-        db.put(k, segment.val());
+        put(db, k, segment.val());
+    }
+
+    static class PendingBatch {
+        final YRDB db;
+        // overwriteKey=true such that getFromBatch returns the latest value put for a key
+        final WriteBatchWithIndex writeBatch = new WriteBatchWithIndex(true);
+
+        PendingBatch(YRDB db) {
+            this.db = db;
+        }
     }
-}
\ No newline at end of file
+}
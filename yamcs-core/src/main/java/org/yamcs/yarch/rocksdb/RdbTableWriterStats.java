@@ -0,0 +1,168 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.yamcs.YamcsServer;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.SystemParametersCollector;
+import org.yamcs.parameter.SystemParametersProducer;
+
+/**
+ * Statistics of the batched {@link RdbTableWriter}s of one table.
+ * <p>
+ * All the writers of the table (e.g. one for each stream inserting into it) are accumulated together. If the instance
+ * has a {@link SystemParametersCollector}, the statistics are published as system parameters under
+ * <code>&lt;namespace&gt;/tableWriter/&lt;table&gt;/</code>:
+ * <ul>
+ * <li>queueDepth - the number of tuples waiting in the batches to be written to the database;</li>
+ * <li>batchSize - the number of tuples written by the last flush;</li>
+ * <li>numFlushes, numFlushedTuples - the number of flushes and tuples written since the start;</li>
+ * <li>avgFlushLatency, maxFlushLatency - the average and maximum duration of a flush in microseconds.</li>
+ * </ul>
+ */
+public class RdbTableWriterStats implements SystemParametersProducer {
+    // key is instance + "." + table name
+    static final Map<String, RdbTableWriterStats> allStats = new HashMap<>();
+
+    final String yamcsInstance;
+    final String tableName;
+    final List<RdbTableWriter> writers = new CopyOnWriteArrayList<>();
+    SystemParametersCollector sysParamCollector;
+
+    private long numFlushes;
+    private long numFlushedTuples;
+    private long lastFlushSize;
+    private long totalFlushTimeNanos;
+    private long maxFlushTimeNanos;
+
+    private String spQueueDepth, spBatchSize, spNumFlushes, spNumFlushedTuples, spAvgFlushLatency,
+            spMaxFlushLatency;
+
+    RdbTableWriterStats(String yamcsInstance, String tableName) {
+        this.yamcsInstance = yamcsInstance;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Adds the writer to the statistics of its table; the first writer of a table registers the statistics to the
+     * system parameters collector of the instance.
+     */
+    static synchronized RdbTableWriterStats register(String yamcsInstance, RdbTableWriter writer) {
+        String tableName = writer.getTableDefinition().getName();
+        RdbTableWriterStats stats = allStats.computeIfAbsent(yamcsInstance + "." + tableName,
+                k -> new RdbTableWriterStats(yamcsInstance, tableName));
+        if (stats.writers.isEmpty()) {
+            stats.setupSysParameters();
+        }
+        stats.writers.add(writer);
+        return stats;
+    }
+
+    /**
+     * Removes the writer from the statistics of its table; the last writer of a table unregisters the statistics from
+     * the system parameters collector and the next writer of the table starts with new statistics.
+     */
+    static synchronized void unregister(RdbTableWriter writer) {
+        RdbTableWriterStats stats = writer.getStats();
+        if (!stats.writers.remove(writer) || !stats.writers.isEmpty()) {
+            return;
+        }
+        allStats.remove(stats.yamcsInstance + "." + stats.tableName);
+        if (stats.sysParamCollector != null) {
+            stats.sysParamCollector.unregisterProducer(stats);
+        }
+    }
+
+    private void setupSysParameters() {
+        sysParamCollector = SystemParametersCollector.getInstance(yamcsInstance);
+        if (sysParamCollector != null) {
+            String prefix = sysParamCollector.getNamespace() + "/tableWriter/" + tableName + "/";
+            spQueueDepth = prefix + "queueDepth";
+            spBatchSize = prefix + "batchSize";
+            spNumFlushes = prefix + "numFlushes";
+            spNumFlushedTuples = prefix + "numFlushedTuples";
+            spAvgFlushLatency = prefix + "avgFlushLatency";
+            spMaxFlushLatency = prefix + "maxFlushLatency";
+            sysParamCollector.registerProducer(this);
+        }
+    }
+
+    /**
+     * called by the writers after each flush
+     *
+     * @param numTuples
+     *            the number of tuples written by the flush
+     * @param durationNanos
+     *            the duration of the flush
+     */
+    synchronized void flushed(int numTuples, long durationNanos) {
+        numFlushes++;
+        numFlushedTuples += numTuples;
+        lastFlushSize = numTuples;
+        totalFlushTimeNanos += durationNanos;
+        if (durationNanos > maxFlushTimeNanos) {
+            maxFlushTimeNanos = durationNanos;
+        }
+    }
+
+    /**
+     *
+     * @return the number of tuples waiting in the batches of all the writers of the table
+     */
+    public int getQueueDepth() {
+        int n = 0;
+        for (RdbTableWriter w : writers) {
+            n += w.getQueueDepth();
+        }
+        return n;
+    }
+
+    public synchronized long getNumFlushes() {
+        return numFlushes;
+    }
+
+    public synchronized long getNumFlushedTuples() {
+        return numFlushedTuples;
+    }
+
+    /**
+     *
+     * @return number of tuples written by the last flush
+     */
+    public synchronized long getLastFlushSize() {
+        return lastFlushSize;
+    }
+
+    /**
+     *
+     * @return the average flush duration in microseconds
+     */
+    public synchronized long getAvgFlushLatency() {
+        return numFlushes == 0 ? 0 : totalFlushTimeNanos / numFlushes / 1000;
+    }
+
+    /**
+     *
+     * @return the maximum flush duration in microseconds
+     */
+    public synchronized long getMaxFlushLatency() {
+        return maxFlushTimeNanos / 1000;
+    }
+
+    @Override
+    public Collection<ParameterValue> getSystemParameters() {
+        long time = YamcsServer.getTimeService(yamcsInstance).getMissionTime();
+        return Arrays.asList(
+                SystemParametersCollector.getPV(spQueueDepth, time, getQueueDepth()),
+                SystemParametersCollector.getPV(spBatchSize, time, getLastFlushSize()),
+                SystemParametersCollector.getPV(spNumFlushes, time, getNumFlushes()),
+                SystemParametersCollector.getPV(spNumFlushedTuples, time, getNumFlushedTuples()),
+                SystemParametersCollector.getPV(spAvgFlushLatency, time, getAvgFlushLatency()),
+                SystemParametersCollector.getPV(spMaxFlushLatency, time, getMaxFlushLatency()));
+    }
+}
@@ -6,9 +6,10 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
@@ -32,18 +33,20 @@ import org.yamcs.yarch.rocksdb.RdbConfig.TablespaceConfig;
  */
 public class YRDB {
     // keep mapping from raw byte array and the object that is used by some applications
-    Map<ByteArrayWrapper, ColumnFamilyHandle> columnFamilies = new HashMap<>();
+    // concurrent map such that the handles can be retrieved without locking; the modifications are synchronized
+    Map<ByteArrayWrapper, ColumnFamilyHandle> columnFamilies = new ConcurrentHashMap<>();
 
     private final RocksDB db;
-    private boolean isClosed = false;
+    private volatile boolean isClosed = false;
     private final String path;
     private final ColumnFamilyOptions cfoptions;
     static final String ROCKS_PROP_NUM_KEYS = "rocksdb.estimate-num-keys";
-    // keep track
-    int refcount = 0;
-    long lastAccessTime;
+    // number of users of the database, maintained by the RDBFactory; -1 means that the database is closed or being
+    // closed and cannot be acquired anymore
+    final AtomicInteger refcount = new AtomicInteger();
+    volatile long lastAccessTime;
 
-    private final DBOptions dbOptions;
+    final DBOptions dbOptions;
 
     /**
      * Create or open a new RocksDb.
@@ -56,6 +59,17 @@ public class YRDB {
      * @throws IOException
      */
     YRDB(String dir, boolean readonly) throws RocksDBException, IOException {
+        this(dir, new File(dir).getName(), readonly);
+    }
+
+    /**
+     * Create or open a new RocksDb using the {@link RdbConfig.TablespaceConfig} matching the name of the database
+     * directory or, if none matches, the configName.
+     * <p>
+     * The {@link RDBFactory} passes the name of the tablespace directory such that the partitions of a tablespace which
+     * are not matched by their own name are open with the same options as its main database.
+     */
+    YRDB(String dir, String configName, boolean readonly) throws RocksDBException, IOException {
         File f = new File(dir);
         if (f.exists()) {
             if (!f.isDirectory()) {
@@ -72,6 +86,9 @@ public class YRDB {
         }
         RdbConfig rdbConfig = RdbConfig.getInstance();
         TablespaceConfig tc = rdbConfig.getTablespaceConfig(f.getName());
+        if (tc == null && !configName.equals(f.getName())) {
+            tc = rdbConfig.getTablespaceConfig(configName);
+        }
         cfoptions = (tc == null) ? rdbConfig.getDefaultColumnFamilyOptions() : tc.getColumnFamilyOptions();
         Options opt = (tc == null) ? rdbConfig.getDefaultOptions() : tc.getOptions();
         dbOptions = (tc == null) ? rdbConfig.getDefaultDBOptions() : tc.getDBOptions();
@@ -105,7 +122,10 @@ public class YRDB {
     /**
      * Close the database. Shall only be done from the RDBFactory
      */
-    void close() {
+    synchronized void close() {
+        if (isClosed) {
+            return;
+        }
         for (ColumnFamilyHandle cfh : columnFamilies.values()) {
             cfh.close();
         }
@@ -144,11 +164,11 @@ public class YRDB {
         return new DescendingRangeIterator(db.newIterator(), rangeStart, strictStart, rangeStop, strictStop);
     }
 
-    public synchronized ColumnFamilyHandle getColumnFamilyHandle(byte[] cfname) {
+    public ColumnFamilyHandle getColumnFamilyHandle(byte[] cfname) {
         return columnFamilies.get(new ByteArrayWrapper(cfname));
     }
 
-    public synchronized ColumnFamilyHandle getColumnFamilyHandle(String cfname) {
+    public ColumnFamilyHandle getColumnFamilyHandle(String cfname) {
         return columnFamilies.get(new ByteArrayWrapper(cfname.getBytes(StandardCharsets.UTF_8)));
     }
 
@@ -1,5 +1,8 @@
 package org.yamcs.yarch.streamsql;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.CompiledExpression;
 import org.yamcs.yarch.DataType;
@@ -128,6 +131,26 @@ public class ColumnExpression extends Expression {
         }
     }
 
+    @Override
+    public void collectInputColumns(Set<String> columns) {
+        columns.add(fieldName == null ? name : className);
+    }
+
+    @Override
+    protected boolean isBatchCompatible() {
+        return fieldName == null;
+    }
+
+    @Override
+    protected void collectBatchColumns(Map<String, ColumnDefinition> columns) {
+        columns.put(name, inputDef.getColumn(name));
+    }
+
+    @Override
+    protected void fillCode_getBatchValue(StringBuilder code) {
+        code.append(batchColumnVar(name)).append("[i]");
+    }
+
     @Override
     public CompiledExpression compile() throws StreamSqlException {
         return new FieldReturnCompiledExpression(name, cdef);
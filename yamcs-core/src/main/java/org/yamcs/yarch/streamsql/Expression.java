@@ -2,7 +2,10 @@ package org.yamcs.yarch.streamsql;
 
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.codehaus.janino.SimpleCompiler;
@@ -10,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.utils.StringConverter;
 import org.yamcs.yarch.ColumnDefinition;
+import org.yamcs.yarch.CompiledBatchPredicate;
 import org.yamcs.yarch.CompiledExpression;
 import org.yamcs.yarch.DataType;
 import org.yamcs.yarch.DbReaderStream;
@@ -179,6 +183,143 @@ public abstract class Expression {
         }
     }
 
+    /**
+     * collects the names of the input columns used by this expression
+     */
+    public void collectInputColumns(Set<String> columns) {
+        if (children != null) {
+            for (Expression c : children) {
+                c.collectInputColumns(columns);
+            }
+        }
+    }
+
+    /**
+     * 
+     * @return true if the expression can be evaluated over the column vectors of a {@link org.yamcs.yarch.TupleBatch}
+     */
+    protected boolean isBatchCompatible() {
+        return false;
+    }
+
+    protected boolean childrenBatchCompatible() {
+        for (Expression c : children) {
+            if (!c.isBatchCompatible()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * collects the input columns used in the batch evaluation of this expression
+     */
+    protected void collectBatchColumns(Map<String, ColumnDefinition> columns) {
+        if (children != null) {
+            for (Expression c : children) {
+                c.collectBatchColumns(columns);
+            }
+        }
+    }
+
+    /**
+     * Fills the code computing the value of this expression for the row i of the batch. The column vectors are
+     * available in the variables named by {@link #batchColumnVar(String)}.
+     */
+    protected void fillCode_getBatchValue(StringBuilder code) throws StreamSqlException {
+        throw new NotImplementedException(getClass().getSimpleName() + " cannot be evaluated on batches");
+    }
+
+    /**
+     * Compiles a predicate evaluating this expression over all the rows of a batch.
+     * 
+     * @return the compiled predicate or null if the expression is not boolean or cannot be evaluated on batches, in
+     *         which case the row by row evaluation has to be used.
+     */
+    public CompiledBatchPredicate compileBatchPredicate() {
+        if (type != DataType.BOOLEAN || !isBatchCompatible()) {
+            return null;
+        }
+        Map<String, ColumnDefinition> columns = new LinkedHashMap<>();
+        collectBatchColumns(columns);
+
+        String className = "BatchPredicate" + counter.incrementAndGet();
+        StringBuilder source = new StringBuilder();
+        try {
+            source.append("package org.yamcs.yarch;\n")
+                    .append("public class " + className + " implements CompiledBatchPredicate {\n");
+            fillCode_Declarations(source);
+            source.append("\tpublic " + className + "() {\n");
+            fillCode_Constructor(source);
+            source.append("\t}\n");
+
+            source.append("\tpublic void evaluate(TupleBatch batch, java.util.BitSet selection,"
+                    + " java.util.BitSet fallback) {\n")
+                    .append("\t\tjava.util.BitSet nulls = new java.util.BitSet();\n");
+            for (ColumnDefinition cd : columns.values()) {
+                String var = batchColumnVar(cd.getName());
+                String getter = batchColumnGetter(cd.getType());
+                String javaType = DataType.isNumber(cd.getType()) ? cd.getType().primitiveJavaType() : "Object";
+                source.append("\t\t" + javaType + "[] " + var + " = batch." + getter + "(\"" + cd.getName()
+                        + "\");\n")
+                        .append("\t\tnulls.or(batch.getNullMask(\"" + cd.getName() + "\"));\n");
+            }
+            source.append("\t\tint n = batch.size();\n")
+                    .append("\t\tfor (int i = 0; i < n; i++) {\n")
+                    .append("\t\t\tif (nulls.get(i)) {\n")
+                    .append("\t\t\t\tfallback.set(i);\n")
+                    .append("\t\t\t} else if (");
+            fillCode_getBatchValue(source);
+            source.append(") {\n")
+                    .append("\t\t\t\tselection.set(i);\n")
+                    .append("\t\t\t}\n")
+                    .append("\t\t}\n")
+                    .append("\t}\n")
+                    .append("}\n");
+
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.cook(new StringReader(source.toString()));
+            @SuppressWarnings("unchecked")
+            Class<CompiledBatchPredicate> c = (Class<CompiledBatchPredicate>) compiler.getClassLoader()
+                    .loadClass("org.yamcs.yarch." + className);
+            return c.newInstance();
+        } catch (Exception e) {
+            log.debug("Cannot compile batch predicate for {}, using row evaluation: {}", this, e.toString());
+            return null;
+        }
+    }
+
+    static String batchColumnVar(String colName) {
+        StringBuilder sb = new StringBuilder("bcol_");
+        for (int i = 0; i < colName.length(); i++) {
+            char c = colName.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                sb.append(c);
+            } else {
+                sb.append('_').append(Integer.toHexString(c)).append('_');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String batchColumnGetter(DataType dt) {
+        switch (dt.val) {
+        case TIMESTAMP:
+        case LONG:
+            return "getLongColumn";
+        case INT:
+            return "getIntColumn";
+        case SHORT:
+            return "getShortColumn";
+        case BYTE:
+            return "getByteColumn";
+        case DOUBLE:
+            return "getDoubleColumn";
+        default:
+            return "getObjectColumn";
+        }
+    }
+
     /**
      * when the expression behaves like a column expression, this is the column name
      * 
@@ -112,6 +112,37 @@ public class InExpression extends Expression {
         code.append(")");
     }
 
+    @Override
+    protected boolean isBatchCompatible() {
+        if (!children[0].isBatchCompatible()) {
+            return false;
+        }
+        for (int i = 1; i < children.length; i++) {
+            if (!children[i].isConstant()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void fillCode_getBatchValue(StringBuilder code) throws StreamSqlException {
+        if (negation) {
+            code.append("!");
+        }
+        code.append("inSet" + count + ".contains(");
+        DataType dt = children[0].getType();
+        // box the primitive with the same type as in the row evaluation
+        if (DataType.isNumber(dt)) {
+            code.append(dt.javaType()).append(".valueOf(");
+            children[0].fillCode_getBatchValue(code);
+            code.append(")");
+        } else {
+            children[0].fillCode_getBatchValue(code);
+        }
+        code.append(")");
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
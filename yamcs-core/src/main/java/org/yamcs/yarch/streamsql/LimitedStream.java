@@ -2,18 +2,21 @@ package org.yamcs.yarch.streamsql;
 
 import java.math.BigDecimal;
 
+import org.yamcs.yarch.BatchStreamSubscriber;
 import org.yamcs.yarch.Stream;
-import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleBatch;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabaseInstance;
 
-public class LimitedStream extends Stream implements StreamSubscriber {
+public class LimitedStream extends Stream implements BatchStreamSubscriber {
 
     private Stream input;
 
     private long offset = 0;
     private long limit = Long.MAX_VALUE;
+    // number of tuples received from the input
+    private long inputCount = 0;
 
     protected LimitedStream(YarchDatabaseInstance ydb, Stream input, BigDecimal offset, BigDecimal limit,
             TupleDefinition definition) {
@@ -28,6 +31,10 @@ public class LimitedStream extends Stream implements StreamSubscriber {
         input.addSubscriber(this);
     }
 
+    public Stream getInput() {
+        return input;
+    }
+
     @Override
     public void start() {
         if (input.getState() == SETUP) {
@@ -39,15 +46,37 @@ public class LimitedStream extends Stream implements StreamSubscriber {
     // Called when the input stream received a tuple
     @Override
     public void onTuple(Stream stream, Tuple tuple) {
-        long inputDataCount = stream.getDataCount();
-        if (inputDataCount < offset + 1) {
-            return;
+        processTuple(tuple);
+    }
+
+    // Called when the input stream emits a batch; the tuples after the limit are not looked at
+    @Override
+    public void onTupleBatch(Stream stream, TupleBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (!processTuple(batch.get(i))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * returns false if the limit has been reached and the stream closed
+     */
+    private boolean processTuple(Tuple tuple) {
+        if (state == QUITTING) {
+            return false;
+        }
+        inputCount++;
+        if (inputCount < offset + 1) {
+            return true;
         }
 
-        if (inputDataCount <= limit) {
+        if (inputCount <= limit) {
             emitTuple(tuple);
+            return true;
         } else {
             input.close();
+            return false;
         }
     }
 
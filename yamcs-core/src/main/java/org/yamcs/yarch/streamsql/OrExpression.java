@@ -27,6 +27,20 @@ public class OrExpression extends Expression {
 
     @Override
     public void fillCode_getValueReturn(StringBuilder code) throws StreamSqlException {
+        fillCode(code, false);
+    }
+
+    @Override
+    protected boolean isBatchCompatible() {
+        return childrenBatchCompatible();
+    }
+
+    @Override
+    protected void fillCode_getBatchValue(StringBuilder code) throws StreamSqlException {
+        fillCode(code, true);
+    }
+
+    private void fillCode(StringBuilder code, boolean batch) throws StreamSqlException {
         boolean first = true;
         code.append("(");
         for (Expression expr : children) {
@@ -35,7 +49,11 @@ public class OrExpression extends Expression {
             } else {
                 first = false;
             }
-            expr.fillCode_getValueReturn(code);
+            if (batch) {
+                expr.fillCode_getBatchValue(code);
+            } else {
+                expr.fillCode_getValueReturn(code);
+            }
         }
         code.append(")");
     }
@@ -72,26 +72,35 @@ public class RelationalExpression extends Expression {
 
     @Override
     public void fillCode_getValueReturn(StringBuilder code) throws StreamSqlException {
+        fillCode(code, false);
+    }
+
+    @Override
+    protected boolean isBatchCompatible() {
+        return childrenBatchCompatible();
+    }
+
+    @Override
+    protected void fillCode_getBatchValue(StringBuilder code) throws StreamSqlException {
+        fillCode(code, true);
+    }
+
+    private void fillCode(StringBuilder code, boolean batch) throws StreamSqlException {
         code.append("(");
         DataType ch0dt = children[0].getType();
         if (DataType.isNumber(ch0dt)) {
-            children[0].fillCode_getValueReturn(code);
+            fillCode_child(code, 0, batch);
             code.append(relOp.getSign());
-            children[1].fillCode_getValueReturn(code);
+            fillCode_child(code, 1, batch);
         } else {
             switch (relOp) {
             case NOT_EQUAL:
                 code.append("!");
             case EQUAL: // intentional fall through
-                children[0].fillCode_getValueReturn(code);
-                if (DataType.isNumber(ch0dt)) {
-                    code.append(" == ");
-                    children[1].fillCode_getValueReturn(code);
-                } else {
-                    code.append(".equals(");
-                    children[1].fillCode_getValueReturn(code);
-                    code.append(")");
-                }
+                fillCode_child(code, 0, batch);
+                code.append(".equals(");
+                fillCode_child(code, 1, batch);
+                code.append(")");
                 break;
             default:
                 throw new StreamSqlException(ErrCode.COMPILE_ERROR, "Cannot use " + relOp + " not supported for data type " + ch0dt);
@@ -100,6 +109,14 @@ public class RelationalExpression extends Expression {
         code.append(")");
     }
 
+    private void fillCode_child(StringBuilder code, int idx, boolean batch) throws StreamSqlException {
+        if (batch) {
+            children[idx].fillCode_getBatchValue(code);
+        } else {
+            children[idx].fillCode_getValueReturn(code);
+        }
+    }
+
     @Override
     public String toString() {
         return children[0] + " " + relOp.getSign() + " " + children[1];
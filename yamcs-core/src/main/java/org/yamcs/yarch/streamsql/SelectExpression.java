@@ -2,10 +2,14 @@ package org.yamcs.yarch.streamsql;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.yamcs.yarch.AbstractTableReaderStream;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.CompiledAggregateExpression;
+import org.yamcs.yarch.CompiledBatchPredicate;
 import org.yamcs.yarch.CompiledExpression;
 import org.yamcs.yarch.ConstantValueCompiledExpression;
 import org.yamcs.yarch.DbReaderStream;
@@ -234,6 +238,27 @@ public class SelectExpression implements StreamExpression {
             whereClause = whereClause.addFilter(dbStream);
         }
         CompiledExpression cWhereClause = (whereClause == null) ? null : whereClause.compile();
+        if (stream instanceof AbstractTableReaderStream) {
+            AbstractTableReaderStream tableStream = (AbstractTableReaderStream) stream;
+            if (cWhereClause != null) {
+                // the conditions not usable as key ranges are evaluated by the reader on the partially decoded rows
+                Set<String> filterColumns = new HashSet<>();
+                whereClause.collectInputColumns(filterColumns);
+                CompiledBatchPredicate cBatchWhereClause = whereClause.compileBatchPredicate();
+                tableStream.setRowFilter(cWhereClause, cBatchWhereClause, filterColumns);
+                if (cBatchWhereClause != null) {
+                    tableStream.setBatchSize(SelectStream.DEFAULT_BATCH_SIZE);
+                }
+                cWhereClause = null;
+            }
+            if (!selectStar && windowSpec == null && !selectList.contains(SelectItem.STAR)) {
+                Set<String> outputColumns = new HashSet<>();
+                for (SelectItem item : selectList) {
+                    item.expr.collectInputColumns(outputColumns);
+                }
+                tableStream.setProjection(outputColumns);
+            }
+        }
 
         List<CompiledExpression> caggInputList = null;
         if (aggInputList != null) {
@@ -63,6 +63,16 @@ public class ValueExpression extends Expression {
         }
     }
 
+    @Override
+    protected boolean isBatchCompatible() {
+        return true;
+    }
+
+    @Override
+    protected void fillCode_getBatchValue(StringBuilder code) throws StreamSqlException {
+        fillCode_getValueReturn(code);
+    }
+
     @Override
     public CompiledExpression compile() {
         ColumnDefinition def = new ColumnDefinition(constantValue.toString(), type);
@@ -0,0 +1,109 @@
+package org.yamcs.algorithms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.InvalidIdentification;
+import org.yamcs.Processor;
+import org.yamcs.ProcessorFactory;
+import org.yamcs.RefMdbPacketGenerator;
+import org.yamcs.YConfiguration;
+import org.yamcs.api.EventProducerFactory;
+import org.yamcs.parameter.ParameterConsumer;
+import org.yamcs.parameter.ParameterRequestManager;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtceproc.XtceDbFactory;
+
+public class AlgorithmManagerParallelTest {
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        YConfiguration.setupTest("refmdb");
+        XtceDbFactory.reset();
+    }
+
+    private Processor proc;
+    private RefMdbPacketGenerator tmGenerator;
+    private ParameterRequestManager prm;
+    private AlgorithmManager algMgr;
+
+    @Before
+    public void beforeEachTest() throws Exception {
+        EventProducerFactory.setMockup(true);
+        tmGenerator = new RefMdbPacketGenerator();
+        Map<String, Object> jslib = new HashMap<>();
+        Map<String, Object> config = new HashMap<>();
+        jslib.put("JavaScript", Arrays.asList("mdb/algolib.js"));
+        config.put("libraries", jslib);
+        config.put("parallelism", 4);
+
+        algMgr = new AlgorithmManager("refmdb", YConfiguration.wrap(config));
+        proc = ProcessorFactory.create("refmdb", "AlgorithmManagerParallelTest", tmGenerator, algMgr);
+        prm = proc.getParameterRequestManager();
+    }
+
+    @After
+    public void afterEachTest() {
+        proc.quit();
+    }
+
+    @Test
+    public void testParallelExecution() throws InvalidIdentification {
+        Parameter floatAddition = prm.getParameter("/REFMDB/SUBSYS1/AlgoFloatAddition");
+        Parameter floatMultiplication = prm.getParameter("/REFMDB/SUBSYS1/AlgoFloatMultiplication");
+        final List<ParameterValue> params = new ArrayList<>();
+        prm.addRequest(Arrays.asList(floatAddition, floatMultiplication),
+                (ParameterConsumer) (subscriptionId, items) -> params.addAll(items));
+        proc.start();
+
+        // chained_function uses the output of ext_function
+        AlgorithmDependencyIndex index = algMgr.getDependencyIndex();
+        int extLevel = -1;
+        int chainedLevel = -1;
+        Object engine = null;
+        for (int i = 0; i < index.size(); i++) {
+            AlgorithmExecutor executor = index.executors[i];
+            if (executor instanceof ScriptAlgorithmExecutor) {
+                // the JavaScript engine is not thread safe, all its algorithms are serialized on it and the levels
+                // containing only JavaScript algorithms are run without the pool
+                Object lock = ((ScriptAlgorithmExecutor) executor).getSerializationLock();
+                assertNotNull(lock);
+                if (engine == null) {
+                    engine = lock;
+                }
+                assertSame(engine, lock);
+            }
+            String name = executor.getAlgorithm().getName();
+            if ("ext_function".equals(name)) {
+                extLevel = index.levels[i];
+            } else if ("chained_function".equals(name)) {
+                chainedLevel = index.levels[i];
+            }
+        }
+        assertTrue(extLevel >= 0);
+        assertTrue(chainedLevel > extLevel);
+
+        for (int k = 0; k < 10; k++) {
+            params.clear();
+            tmGenerator.generate_PKT1_1();
+            // the outputs are delivered in the execution order
+            assertEquals(2, params.size());
+            assertEquals(floatAddition, params.get(0).getParameter());
+            assertEquals(2.1672918, params.get(0).getEngValue().getFloatValue(), 0.001);
+            assertEquals(floatMultiplication, params.get(1).getParameter());
+            assertEquals(tmGenerator.pIntegerPara1_1_1, params.get(1).getEngValue().getFloatValue(), 0.001);
+        }
+    }
+}
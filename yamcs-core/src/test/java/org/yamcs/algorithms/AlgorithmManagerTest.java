@@ -34,6 +34,7 @@ import org.yamcs.protobuf.Yamcs.NamedObjectId;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ProcessingStatistics;
 import org.yamcs.xtceproc.XtceDbFactory;
 
 public class AlgorithmManagerTest {
@@ -240,6 +241,26 @@ public class AlgorithmManagerTest {
         assertEquals(tmGenerator.pIntegerPara1_1_1, params.get(0).getEngValue().getFloatValue(), 0.001);
     }
 
+    @Test
+    public void testAlgorithmStatistics() throws InvalidIdentification {
+        Parameter p = prm
+                .getParameter(NamedObjectId.newBuilder().setName("/REFMDB/SUBSYS1/AlgoFloatMultiplication").build());
+        prm.addRequest(p, (ParameterConsumer) (subscriptionId, items) -> {
+        });
+        proc.start();
+        Map<String, ProcessingStatistics.AlgorithmStats> stats = proc.getTmProcessor().getStatistics().algorithmStats;
+        tmGenerator.generate_PKT1_1();
+        tmGenerator.generate_PKT1_1();
+        assertEquals(2, stats.size());
+        assertEquals(2, stats.get("/REFMDB/SUBSYS1/ext_function").runs);
+        assertEquals(2, stats.get("/REFMDB/SUBSYS1/chained_function").runs);
+
+        // the chained algorithms do not depend on the parameters of this packet
+        tmGenerator.generate_PKT1_6(1, 0);
+        assertEquals(2, stats.get("/REFMDB/SUBSYS1/ext_function").runs);
+        assertEquals(2, stats.get("/REFMDB/SUBSYS1/chained_function").runs);
+    }
+
     @Test
     public void testAlgorithmChainingWithWindowing() throws InvalidIdentification {
         final ArrayList<ParameterValue> params = new ArrayList<>();
@@ -0,0 +1,98 @@
+package org.yamcs.http.api.archive;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.yamcs.http.api.archive.RestDownsampler.Mode;
+import org.yamcs.http.api.archive.RestDownsampler.Sample;
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.parameterarchive.ParameterValueArray;
+
+/**
+ * Compares the array based {@link RestDownsampler} with the previous implementation which was looking up the interval
+ * in a {@link TreeMap} for each value.
+ */
+@Ignore
+public class RestDownsamplerPerfTest {
+    int numValues = 10_000_000;
+    int segmentSize = 1000;
+    int sampleCount = 500;
+    int nruns = 5;
+
+    @Test
+    public void test() {
+        long[][] timestamps = new long[numValues / segmentSize][];
+        double[][] values = new double[timestamps.length][];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = new long[segmentSize];
+            values[i] = new double[segmentSize];
+            for (int j = 0; j < segmentSize; j++) {
+                long t = (long) i * segmentSize + j;
+                timestamps[i][j] = t * 100;
+                values[i][j] = Math.sin(t / 1000.0);
+            }
+        }
+        long start = 0;
+        long stop = numValues * 100L;
+
+        for (int k = 0; k < nruns; k++) {
+            long t0 = System.nanoTime();
+            TreeMapDownsampler tmd = new TreeMapDownsampler(start, stop, sampleCount);
+            for (int i = 0; i < timestamps.length; i++) {
+                for (int j = 0; j < segmentSize; j++) {
+                    tmd.process(timestamps[i][j], values[i][j]);
+                }
+            }
+            long t1 = System.nanoTime();
+            print("TreeMap", t1 - t0);
+
+            for (Mode mode : Mode.values()) {
+                t0 = System.nanoTime();
+                RestDownsampler rd = new RestDownsampler(start, stop, sampleCount, mode);
+                for (int i = 0; i < timestamps.length; i++) {
+                    rd.accept(new ParameterValueArray(timestamps[i], new ValueArray(values[i]), null, null));
+                }
+                rd.collect();
+                t1 = System.nanoTime();
+                print("array " + mode, t1 - t0);
+            }
+        }
+    }
+
+    private void print(String name, long nanos) {
+        System.out.println(String.format("%-12s: %6.2f ns/value", name, (double) nanos / numValues));
+    }
+
+    /**
+     * The downsampler as it was before being based on arrays
+     */
+    static class TreeMapDownsampler {
+        private TreeMap<Long, Sample> samplesByTime = new TreeMap<>();
+        private long start;
+        private long stop;
+
+        TreeMapDownsampler(long start, long stop, int sampleCount) {
+            this.start = start;
+            this.stop = stop;
+            long step = (stop - start) / sampleCount;
+            for (long i = start; i < stop; i += step) {
+                samplesByTime.put(i, null);
+            }
+        }
+
+        void process(long time, double value) {
+            if (time > stop || time < start) {
+                return;
+            }
+            Entry<Long, Sample> entry = samplesByTime.floorEntry(time);
+            Sample sample = entry.getValue();
+            if (sample == null) {
+                samplesByTime.put(entry.getKey(), new Sample(entry.getKey(), value));
+            } else {
+                sample.process(value);
+            }
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package org.yamcs.http.api.archive;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
 import org.junit.Test;
-import org.yamcs.http.api.archive.RestDownsampler;
+import org.yamcs.http.api.archive.RestDownsampler.Mode;
 import org.yamcs.http.api.archive.RestDownsampler.Sample;
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.parameterarchive.ParameterValueArray;
 
 public class RestDownsamplerTest {
 
@@ -26,6 +30,7 @@ public class RestDownsamplerTest {
 
         // Add to same bucket
         sampler.process(2, 10);
+        samples = sampler.collect();
         assertEquals(1, samples.size());
         assertEquals((5 + 10) / 2., samples.get(0).avg, 1e-10);
         assertEquals(2, samples.get(0).n);
@@ -52,4 +57,85 @@ public class RestDownsamplerTest {
         assertEquals(2, sample1.min, 1e-10);
         assertEquals(2, sample1.max, 1e-10);
     }
+
+    @Test
+    public void testValueArray() {
+        RestDownsampler sampler = new RestDownsampler(10, 20, 2);
+        long[] timestamps = new long[] { 5, 10, 12, 15, 20, 25 };
+        sampler.accept(new ParameterValueArray(timestamps, new ValueArray(new float[] { 100, 1, 3, -1, 5, 100 }),
+                null, null));
+
+        List<Sample> samples = sampler.collect();
+        assertEquals(2, samples.size());
+        checkSample(samples.get(0), 10, 1, 3, 2, 2);
+        checkSample(samples.get(1), 15, -1, 5, 2, 2);
+        assertEquals(15, sampler.lastSampleTime());
+    }
+
+    @Test
+    public void testGap() {
+        RestDownsampler sampler = new RestDownsampler(0, 1000_000, 10);
+        sampler.process(0, 1);
+        sampler.process(900_000, 2);
+        List<Sample> samples = sampler.collect();
+        // the first empty interval is not considered a gap because it is within GAP_TIME from the previous sample
+        assertEquals(9, samples.size());
+        assertEquals(200_000, samples.get(1).t);
+        assertEquals(0, samples.get(1).n);
+        assertEquals(0, samples.get(7).n);
+        assertEquals(2, samples.get(8).avg, 1e-10);
+    }
+
+    @Test
+    public void testM4() {
+        RestDownsampler sampler = new RestDownsampler(0, 100, 2, Mode.M4);
+        double[] values = new double[] { 3, 7, 100, 4, -50, 5 };
+        for (int i = 0; i < values.length; i++) {
+            sampler.process(i, values[i]);
+        }
+        sampler.process(60, 1);
+        List<Sample> samples = sampler.collect();
+
+        // first, max (the spike), min, last of the first bucket and the single value of the second
+        assertEquals(5, samples.size());
+        checkPoint(samples.get(0), 0, 3);
+        checkPoint(samples.get(1), 2, 100);
+        checkPoint(samples.get(2), 4, -50);
+        checkPoint(samples.get(3), 5, 5);
+        checkPoint(samples.get(4), 60, 1);
+    }
+
+    @Test
+    public void testSupportsRollups() {
+        // the rollups do not have the time of the min and max values, they can only be used for the averages
+        assertTrue(new RestDownsampler(0, 100, 2, Mode.AVG).supportsRollups());
+        assertFalse(new RestDownsampler(0, 100, 2, Mode.M4).supportsRollups());
+        assertFalse(new RestDownsampler(0, 100, 2, Mode.LTTB).supportsRollups());
+    }
+
+    @Test
+    public void testLttb() {
+        RestDownsampler sampler = new RestDownsampler(0, 40, 4, Mode.LTTB);
+        for (int i = 0; i < 40; i++) {
+            sampler.process(i, i == 15 ? 1000 : 0);
+        }
+        List<Sample> samples = sampler.collect();
+        assertEquals(4, samples.size());
+        checkPoint(samples.get(0), 0, 0);
+        checkPoint(samples.get(1), 15, 1000);
+        assertEquals(0, samples.get(2).avg, 1e-10);
+        checkPoint(samples.get(3), 39, 0);
+    }
+
+    private void checkSample(Sample s, long t, double min, double max, double avg, int n) {
+        assertEquals(t, s.t);
+        assertEquals(min, s.min, 1e-10);
+        assertEquals(max, s.max, 1e-10);
+        assertEquals(avg, s.avg, 1e-10);
+        assertEquals(n, s.n);
+    }
+
+    private void checkPoint(Sample s, long t, double v) {
+        checkSample(s, t, v, v, v, 1);
+    }
 }
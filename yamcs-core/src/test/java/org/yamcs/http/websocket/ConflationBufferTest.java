@@ -0,0 +1,96 @@
+package org.yamcs.http.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.yamcs.http.websocket.ConflationBuffer.PendingParameters;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.Alarms.AlarmData;
+import org.yamcs.protobuf.Alarms.AlarmType;
+import org.yamcs.protobuf.LinkEvent;
+import org.yamcs.protobuf.LinkInfo;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.protobuf.Yamcs.ProtoDataType;
+import org.yamcs.xtce.Parameter;
+
+public class ConflationBufferTest {
+
+    @Test
+    public void testParameters() {
+        ConflationBuffer cb = new ConflationBuffer();
+        assertTrue(cb.isEmpty());
+        NamedObjectId id1 = NamedObjectId.newBuilder().setName("/test/p1").build();
+        NamedObjectId id2 = NamedObjectId.newBuilder().setName("/test/p2").build();
+        ParameterValueWithId pv1a = getValue(id1);
+        ParameterValueWithId pv2a = getValue(id2);
+        ParameterValueWithId pv1b = getValue(id1);
+
+        Map<NamedObjectId, Integer> numericIds1 = Collections.singletonMap(id1, 1);
+        Map<NamedObjectId, Integer> numericIds2 = Collections.singletonMap(id1, 2);
+
+        assertEquals(0, cb.addParameters(1, Arrays.asList(pv1a, pv2a), numericIds1));
+        assertEquals(1, cb.addParameters(1, Arrays.asList(pv1b), numericIds1));
+        assertEquals(0, cb.addParameters(2, Arrays.asList(pv1a), numericIds2));
+        assertFalse(cb.isEmpty());
+
+        List<PendingParameters> params = cb.getParameters();
+        assertEquals(2, params.size());
+        PendingParameters pp1 = params.get(0);
+        assertEquals(1, pp1.subscriptionId);
+        List<ParameterValueWithId> l1 = pp1.getValues();
+        assertEquals(2, l1.size());
+        assertSame(pv1b, l1.get(0));
+        assertSame(pv2a, l1.get(1));
+        // each subscription keeps its own numeric ids
+        assertSame(numericIds1, pp1.numericIds);
+        PendingParameters pp2 = params.get(1);
+        assertEquals(2, pp2.subscriptionId);
+        assertSame(pv1a, pp2.getValues().get(0));
+        assertSame(numericIds2, pp2.numericIds);
+
+        cb.clear();
+        assertTrue(cb.isEmpty());
+    }
+
+    @Test
+    public void testAlarmsAndLinks() {
+        ConflationBuffer cb = new ConflationBuffer();
+        NamedObjectId id = NamedObjectId.newBuilder().setName("/test/p1").build();
+        AlarmData a1 = AlarmData.newBuilder().setType(AlarmType.PARAMETER).setId(id).setSeqNum(1).setCount(1).build();
+        AlarmData a2 = a1.toBuilder().setCount(2).build();
+        AlarmData a3 = a1.toBuilder().setSeqNum(2).build();
+        assertFalse(cb.add(ProtoDataType.ALARM_DATA, a1));
+        assertTrue(cb.add(ProtoDataType.ALARM_DATA, a2));
+        assertFalse(cb.add(ProtoDataType.ALARM_DATA, a3));
+
+        LinkInfo li = LinkInfo.newBuilder().setInstance("inst").setName("link1").setDataInCount(1).build();
+        LinkEvent l1 = LinkEvent.newBuilder().setType(LinkEvent.Type.REGISTERED).setLinkInfo(li).build();
+        LinkEvent l2 = LinkEvent.newBuilder().setType(LinkEvent.Type.UPDATED)
+                .setLinkInfo(li.toBuilder().setDataInCount(2)).build();
+        assertFalse(cb.add(ProtoDataType.LINK_EVENT, l1));
+        assertTrue(cb.add(ProtoDataType.LINK_EVENT, l2));
+
+        List<ConflationBuffer.PendingData> messages = cb.getMessages();
+        assertEquals(3, messages.size());
+        assertSame(a2, messages.get(0).message);
+        assertSame(a3, messages.get(1).message);
+        LinkEvent le = (LinkEvent) messages.get(2).message;
+        // the registration has not been seen by the client
+        assertEquals(LinkEvent.Type.REGISTERED, le.getType());
+        assertEquals(2, le.getLinkInfo().getDataInCount());
+    }
+
+    private ParameterValueWithId getValue(NamedObjectId id) {
+        Parameter p = new Parameter(id.getName());
+        return new ParameterValueWithId(new ParameterValue(p), id);
+    }
+}
@@ -0,0 +1,92 @@
+package org.yamcs.http.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Pvalue.ParameterData;
+import org.yamcs.protobuf.WebSocketServerMessage;
+import org.yamcs.protobuf.WebSocketServerMessage.MessageType;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.protobuf.Yamcs.ProtoDataType;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+
+public class ProtobufEncoderTest {
+    static Parameter p1, p2;
+
+    @BeforeClass
+    public static void beforeClass() {
+        TimeEncoding.setUp();
+        p1 = new Parameter("p1");
+        p1.setQualifiedName("/test/p1");
+        p2 = new Parameter("p2");
+        p2.setQualifiedName("/test/p2");
+    }
+
+    @Test
+    public void testParameterData() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ProtobufEncoder encoder = new ProtobufEncoder(channel.pipeline().firstContext());
+
+        ParameterValue pv1 = new ParameterValue(p1);
+        pv1.setGenerationTime(1000);
+        pv1.setAcquisitionTime(2000);
+        pv1.setEngineeringValue(ValueUtility.getDoubleValue(3.14));
+        ParameterValue pv2 = new ParameterValue(p2);
+        pv2.setGenerationTime(1000);
+        pv2.setEngineeringValue(ValueUtility.getStringValue("bla"));
+
+        NamedObjectId id1 = NamedObjectId.newBuilder().setName("/test/p1").build();
+        NamedObjectId id2 = NamedObjectId.newBuilder().setName("p2").setNamespace("/test").build();
+        List<ParameterValueWithId> plist = Arrays.asList(new ParameterValueWithId(pv1, id1),
+                new ParameterValueWithId(pv2, id2));
+        Map<NamedObjectId, Integer> numericIds = new HashMap<>();
+        numericIds.put(id2, 5);
+
+        ParameterData expected = ParameterData.newBuilder()
+                .addParameter(pv1.toGpb(id1))
+                .addParameter(pv2.toGpb(5))
+                .setSubscriptionId(3).build();
+
+        WebSocketServerMessage msg = decode(encoder.encodeParameterData(7, 3, plist, numericIds));
+        assertEquals(MessageType.DATA, msg.getType());
+        assertEquals(7, msg.getData().getSequenceNumber());
+        assertEquals(ProtoDataType.PARAMETER, msg.getData().getType());
+        assertEquals(expected, msg.getData().getParameterData());
+
+        // the second client shares the cached encoding
+        ParameterValueEncodingCache.Entry entry = ParameterValueEncodingCache.INSTANCE.get(pv1);
+        msg = decode(encoder.encodeParameterData(8, 4, plist, new HashMap<>()));
+        assertSame(entry, ParameterValueEncodingCache.INSTANCE.get(pv1));
+        assertEquals(id2, msg.getData().getParameterData().getParameter(1).getId());
+
+        // expiring the value invalidates the cached encoding
+        pv1.setAcquisitionStatus(AcquisitionStatus.EXPIRED);
+        msg = decode(encoder.encodeParameterData(9, 4, plist, numericIds));
+        assertEquals(AcquisitionStatus.EXPIRED, msg.getData().getParameterData().getParameter(0).getAcquisitionStatus());
+    }
+
+    private WebSocketServerMessage decode(WebSocketFrame frame) throws Exception {
+        ByteBuf buf = frame.content();
+        try (ByteBufInputStream in = new ByteBufInputStream(buf, true)) {
+            return WebSocketServerMessage.parseFrom(in);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.yamcs.http.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.http.HttpRequestInfo;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueWithId;
+import org.yamcs.protobuf.LinkEvent;
+import org.yamcs.protobuf.LinkInfo;
+import org.yamcs.protobuf.Pvalue.ParameterData;
+import org.yamcs.protobuf.Yamcs.Event;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.protobuf.Yamcs.ProtoDataType;
+import org.yamcs.security.User;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+/**
+ * Checks the sending of the data while the channel is not writable, with and without conflation. The data is encoded
+ * in JSON because no subprotocol is negotiated.
+ */
+public class WebSocketFrameHandlerTest {
+    static Parameter p1, p2;
+    static NamedObjectId id1, id2;
+    EmbeddedChannel channel;
+    WebSocketFrameHandler handler;
+
+    @BeforeClass
+    public static void beforeClass() {
+        TimeEncoding.setUp();
+        p1 = new Parameter("p1");
+        p1.setQualifiedName("/test/p1");
+        p2 = new Parameter("p2");
+        p2.setQualifiedName("/test/p2");
+        id1 = NamedObjectId.newBuilder().setName("/test/p1").build();
+        id2 = NamedObjectId.newBuilder().setName("/test/p2").build();
+    }
+
+    @Before
+    public void before() {
+        channel = new EmbeddedChannel() {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), 10000);
+            }
+        };
+    }
+
+    @After
+    public void after() {
+        channel.finishAndReleaseAll();
+    }
+
+    void addHandler(boolean conflation) {
+        HttpRequestInfo requestInfo = new HttpRequestInfo(
+                new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/_websocket"));
+        requestInfo.setUser(new User("test", null));
+        handler = new WebSocketFrameHandler(requestInfo, 3, new WriteBufferWaterMark(32 * 1024, 64 * 1024),
+                conflation);
+        channel.pipeline().addLast(handler);
+    }
+
+    void setWritable(boolean writable) {
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+        // the writability change is notified from a task
+        channel.runPendingTasks();
+    }
+
+    @Test
+    public void testConflation() throws Exception {
+        addHandler(true);
+        Map<NamedObjectId, Integer> numericIds1 = Collections.singletonMap(id1, 1);
+        Map<NamedObjectId, Integer> numericIds2 = Collections.singletonMap(id1, 2);
+
+        handler.sendParameterData(1, Arrays.asList(value(p1, id1, 1)), numericIds1);
+        checkParameterData(readFrame(), 0, 1, 1);
+
+        setWritable(false);
+        handler.sendParameterData(1, Arrays.asList(value(p1, id1, 2), value(p2, id2, 3)), numericIds1);
+        handler.sendParameterData(2, Arrays.asList(value(p1, id1, 4)), numericIds2);
+        handler.sendParameterData(1, Arrays.asList(value(p1, id1, 5)), numericIds1);
+        handler.sendData(ProtoDataType.LINK_EVENT, linkEvent(LinkEvent.Type.REGISTERED, 1));
+        handler.sendData(ProtoDataType.LINK_EVENT, linkEvent(LinkEvent.Type.UPDATED, 2));
+        // more updates than connectionCloseNumDroppedMsg; the conflated updates are not counted as dropped
+        for (int i = 0; i < 5; i++) {
+            handler.sendParameterData(2, Arrays.asList(value(p1, id1, 6 + i)), numericIds2);
+        }
+        assertNull(channel.readOutbound());
+        assertTrue(channel.isOpen());
+        assertEquals(7, handler.getConflatedUpdates());
+        assertEquals(0, handler.getDroppedUpdates());
+
+        // the newest value of each parameter is sent, with the numeric ids of its subscription
+        setWritable(true);
+        checkParameterData(readFrame(), 11, 1, 5, 3);
+        checkParameterData(readFrame(), 12, 2, 10);
+        JsonArray frame = readFrame();
+        assertEquals(13, frame.get(2).getAsInt());
+        LinkEvent linkEvent = parse(frame, LinkEvent.newBuilder());
+        assertEquals(LinkEvent.Type.REGISTERED, linkEvent.getType());
+        assertEquals(2, linkEvent.getLinkInfo().getDataInCount());
+        assertNull(channel.readOutbound());
+
+        handler.sendParameterData(1, Arrays.asList(value(p2, id2, 20)), numericIds1);
+        checkParameterData(readFrame(), 14, 1, 20);
+    }
+
+    @Test
+    public void testDropNotConflated() throws Exception {
+        addHandler(true);
+        setWritable(false);
+        handler.sendData(ProtoDataType.EVENT, event());
+        handler.sendData(ProtoDataType.EVENT, event());
+        assertTrue(channel.isOpen());
+        handler.sendData(ProtoDataType.EVENT, event());
+        assertFalse(channel.isOpen());
+        assertNull(channel.readOutbound());
+        assertEquals(0, handler.getConflatedUpdates());
+        assertEquals(3, handler.getDroppedUpdates());
+    }
+
+    @Test
+    public void testNoConflation() throws Exception {
+        addHandler(false);
+        setWritable(false);
+        handler.sendParameterData(1, Arrays.asList(value(p1, id1, 1)), Collections.emptyMap());
+        handler.sendParameterData(1, Arrays.asList(value(p1, id1, 2)), Collections.emptyMap());
+        assertTrue(channel.isOpen());
+
+        setWritable(true);
+        assertNull(channel.readOutbound());
+        handler.sendParameterData(1, Arrays.asList(value(p1, id1, 3)), Collections.emptyMap());
+        // the sequence count shows the two dropped messages
+        checkParameterData(readFrame(), 2, 1, 3);
+        assertEquals(0, handler.getConflatedUpdates());
+        assertEquals(2, handler.getDroppedUpdates());
+    }
+
+    JsonArray readFrame() {
+        TextWebSocketFrame frame = channel.readOutbound();
+        try {
+            return new JsonParser().parse(frame.text()).getAsJsonArray();
+        } finally {
+            frame.release();
+        }
+    }
+
+    // checks the sequence number, subscription and engineering values of a parameter data frame
+    void checkParameterData(JsonArray frame, int seqNum, int subscriptionId, int... values) throws Exception {
+        assertEquals(seqNum, frame.get(2).getAsInt());
+        ParameterData pdata = parse(frame, ParameterData.newBuilder());
+        assertEquals(subscriptionId, pdata.getSubscriptionId());
+        assertEquals(values.length, pdata.getParameterCount());
+        for (int i = 0; i < values.length; i++) {
+            org.yamcs.protobuf.Pvalue.ParameterValue pv = pdata.getParameter(i);
+            assertEquals(values[i], pv.getEngValue().getUint32Value());
+            if (!pv.hasId()) {
+                // only p1 has a numeric id, equal to the subscription id in these tests
+                assertEquals(subscriptionId, pv.getNumericId());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Message> T parse(JsonArray frame, Message.Builder builder) throws Exception {
+        JsonObject data = frame.get(3).getAsJsonObject();
+        JsonFormat.parser().merge(data.get("data").toString(), builder);
+        return (T) builder.build();
+    }
+
+    static ParameterValueWithId value(Parameter p, NamedObjectId id, int v) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(1000 * v);
+        pv.setEngineeringValue(ValueUtility.getUint32Value(v));
+        return new ParameterValueWithId(pv, id);
+    }
+
+    static Event event() {
+        return Event.newBuilder().setSource("test").setGenerationTime(0).setMessage("test").build();
+    }
+
+    static LinkEvent linkEvent(LinkEvent.Type type, int dataInCount) {
+        LinkInfo li = LinkInfo.newBuilder().setInstance("inst").setName("link1").setDataInCount(dataInCount).build();
+        return LinkEvent.newBuilder().setType(type).setLinkInfo(li).build();
+    }
+}
@@ -53,6 +53,10 @@ public class ArrayParameterCacheTest {
 
         List<ParameterValue> pvlist = pcache.getValues(Arrays.asList(p1, p2));
 
+        // the values are expired at the current time; the cache marks the returned copies, not the originals
+        assertEquals(AcquisitionStatus.ACQUIRED, p1v2.getAcquisitionStatus());
+        p1v1.setAcquisitionStatus(AcquisitionStatus.EXPIRED);
+        p1v2.setAcquisitionStatus(AcquisitionStatus.EXPIRED);
         checkEquals(pvlist, p1v2, p2v1);
 
         pvlist = pcache.getValues(Arrays.asList(p2, p1));
@@ -0,0 +1,111 @@
+package org.yamcs.parameter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.yamcs.parameter.ParameterRequestManager.DeliveryBuffer;
+import org.yamcs.parameter.ParameterRequestManager.Subscription;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.XtceDb;
+
+/**
+ * Compares the routing of the deliveries in the {@link ParameterRequestManager} using the {@link ParameterRoutingTable}
+ * and the {@link DeliveryBuffer} with the previous implementation based on hash maps.
+ */
+@Ignore
+public class ParameterRoutingPerfTest {
+    int numParams = 100_000;
+    int numSubscriptions = 10_000;
+    int paramsPerSubscription = 100;
+    int deliverySize = 100;
+    int numDeliveries = 100_000;
+    int nruns = 5;
+
+    long sink;
+
+    @Test
+    public void test() {
+        XtceDb db = ParameterRoutingTableTest.createDb(numParams);
+        Parameter[] params = db.getParameters().toArray(new Parameter[0]);
+        Random random = new Random(0);
+
+        ParameterRoutingTable table = new ParameterRoutingTable();
+        Map<Parameter, SubscriptionArray> param2RequestMap = new HashMap<>();
+        Map<Integer, ParameterConsumer> request2ParameterConsumerMap = new HashMap<>();
+        ParameterConsumer consumer = (subscriptionId, items) -> sink += items.size();
+
+        for (int i = 0; i < numSubscriptions; i++) {
+            Subscription subscr = new Subscription(i, i);
+            subscr.consumer = consumer;
+            request2ParameterConsumerMap.put(i, consumer);
+            for (int j = 0; j < paramsPerSubscription; j++) {
+                Parameter p = params[random.nextInt(numParams)];
+                table.add(p, subscr);
+                param2RequestMap.computeIfAbsent(p, k -> new SubscriptionArray()).add(i);
+            }
+        }
+
+        List<List<ParameterValue>> deliveries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            List<ParameterValue> l = new ArrayList<>();
+            int start = random.nextInt(numParams - deliverySize);
+            for (int j = 0; j < deliverySize; j++) {
+                l.add(new ParameterValue(params[start + j]));
+            }
+            deliveries.add(l);
+        }
+
+        for (int k = 0; k < nruns; k++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < numDeliveries; i++) {
+                List<ParameterValue> pvList = deliveries.get(i % deliveries.size());
+                HashMap<Integer, ArrayList<ParameterValue>> delivery = new HashMap<>();
+                for (ParameterValue pv : pvList) {
+                    SubscriptionArray cowal = param2RequestMap.get(pv.getParameter());
+                    if (cowal == null) {
+                        continue;
+                    }
+                    for (int s : cowal.getArray()) {
+                        delivery.computeIfAbsent(s, x -> new ArrayList<>()).add(pv);
+                    }
+                }
+                for (Map.Entry<Integer, ArrayList<ParameterValue>> entry : delivery.entrySet()) {
+                    request2ParameterConsumerMap.get(entry.getKey()).updateItems(entry.getKey(), entry.getValue());
+                }
+            }
+            long t1 = System.nanoTime();
+            print("hash maps", t1 - t0);
+
+            t0 = System.nanoTime();
+            DeliveryBuffer delivery = new DeliveryBuffer();
+            for (int i = 0; i < numDeliveries; i++) {
+                List<ParameterValue> pvList = deliveries.get(i % deliveries.size());
+                for (ParameterValue pv : pvList) {
+                    Subscription[] subscrs = table.get(pv.getParameter());
+                    if (subscrs == null) {
+                        continue;
+                    }
+                    for (Subscription subscr : subscrs) {
+                        delivery.add(subscr, pv);
+                    }
+                }
+                for (int j = 0; j < delivery.size; j++) {
+                    Subscription subscr = delivery.subscription(j);
+                    subscr.consumer.updateItems(subscr.id, delivery.take(j));
+                }
+                delivery.clear();
+            }
+            t1 = System.nanoTime();
+            print("index", t1 - t0);
+        }
+    }
+
+    private void print(String name, long nanos) {
+        System.out.println(String.format("%-10s: %6.2f ns/value", name, (double) nanos / (numDeliveries * deliverySize)));
+    }
+}
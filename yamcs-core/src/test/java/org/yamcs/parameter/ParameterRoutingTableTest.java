@@ -0,0 +1,150 @@
+package org.yamcs.parameter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.yamcs.parameter.ParameterRequestManager.DeliveryBuffer;
+import org.yamcs.parameter.ParameterRequestManager.Subscription;
+import org.yamcs.utils.IntArray;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.SpaceSystem;
+import org.yamcs.xtce.XtceDb;
+
+public class ParameterRoutingTableTest {
+
+    @Test
+    public void testRouting() {
+        XtceDb db = createDb(10);
+        Parameter p1 = db.getParameter("/test/p1");
+        Parameter p5 = db.getParameter("/test/p5");
+        assertEquals(1, p1.getIndex());
+        assertEquals(5, p5.getIndex());
+
+        ParameterRoutingTable table = new ParameterRoutingTable();
+        Subscription s1 = new Subscription(1, 0);
+        Subscription s2 = new Subscription(2, 1);
+        assertNull(table.get(p1));
+
+        assertTrue(table.add(p1, s1));
+        assertFalse(table.add(p1, s2));
+        assertFalse(table.add(p1, s2));
+        assertTrue(table.add(p5, s2));
+        assertArrayEquals(new Subscription[] { s1, s2 }, table.get(p1));
+        assertArrayEquals(new Subscription[] { s2 }, table.get(p5));
+
+        assertTrue(table.remove(p1, s1));
+        assertFalse(table.remove(p1, s1));
+        assertArrayEquals(new Subscription[] { s2 }, table.get(p1));
+
+        List<Parameter> l = table.removeAll(s2);
+        assertEquals(2, l.size());
+        assertTrue(l.containsAll(Arrays.asList(p1, p5)));
+        assertEquals(0, table.get(p1).length);
+        assertTrue(table.contains(p1));
+    }
+
+    @Test
+    public void testParametersWithoutIndex() {
+        XtceDb db = createDb(3);
+        Parameter p1 = db.getParameter("/test/p1");
+        // same index as p1 but from a different db
+        Parameter p1bis = createDb(3).getParameter("/test/p1");
+        Parameter noIndex = new Parameter("noindex");
+        assertEquals(-1, noIndex.getIndex());
+
+        ParameterRoutingTable table = new ParameterRoutingTable();
+        Subscription s1 = new Subscription(1, 0);
+        Subscription s2 = new Subscription(2, 1);
+        table.add(p1, s1);
+        assertNull(table.get(p1bis));
+        table.add(p1bis, s2);
+        table.add(noIndex, s2);
+
+        assertArrayEquals(new Subscription[] { s1 }, table.get(p1));
+        assertArrayEquals(new Subscription[] { s2 }, table.get(p1bis));
+        assertArrayEquals(new Subscription[] { s2 }, table.get(noIndex));
+        assertEquals(2, table.removeAll(s2).size());
+    }
+
+    @Test
+    public void testDeliveryBuffer() {
+        Parameter p = createDb(1).getParameter("/test/p0");
+        ParameterValue pv1 = new ParameterValue(p);
+        ParameterValue pv2 = new ParameterValue(p);
+
+        DeliveryBuffer delivery = new DeliveryBuffer();
+        Subscription s1 = new Subscription(1, 40);
+        Subscription s2 = new Subscription(2, 3);
+        delivery.add(s1, pv1);
+        delivery.add(s2, pv1);
+        delivery.add(s1, pv2);
+        assertEquals(2, delivery.size);
+        assertEquals(s1, delivery.subscription(0));
+        assertEquals(Arrays.asList(pv1, pv2), delivery.get(s1));
+
+        // a different subscription with the same slot is ignored
+        delivery.add(new Subscription(3, 3), pv2);
+        assertEquals(Arrays.asList(pv1), delivery.get(s2));
+
+        List<ParameterValue> l = delivery.take(0);
+        delivery.clear();
+        // the list handed over is not reused
+        assertEquals(Arrays.asList(pv1, pv2), l);
+        assertEquals(0, delivery.size);
+        assertNull(delivery.get(s1));
+
+        delivery.add(s2, pv2);
+        assertEquals(Arrays.asList(pv2), delivery.get(s2));
+    }
+
+    @Test
+    public void testDeliveryBufferIndexes() {
+        DeliveryBuffer delivery = new DeliveryBuffer();
+        Subscription s1 = new Subscription(1, 40);
+        Subscription s2 = new Subscription(2, 3);
+        delivery.add(s1, 0);
+        delivery.add(s2, 0);
+        delivery.add(s1, 5);
+        assertEquals(2, delivery.size);
+        assertEquals(IntArray.wrap(0, 5), delivery.getIndexes(s1));
+        assertEquals(IntArray.wrap(0), delivery.indexes(1));
+
+        // a different subscription with the same slot is ignored
+        delivery.add(new Subscription(3, 3), 7);
+        assertEquals(IntArray.wrap(0), delivery.getIndexes(s2));
+
+        IntArray a = delivery.indexes(0);
+        delivery.clear();
+        // the index arrays are reused
+        assertEquals(0, a.size());
+        assertNull(delivery.getIndexes(s1));
+
+        delivery.add(s1, 2);
+        assertSame(a, delivery.getIndexes(s1));
+        assertEquals(IntArray.wrap(2), a);
+    }
+
+    static XtceDb createDb(int numParams) {
+        SpaceSystem root = new SpaceSystem("");
+        root.setQualifiedName("/");
+        SpaceSystem ss = new SpaceSystem("test");
+        ss.setQualifiedName("/test");
+        root.addSpaceSystem(ss);
+        for (int i = 0; i < numParams; i++) {
+            Parameter p = new Parameter("p" + i);
+            p.setQualifiedName("/test/p" + i);
+            ss.addParameter(p);
+        }
+        XtceDb db = new XtceDb(root);
+        db.buildIndexMaps();
+        return db;
+    }
+}
@@ -0,0 +1,83 @@
+package org.yamcs.parameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+public class ParameterValueBlockTest {
+
+    @Test
+    public void testIndex() {
+        int n = 1000;
+        Parameter[] params = new Parameter[n];
+        ParameterValueBlock block = new ParameterValueBlock();
+        for (int i = 0; i < n; i++) {
+            params[i] = new Parameter("parameter" + i);
+            block.addPrimitive(params[i], ParameterStatus.NOMINAL, Type.UINT32, i, Type.SINT64, 2 * i);
+        }
+        ParameterValue pv2bis = new ParameterValue(params[2]);
+        assertEquals(n, block.add(pv2bis));
+        assertEquals(n + 1, block.size());
+
+        assertEquals(10, block.indexOf(params[10]));
+        assertEquals(10, block.lastIndexOf(params[10]));
+        assertEquals(2, block.indexOf(params[2]));
+        assertEquals(n, block.lastIndexOf(params[2]));
+        assertSame(pv2bis, block.getLastInserted(params[2]));
+        assertEquals(-1, block.lastIndexOf(new Parameter("unknown")));
+        assertNull(block.getLastInserted(new Parameter("unknown")));
+
+        assertTrue(block.isPrimitive(2));
+        assertFalse(block.isPrimitive(n));
+        assertEquals(ValueUtility.getUint32Value(10), block.getRawValue(10));
+        assertEquals(ValueUtility.getSint64Value(20), block.getEngValue(10));
+    }
+
+    @Test
+    public void testMaterialize() {
+        Parameter p1 = new Parameter("p1");
+        Parameter p2 = new Parameter("p2");
+        ParameterValueBlock block = new ParameterValueBlock();
+        block.setTime(1000, 2000);
+        block.addPrimitive(p1, ParameterStatus.NOMINAL, Type.SINT32, -3, Type.FLOAT,
+                Float.floatToRawIntBits(3.5f));
+        block.addPrimitive(p2, ParameterStatus.NOMINAL, Type.UINT64, -1, Type.DOUBLE,
+                Double.doubleToRawLongBits(-2.25));
+
+        ParameterValue pv1 = block.getParameterValue(0);
+        assertFalse(pv1 instanceof ContainerParameterValue);
+        assertEquals(p1, pv1.getParameter());
+        assertEquals(ValueUtility.getSint32Value(-3), pv1.getRawValue());
+        assertEquals(ValueUtility.getFloatValue(3.5f), pv1.getEngValue());
+        assertEquals(1000, pv1.getAcquisitionTime());
+        assertEquals(2000, pv1.getGenerationTime());
+        assertSame(pv1, block.getParameterValue(0));
+
+        ParameterValue pv2 = block.getParameterValue(1);
+        assertEquals(ValueUtility.getUint64Value(-1), pv2.getRawValue());
+        assertEquals(ValueUtility.getDoubleValue(-2.25), pv2.getEngValue());
+
+        List<ParameterValue> l = block.getParameterValues(IntArray.wrap(1));
+        assertEquals(1, l.size());
+        assertSame(pv2, l.get(0));
+
+        block.clear();
+        assertEquals(0, block.size());
+        assertEquals(-1, block.lastIndexOf(p1));
+
+        block.addPrimitive(p2, ParameterStatus.NOMINAL, Type.BOOLEAN, 1, Type.BOOLEAN, 1);
+        assertEquals(0, block.lastIndexOf(p2));
+        ParameterValue pv3 = block.getParameterValue(0);
+        assertEquals(ValueUtility.getBooleanValue(true), pv3.getEngValue());
+    }
+}
@@ -0,0 +1,168 @@
+package org.yamcs.parameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.parameterarchive.TestUtils;
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+public class RingParameterCacheTest {
+    Parameter p1 = new Parameter("p1");
+    Parameter p2 = new Parameter("p2");
+
+    @BeforeClass
+    public static void before() {
+        TimeEncoding.setUp();
+    }
+
+    @Test
+    public void test1() {
+        ParameterCacheConfig pcc = new ParameterCacheConfig(true, true, 1000, 4096);
+        RingParameterCache pcache = new RingParameterCache(pcc);
+        assertNull(pcache.getLastValue(p1));
+
+        ParameterValue p1v1 = getStringParameterValue(p1, 10);
+        ParameterValue p2v1 = getFloatParameterValue(p2, 10);
+        p2v1.setAcquisitionStatus(AcquisitionStatus.INVALID);
+        pcache.update(Arrays.asList(p1v1, p2v1));
+
+        TestUtils.checkEquals(p1v1, pcache.getLastValue(p1));
+        TestUtils.checkEquals(p2v1, pcache.getLastValue(p2));
+
+        ParameterValue p1v2 = getStringParameterValue(p1, 20);
+        pcache.update(Arrays.asList(p1v2));
+
+        TestUtils.checkEquals(p1v2, pcache.getLastValue(p1));
+        TestUtils.checkEquals(p2v1, pcache.getLastValue(p2));
+
+        ArrayParameterCacheTest.checkEquals(pcache.getValues(Arrays.asList(p1, p2)), p1v2, p2v1);
+        ArrayParameterCacheTest.checkEquals(pcache.getValues(Arrays.asList(p2, p1)), p2v1, p1v2);
+    }
+
+    @Test
+    public void testNoCacheAll() {
+        ParameterCacheConfig pcc = new ParameterCacheConfig(true, false, 1000, 4096);
+        RingParameterCache pcache = new RingParameterCache(pcc);
+        ParameterValue p1v0 = getStringParameterValue(p1, 0);
+        pcache.update(Arrays.asList(p1v0));
+        assertNull(pcache.getLastValue(p1));
+
+        ParameterValue p1v1 = getStringParameterValue(p1, 10);
+        ParameterValue p2v1 = getFloatParameterValue(p2, 10);
+        pcache.update(Arrays.asList(p1v1, p2v1));
+
+        TestUtils.checkEquals(p1v1, pcache.getLastValue(p1));
+        assertNull(pcache.getLastValue(p2));
+
+        ParameterValue p2v2 = getStringParameterValue(p2, 20);
+        pcache.update(Arrays.asList(p2v2));
+        TestUtils.checkEquals(p2v2, pcache.getLastValue(p2));
+
+        ArrayParameterCacheTest.checkEquals(pcache.getValues(Arrays.asList(p2, p1)), p2v2, p1v1);
+    }
+
+    @Test
+    public void testCircularity() {
+        ParameterCacheConfig pcc = new ParameterCacheConfig(true, true, 1000, 4096);
+        RingParameterCache pcache = new RingParameterCache(pcc);
+        List<ParameterValue> expectedPVlist = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            ParameterValue pv = getUint64ParameterValue(p1, i * 100L);
+            if (i < 10) {
+                pv.setAcquisitionStatus(AcquisitionStatus.INVALID);
+            }
+            expectedPVlist.add(pv);
+            pcache.update(Arrays.asList(pv));
+        }
+
+        List<ParameterValue> pvlist = pcache.getAllValues(p1);
+        assertEquals(16, pvlist.size());
+        for (int i = 0; i < 16; i++) {
+            TestUtils.checkEquals(expectedPVlist.get(15 - i), pvlist.get(i));
+        }
+
+        ParameterValue pv = getUint64ParameterValue(p1, 16 * 100L);
+        pcache.update(Arrays.asList(pv));
+        expectedPVlist.add(pv);
+
+        pvlist = pcache.getAllValues(p1);
+        assertEquals(16, pvlist.size());
+        for (int i = 0; i < 16; i++) {
+            TestUtils.checkEquals(expectedPVlist.get(16 - i), pvlist.get(i));
+        }
+
+        pvlist = pcache.getAllValues(p1, 1000, 1300);
+        assertEquals(3, pvlist.size());
+        TestUtils.checkEquals(expectedPVlist.get(13), pvlist.get(0));
+        TestUtils.checkEquals(expectedPVlist.get(11), pvlist.get(2));
+    }
+
+    @Test
+    public void testMaxSize() {
+        ParameterCacheConfig pcc = new ParameterCacheConfig(true, true, 2000, 128);
+        RingParameterCache pcache = new RingParameterCache(pcc);
+        List<ParameterValue> expectedPVlist = new ArrayList<>();
+        for (int i = 0; i < 258; i++) {
+            ParameterValue pv = getUint64ParameterValue(p1, i * 10L);
+            expectedPVlist.add(pv);
+            pcache.update(Arrays.asList(pv));
+        }
+
+        List<ParameterValue> pvlist = pcache.getAllValues(p1);
+        assertEquals(128, pvlist.size());
+        for (int i = 0; i < 128; i++) {
+            TestUtils.checkEquals(expectedPVlist.get(257 - i), pvlist.get(i));
+        }
+    }
+
+    @Test
+    public void testTypeChange() {
+        ParameterCacheConfig pcc = new ParameterCacheConfig(true, true, 1000, 4096);
+        RingParameterCache pcache = new RingParameterCache(pcc);
+        ParameterValue pv1 = getUint64ParameterValue(p1, 10);
+        ParameterValue pv2 = getUint64ParameterValue(p1, 20);
+        pcache.update(Arrays.asList(pv1));
+        pcache.update(Arrays.asList(pv2));
+
+        ParameterValue pv3 = new ParameterValue(p1);
+        pv3.setGenerationTime(30);
+        pv3.setRawValue(ValueUtility.getSint32Value(3));
+        pv3.setEngineeringValue(ValueUtility.getBooleanValue(true));
+        pcache.update(Arrays.asList(pv3));
+
+        List<ParameterValue> pvlist = pcache.getAllValues(p1);
+        assertEquals(1, pvlist.size());
+        TestUtils.checkEquals(pv3, pvlist.get(0));
+    }
+
+    ParameterValue getUint64ParameterValue(Parameter p, long t) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(t);
+        pv.setAcquisitionTime(t + 5);
+        pv.setEngineeringValue(ValueUtility.getUint64Value(t));
+        return pv;
+    }
+
+    ParameterValue getFloatParameterValue(Parameter p, long t) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(t);
+        pv.setEngineeringValue(ValueUtility.getFloatValue((float) t));
+        return pv;
+    }
+
+    ParameterValue getStringParameterValue(Parameter p, long timestamp) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(timestamp);
+        pv.setEngineeringValue(ValueUtility.getStringValue(p.getName() + "_" + timestamp));
+        return pv;
+    }
+}
@@ -0,0 +1,141 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.YamcsServer;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.FileUtils;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+
+public class ArchiveFillerTaskTest {
+    String instance = "ArchiveFillerTaskTest";
+    ParameterArchive parchive;
+    static Parameter p1;
+    long t0;
+
+    @BeforeClass
+    public static void beforeClass() {
+        p1 = new Parameter("p1");
+        p1.setQualifiedName("/test/p1");
+        TimeEncoding.setUp();
+        YamcsServer.setMockupTimeService(new MockupTimeService());
+    }
+
+    @Before
+    public void openDb() throws Exception {
+        String dbroot = YarchDatabase.getInstance(instance).getRoot();
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot + ".rdb"));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot + ".tbs"));
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        if (rse.getTablespace(instance) != null) {
+            rse.dropTablespace(instance);
+        }
+        rse.createTablespace(instance);
+
+        parchive = new ParameterArchive();
+        YConfiguration config = parchive.getSpec().validate(YConfiguration.emptyConfig());
+        parchive.init(instance, config);
+        t0 = ParameterArchive.getIntervalStart(TimeEncoding.parse("2019-10-01T00:00:00"));
+    }
+
+    @After
+    public void closeDb() throws Exception {
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        rse.dropTablespace(instance);
+    }
+
+    @Test
+    public void testCollectionEnd() throws Exception {
+        ArchiveFillerTask aft = new ArchiveFillerTask(parchive, 3);
+        aft.setCollectionSegmentStart(t0);
+        aft.setCollectionEnd(t0 + 5000);
+        for (int i = 0; i < 10; i++) {
+            aft.updateItems(0, delivery(t0 + i * 1000));
+        }
+        aft.flush();
+        checkRetrieved(t0, 0, 6);
+    }
+
+    @Test
+    public void testAtomicWrite() throws Exception {
+        ArchiveFillerTask aft = new ArchiveFillerTask(parchive, 3);
+        aft.setCollectionSegmentStart(t0);
+        aft.setAtomicWrite(true);
+        for (int i = 0; i < 10; i++) {
+            aft.updateItems(0, delivery(t0 + i * 1000));
+        }
+        // the full segments are kept in the batch
+        assertTrue(retrieve(t0).isEmpty());
+        aft.flush();
+        checkRetrieved(t0, 0, 10);
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        ArchiveFillerTask aft = new ArchiveFillerTask(parchive, 3);
+        aft.setCollectionSegmentStart(t0);
+        for (int i = 0; i < 5; i++) {
+            aft.updateItems(0, delivery(t0 + i * 1000));
+        }
+        aft.flush();
+        checkRetrieved(t0, 0, 5);
+
+        // the data of the discarded task is not written, the previous data stays as it was
+        aft = new ArchiveFillerTask(parchive, 3);
+        aft.setCollectionSegmentStart(t0);
+        aft.setAtomicWrite(true);
+        for (int i = 5; i < 10; i++) {
+            aft.updateItems(0, delivery(t0 + i * 1000));
+        }
+        aft.discard();
+        checkRetrieved(t0, 0, 5);
+    }
+
+    private void checkRetrieved(long start, int from, int to) throws Exception {
+        List<Long> times = retrieve(start);
+        assertEquals(to - from, times.size());
+        for (int i = from; i < to; i++) {
+            assertEquals(start + i * 1000, times.get(i - from).longValue());
+        }
+    }
+
+    private List<Long> retrieve(long start) throws Exception {
+        ParameterId[] pids = parchive.getParameterIdDb().get(p1.getQualifiedName());
+        List<Long> times = new ArrayList<>();
+        if (pids == null) {
+            return times;
+        }
+        int pid = pids[0].pid;
+        int[] pgids = parchive.getParameterGroupIdDb().getAllGroups(pid);
+        ParameterRequest req = new ParameterRequest(start, start + 3600_000, true, true, false, false);
+        new SingleParameterArchiveRetrieval(parchive, pid, pgids, req).retrieve(pva -> {
+            for (long t : pva.timestamps) {
+                times.add(t);
+            }
+        });
+        return times;
+    }
+
+    private List<ParameterValue> delivery(long t) {
+        ParameterValue pv = new ParameterValue(p1);
+        pv.setGenerationTime(t);
+        pv.setEngineeringValue(ValueUtility.getUint32Value((int) t));
+        return Arrays.asList(pv);
+    }
+}
@@ -0,0 +1,164 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.YamcsServer;
+import org.yamcs.utils.FileUtils;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+
+/**
+ * Checks the splitting of the rebuild in archive intervals; the replays are replaced by a test fill method.
+ */
+public class BackFillerTest {
+    String instance = "BackFillerTest";
+    ParameterArchive parchive;
+
+    @BeforeClass
+    public static void beforeClass() {
+        TimeEncoding.setUp();
+        YamcsServer.setMockupTimeService(new MockupTimeService());
+    }
+
+    @Before
+    public void openDb() throws Exception {
+        String dbroot = YarchDatabase.getInstance(instance).getRoot();
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot + ".rdb"));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot + ".tbs"));
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        if (rse.getTablespace(instance) != null) {
+            rse.dropTablespace(instance);
+        }
+        rse.createTablespace(instance);
+
+        parchive = new ParameterArchive();
+        YConfiguration config = parchive.getSpec().validate(YConfiguration.emptyConfig());
+        parchive.init(instance, config);
+    }
+
+    @After
+    public void closeDb() throws Exception {
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        rse.dropTablespace(instance);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        long t0 = ParameterArchive.getIntervalStart(TimeEncoding.parse("2019-10-01T00:00:00"));
+        long d = ParameterArchive.getIntervalDuration();
+        TestBackFiller backFiller = new TestBackFiller(parchive, 3);
+        // the second interval fails
+        backFiller.failedStart = t0 + d;
+
+        backFiller.scheduleFillingTask(t0 + 10, t0 + 4 * d + 10).get();
+
+        List<long[]> calls = backFiller.getCalls();
+        assertEquals(5, calls.size());
+        for (int i = 0; i < 5; i++) {
+            long[] c = calls.get(i);
+            assertEquals(t0 + i * d, c[0]);
+            assertEquals(t0 + (i + 1) * d, c[1]);
+            assertEquals(1, c[2]);
+        }
+        // the first three intervals have been filled concurrently
+        assertTrue(backFiller.concurrent);
+
+        BackFiller.RebuildProgress progress = backFiller.getProgress();
+        assertEquals(5, progress.getDone());
+        assertEquals(1, progress.getFailed());
+        assertEquals(0, progress.getEta());
+        backFiller.stop();
+    }
+
+    @Test
+    public void testSingleInterval() throws Exception {
+        long t0 = ParameterArchive.getIntervalStart(TimeEncoding.parse("2019-10-01T00:00:00"));
+        long d = ParameterArchive.getIntervalDuration();
+        TestBackFiller backFiller = new TestBackFiller(parchive, 3);
+
+        backFiller.scheduleFillingTask(t0 + 10, t0 + 20).get();
+
+        // one interval is filled with a normal fill, even if the parallelism is greater than 1
+        List<long[]> calls = backFiller.getCalls();
+        assertEquals(1, calls.size());
+        assertEquals(t0, calls.get(0)[0]);
+        assertEquals(t0 + d, calls.get(0)[1]);
+        assertEquals(0, calls.get(0)[2]);
+        assertEquals(null, backFiller.getProgress());
+        backFiller.stop();
+    }
+
+    @Test
+    public void testNoParallelism() throws Exception {
+        long t0 = ParameterArchive.getIntervalStart(TimeEncoding.parse("2019-10-01T00:00:00"));
+        long d = ParameterArchive.getIntervalDuration();
+        TestBackFiller backFiller = new TestBackFiller(parchive, 1);
+
+        backFiller.scheduleFillingTask(t0, t0 + 3 * d).get();
+
+        List<long[]> calls = backFiller.getCalls();
+        assertEquals(1, calls.size());
+        assertEquals(t0, calls.get(0)[0]);
+        assertEquals(t0 + 4 * d, calls.get(0)[1]);
+        assertEquals(0, calls.get(0)[2]);
+        backFiller.stop();
+    }
+
+    static class TestBackFiller extends BackFiller {
+        final List<long[]> calls = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch;
+        volatile boolean concurrent = true;
+        long failedStart = -1;
+
+        TestBackFiller(ParameterArchive parchive, int parallelism) {
+            super(parchive, config(parallelism));
+            latch = new CountDownLatch(parallelism);
+        }
+
+        @Override
+        boolean fill(long start, long stop, boolean singleInterval) {
+            calls.add(new long[] { start, stop, singleInterval ? 1 : 0 });
+            if (singleInterval) {
+                latch.countDown();
+                try {
+                    if (!latch.await(10, TimeUnit.SECONDS)) {
+                        concurrent = false;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return start != failedStart;
+        }
+
+        List<long[]> getCalls() {
+            List<long[]> l = new ArrayList<>(calls);
+            l.sort((c1, c2) -> Long.compare(c1[0], c2[0]));
+            return l;
+        }
+    }
+
+    static YConfiguration config(int parallelism) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("parallelism", parallelism);
+        m.put("monitorStreams", Collections.emptyList());
+        return YConfiguration.wrap(m);
+    }
+}
@@ -2,10 +2,12 @@ package org.yamcs.parameterarchive;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 import org.yamcs.utils.DecodingException;
@@ -30,4 +32,49 @@ public class DoubleValueSegmentTest {
         assertArrayEquals(new double[]{1.2, 2.3,3}, fvs1.getRange(0, 3, true).getDoubleArray(), 1e-10);
         assertArrayEquals(new double[]{3, 2.3}, fvs1.getRange(0, 2, false).getDoubleArray(), 1e-10);
     }
+
+    @Test
+    public void testCompressed() throws DecodingException {
+        int n = 1000;
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        for (int i = 0; i < n; i++) {
+            // slowly changing value, sampled faster than it changes
+            dvs.add(i, ValueUtility.getDoubleValue(20 + Math.round(Math.sin(i / 500.0) * 100) / 10.0));
+        }
+        dvs.add(n, ValueUtility.getDoubleValue(Double.NaN));
+        dvs.add(n + 1, ValueUtility.getDoubleValue(-0.0));
+        dvs.add(n + 2, ValueUtility.getDoubleValue(Double.NEGATIVE_INFINITY));
+        dvs.add(n + 3, ValueUtility.getDoubleValue(Double.MIN_VALUE));
+
+        ByteBuffer bb = ByteBuffer.allocate(dvs.getMaxSerializedSize());
+        dvs.writeTo(bb);
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_COMPRESSED, bb.get(0));
+        assertTrue(bb.position() < 8 * n / 2);
+
+        bb.rewind();
+        DoubleValueSegment dvs1 = DoubleValueSegment.parseFrom(bb);
+        assertEquals(dvs.size(), dvs1.size());
+        for (int i = 0; i < dvs.size(); i++) {
+            assertEquals(Double.doubleToRawLongBits(dvs.values.get(i)), Double.doubleToRawLongBits(dvs1.values.get(i)));
+        }
+    }
+
+    @Test
+    public void testRandomFallsBackToRaw() throws DecodingException {
+        Random r = new Random(0);
+        int n = 1000;
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        for (int i = 0; i < n; i++) {
+            dvs.add(i, ValueUtility.getDoubleValue(Double.longBitsToDouble(r.nextLong())));
+        }
+        ByteBuffer bb = ByteBuffer.allocate(dvs.getMaxSerializedSize());
+        dvs.writeTo(bb);
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_RAW, bb.get(0));
+
+        bb.rewind();
+        DoubleValueSegment dvs1 = DoubleValueSegment.parseFrom(bb);
+        for (int i = 0; i < n; i++) {
+            assertEquals(Double.doubleToRawLongBits(dvs.values.get(i)), Double.doubleToRawLongBits(dvs1.values.get(i)));
+        }
+    }
 }
@@ -5,10 +5,12 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.LongArray;
 import org.yamcs.utils.ValueUtility;
 
 public class LongValueSegmentTest {
@@ -71,4 +73,54 @@ public class LongValueSegmentTest {
         assertArrayEquals(new long[]{1, 2,3}, fvs1.getRange(0, 3, true).getLongArray());
         assertArrayEquals(new long[]{3, 2}, fvs1.getRange(0, 2, false).getLongArray());
     }
+
+    @Test
+    public void testCompressed() throws DecodingException {
+        long t0 = 1_500_000_000_000L;
+        long[] counters = new long[1000];
+        long[] timestamps = new long[1000];
+        long[] extremes = new long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (int i = 0; i < 1000; i++) {
+            counters[i] = 1000 + 3 * i;
+            timestamps[i] = t0 + 1000 * i + (i % 7);
+        }
+
+        for (long[] a : new long[][] { counters, timestamps, new long[] { 5 }, new long[] { t0, t0 + 10 } }) {
+            LongValueSegment lvs = checkEncodeDecode(a, Type.TIMESTAMP);
+            ByteBuffer bb = ByteBuffer.allocate(lvs.getMaxSerializedSize());
+            lvs.writeTo(bb);
+            if (a.length > 2) {
+                assertTrue((bb.get(0) & 0xF) != LongValueSegment.SUBFORMAT_ID_RAW);
+                assertTrue(bb.position() < a.length);
+            }
+        }
+        // the delta of deltas do not fit into 32 bits
+        checkEncodeDecode(extremes, Type.SINT64);
+    }
+
+    @Test
+    public void testRandomFallsBackToRaw() throws DecodingException {
+        Random r = new Random(0);
+        long[] a = new long[1000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = r.nextLong();
+        }
+        LongValueSegment lvs = checkEncodeDecode(a, Type.UINT64);
+        ByteBuffer bb = ByteBuffer.allocate(lvs.getMaxSerializedSize());
+        lvs.writeTo(bb);
+        assertEquals(LongValueSegment.SUBFORMAT_ID_RAW, bb.get(0) & 0xF);
+    }
+
+    private LongValueSegment checkEncodeDecode(long[] a, Type type) throws DecodingException {
+        LongValueSegment lvs = new LongValueSegment(type);
+        lvs.values = LongArray.wrap(a);
+
+        ByteBuffer bb = ByteBuffer.allocate(lvs.getMaxSerializedSize());
+        lvs.writeTo(bb);
+        bb.rewind();
+        LongValueSegment lvs1 = LongValueSegment.parseFrom(bb);
+        assertArrayEquals(a, lvs1.getRange(0, a.length, true).getLongArray());
+        assertEquals(lvs.getValue(0), lvs1.getValue(0));
+        return lvs;
+    }
 }
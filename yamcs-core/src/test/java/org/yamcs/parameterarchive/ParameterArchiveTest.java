@@ -585,6 +585,53 @@ public class ParameterArchiveTest {
 
     }
 
+    @Test
+    public void testMultipleGroupsSameSegmentStart() throws Exception {
+        ParameterValue pv1_0 = getParameterValue(p1, 100, "pv1_0");
+        ParameterValue pv2_0 = getParameterValue(p2, 100, "pv2_0");
+        ParameterValue pv3_0 = getParameterValue(p3, 150, "pv3_0");
+        ParameterValue pv1_1 = getParameterValue(p1, 200, "pv1_1");
+        ParameterValue pv2_1 = getParameterValue(p2, 200, "pv2_1");
+        ParameterValue pv3_1 = getParameterValue(p3, 200, "pv3_1");
+
+        int p1id = parchive.getParameterIdDb().createAndGet(p1.getQualifiedName(), pv1_0.getEngValue().getType());
+        int p2id = parchive.getParameterIdDb().createAndGet(p2.getQualifiedName(), pv2_0.getEngValue().getType());
+        int p3id = parchive.getParameterIdDb().createAndGet(p3.getQualifiedName(), pv3_0.getEngValue().getType());
+
+        int pg1id = parchive.getParameterGroupIdDb().createAndGet(IntArray.wrap(p1id, p2id));
+        int pg2id = parchive.getParameterGroupIdDb().createAndGet(IntArray.wrap(p3id));
+
+        PGSegment pgSegment1 = new PGSegment(pg1id, 0, IntArray.wrap(p1id, p2id));
+        pgSegment1.addRecord(100, Arrays.asList(pv1_0, pv2_0));
+        pgSegment1.addRecord(200, Arrays.asList(pv1_1, pv2_1));
+
+        PGSegment pgSegment2 = new PGSegment(pg2id, 0, IntArray.wrap(p3id));
+        pgSegment2.addRecord(150, Arrays.asList(pv3_0));
+        pgSegment2.addRecord(200, Arrays.asList(pv3_1));
+        parchive.writeToArchive(0, Arrays.asList(pgSegment1, pgSegment2));
+
+        int[] pids = new int[] { p3id, p1id, p2id };
+        int[] pgids = new int[] { pg2id, pg1id, pg1id };
+
+        List<ParameterIdValueList> la = retrieveMultipleParameters(0, TimeEncoding.MAX_INSTANT, pids, pgids, true);
+        assertEquals(4, la.size());
+        checkEquals(la.get(0), 100, pv1_0, pv2_0);
+        checkEquals(la.get(1), 150, pv3_0);
+        checkEquals(la.get(2), 200, pv1_1, pv2_1);
+        checkEquals(la.get(3), 200, pv3_1);
+
+        List<ParameterIdValueList> ld = retrieveMultipleParameters(0, TimeEncoding.MAX_INSTANT, pids, pgids, false);
+        assertEquals(4, ld.size());
+        checkEquals(ld.get(0), 200, pv3_1);
+        checkEquals(ld.get(1), 200, pv1_1, pv2_1);
+        checkEquals(ld.get(2), 150, pv3_0);
+        checkEquals(ld.get(3), 100, pv1_0, pv2_0);
+
+        List<ParameterIdValueList> ll = retrieveMultipleParameters(0, TimeEncoding.MAX_INSTANT, pids, pgids, true, 3);
+        assertEquals(3, ll.size());
+        checkEquals(ll.get(2), 200, pv1_1, pv2_1);
+    }
+
     @Test
     public void testExpireMillis() throws Exception {
         long t = TimeEncoding.parse("2018-03-19T10:35:00");
@@ -610,6 +657,66 @@ public class ParameterArchiveTest {
 
     }
 
+    @Test
+    public void testRollups() throws Exception {
+        long t0 = TimeEncoding.parse("2018-03-19T10:35:00");
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        int pg1id = pgidMap.createAndGet(IntArray.wrap(p1id));
+
+        // first segment written without rollups, the second one with
+        long segStart1 = ParameterArchive.getIntervalStart(t0);
+        PGSegment pgSegment1 = new PGSegment(pg1id, segStart1, IntArray.wrap(p1id));
+        for (int i = 0; i < 100; i++) {
+            pgSegment1.addRecord(t0 + i * 1000, Arrays.asList(getDoubleParameterValue(p1, t0 + i * 1000, i)));
+        }
+        parchive.rollupsEnabled = false;
+        parchive.writeToArchive(pgSegment1);
+        parchive.rollupsEnabled = true;
+
+        long t1 = ParameterArchive.getIntervalEnd(t0) + 1;
+        PGSegment pgSegment2 = new PGSegment(pg1id, ParameterArchive.getIntervalStart(t1), IntArray.wrap(p1id));
+        for (int i = 0; i < 200; i++) {
+            pgSegment2.addRecord(t1 + i * 1000, Arrays.asList(getDoubleParameterValue(p1, t1 + i * 1000, -i)));
+        }
+        parchive.writeToArchive(pgSegment2);
+
+        for (int level = 0; level < RollupSegment.numLevels(); level++) {
+            List<RollupSegment> rollups = new ArrayList<>();
+            SingleValueConsumer values = new SingleValueConsumer();
+            SingleParameterRollupRetrieval sprr = new SingleParameterRollupRetrieval(parchive, p1.getQualifiedName(),
+                    t0, t1 + 1000_000, level);
+            long lastTime = sprr.retrieve(rollups::add, values);
+            assertEquals(t1 + 199 * 1000, lastTime);
+
+            assertEquals(1, values.list.size());
+            assertEquals(100, values.list.get(0).engValues.size());
+
+            assertEquals(1, rollups.size());
+            RollupSegment rs = rollups.get(0);
+            int count = 0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            double sum = 0;
+            for (int i = 0; i < rs.size(); i++) {
+                count += rs.getCount(i);
+                min = Math.min(min, rs.getMin(i));
+                max = Math.max(max, rs.getMax(i));
+                sum += rs.getSum(i);
+            }
+            assertEquals(200, count);
+            assertEquals(-199, min, 0);
+            assertEquals(0, max, 0);
+            assertEquals(-199 * 100, sum, 0);
+        }
+    }
+
+    ParameterValue getDoubleParameterValue(Parameter p, long instant, double v) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(instant);
+        pv.setEngineeringValue(ValueUtility.getDoubleValue(v));
+        return pv;
+    }
+
     List<ParameterIdValueList> retrieveMultipleParameters(long start, long stop, int[] parameterIds,
             int[] parameterGroupIds, boolean ascending) throws Exception {
         return retrieveMultipleParameters(start, stop, parameterIds, parameterGroupIds, ascending, -1);
@@ -0,0 +1,169 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.YamcsServer;
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.FileUtils;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+
+public class RealtimeArchiveFillerTest {
+    String instance = "RealtimeArchiveFillerTest";
+    ParameterArchive parchive;
+    static Parameter p1;
+
+    @BeforeClass
+    public static void beforeClass() {
+        p1 = new Parameter("p1");
+        p1.setQualifiedName("/test/p1");
+        TimeEncoding.setUp();
+        YamcsServer.setMockupTimeService(new MockupTimeService());
+    }
+
+    @Before
+    public void openDb() throws Exception {
+        String dbroot = YarchDatabase.getInstance(instance).getRoot();
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot + ".rdb"));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dbroot + ".tbs"));
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        if (rse.getTablespace(instance) != null) {
+            rse.dropTablespace(instance);
+        }
+        rse.createTablespace(instance);
+
+        parchive = new ParameterArchive();
+        YConfiguration config = parchive.getSpec().validate(YConfiguration.emptyConfig());
+        parchive.init(instance, config);
+    }
+
+    @After
+    public void closeDb() throws Exception {
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        rse.dropTablespace(instance);
+    }
+
+    @Test
+    public void testDropNewest() {
+        RealtimeArchiveFiller filler = createFiller(2, "DROP_NEWEST", 10);
+        List<ParameterValue> d1 = delivery(1000);
+        List<ParameterValue> d2 = delivery(2000);
+        filler.updateItems(0, d1);
+        filler.updateItems(0, d2);
+        filler.updateItems(0, delivery(3000));
+        assertEquals(2, filler.getQueueSize());
+        assertEquals(1, filler.getNumDropped());
+        assertEquals(d1, filler.queue.poll());
+        assertEquals(d2, filler.queue.poll());
+    }
+
+    @Test
+    public void testDropOldest() {
+        RealtimeArchiveFiller filler = createFiller(2, "DROP_OLDEST", 10);
+        filler.updateItems(0, delivery(1000));
+        List<ParameterValue> d2 = delivery(2000);
+        List<ParameterValue> d3 = delivery(3000);
+        filler.updateItems(0, d2);
+        filler.updateItems(0, d3);
+        assertEquals(2, filler.getQueueSize());
+        assertEquals(1, filler.getNumDropped());
+        assertEquals(d2, filler.queue.poll());
+        assertEquals(d3, filler.queue.poll());
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        RealtimeArchiveFiller filler = createFiller(10, "DROP_NEWEST", 3);
+        long t0 = TimeEncoding.parse("2019-10-01T00:00:00");
+        filler.first = new ArchiveIntervalFiller(parchive, new Log(getClass(), instance),
+                ParameterArchive.getIntervalStart(t0), 3);
+        for (int i = 0; i < 7; i++) {
+            filler.processParameters(delivery(t0 + i * 1000));
+        }
+        assertEquals(0, retrieve(t0).size());
+
+        // the two full segments are written together, the open one is not old enough
+        filler.commit(Long.MAX_VALUE);
+        assertEquals(6, retrieve(t0).size());
+        assertEquals(1, filler.getNumCommits());
+
+        filler.commit(0);
+        assertEquals(7, retrieve(t0).size());
+        assertEquals(2, filler.getNumCommits());
+
+        // the open segment has just been written
+        filler.commit(Long.MAX_VALUE);
+        assertEquals(2, filler.getNumCommits());
+
+        // the segment written while open fills up and is written again under the same key
+        for (int i = 7; i < 10; i++) {
+            filler.processParameters(delivery(t0 + i * 1000));
+        }
+        filler.commit(Long.MAX_VALUE);
+        checkRetrieved(retrieve(t0), t0, 9);
+
+        filler.commit(0);
+        for (int i = 10; i < 12; i++) {
+            filler.processParameters(delivery(t0 + i * 1000));
+        }
+        filler.commit(0);
+        checkRetrieved(retrieve(t0), t0, 12);
+    }
+
+    // checks that each of the n samples is retrieved exactly once
+    private void checkRetrieved(List<Long> times, long t0, int n) {
+        assertEquals(n, times.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(t0 + i * 1000, times.get(i).longValue());
+        }
+    }
+
+    private List<Long> retrieve(long start) throws Exception {
+        ParameterId[] pids = parchive.getParameterIdDb().get(p1.getQualifiedName());
+        List<Long> times = new ArrayList<>();
+        if (pids == null) {
+            return times;
+        }
+        int pid = pids[0].pid;
+        int[] pgids = parchive.getParameterGroupIdDb().getAllGroups(pid);
+        ParameterRequest req = new ParameterRequest(start, start + 3600_000, true, true, false, false);
+        new SingleParameterArchiveRetrieval(parchive, pid, pgids, req).retrieve(pva -> {
+            for (long t : pva.timestamps) {
+                times.add(t);
+            }
+        });
+        return times;
+    }
+
+    private RealtimeArchiveFiller createFiller(int queueSize, String overflowPolicy, int maxSegmentSize) {
+        Map<String, Object> conf = new HashMap<>();
+        conf.put("queueSize", queueSize);
+        conf.put("overflowPolicy", overflowPolicy);
+        conf.put("maxSegmentSize", maxSegmentSize);
+        return new RealtimeArchiveFiller(parchive, YConfiguration.wrap(conf));
+    }
+
+    private List<ParameterValue> delivery(long t) {
+        ParameterValue pv = new ParameterValue(p1);
+        pv.setGenerationTime(t);
+        pv.setEngineeringValue(ValueUtility.getUint32Value((int) t));
+        return Arrays.asList(pv);
+    }
+}
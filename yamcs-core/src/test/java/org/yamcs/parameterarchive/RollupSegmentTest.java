@@ -0,0 +1,68 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.DecodingException;
+
+public class RollupSegmentTest {
+
+    @Test
+    public void test1() throws DecodingException {
+        long t0 = 3L << ParameterArchive.NUMBITS_MASK;
+        long bucket = 1L << RollupSegment.LEVEL_SHIFTS[0];
+        long[] timestamps = new long[] { t0 + 10, t0 + 20, t0 + bucket + 5, t0 + 3 * bucket };
+        ValueArray va = new ValueArray(new double[] { 2.5, -1, 7, 3 });
+
+        RollupSegment rs = RollupSegment.build(0, timestamps, va);
+        assertEquals(3, rs.size());
+        checkBucket(rs, 0, t0, 2, -1, 2.5, 1.5);
+        checkBucket(rs, 1, t0 + bucket, 1, 7, 7, 7);
+        checkBucket(rs, 2, t0 + 3 * bucket, 1, 3, 3, 3);
+        assertEquals(t0 + 3 * bucket, rs.getLastTime());
+
+        ByteBuffer bb = ByteBuffer.allocate(rs.getMaxSerializedSize());
+        rs.writeTo(bb);
+        bb.rewind();
+        RollupSegment rs1 = RollupSegment.parseFrom(bb);
+        assertEquals(rs.size(), rs1.size());
+        assertEquals(bucket, rs1.getBucketDuration());
+        assertEquals(rs.getLastTime(), rs1.getLastTime());
+        for (int i = 0; i < rs.size(); i++) {
+            checkBucket(rs1, i, rs.getBucketStart(i), rs.getCount(i), rs.getMin(i), rs.getMax(i), rs.getSum(i));
+        }
+    }
+
+    @Test
+    public void testIntValues() {
+        long t0 = 0;
+        ValueArray va = new ValueArray(Type.UINT32, new int[] { -1, 1 });
+        RollupSegment rs = RollupSegment.build(RollupSegment.numLevels() - 1, new long[] { t0, t0 + 1 }, va);
+        assertEquals(1, rs.size());
+        checkBucket(rs, 0, t0, 2, 1, 4294967295d, 4294967296d);
+
+        assertNull(RollupSegment.build(0, new long[] { t0 }, new ValueArray(new String[] { "a" })));
+    }
+
+    @Test
+    public void testGetLevel() {
+        assertEquals(-1, RollupSegment.getLevel(60_000L * 500, 500));
+        assertEquals(0, RollupSegment.getLevel(86400_000L, 500));
+        assertEquals(1, RollupSegment.getLevel(30 * 86400_000L, 500));
+        assertEquals(2, RollupSegment.getLevel(3650 * 86400_000L, 500));
+        assertEquals(-1, RollupSegment.getLevel(3650 * 86400_000L, 0));
+    }
+
+    private void checkBucket(RollupSegment rs, int idx, long start, int count, double min, double max, double sum) {
+        assertEquals(start, rs.getBucketStart(idx));
+        assertEquals(count, rs.getCount(idx));
+        assertEquals(min, rs.getMin(idx), 0);
+        assertEquals(max, rs.getMax(idx), 0);
+        assertEquals(sum, rs.getSum(idx), 0);
+    }
+}
@@ -0,0 +1,81 @@
+package org.yamcs.rs;
+
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the {@link ReedSolomonDecoder} with the {@link ReedSolomon#decode(byte[], int[])} for the CCSDS (255,223)
+ * code with interleaving depths 1 to 5, for code blocks without errors and with 8 errors per codeword.
+ */
+@Ignore
+public class ReedSolomonPerfTest {
+    static final int NN = 255;
+    static final int NROOTS = 32;
+    int numBlocks = 2000;
+    int nruns = 5;
+    Random random = new Random(0);
+
+    @Test
+    public void test() throws ReedSolomonException {
+        ReedSolomon rs = new ReedSolomon(NROOTS, 8, 112, 11, 0x187, 0);
+        ReedSolomonDecoder decoder = new ReedSolomonDecoder(rs);
+
+        for (int numErr : new int[] { 0, 8 }) {
+            for (int depth = 1; depth <= 5; depth++) {
+                byte[][] blocks = new byte[numBlocks][];
+                for (int k = 0; k < numBlocks; k++) {
+                    blocks[k] = codeBlock(rs, depth, numErr);
+                }
+                for (int run = 0; run < nruns; run++) {
+                    long t0 = System.nanoTime();
+                    for (byte[] block : blocks) {
+                        decodeOld(rs, block.clone(), depth);
+                    }
+                    long t1 = System.nanoTime();
+                    for (byte[] block : blocks) {
+                        decoder.decodeInterleaved(block.clone(), 0, depth);
+                    }
+                    long t2 = System.nanoTime();
+                    System.out.printf("errors/codeword: %d I=%d ReedSolomon: %d ns/codeword, "
+                            + "ReedSolomonDecoder: %d ns/codeword%n", numErr, depth,
+                            (t1 - t0) / (numBlocks * depth), (t2 - t1) / (numBlocks * depth));
+                }
+            }
+        }
+    }
+
+    // de-interleave each codeword, decode it and put it back
+    static int decodeOld(ReedSolomon rs, byte[] block, int depth) throws ReedSolomonException {
+        int n = 0;
+        for (int i = 0; i < depth; i++) {
+            byte[] codeword = new byte[NN];
+            for (int j = 0; j < NN; j++) {
+                codeword[j] = block[j * depth + i];
+            }
+            n += rs.decode(codeword, null);
+            for (int j = 0; j < NN; j++) {
+                block[j * depth + i] = codeword[j];
+            }
+        }
+        return n;
+    }
+
+    byte[] codeBlock(ReedSolomon rs, int depth, int numErr) {
+        byte[] block = new byte[NN * depth];
+        byte[] parity = new byte[NROOTS];
+        for (int i = 0; i < depth; i++) {
+            byte[] data = new byte[NN - NROOTS];
+            random.nextBytes(data);
+            rs.encode(data, parity);
+            for (int j = 0; j < NN; j++) {
+                block[j * depth + i] = j < data.length ? data[j] : parity[j - data.length];
+            }
+            for (int k = 0; k < numErr; k++) {
+                block[random.nextInt(NN) * depth + i] ^= (byte) (1 + random.nextInt(255));
+            }
+        }
+        return block;
+    }
+}
@@ -54,6 +54,82 @@ public class ReedSolomonTest {
 
     }
 
+    @Test
+    public void testDecoder() throws ReedSolomonException {
+        ReedSolomon rs = new ReedSolomon(rsp.nroots, rsp.symsize, rsp.fcr, rsp.prim, rsp.gfpoly, rsp.pad);
+        ReedSolomonDecoder decoder = new ReedSolomonDecoder(rs);
+        int nn = (1 << rsp.symsize) - 1;
+        int cl = nn - rsp.pad;
+
+        for (int i = 0; i < n; i++) {
+            for (int numErr = 0; numErr <= rsp.nroots / 2; numErr++) {
+                byte[] codeword = codeword(rs, nn);
+                byte[] data1 = Arrays.copyOf(codeword, cl);
+                addErrors(data1, 0, 1, cl, numErr, nn);
+                byte[] data2 = Arrays.copyOf(data1, cl);
+
+                int n1 = rs.decode(data1, null);
+                int n2 = decoder.decode(data2, null);
+                assertEquals(numErr, n2);
+                assertEquals(n1, n2);
+                assertArrayEquals(codeword, data2);
+                assertArrayEquals(data1, data2);
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeInterleaved() throws ReedSolomonException {
+        ReedSolomon rs = new ReedSolomon(rsp.nroots, rsp.symsize, rsp.fcr, rsp.prim, rsp.gfpoly, rsp.pad);
+        ReedSolomonDecoder decoder = new ReedSolomonDecoder(rs);
+        int nn = (1 << rsp.symsize) - 1;
+        int cl = nn - rsp.pad;
+        int offset = 3;
+
+        for (int depth = 1; depth <= 5; depth++) {
+            byte[] block = new byte[offset + depth * cl];
+            for (int i = 0; i < depth; i++) {
+                byte[] codeword = codeword(rs, nn);
+                for (int j = 0; j < cl; j++) {
+                    block[offset + j * depth + i] = codeword[j];
+                }
+            }
+            byte[] orig = Arrays.copyOf(block, block.length);
+            int numErr = 0;
+            for (int i = 0; i < depth; i++) {
+                int k = rand.nextInt(rsp.nroots / 2 + 1);
+                addErrors(block, offset + i, depth, cl, k, nn);
+                numErr += k;
+            }
+            assertEquals(numErr, decoder.decodeInterleaved(block, offset, depth));
+            assertArrayEquals(orig, block);
+        }
+    }
+
+    private byte[] codeword(ReedSolomon rs, int nn) {
+        int ds = nn - rsp.nroots - rsp.pad;
+        byte[] data = new byte[ds];
+        fillRandom(data, nn);
+        byte[] parity = new byte[rsp.nroots];
+        rs.encode(data, parity);
+        byte[] codeword = Arrays.copyOf(data, ds + rsp.nroots);
+        System.arraycopy(parity, 0, codeword, ds, rsp.nroots);
+        return codeword;
+    }
+
+    // modifies numErr distinct symbols of the codeword found at offset with the given stride
+    private void addErrors(byte[] data, int offset, int stride, int length, int numErr, int nn) {
+        boolean[] modified = new boolean[length];
+        for (int k = 0; k < numErr; k++) {
+            int pos;
+            do {
+                pos = rand.nextInt(length);
+            } while (modified[pos]);
+            modified[pos] = true;
+            data[offset + pos * stride] ^= (byte) (1 + rand.nextInt(nn));
+        }
+    }
+
     void fillRandom(byte[] data, int max) {
         for (int i = 0; i < data.length; i++) {
             data[i] = (byte) rand.nextInt(max);
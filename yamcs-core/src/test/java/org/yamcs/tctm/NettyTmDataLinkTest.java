@@ -0,0 +1,190 @@
+package org.yamcs.tctm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.archive.PacketWithTime;
+import org.yamcs.utils.TimeEncoding;
+
+public class NettyTmDataLinkTest {
+
+    @BeforeClass
+    public static void beforeClass() {
+        TimeEncoding.setUp();
+    }
+
+    @Test
+    public void testTcp() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            serverSocket.setSoTimeout(10000);
+            Map<String, Object> conf = linkConfig();
+            conf.put("host", "localhost");
+            conf.put("port", serverSocket.getLocalPort());
+            conf.put("reconnectionDelay", 100);
+            NettyTcpTmDataLink link = new NettyTcpTmDataLink("test", "tcp", YConfiguration.wrap(conf));
+            BlockingQueue<PacketWithTime> queue = new LinkedBlockingQueue<>();
+            link.setTmSink(queue::add);
+            link.startAsync().awaitRunning();
+
+            byte[] p1 = packet(20, 1);
+            byte[] p2 = packet(30, 2);
+            byte[] p3 = packet(100, 3);
+            try (Socket socket = serverSocket.accept()) {
+                OutputStream out = socket.getOutputStream();
+                // two packets in one write, the third one split
+                byte[] b = new byte[p1.length + p2.length + 10];
+                System.arraycopy(p1, 0, b, 0, p1.length);
+                System.arraycopy(p2, 0, b, p1.length, p2.length);
+                System.arraycopy(p3, 0, b, p1.length + p2.length, 10);
+                out.write(b);
+                out.flush();
+                assertArrayEquals(p1, queue.poll(5, TimeUnit.SECONDS).getPacket());
+                assertArrayEquals(p2, queue.poll(5, TimeUnit.SECONDS).getPacket());
+                assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+                out.write(p3, 10, p3.length - 10);
+                out.flush();
+                assertArrayEquals(p3, queue.poll(5, TimeUnit.SECONDS).getPacket());
+            }
+
+            // the link reconnects after the connection has been closed
+            try (Socket socket = serverSocket.accept()) {
+                byte[] p4 = packet(16, 4);
+                socket.getOutputStream().write(p4);
+                assertArrayEquals(p4, queue.poll(5, TimeUnit.SECONDS).getPacket());
+            }
+            assertEquals(4, link.getDataInCount());
+            link.stopAsync().awaitTerminated();
+        }
+    }
+
+    @Test
+    public void testTcpPacketTooLong() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            serverSocket.setSoTimeout(10000);
+            Map<String, Object> conf = linkConfig();
+            conf.put("host", "localhost");
+            conf.put("port", serverSocket.getLocalPort());
+            conf.put("reconnectionDelay", 100);
+            conf.put("maxPacketLength", 50);
+            NettyTcpTmDataLink link = new NettyTcpTmDataLink("test", "tcp", YConfiguration.wrap(conf));
+            BlockingQueue<PacketWithTime> queue = new LinkedBlockingQueue<>();
+            link.setTmSink(queue::add);
+            link.startAsync().awaitRunning();
+
+            try (Socket socket = serverSocket.accept()) {
+                socket.getOutputStream().write(packet(51, 1));
+            }
+            // the connection is closed by the link and opened again
+            try (Socket socket = serverSocket.accept()) {
+                byte[] p = packet(50, 2);
+                socket.getOutputStream().write(p);
+                assertArrayEquals(p, queue.poll(5, TimeUnit.SECONDS).getPacket());
+            }
+            assertEquals(1, link.getDataInCount());
+            link.stopAsync().awaitTerminated();
+        }
+    }
+
+    @Test
+    public void testUdp() throws Exception {
+        Map<String, Object> conf = linkConfig();
+        conf.put("port", 0);
+        NettyUdpTmDataLink link = new NettyUdpTmDataLink("test", "udp", YConfiguration.wrap(conf));
+        BlockingQueue<PacketWithTime> queue = new LinkedBlockingQueue<>();
+        link.setTmSink(queue::add);
+        link.startAsync().awaitRunning();
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            InetAddress address = InetAddress.getLoopbackAddress();
+            byte[] p1 = packet(20, 1);
+            socket.send(new DatagramPacket(p1, p1.length, address, link.getLocalPort()));
+            PacketWithTime pwt = queue.poll(5, TimeUnit.SECONDS);
+            assertNotNull(pwt);
+            assertArrayEquals(p1, pwt.getPacket());
+
+            link.disable();
+            byte[] p2 = packet(30, 2);
+            socket.send(new DatagramPacket(p2, p2.length, address, link.getLocalPort()));
+            assertNull(queue.poll(200, TimeUnit.MILLISECONDS));
+
+            link.enable();
+            byte[] p3 = packet(40, 3);
+            socket.send(new DatagramPacket(p3, p3.length, address, link.getLocalPort()));
+            assertArrayEquals(p3, queue.poll(5, TimeUnit.SECONDS).getPacket());
+        }
+        assertEquals(2, link.getDataInCount());
+        link.stopAsync().awaitTerminated();
+    }
+
+    @Test
+    public void testProcessingThread() throws Exception {
+        for (boolean processingThread : new boolean[] { true, false }) {
+            Map<String, Object> conf = linkConfig();
+            conf.put("port", 0);
+            conf.put("processingThread", processingThread);
+            conf.put("processingQueueSize", 2);
+            NettyUdpTmDataLink link = new NettyUdpTmDataLink("test", "udp", YConfiguration.wrap(conf));
+            BlockingQueue<String> threadNames = new LinkedBlockingQueue<>();
+            link.setTmSink(pwt -> threadNames.add(Thread.currentThread().getName()));
+            link.startAsync().awaitRunning();
+
+            try (DatagramSocket socket = new DatagramSocket()) {
+                InetAddress address = InetAddress.getLoopbackAddress();
+                int n = 20;
+                for (int i = 0; i < n; i++) {
+                    byte[] p = packet(20, i);
+                    socket.send(new DatagramPacket(p, p.length, address, link.getLocalPort()));
+                }
+                // the sink is called on the thread of the link, not on the shared event loop
+                String threadName = threadNames.poll(5, TimeUnit.SECONDS);
+                assertNotNull(threadName);
+                assertEquals(processingThread, threadName.startsWith("TmLink-test-udp"));
+            }
+            link.stopAsync().awaitTerminated();
+        }
+    }
+
+    private static Map<String, Object> linkConfig() {
+        Map<String, Object> conf = new HashMap<>();
+        conf.put("packetPreprocessorClassName", MyPreprocessor.class.getName());
+        return conf;
+    }
+
+    // CCSDS packet with the given total length filled with the given byte
+    private static byte[] packet(int length, int fill) {
+        byte[] p = new byte[length];
+        for (int i = 6; i < length; i++) {
+            p[i] = (byte) fill;
+        }
+        p[4] = (byte) ((length - 7) >> 8);
+        p[5] = (byte) (length - 7);
+        return p;
+    }
+
+    public static class MyPreprocessor implements PacketPreprocessor {
+        public MyPreprocessor(String yamcsInstance) {
+        }
+
+        @Override
+        public PacketWithTime process(byte[] packet) {
+            return new PacketWithTime(0, 0, 0, packet);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.yamcs.xtceproc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.RefMdbPacketGenerator;
+import org.yamcs.YConfiguration;
+import org.yamcs.parameter.ContainerParameterValue;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.utils.BitBuffer;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.XtceDb;
+
+/**
+ * Checks that the compiled decoders extract the same values as the interpreter
+ */
+public class ContainerCompilerTest {
+    private static XtceDb xtcedb;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        YConfiguration.setupTest("refmdb");
+        XtceDbFactory.reset();
+        xtcedb = XtceDbFactory.createInstanceByConfig("refmdb");
+    }
+
+    @Test
+    public void testSameAsInterpreter() {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+        List<byte[]> packets = new ArrayList<>();
+        packets.add(tmGenerator.generate_PKT1_1());
+        packets.add(tmGenerator.generate_PKT1_2());
+        packets.add(tmGenerator.generate_PKT1_3());
+        packets.add(tmGenerator.generate_PKT1_6(3, 7));
+        packets.add(tmGenerator.generate_PKT1_7());
+        packets.add(tmGenerator.generate_PKT1_9());
+        packets.add(tmGenerator.generate_PKT1_10(5, 2, 3.14f));
+        packets.add(tmGenerator.generate_PKT1_11());
+        packets.add(tmGenerator.generate_PKT4());
+        packets.add(tmGenerator.generate_PKT5());
+        packets.add(tmGenerator.generate_PKT10());
+
+        XtceTmExtractor interpreted = new XtceTmExtractor(xtcedb);
+        interpreted.provideAll();
+
+        XtceTmExtractor compiled = new XtceTmExtractor(xtcedb);
+        ContainerProcessingOptions opts = new ContainerProcessingOptions();
+        opts.setCompileContainers(true);
+        compiled.setOptions(opts);
+        compiled.provideAll();
+
+        long now = TimeEncoding.getWallclockTime();
+        for (byte[] p : packets) {
+            interpreted.processPacket(p, now, now);
+            compiled.processPacket(p, now, now);
+            checkEquals(interpreted.getParameterResult(), compiled.getParameterResult());
+            assertEquals(interpreted.getContainerResult().size(), compiled.getContainerResult().size());
+        }
+
+        // the primary header is made of plain integers, it is compiled
+        ContainerCompiler.CompiledContainer cc = compiled.getSubscription()
+                .getCompiledContainer(xtcedb.getRootSequenceContainer());
+        assertNotNull(cc.decoder);
+    }
+
+    @Test
+    public void testTruncatedPacket() {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+        byte[] p = tmGenerator.generate_PKT1_1();
+        byte[] truncated = new byte[p.length - 3];
+        System.arraycopy(p, 0, truncated, 0, truncated.length);
+
+        XtceTmExtractor interpreted = new XtceTmExtractor(xtcedb);
+        interpreted.provideAll();
+        XtceTmExtractor compiled = new XtceTmExtractor(xtcedb);
+        ContainerProcessingOptions opts = new ContainerProcessingOptions();
+        opts.setCompileContainers(true);
+        compiled.setOptions(opts);
+        compiled.provideAll();
+
+        interpreted.processPacket(truncated, 0, 0);
+        compiled.processPacket(truncated, 0, 0);
+        checkEquals(interpreted.getParameterResult(), compiled.getParameterResult());
+    }
+
+    @Test
+    public void testGetBits() {
+        Random r = new Random(0);
+        byte[] b = new byte[32];
+        r.nextBytes(b);
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN }) {
+            for (int offset = 0; offset < 3; offset++) {
+                for (int numBits = 1; numBits <= 64; numBits++) {
+                    for (int pos = 0; pos < 24; pos++) {
+                        BitBuffer bb = new BitBuffer(b, offset);
+                        bb.setByteOrder(order);
+                        bb.setPosition(pos);
+                        long expected = bb.getBits(numBits);
+                        long actual = order == ByteOrder.BIG_ENDIAN
+                                ? ContainerCompiler.getBitsBE(b, offset, pos, numBits)
+                                : ContainerCompiler.getBitsLE(b, offset, pos, numBits);
+                        assertEquals(order + " offset: " + offset + " numBits: " + numBits + " pos: " + pos,
+                                expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    static void checkEquals(ParameterValueList expected, ParameterValueList actual) {
+        assertEquals(expected.size(), actual.size());
+        assertTrue(expected.size() > 0);
+        Iterator<ParameterValue> it = actual.iterator();
+        for (ParameterValue pv1 : expected) {
+            ParameterValue pv2 = it.next();
+            assertEquals(pv1.getParameter(), pv2.getParameter());
+            assertEquals(pv1.getRawValue(), pv2.getRawValue());
+            assertEquals(pv1.getEngValue(), pv2.getEngValue());
+            assertEquals(pv1.getAcquisitionStatus(), pv2.getAcquisitionStatus());
+            assertEquals(pv1.getExpireMills(), pv2.getExpireMills());
+            ContainerParameterValue cpv1 = (ContainerParameterValue) pv1;
+            ContainerParameterValue cpv2 = (ContainerParameterValue) pv2;
+            assertEquals(cpv1.getAbsoluteBitOffset(), cpv2.getAbsoluteBitOffset());
+            assertEquals(cpv1.getBitSize(), cpv2.getBitSize());
+        }
+    }
+}
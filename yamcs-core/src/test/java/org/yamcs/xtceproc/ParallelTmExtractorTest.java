@@ -0,0 +1,77 @@
+package org.yamcs.xtceproc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.yamcs.RefMdbPacketGenerator;
+import org.yamcs.YConfiguration;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtceproc.ContainerProcessingContext.ContainerProcessingResult;
+
+public class ParallelTmExtractorTest {
+    private static XtceDb xtcedb;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        YConfiguration.setupTest("refmdb");
+        XtceDbFactory.reset();
+        xtcedb = XtceDbFactory.createInstanceByConfig("refmdb");
+    }
+
+    @Test
+    public void testDeliveryOrder() {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+        List<byte[]> packets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            packets.add(tmGenerator.generate_PKT1_1());
+            packets.add(tmGenerator.generate_PKT1_3());
+            packets.add(tmGenerator.generate_PKT4());
+            packets.add(tmGenerator.generate_PKT5());
+            packets.add(tmGenerator.generate_PKT1_9());
+        }
+
+        XtceTmExtractor serial = new XtceTmExtractor(xtcedb);
+        serial.provideAll();
+        List<ParameterValue> expected = new ArrayList<>();
+        for (int i = 0; i < packets.size(); i++) {
+            serial.processPacket(packets.get(i), i, i);
+            expected.addAll(serial.getParameterResult());
+        }
+
+        for (ParallelTmExtractor.ShardBy shardBy : ParallelTmExtractor.ShardBy.values()) {
+            ProcessorData pdata = new ProcessorData(null, "test", xtcedb, false);
+            XtceTmExtractor[] extractors = ParallelTmExtractor
+                    .createExtractors(new XtceTmExtractor(xtcedb, pdata), xtcedb, pdata, 4);
+            for (XtceTmExtractor x : extractors) {
+                x.provideAll();
+            }
+            List<ParameterValue> delivered = new ArrayList<>();
+            List<Thread> deliveryThreads = new ArrayList<>();
+            ParallelTmExtractor pe = new ParallelTmExtractor(extractors, shardBy, 16, "test",
+                    (ContainerProcessingResult r) -> {
+                        deliveryThreads.add(Thread.currentThread());
+                        delivered.addAll(r.getParameterValueList());
+                    });
+            for (int i = 0; i < packets.size(); i++) {
+                pe.processPacket(packets.get(i), i, i, xtcedb.getRootSequenceContainer());
+            }
+            pe.shutdown();
+
+            assertEquals(expected.size(), delivered.size());
+            for (int i = 0; i < expected.size(); i++) {
+                ParameterValue pv1 = expected.get(i);
+                ParameterValue pv2 = delivered.get(i);
+                assertEquals(pv1.getParameter(), pv2.getParameter());
+                assertEquals(pv1.getGenerationTime(), pv2.getGenerationTime());
+                assertEquals(pv1.getEngValue(), pv2.getEngValue());
+            }
+            assertEquals(1, deliveryThreads.stream().distinct().count());
+            assertEquals(packets.size() / 5, extractors[0].getStatistics().stats.get("PKT4").receivedPackets);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package org.yamcs.xtceproc;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.yamcs.RefMdbPacketGenerator.pFixedStringPara1_3_1;
 import static org.yamcs.RefMdbPacketGenerator.pFixedStringPara1_3_2;
@@ -32,13 +34,16 @@ import org.yamcs.ConfigurationException;
 import org.yamcs.ContainerExtractionResult;
 import org.yamcs.parameter.AggregateValue;
 import org.yamcs.parameter.ArrayValue;
+import org.yamcs.parameter.ContainerParameterValue;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.RefMdbPacketGenerator;
 import org.yamcs.YConfiguration;
 import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.parameter.ParameterValueBlock;
 import org.yamcs.parameter.ParameterValueList;
 import org.yamcs.parameter.Value;
 import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Pvalue.MonitoringResult;
 import org.yamcs.utils.BitBuffer;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.ValueUtility;
@@ -88,6 +93,45 @@ public class XtceTmExtractorTest {
         assertEquals(tmGenerator.pStringPara1_1_5, pv.getEngValue().getStringValue());
     }
 
+    @Test
+    public void testPKT1_1Block() throws ConfigurationException {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+
+        XtceTmExtractor tmExtractor = new XtceTmExtractor(xtcedb);
+        tmExtractor.provideAll();
+
+        byte[] bb = tmGenerator.generate_PKT1_1();
+        long now = TimeEncoding.getWallclockTime();
+        tmExtractor.processPacket(bb, now, now);
+
+        ParameterValueBlock block = tmExtractor.getParameterBlock();
+        int i = block.lastIndexOf(xtcedb.getParameter("/REFMDB/SUBSYS1/StringPara1_1_5"));
+        assertFalse(block.isPrimitive(i));
+
+        int numPrimitive = 0;
+        for (i = 0; i < block.size(); i++) {
+            if (block.isPrimitive(i)) {
+                numPrimitive++;
+                assertEquals(block.getEngValue(i), block.getParameterValue(i).getEngValue());
+                assertEquals(block.getRawValue(i), block.getParameterValue(i).getRawValue());
+                assertTrue(block.getParameterValue(i) instanceof ContainerParameterValue);
+            }
+        }
+        assertTrue(numPrimitive > 0);
+
+        ParameterValueList received = tmExtractor.getParameterResult();
+        assertEquals(block.size(), received.size());
+        Parameter p = xtcedb.getParameter("/REFMDB/SUBSYS1/IntegerPara1_1_6");
+        assertSame(block.getLastInserted(p), received.getLastInserted(p));
+        assertEquals(tmGenerator.pIntegerPara1_1_6, received.getLastInserted(p).getEngValue().getUint32Value());
+        assertEquals(now, received.getLastInserted(p).getAcquisitionTime());
+
+        // the block is reused for the next packet
+        tmExtractor.processPacket(tmGenerator.generate_PKT1_1(), now + 1, now + 1);
+        assertSame(block, tmExtractor.getParameterBlock());
+        assertEquals(now + 1, block.getLastInserted(p).getAcquisitionTime());
+    }
+
     @Test
     public void testPKT1_2() throws ConfigurationException {
         RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
@@ -123,6 +167,29 @@ public class XtceTmExtractorTest {
         assertEquals((long) (1500 * 1.9), pv.getExpireMills());
     }
 
+    @Test
+    public void testSharedStatus() throws ConfigurationException {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+
+        XtceTmExtractor tmExtractor = new XtceTmExtractor(xtcedb);
+        tmExtractor.provideAll();
+
+        byte[] bb = tmGenerator.generate_PKT1_2();
+        tmExtractor.processPacket(bb, TimeEncoding.getWallclockTime(), TimeEncoding.getWallclockTime());
+
+        ParameterValueList received = tmExtractor.getParameterResult();
+        ParameterValue pv1 = received.getLastInserted(xtcedb.getParameter("/REFMDB/SUBSYS1/LEIntegerPara1_2_1"));
+        ParameterValue pv2 = received.getLastInserted(xtcedb.getParameter("/REFMDB/SUBSYS1/LEIntegerPara1_2_2"));
+        assertSame(pv1.getStatus(), pv2.getStatus());
+
+        // modifying one value does not affect the other one sharing the status
+        pv1.setMonitoringResult(MonitoringResult.WARNING);
+        assertEquals(MonitoringResult.WARNING, pv1.getMonitoringResult());
+        assertNull(pv2.getMonitoringResult());
+        assertEquals((long) (1500 * 1.9), pv1.getExpireMills());
+        assertEquals((long) (1500 * 1.9), pv2.getExpireMills());
+    }
+
     @Test
     public void testPKT1_3StringStructure() throws ConfigurationException {
         RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
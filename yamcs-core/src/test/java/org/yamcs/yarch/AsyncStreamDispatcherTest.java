@@ -0,0 +1,281 @@
+package org.yamcs.yarch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.yamcs.yarch.AsyncStreamDispatcher.OverflowPolicy;
+
+public class AsyncStreamDispatcherTest extends YarchTestCase {
+
+    Stream createStream(String name, int bufferSize, OverflowPolicy policy) throws Exception {
+        ydb.execute("create stream " + name + "(x int)");
+        Stream s = ydb.getStream(name);
+        s.enableAsyncDispatch(bufferSize, policy);
+        return s;
+    }
+
+    void emit(Stream s, int n) {
+        for (int i = 0; i < n; i++) {
+            s.emitTuple(new Tuple(s.getDefinition(), new Object[] { i }));
+        }
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        Stream s = createStream("async_block", 16, OverflowPolicy.BLOCK);
+        CollectingSubscriber fast = new CollectingSubscriber(0);
+        CollectingSubscriber slow = new CollectingSubscriber(1);
+        s.addSubscriber(fast);
+        s.addSubscriber(slow);
+        int n = 500;
+        emit(s, n);
+        s.close();
+
+        assertTrue(fast.closed.await(10, TimeUnit.SECONDS));
+        assertTrue(slow.closed.await(10, TimeUnit.SECONDS));
+        checkInOrder(fast.received, 0, n);
+        checkInOrder(slow.received, 0, n);
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        Stream s = createStream("async_drop", 16, OverflowPolicy.DROP_OLDEST);
+        BlockingSubscriber sub = new BlockingSubscriber();
+        s.addSubscriber(sub);
+        AsyncStreamDispatcher dispatcher = s.getDispatcher();
+        emit(s, 1);
+        sub.entered.acquire();
+        // the subscriber is now blocked in onTuple with the first tuple
+        emit(s, 100);
+        assertEquals(101, dispatcher.getLag(sub));
+
+        sub.release.release(1000);
+        s.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(100 - 16, dispatcher.getNumDropped(sub));
+        assertEquals(17, sub.received.size());
+        checkInOrder(sub.received.subList(1, 17), 100 - 16, 100);
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        Stream s = createStream("async_disconnect", 16, OverflowPolicy.DISCONNECT);
+        BlockingSubscriber slow = new BlockingSubscriber();
+        CollectingSubscriber fast = new CollectingSubscriber(0);
+        s.addSubscriber(slow);
+        s.addSubscriber(fast);
+        AsyncStreamDispatcher dispatcher = s.getDispatcher();
+        emit(s, 1);
+        slow.entered.acquire();
+        for (int i = 0; i < 100; i++) {
+            // do not let the fast subscriber be disconnected as well
+            while (dispatcher.getLag(fast) > 8) {
+                Thread.sleep(1);
+            }
+            s.emitTuple(new Tuple(s.getDefinition(), new Object[] { i }));
+        }
+        assertTrue(slow.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, s.getSubscriberCount());
+        slow.release.release(1000);
+
+        s.close();
+        assertTrue(fast.closed.await(10, TimeUnit.SECONDS));
+        checkInOrder(fast.received.subList(0, 1), 0, 1);
+        checkInOrder(fast.received.subList(1, fast.received.size()), 0, 100);
+    }
+
+    @Test
+    public void testBlockReentrant() throws Exception {
+        Stream s = createStream("async_reentrant", 16, OverflowPolicy.BLOCK);
+        int n = 200;
+        // slow subscriber emitting back into the stream the negated value of each tuple emitted by the producer
+        CountDownLatch allReceived = new CountDownLatch(2 * n);
+        StreamSubscriber echo = new StreamSubscriber() {
+            @Override
+            public void onTuple(Stream stream, Tuple tuple) {
+                int x = (Integer) tuple.getColumn("x");
+                if (x >= 0) {
+                    stream.emitTuple(new Tuple(stream.getDefinition(), new Object[] { -x - 1 }));
+                }
+                allReceived.countDown();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void streamClosed(Stream stream) {
+            }
+        };
+        s.addSubscriber(echo);
+
+        Thread producer = new Thread(() -> emit(s, n));
+        producer.start();
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        assertTrue(allReceived.await(10, TimeUnit.SECONDS));
+        s.close();
+    }
+
+    @Test
+    public void testBlockReentrantOverflow() throws Exception {
+        Stream s = createStream("async_reentrant_overflow", 16, OverflowPolicy.BLOCK);
+        AtomicInteger emitted = new AtomicInteger();
+        CountDownLatch rejected = new CountDownLatch(1);
+        s.addSubscriber(new StreamSubscriber() {
+            @Override
+            public void onTuple(Stream stream, Tuple tuple) {
+                if ((Integer) tuple.getColumn("x") != 0) {
+                    return;
+                }
+                try {
+                    for (int i = 1; i <= 20; i++) {
+                        stream.emitTuple(new Tuple(stream.getDefinition(), new Object[] { i }));
+                        emitted.incrementAndGet();
+                    }
+                } catch (IllegalStateException e) {
+                    rejected.countDown();
+                }
+            }
+
+            @Override
+            public void streamClosed(Stream stream) {
+            }
+        });
+        emit(s, 1);
+        // the subscriber cannot wait for itself to make space in the buffer
+        assertTrue(rejected.await(10, TimeUnit.SECONDS));
+        assertEquals(16, emitted.get());
+        s.close();
+    }
+
+    @Test
+    public void testCloseWhilePublishing() throws Exception {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            for (int k = 0; k < 20; k++) {
+                Stream s = createStream("async_close_" + policy + "_" + k, 4, policy);
+                CollectingSubscriber sub = new CollectingSubscriber(0);
+                s.addSubscriber(sub);
+                List<Throwable> errors = new ArrayList<>();
+                CountDownLatch started = new CountDownLatch(1);
+                Thread producer = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 100_000 && s.getState() != Stream.QUITTING; i++) {
+                            s.emitTuple(new Tuple(s.getDefinition(), new Object[] { i }));
+                            started.countDown();
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                });
+                producer.start();
+                assertTrue(started.await(10, TimeUnit.SECONDS));
+                s.close();
+                producer.join(10000);
+                assertFalse(producer.isAlive());
+                // the tuples published concurrently with the close are ignored instead of being rejected by the
+                // executor
+                assertEquals(Collections.emptyList(), errors);
+                assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentEmitters() throws Exception {
+        Stream s = createStream("async_concurrent", 16, OverflowPolicy.BLOCK);
+        CollectingSubscriber sub = new CollectingSubscriber(0);
+        s.addSubscriber(sub);
+        int numThreads = 4;
+        int n = 10_000;
+        Thread[] producers = new Thread[numThreads];
+        for (int k = 0; k < numThreads; k++) {
+            int offset = k * n;
+            producers[k] = new Thread(() -> {
+                for (int i = 0; i < n; i++) {
+                    s.emitTuple(new Tuple(s.getDefinition(), new Object[] { offset + i }));
+                }
+            });
+            producers[k].start();
+        }
+        for (Thread t : producers) {
+            t.join(10000);
+        }
+        s.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+
+        // no tuple is lost and the tuples of each emitter are received in order
+        assertEquals(numThreads * n, sub.received.size());
+        int[] next = new int[numThreads];
+        for (int x : sub.received) {
+            int k = x / n;
+            assertEquals(k * n + next[k], x);
+            next[k]++;
+        }
+    }
+
+    static void checkInOrder(List<Integer> l, int start, int end) {
+        assertEquals(end - start, l.size());
+        for (int i = start; i < end; i++) {
+            assertEquals(i, l.get(i - start).intValue());
+        }
+    }
+
+    static class CollectingSubscriber implements StreamSubscriber {
+        final List<Integer> received = new ArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        final long sleepMillis;
+
+        CollectingSubscriber(long sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public void onTuple(Stream stream, Tuple tuple) {
+            received.add((Integer) tuple.getColumn("x"));
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void streamClosed(Stream stream) {
+            closed.countDown();
+        }
+    }
+
+    static class BlockingSubscriber implements StreamSubscriber {
+        final List<Integer> received = new ArrayList<>();
+        final Semaphore entered = new Semaphore(0);
+        final Semaphore release = new Semaphore(0);
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void onTuple(Stream stream, Tuple tuple) {
+            received.add((Integer) tuple.getColumn("x"));
+            entered.release();
+            release.acquireUninterruptibly();
+        }
+
+        @Override
+        public void streamClosed(Stream stream) {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.yamcs.yarch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.yamcs.http.api.archive.ArchiveHelper;
+import org.yamcs.protobuf.Table.StreamInfo;
+import org.yamcs.protobuf.Yamcs.Event;
+import org.yamcs.yarch.streamsql.LimitedStream;
+
+/**
+ * Checks the where clauses and projections pushed into the table reader, evaluated on batches of tuples or row by
+ * row.
+ */
+public class BatchSelectTest extends YarchTestCase {
+    int n = 3000;
+
+    @Before
+    public void populate() throws Exception {
+        ydb.execute("create table bt(t timestamp, id int, v long, x double, name string, primary key(t))");
+        ydb.execute("create stream bt_in(t timestamp, id int, v long, x double, name string)");
+        ydb.execute("insert into bt select * from bt_in");
+        Stream s = ydb.getStream("bt_in");
+        for (int i = 0; i < n; i++) {
+            s.emitTuple(new Tuple(s.getDefinition(),
+                    new Object[] { 1000L * i, i, 2L * i, 0.5 * i, name(i) }));
+        }
+    }
+
+    static String name(int i) {
+        return (i % 3 == 0) ? "a" : "b";
+    }
+
+    List<Integer> select(String where) throws Exception {
+        String sname = "bt_out" + random.nextInt(100000);
+        ydb.execute("create stream " + sname + " as select * from bt where " + where + " nofollow");
+        List<Integer> ids = new ArrayList<>();
+        for (Tuple t : fetchAll(sname)) {
+            ids.add((Integer) t.getColumn("id"));
+        }
+        return ids;
+    }
+
+    void check(String where, IntPredicate expected) throws Exception {
+        List<Integer> ids = select(where);
+        List<Integer> expectedIds = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (expected.test(i)) {
+                expectedIds.add(i);
+            }
+        }
+        assertTrue(expectedIds.size() > 0);
+        assertEquals(expectedIds, ids);
+    }
+
+    @Test
+    public void testRelational() throws Exception {
+        check("v > 100 and name = 'a'", i -> 2 * i > 100 && name(i).equals("a"));
+        check("v <= 3000 and id != 7", i -> 2 * i <= 3000 && i != 7);
+    }
+
+    @Test
+    public void testOr() throws Exception {
+        check("id < 10 or name != 'b'", i -> i < 10 || !name(i).equals("b"));
+    }
+
+    @Test
+    public void testIn() throws Exception {
+        check("id in (1, 5, 2999) and name in ('a', 'b')", i -> i == 1 || i == 5 || i == 2999);
+        check("name not in ('a')", i -> name(i).equals("b"));
+    }
+
+    @Test
+    public void testColumnComparison() throws Exception {
+        check("v > id and id >= 2950", i -> 2 * i > i && i >= 2950);
+    }
+
+    @Test
+    public void testFollow() throws Exception {
+        ydb.execute("create stream bt_follow as select * from bt where id >= 2990");
+        Stream in = ydb.getStream("bt_in");
+        Stream out = ydb.getStream("bt_follow");
+        List<Integer> ids = new ArrayList<>();
+        Semaphore semaphore = new Semaphore(0);
+        out.addSubscriber(new StreamSubscriber() {
+            @Override
+            public void onTuple(Stream s, Tuple t) {
+                int id = (Integer) t.getColumn("id");
+                ids.add(id);
+                if (id == 2990) {
+                    // the row added while the table is read is emitted because the tuples are not batched
+                    in.emitTuple(new Tuple(in.getDefinition(), new Object[] { 1000L * n, n, 2L * n, 0.5 * n, "a" }));
+                }
+            }
+
+            @Override
+            public void streamClosed(Stream s) {
+                semaphore.release();
+            }
+        });
+        out.start();
+        assertTrue(semaphore.tryAcquire(10, TimeUnit.SECONDS));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 2990; i <= n; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void testProjectionAndStatistics() throws Exception {
+        ydb.execute("create stream bt_proj as select id, x from bt where v < 20 and name = 'a' nofollow");
+        SelectStream select = (SelectStream) ydb.getStream("bt_proj");
+        AbstractTableReaderStream reader = AbstractTableReaderStream.getTableReader(select);
+        List<Tuple> tuples = fetchAll("bt_proj");
+        assertEquals(4, tuples.size()); // 0, 3, 6, 9
+        assertEquals(9, tuples.get(3).getColumn("id"));
+        assertEquals(4.5, tuples.get(3).getColumn("x"));
+        assertEquals(n, reader.getNumRowsScanned());
+        assertEquals(4, reader.getNumRowsReturned());
+
+        StreamInfo info = ArchiveHelper.toStreamInfo(select);
+        assertEquals(n, info.getRowsScanned());
+        assertEquals(4, info.getRowsReturned());
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        // the limited stream reads directly the batches emitted by the table reader
+        ydb.execute("create stream bt_limit1 as select * from bt where v > 100 limit 10 nofollow");
+        List<Tuple> tuples = fetchAll("bt_limit1");
+        assertEquals(10, tuples.size());
+        assertEquals(51, tuples.get(0).getColumn("id"));
+        assertEquals(60, tuples.get(9).getColumn("id"));
+
+        // the select stream stops processing the batch once the limit is reached
+        ydb.execute("create stream bt_limit2 as select id from bt where v > 100 limit 10 nofollow");
+        LimitedStream limited = (LimitedStream) ydb.getStream("bt_limit2");
+        SelectStream select = (SelectStream) limited.getInput();
+        tuples = fetchAll("bt_limit2");
+        assertEquals(10, tuples.size());
+        assertEquals(60, tuples.get(9).getColumn("id"));
+        // the tuple following the limit has been emitted by the select, but no other one
+        assertEquals(11, select.getDataCount());
+    }
+
+    @Test
+    public void testPartialDeserialization() throws Exception {
+        TableDefinition tblDef = ydb.getTable("bt");
+        Tuple t = new Tuple(tblDef.getTupleDefinition(), new Object[] { 5L, 1, 2L, 0.5, "abc" });
+        byte[] k = tblDef.serializeKey(t);
+        byte[] v = tblDef.serializeValue(t);
+
+        Tuple t1 = tblDef.deserialize(k, v, new HashSet<>(Arrays.asList("x")));
+        assertEquals(2, t1.size());
+        assertEquals(5L, t1.getColumn("t"));
+        assertEquals(0.5, t1.getColumn("x"));
+
+        t1 = tblDef.deserialize(k, v, new HashSet<>(Arrays.asList("name", "id")));
+        assertEquals(3, t1.size());
+        assertEquals(1, t1.getColumn("id"));
+        assertEquals("abc", t1.getColumn("name"));
+    }
+
+    @Test
+    public void testSkipOversizeBinary() throws Exception {
+        ColumnSerializer<?> binarySerializer = ColumnSerializerFactory.getBasicColumnSerializer(DataType.BINARY);
+        ColumnDefinition pcd = new ColumnDefinition("p", DataType.protobuf(Event.class.getName()));
+        ColumnSerializer<?> protobufSerializer = ColumnSerializerFactory.getColumnSerializer(null, pcd);
+
+        ByteBuffer buf = ByteBuffer.allocate(20);
+        buf.putInt(3).put(new byte[] { 1, 2, 3 }).putInt(ColumnSerializerFactory.maxBinaryLength + 1);
+        buf.flip();
+        binarySerializer.skip(buf, null);
+        assertEquals(7, buf.position());
+
+        // the length of the second value is invalid, both serializers refuse to skip it
+        try {
+            binarySerializer.skip(buf, null);
+            fail("IOException expected");
+        } catch (IOException e) {
+        }
+        buf.position(7);
+        try {
+            protobufSerializer.skip(buf, pcd);
+            fail("IOException expected");
+        } catch (IOException e) {
+        }
+    }
+
+    @Test
+    public void testTupleBatchNullMask() {
+        TupleDefinition td1 = new TupleDefinition();
+        td1.addColumn("a", DataType.INT);
+        TupleDefinition td2 = new TupleDefinition();
+        td2.addColumn("b", DataType.STRING);
+        td2.addColumn("a", DataType.INT);
+
+        TupleBatch batch = new TupleBatch(2);
+        batch.add(new Tuple(td1, new Object[] { 1 }));
+        batch.add(new Tuple(td2, new Object[] { "x", 2 }));
+        batch.add(new Tuple(td1, new Object[] { 3 }));
+        assertEquals(3, batch.size());
+
+        int[] a = batch.getIntColumn("a");
+        assertEquals(3, a[2]);
+        assertEquals(2, a[1]);
+        assertTrue(batch.getNullMask("a").isEmpty());
+
+        Object[] b = batch.getObjectColumn("b");
+        assertEquals("x", b[1]);
+        assertEquals(2, batch.getNullMask("b").cardinality());
+        assertTrue(batch.getNullMask("b").get(0));
+        assertTrue(batch.getNullMask("b").get(2));
+
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+}
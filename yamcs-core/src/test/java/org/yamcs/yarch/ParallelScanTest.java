@@ -0,0 +1,94 @@
+package org.yamcs.yarch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.yamcs.utils.TimeEncoding;
+
+/**
+ * Reads a table partitioned by time and value with the partitions scanned in parallel.
+ */
+public class ParallelScanTest extends YarchTestCase {
+    static final long DAY = 24 * 3600 * 1000L;
+    int numDays = 20;
+    int numPerDay = 150;
+    long t0;
+
+    @Before
+    public void populate() throws Exception {
+        t0 = TimeEncoding.parse("2020-01-01T00:00:00");
+        ydb.execute("create table ps(gentime timestamp, seqNum int, part enum, v long, primary key(gentime, seqNum))"
+                + " partition by time_and_value(gentime('YYYY/DOY'), part)");
+        ydb.execute("create stream ps_in(gentime timestamp, seqNum int, part enum, v long)");
+        ydb.execute("insert into ps select * from ps_in");
+        Stream s = ydb.getStream("ps_in");
+        int seq = 0;
+        for (int d = 0; d < numDays; d++) {
+            for (int i = 0; i < numPerDay; i++) {
+                s.emitTuple(new Tuple(s.getDefinition(),
+                        new Object[] { t0 + d * DAY + i * 1000L, seq, "p" + (seq % 3), (long) seq }));
+                seq++;
+            }
+        }
+    }
+
+    List<Integer> select(String query, int parallelism) throws Exception {
+        String sname = "ps_out" + random.nextInt(100000);
+        // the streams following the table are never read in parallel
+        ydb.execute("create stream " + sname + " as " + query + " nofollow");
+        AbstractTableReaderStream reader = AbstractTableReaderStream.getTableReader(ydb.getStream(sname));
+        reader.setParallelism(parallelism);
+        assertEquals(parallelism, reader.getParallelism());
+        List<Integer> seqs = new ArrayList<>();
+        for (Tuple t : fetchAll(sname)) {
+            seqs.add((Integer) t.getColumn("seqNum"));
+        }
+        return seqs;
+    }
+
+    @Test
+    public void testAll() throws Exception {
+        List<Integer> sequential = select("select * from ps", 1);
+        assertEquals(numDays * numPerDay, sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(i, (int) sequential.get(i));
+        }
+
+        List<Integer> parallel = select("select * from ps", 4);
+        Collections.sort(parallel);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        long start = t0 + 3 * DAY + 10000;
+        long stop = t0 + 11 * DAY;
+        String query = "select seqNum from ps where gentime >= " + start + " and gentime < " + stop
+                + " and part in ('p0', 'p2') and v > 600";
+
+        List<Integer> sequential = select(query, 1);
+        assertTrue(sequential.size() > 0);
+        for (int seq : sequential) {
+            assertTrue(seq % 3 != 1);
+            assertTrue(seq > 600);
+        }
+        List<Integer> parallel = select(query, 8);
+        Collections.sort(parallel);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testDescending() throws Exception {
+        List<Integer> sequential = select("select * from ps where gentime < " + (t0 + 5 * DAY) + " order desc", 1);
+        assertEquals(5 * numPerDay, sequential.size());
+        List<Integer> parallel = select("select * from ps where gentime < " + (t0 + 5 * DAY) + " order desc", 3);
+        Collections.sort(parallel, Collections.reverseOrder());
+        assertEquals(sequential, parallel);
+    }
+}
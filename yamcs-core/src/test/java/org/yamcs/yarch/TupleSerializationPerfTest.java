@@ -0,0 +1,123 @@
+package org.yamcs.yarch;
+
+import static org.yamcs.yarch.TupleSerializationTest.streamSerializeKey;
+import static org.yamcs.yarch.TupleSerializationTest.streamSerializeValue;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.yamcs.StandardTupleDefinitions;
+import org.yamcs.archive.XtceTmRecorder;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.protobuf.Yamcs.Event;
+
+/**
+ * Compares the {@link java.io.DataOutputStream} based serialization of tuples with the {@link TableDefinition}
+ * serialization for the standard tm, pp, events and cmdhist tables.
+ */
+@Ignore
+public class TupleSerializationPerfTest extends YarchTestCase {
+    int n = 2000000;
+    int nwarmup = 200000;
+
+    interface Serializer {
+        void serialize(TableDefinition tblDef, Tuple t) throws Exception;
+    }
+
+    void run(String name, TableDefinition tblDef, Tuple[] tuples) throws Exception {
+        Serializer oldPath = (td, t) -> {
+            streamSerializeKey(td, t);
+            streamSerializeValue(td, t);
+        };
+        Serializer newPath = (td, t) -> {
+            td.serializeKey(t);
+            td.serializeValue(t);
+        };
+        // warmup
+        loop(oldPath, tblDef, tuples, nwarmup);
+        loop(newPath, tblDef, tuples, nwarmup);
+
+        long t0 = System.nanoTime();
+        loop(oldPath, tblDef, tuples, n);
+        long t1 = System.nanoTime();
+        loop(newPath, tblDef, tuples, n);
+        long t2 = System.nanoTime();
+        System.out.println(name + ": stream serialization " + (t1 - t0) / n + " ns/tuple, ByteArray serialization "
+                + (t2 - t1) / n + " ns/tuple");
+    }
+
+    void loop(Serializer s, TableDefinition tblDef, Tuple[] tuples, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            s.serialize(tblDef, tuples[i % tuples.length]);
+        }
+    }
+
+    @Test
+    public void testTm() throws Exception {
+        ydb.execute("create table tm(" + XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION.getStringDefinition1()
+                + ", primary key(gentime, seqNum))");
+        Tuple[] tuples = new Tuple[100];
+        for (int i = 0; i < tuples.length; i++) {
+            tuples[i] = new Tuple(XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION,
+                    new Object[] { 1000L * i, i, 1000L * i + 5, new byte[256], "/perf/packet" + (i % 10) });
+        }
+        run("tm", ydb.getTable("tm"), tuples);
+    }
+
+    @Test
+    public void testPp() throws Exception {
+        ydb.execute("create table pp(" + StandardTupleDefinitions.PARAMETER.getStringDefinition1()
+                + ", primary key(gentime, seqNum))");
+        TupleDefinition tdef = StandardTupleDefinitions.PARAMETER.copy();
+        for (int j = 0; j < 20; j++) {
+            tdef.addColumn("/perf/p" + j, DataType.PARAMETER_VALUE);
+        }
+        Tuple[] tuples = new Tuple[100];
+        for (int i = 0; i < tuples.length; i++) {
+            Object[] cols = new Object[tdef.size()];
+            cols[0] = 1000L * i;
+            cols[1] = "group1";
+            cols[2] = i;
+            cols[3] = 1000L * i + 5;
+            for (int j = 0; j < 20; j++) {
+                ParameterValue pv = new ParameterValue("/perf/p" + j);
+                pv.setGenerationTime(1000L * i);
+                pv.setAcquisitionTime(1000L * i + 5);
+                pv.setDoubleValue(i * j);
+                cols[4 + j] = pv;
+            }
+            tuples[i] = new Tuple(tdef, cols);
+        }
+        run("pp", ydb.getTable("pp"), tuples);
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        ydb.execute("create table events(gentime timestamp, source enum, seqNum int,"
+                + " body PROTOBUF('org.yamcs.protobuf.Yamcs$Event'), primary key(gentime, source, seqNum))");
+        Tuple[] tuples = new Tuple[100];
+        for (int i = 0; i < tuples.length; i++) {
+            Event ev = Event.newBuilder().setSource("src" + (i % 5)).setGenerationTime(1000L * i)
+                    .setReceptionTime(1000L * i + 5).setSeqNumber(i).setMessage("perf test event number " + i)
+                    .build();
+            tuples[i] = new Tuple(StandardTupleDefinitions.EVENT,
+                    new Object[] { 1000L * i, "src" + (i % 5), i, ev });
+        }
+        run("events", ydb.getTable("events"), tuples);
+    }
+
+    @Test
+    public void testCmdhist() throws Exception {
+        ydb.execute("create table cmdhist(" + StandardTupleDefinitions.TC.getStringDefinition1()
+                + ", PRIMARY KEY(gentime, origin, seqNum))");
+        TupleDefinition tdef = StandardTupleDefinitions.TC.copy();
+        tdef.addColumn("source", DataType.STRING);
+        tdef.addColumn("binary", DataType.BINARY);
+        tdef.addColumn("username", DataType.STRING);
+        Tuple[] tuples = new Tuple[100];
+        for (int i = 0; i < tuples.length; i++) {
+            tuples[i] = new Tuple(tdef, new Object[] { 1000L * i, "localhost", i, "/perf/cmd" + (i % 10),
+                    "cmd" + i + "(arg1: 3, arg2: 4)", new byte[64], "operator" });
+        }
+        run("cmdhist", ydb.getTable("cmdhist"), tuples);
+    }
+}
@@ -0,0 +1,132 @@
+package org.yamcs.yarch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.yamcs.StandardTupleDefinitions;
+import org.yamcs.archive.XtceTmRecorder;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.protobuf.Yamcs.Event;
+import org.yamcs.utils.ByteArray;
+
+/**
+ * Checks that the serialization of tuples into {@link ByteArray} produces the same binary format as the
+ * {@link DataOutputStream} based serialization
+ */
+public class TupleSerializationTest extends YarchTestCase {
+
+    /**
+     * serializes the value like the TableDefinition did before the introduction of the ByteArray based serialization
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static byte[] streamSerializeValue(TableDefinition tblDef, Tuple t) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        TupleDefinition tdef = t.getDefinition();
+        TupleDefinition valueDef = tblDef.getValueDefinition();
+        for (int i = 0; i < tdef.size(); i++) {
+            String colName = tdef.getColumn(i).getName();
+            if (tblDef.getKeyDefinition().hasColumn(colName)) {
+                continue;
+            }
+            ColumnSerializer cs = tblDef.getColumnSerializer(colName);
+            dos.writeInt(valueDef.getColumnIndex(colName));
+            cs.serialize(dos, t.getColumn(i));
+        }
+        dos.writeInt(-1);
+        return baos.toByteArray();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static byte[] streamSerializeKey(TableDefinition tblDef, Tuple t) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        for (ColumnDefinition cd : tblDef.getKeyDefinition().getColumnDefinitions()) {
+            ColumnSerializer cs = tblDef.getColumnSerializer(cd.getName());
+            cs.serialize(dos, t.getColumn(cd.getName()));
+        }
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testBasicTypes() throws Exception {
+        ydb.execute("create table test1(k1 timestamp, k2 int, v1 string, v2 binary, v3 enum, v4 double, v5 short,"
+                + " v6 byte, v7 long, primary key(k1, k2))");
+        TableDefinition tblDef = ydb.getTable("test1");
+        TupleDefinition tdef = tblDef.getTupleDefinition();
+
+        Tuple t = new Tuple(tdef, new Object[] { 1000L, -3, "abc é€\u0000 xyz", new byte[] { 1, 2, 3 },
+                "enumval", 3.14, (short) -5, (byte) 7, Long.MIN_VALUE });
+        byte[] v = tblDef.serializeValue(t);
+        assertArrayEquals(streamSerializeValue(tblDef, t), v);
+
+        byte[] k = tblDef.serializeKey(t);
+        assertArrayEquals(streamSerializeKey(tblDef, t), k);
+
+        Tuple t1 = tblDef.deserialize(k, v);
+        assertEquals(t.getColumns().size(), t1.getColumns().size());
+        for (int i = 0; i < tdef.size(); i++) {
+            String name = tdef.getColumn(i).getName();
+            Object o = t.getColumn(name);
+            if (o instanceof byte[]) {
+                assertArrayEquals((byte[]) o, (byte[]) t1.getColumn(name));
+            } else {
+                assertEquals(o, t1.getColumn(name));
+            }
+        }
+    }
+
+    @Test
+    public void testEventsAndPp() throws Exception {
+        ydb.execute("create table events(gentime timestamp, source enum, seqNum int,"
+                + " body PROTOBUF('org.yamcs.protobuf.Yamcs$Event'), primary key(gentime, source, seqNum))");
+        TableDefinition tblDef = ydb.getTable("events");
+        Event ev = Event.newBuilder().setSource("src").setGenerationTime(1000).setReceptionTime(2000).setSeqNumber(3)
+                .setMessage("test message").build();
+        Tuple t = new Tuple(StandardTupleDefinitions.EVENT, new Object[] { 1000L, "src", 3, ev });
+        byte[] v = tblDef.serializeValue(t);
+        assertArrayEquals(streamSerializeValue(tblDef, t), v);
+        assertEquals(ev, tblDef.deserialize(tblDef.serializeKey(t), v).getColumn("body"));
+
+        ydb.execute("create table pp(" + StandardTupleDefinitions.PARAMETER.getStringDefinition1()
+                + ", primary key(gentime, seqNum))");
+        tblDef = ydb.getTable("pp");
+        TupleDefinition tdef = StandardTupleDefinitions.PARAMETER.copy();
+        tdef.addColumn("/test/p1", DataType.PARAMETER_VALUE);
+        ParameterValue pv = new ParameterValue("/test/p1");
+        pv.setGenerationTime(1000);
+        pv.setAcquisitionTime(1001);
+        pv.setDoubleValue(2.5);
+        t = new Tuple(tdef, new Object[] { 1000L, "group1", 5, 1002L, pv });
+        v = tblDef.serializeValue(t);
+        assertArrayEquals(streamSerializeValue(tblDef, t), v);
+        ParameterValue pv1 = (ParameterValue) tblDef.deserialize(tblDef.serializeKey(t), v).getColumn("/test/p1");
+        assertEquals(pv.getEngValue(), pv1.getEngValue());
+        assertEquals(pv.getGenerationTime(), pv1.getGenerationTime());
+    }
+
+    @Test
+    public void testTm() throws Exception {
+        ydb.execute("create table tm(" + XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION.getStringDefinition1()
+                + ", primary key(gentime, seqNum))");
+        TableDefinition tblDef = ydb.getTable("tm");
+        Tuple t = new Tuple(XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION,
+                new Object[] { 1000L, 20, 2000L, new byte[200], "/test/packet1" });
+        assertArrayEquals(streamSerializeValue(tblDef, t), tblDef.serializeValue(t));
+        assertArrayEquals(streamSerializeKey(tblDef, t), tblDef.serializeKey(t));
+
+        ByteArray array = new ByteArray();
+        array.addInt(0xABCD);
+        tblDef.serializeKey(t, array);
+        ByteBuffer bb = ByteBuffer.wrap(array.toArray());
+        assertEquals(0xABCD, bb.getInt());
+        assertEquals(1000L, bb.getLong());
+        assertEquals(20, bb.getInt());
+    }
+}
@@ -1,5 +1,6 @@
 package org.yamcs.yarch.rocksdb;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -9,19 +10,26 @@ import java.io.File;
 import java.nio.file.FileSystemException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDB;
+import org.yamcs.management.ManagementService;
 import org.yamcs.utils.FileUtils;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.DataType;
 import org.yamcs.yarch.PartitioningSpec;
 import org.yamcs.yarch.TableDefinition;
 import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.management.RdbFactoryControlImpl;
 
 public class RDBFactoryTest {
     @BeforeClass
@@ -63,6 +71,9 @@ public class RDBFactoryTest {
         for (int i = RDBFactory.maxOpenDbs; i < 2 * RDBFactory.maxOpenDbs; i++) {
             dbs[i] = rdbf.getRdb("/tmp/rdbfactorytest" + i, false);
         }
+        // the least recently used databases are closed on the scheduler thread
+        rdbf.scheduler.submit(() -> {
+        }).get();
         for (int i = 0; i < RDBFactory.maxOpenDbs / 2; i++) {
             assertFalse(isOpen(dbs[i]));
         }
@@ -76,6 +87,105 @@ public class RDBFactoryTest {
         }
     }
 
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        String dir = "/tmp/rdb_concurrent_test/";
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dir));
+        RDBFactory rdbf = new RDBFactory(dir);
+        int nthreads = 4;
+        int n = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int k = 0; k < nthreads; k++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < n; i++) {
+                    YRDB db = rdbf.getRdb("db1", false);
+                    assertTrue(db.isOpen());
+                    rdbf.dispose(db);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        executor.shutdown();
+
+        YRDB db = rdbf.getOpenRdb("db1");
+        assertNotNull(db);
+        assertEquals(1, db.refcount.get());
+        rdbf.dispose(db);
+        assertEquals(1, rdbf.getMissCount());
+        assertEquals(nthreads * n, rdbf.getHitCount());
+
+        rdbf.close(db);
+        assertFalse(db.isOpen());
+        assertNull(rdbf.getOpenRdb("db1"));
+        assertEquals(1, rdbf.getCloseCount());
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dir));
+    }
+
+    @Test
+    public void testConcurrentOpenAndEvict() throws Exception {
+        String dir = "/tmp/rdb_open_evict_test/";
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dir));
+        RDBFactory rdbf = new RDBFactory(dir);
+        int maxOpenDbs = RDBFactory.maxOpenDbs;
+        // each database opened above the limit causes the least recently used one to be closed
+        RDBFactory.maxOpenDbs = 1;
+        try {
+            int nthreads = 4;
+            int n = 1000;
+            ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int k = 0; k < nthreads; k++) {
+                int k1 = k;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < n; i++) {
+                        YRDB db = rdbf.getRdb("db" + ((i + k1) % 3), false);
+                        assertTrue(db.isOpen());
+                        rdbf.dispose(db);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            executor.shutdown();
+            assertTrue(rdbf.getCloseCount() > 0);
+            assertEquals(rdbf.getMissCount(), rdbf.getCloseCount() + rdbf.getOpenDbPaths().size());
+        } finally {
+            RDBFactory.maxOpenDbs = maxOpenDbs;
+            rdbf.shutdown();
+            FileUtils.deleteRecursivelyIfExists(Paths.get(dir));
+        }
+    }
+
+    @Test
+    public void testManagement() throws Exception {
+        String dir = "/tmp/rdb_management_test";
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dir));
+        RDBFactory rdbf = RDBFactory.getInstance(dir);
+        ManagementService mgmSrv = ManagementService.getInstance();
+        assertTrue(mgmSrv.getRdbFactories().contains(rdbf));
+
+        RdbFactoryControlImpl control = new RdbFactoryControlImpl(rdbf);
+        YRDB db = rdbf.getRdb("db1", false);
+        rdbf.dispose(db);
+        db = rdbf.getRdb("db1", false);
+        rdbf.dispose(db);
+        assertEquals(dir, control.getDataDir());
+        assertEquals(1, control.getNumOpenDatabases());
+        assertEquals(1, control.getMissCount());
+        assertEquals(1, control.getHitCount());
+
+        RDBFactory.shutdownAll();
+        assertEquals(1, control.getCloseCount());
+        assertFalse(mgmSrv.getRdbFactories().contains(rdbf));
+        FileUtils.deleteRecursivelyIfExists(Paths.get(dir));
+    }
+
     @Test
     public void testBackup() throws Exception {
         String dir = "/tmp/rdb_backup_test/";
@@ -0,0 +1,171 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+import org.rocksdb.RocksDB;
+import org.yamcs.ConfigurationException;
+import org.yamcs.YConfiguration;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.utils.FileUtils;
+import org.yamcs.yarch.rocksdb.RdbConfig.Profile;
+import org.yamcs.yarch.rocksdb.RdbConfig.TableWriterConfig;
+import org.yamcs.yarch.rocksdb.RdbConfig.TablespaceConfig;
+
+public class RdbConfigTest {
+    @BeforeClass
+    public static void beforeClass() {
+        RocksDB.loadLibrary();
+        YConfiguration.setupTest(null);
+    }
+
+    @Test
+    public void testTimeSeriesProfile() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tablespaceNamePattern", "ts.*");
+        m.put("profile", "time_series");
+        TablespaceConfig tc = new TablespaceConfig(m);
+        assertEquals(Profile.TIME_SERIES, tc.getProfile());
+        assertEquals(CompressionType.ZSTD_COMPRESSION, tc.getColumnFamilyOptions().bottommostCompressionType());
+        assertEquals(CompressionType.LZ4_COMPRESSION, tc.getColumnFamilyOptions().compressionPerLevel().get(0));
+        assertTrue(tc.getColumnFamilyOptions().levelCompactionDynamicLevelBytes());
+        // the default column family has the same settings
+        assertEquals(CompressionType.ZSTD_COMPRESSION, tc.getOptions().bottommostCompressionType());
+        assertEquals(0.1, tc.getOptions().memtablePrefixBloomSizeRatio(), 1e-6);
+    }
+
+    @Test
+    public void testOverrideProfile() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tablespaceNamePattern", "ts.*");
+        m.put("profile", "time_series");
+        Map<String, Object> options = new HashMap<>();
+        options.put("compression", "zstd");
+        options.put("compactionStyle", "FIFO");
+        options.put("fifoMaxTableFilesSize", 1024);
+        m.put("options", options);
+        TablespaceConfig tc = new TablespaceConfig(m);
+        assertEquals(CompressionType.ZSTD_COMPRESSION, tc.getColumnFamilyOptions().compressionType());
+        assertTrue(tc.getColumnFamilyOptions().compressionPerLevel().isEmpty());
+        assertEquals(CompactionStyle.FIFO, tc.getColumnFamilyOptions().compactionStyle());
+        assertEquals(1024 * 1024, tc.getColumnFamilyOptions().compactionOptionsFIFO().maxTableFilesSize());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidCompression() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tablespaceNamePattern", "ts.*");
+        m.put("options", Collections.singletonMap("compression", "bla"));
+        new TablespaceConfig(m);
+    }
+
+    @Test
+    public void testTableWriterConfig() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tableNamePattern", "tw_.*");
+        m.put("batchSize", 50);
+        RdbConfig.getInstance().addTableWriterConfig(m);
+
+        TableWriterConfig twc = RdbConfig.getInstance().getTableWriterConfig("tw_tm");
+        assertEquals(50, twc.getBatchSize());
+        assertEquals(200, twc.getFlushInterval());
+        assertNull(RdbConfig.getInstance().getTableWriterConfig("tm"));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidBatchSize() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tableNamePattern", "tm");
+        m.put("batchSize", 0);
+        new TableWriterConfig(m);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidFlushInterval() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tableNamePattern", "tm");
+        m.put("flushInterval", 0);
+        new TableWriterConfig(m);
+    }
+
+    @Test
+    public void testOpenWithProfile() throws Exception {
+        String dir = "/tmp/rdb_config_test/tsprofile";
+        FileUtils.deleteRecursivelyIfExists(Paths.get("/tmp/rdb_config_test"));
+        Map<String, Object> m = new HashMap<>();
+        m.put("tablespaceNamePattern", "tsprofile");
+        m.put("profile", "time_series");
+        RdbConfig.getInstance().addTablespaceConfig(m);
+
+        RDBFactory rdbf = new RDBFactory(dir);
+        // the partitions are open with the config of the tablespace
+        YRDB db = rdbf.getRdb("2019/001", false);
+        for (int tbsIndex = 1; tbsIndex <= 3; tbsIndex++) {
+            for (int i = 0; i < 1000; i++) {
+                db.put(key(tbsIndex, i), new byte[100]);
+            }
+        }
+        db.getDb().compactRange();
+
+        for (int tbsIndex = 1; tbsIndex <= 4; tbsIndex++) {
+            int n = 0;
+            try (DbIterator it = db.newPrefixIterator(ByteArrayUtils.encodeInt(tbsIndex, new byte[4], 0))) {
+                while (it.isValid()) {
+                    assertArrayEquals(key(tbsIndex, n), it.key());
+                    n++;
+                    it.next();
+                }
+            }
+            assertEquals(tbsIndex < 4 ? 1000 : 0, n);
+        }
+        assertNotNull(db.get(key(2, 500)));
+        rdbf.close(db);
+        assertFalse(db.isOpen());
+        FileUtils.deleteRecursivelyIfExists(Paths.get("/tmp/rdb_config_test"));
+    }
+
+    @Test
+    public void testConfigMatching() throws Exception {
+        String dir = "/tmp/rdb_config_test/tsmatch";
+        FileUtils.deleteRecursivelyIfExists(Paths.get("/tmp/rdb_config_test"));
+        Map<String, Object> m = new HashMap<>();
+        m.put("tablespaceNamePattern", "tsmatch");
+        m.put("maxOpenFiles", 50);
+        RdbConfig.getInstance().addTablespaceConfig(m);
+        m = new HashMap<>();
+        m.put("tablespaceNamePattern", "2018");
+        m.put("maxOpenFiles", 60);
+        RdbConfig.getInstance().addTablespaceConfig(m);
+
+        RDBFactory rdbf = new RDBFactory(dir);
+        YRDB db = rdbf.getRdb(false);
+        assertEquals(50, db.dbOptions.maxOpenFiles());
+        // a config matching the name of the partition has priority over the one of the tablespace
+        YRDB db2018 = rdbf.getRdb("2018", false);
+        assertEquals(60, db2018.dbOptions.maxOpenFiles());
+        YRDB db2019 = rdbf.getRdb("2019", false);
+        assertEquals(50, db2019.dbOptions.maxOpenFiles());
+        rdbf.shutdown();
+        FileUtils.deleteRecursivelyIfExists(Paths.get("/tmp/rdb_config_test"));
+    }
+
+    private static byte[] key(int tbsIndex, int i) {
+        byte[] k = new byte[12];
+        ByteArrayUtils.encodeInt(tbsIndex, k, 0);
+        ByteArrayUtils.encodeLong(i * 1000L, k, 4);
+        return k;
+    }
+}
@@ -0,0 +1,221 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatchWithIndex;
+import org.rocksdb.WriteOptions;
+import org.yamcs.CrashHandler;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.rocksdb.RdbConfig.TableWriterConfig;
+
+/**
+ * Checks the batch mode of the {@link RdbTableWriter}
+ */
+public class RdbTableWriterTest extends YarchTestCase {
+    TableDefinition tblDef;
+    RdbStorageEngine rse;
+    int streamCount = 0;
+
+    @Before
+    public void createTable() throws Exception {
+        ydb.execute("create table wt(t timestamp, v int, primary key(t))");
+        tblDef = ydb.getTable("wt");
+        rse = RdbStorageEngine.getInstance();
+    }
+
+    RdbTableWriter newWriter(int batchSize, long flushInterval) {
+        return new RdbTableWriter(rse.getTablespace(instance), ydb, tblDef, InsertMode.INSERT,
+                rse.getPartitionManager(tblDef), config(batchSize, flushInterval));
+    }
+
+    static TableWriterConfig config(int batchSize, long flushInterval) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("tableNamePattern", "wt");
+        m.put("batchSize", batchSize);
+        m.put("flushInterval", flushInterval);
+        return new TableWriterConfig(m);
+    }
+
+    void write(RdbTableWriter writer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            writer.onTuple(null, new Tuple(tblDef.getTupleDefinition(), new Object[] { 1000L * i, i }));
+        }
+    }
+
+    List<Integer> readTable() throws Exception {
+        String sname = "wt_out" + (streamCount++);
+        ydb.execute("create stream " + sname + " as select * from wt nofollow");
+        List<Integer> values = new ArrayList<>();
+        for (Tuple t : fetchAll(sname)) {
+            values.add((Integer) t.getColumn("v"));
+        }
+        return values;
+    }
+
+    static List<Integer> range(int from, int to) {
+        List<Integer> l = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            l.add(i);
+        }
+        return l;
+    }
+
+    @Test
+    public void testFlushOnBatchSize() throws Exception {
+        RdbTableWriter writer = newWriter(10, 3600_000);
+        write(writer, 0, 9);
+        assertTrue(readTable().isEmpty());
+
+        write(writer, 9, 15);
+        assertEquals(range(0, 10), readTable());
+
+        // the tuple 14 is pending when written the second time, it is not inserted twice
+        write(writer, 14, 19);
+        assertEquals(range(0, 19), readTable());
+
+        // the tuples received, including the one not inserted, are counted
+        RdbTableWriterStats stats = writer.getStats();
+        assertEquals(2, stats.getNumFlushes());
+        assertEquals(20, stats.getNumFlushedTuples());
+        assertEquals(10, stats.getLastFlushSize());
+        assertTrue(stats.getMaxFlushLatency() >= stats.getAvgFlushLatency());
+
+        write(writer, 19, 22);
+        assertEquals(3, writer.getQueueDepth());
+        assertEquals(3, stats.getQueueDepth());
+
+        writer.close();
+        assertEquals(range(0, 22), readTable());
+        assertEquals(3, stats.getNumFlushes());
+        assertEquals(23, stats.getNumFlushedTuples());
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    @Test
+    public void testStatsSharedByTable() throws Exception {
+        RdbTableWriter writer1 = newWriter(10, 3600_000);
+        RdbTableWriter writer2 = newWriter(10, 3600_000);
+        assertSame(writer1.getStats(), writer2.getStats());
+
+        write(writer1, 0, 3);
+        write(writer2, 3, 5);
+        assertEquals(5, writer1.getStats().getQueueDepth());
+
+        writer1.close();
+        writer2.close();
+        assertEquals(2, writer1.getStats().getNumFlushes());
+        assertEquals(5, writer1.getStats().getNumFlushedTuples());
+    }
+
+    @Test
+    public void testFlushOnInterval() throws Exception {
+        RdbTableWriter writer = newWriter(1000, 50);
+        write(writer, 0, 5);
+        List<Integer> values = readTable();
+        for (int i = 0; i < 100 && values.isEmpty(); i++) {
+            Thread.sleep(50);
+            values = readTable();
+        }
+        assertEquals(range(0, 5), values);
+        writer.close();
+    }
+
+    @Test
+    public void testFlushOnClose() throws Exception {
+        RdbTableWriter writer = newWriter(1000, 3600_000);
+        write(writer, 0, 7);
+        assertTrue(readTable().isEmpty());
+        writer.close();
+        assertEquals(range(0, 7), readTable());
+
+        // the data is still there after closing and reopening the database
+        YarchDatabase.removeInstance(instance);
+        rse.dropTablespace(instance);
+        ydb = YarchDatabase.getInstance(instance);
+        assertEquals(range(0, 7), readTable());
+    }
+
+    @Test
+    public void testFailedBatchWrite() throws Exception {
+        List<String> crashes = new ArrayList<>();
+        RdbTableWriter writer = new RdbTableWriter(rse.getTablespace(instance), ydb, tblDef, InsertMode.INSERT,
+                rse.getPartitionManager(tblDef), config(5, 3600_000)) {
+            int count = 0;
+
+            @Override
+            void writeBatch(YRDB db, WriteOptions wo, WriteBatchWithIndex writeBatch) throws RocksDBException {
+                if (count++ == 0) {
+                    throw new RocksDBException("test failure");
+                }
+                super.writeBatch(db, wo, writeBatch);
+            }
+
+            @Override
+            CrashHandler getCrashHandler() {
+                return (type, msg) -> crashes.add(msg);
+            }
+        };
+        write(writer, 0, 5);
+        assertEquals(1, crashes.size());
+        assertTrue(crashes.get(0).contains("wt"));
+        assertTrue(readTable().isEmpty());
+
+        // the failed batch is discarded, the writer continues with the next one
+        write(writer, 5, 10);
+        assertEquals(range(5, 10), readTable());
+        writer.close();
+        assertEquals(1, crashes.size());
+    }
+
+    @Test
+    public void testIntervalFlushAfterRuntimeException() throws Exception {
+        List<String> crashes = new ArrayList<>();
+        RdbTableWriter writer = new RdbTableWriter(rse.getTablespace(instance), ydb, tblDef, InsertMode.INSERT,
+                rse.getPartitionManager(tblDef), config(1000, 50)) {
+            int count = 0;
+
+            @Override
+            void writeBatch(YRDB db, WriteOptions wo, WriteBatchWithIndex writeBatch) throws RocksDBException {
+                if (count++ == 0) {
+                    throw new IllegalStateException("test failure");
+                }
+                super.writeBatch(db, wo, writeBatch);
+            }
+
+            @Override
+            CrashHandler getCrashHandler() {
+                return (type, msg) -> crashes.add(msg);
+            }
+        };
+        write(writer, 0, 5);
+        for (int i = 0; i < 100 && writer.getQueueDepth() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(1, crashes.size());
+
+        // the periodic flush is still running
+        write(writer, 5, 10);
+        List<Integer> values = readTable();
+        for (int i = 0; i < 100 && values.isEmpty(); i++) {
+            Thread.sleep(50);
+            values = readTable();
+        }
+        assertEquals(range(5, 10), values);
+        writer.close();
+    }
+}
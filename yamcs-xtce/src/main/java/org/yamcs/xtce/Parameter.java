@@ -15,7 +15,10 @@ public class Parameter extends NameDescription {
      * Currently it is only set for DaSS processed parameters for compatibility with the old recorder
      */
     String recordingGroup = null;
-    
+
+    // position of the parameter in the XtceDb, -1 if it is not part of an XtceDb
+    private int index = -1;
+
     public Parameter(String name) {
         super(name);
     }
@@ -47,6 +50,20 @@ public class Parameter extends NameDescription {
     public void setRecordingGroup(String g) {
         this.recordingGroup = g;
     }
+
+    /**
+     * Returns a dense index assigned to the parameter when added to the {@link XtceDb}. The indexes start from 0 and
+     * can be used by the processors for array based lookups instead of hashing the parameter.
+     * 
+     * @return the index of the parameter in the XtceDb or -1 if the parameter is not part of an XtceDb
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
     
     @Override
     public String toString() {
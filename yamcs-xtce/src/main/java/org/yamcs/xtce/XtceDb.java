@@ -28,7 +28,7 @@ import org.yamcs.xtce.xml.XtceAliasSet;
  * @author nm
  */
 public class XtceDb implements Serializable {
-    private static final long serialVersionUID = 57L;
+    private static final long serialVersionUID = 58L;
 
     final SpaceSystem rootSystem;
 
@@ -464,7 +464,8 @@ public class XtceDb implements Serializable {
 
     private void buildParameterMap(SpaceSystem ss) {
         for (Parameter p : ss.getParameters()) {
-            parameters.put(p.getQualifiedName(), p);
+            Parameter old = parameters.put(p.getQualifiedName(), p);
+            p.setIndex(old == null ? parameters.size() - 1 : old.getIndex());
         }
         for (SpaceSystem ss1 : ss.getSubSystems()) {
             buildParameterMap(ss1);
@@ -562,6 +563,7 @@ public class XtceDb implements Serializable {
             }
             ss = spaceSystems.get(ssname);
             ss.addParameter(p);
+            p.setIndex(parameters.size());
             parameters.put(p.getQualifiedName(), p);
 
             parameterAliases.add(p);